@@ -0,0 +1,41 @@
+#!/bin/bash
+# Compares application context startup time and peak RSS of the JVM (shaded jar) and native builds.
+# Build both first: `make build-native` followed by `mvn package -DskipTests`.
+# Neither run has AWS_LAMBDA_RUNTIME_API set, so each starts the context and exits without polling for events.
+#
+# Usage: development/compare-startup.sh [runs]
+
+set -euo pipefail
+
+runs=${1:-5}
+cd "$(dirname "$0")/.."
+
+jar=target/cdn-analyser-unversioned-aws.jar
+native=target/cdn-analyser
+main=uk.gov.companieshouse.cdnanalyser.CdnAnalyserApplication
+
+for artifact in "$jar" "$native"; do
+  if [ ! -f "$artifact" ]; then
+    echo "Missing $artifact, build it first" >&2
+    exit 1
+  fi
+done
+
+measure() {
+  local label=$1
+  shift
+  local log
+  log=$(mktemp)
+  printf '%-8s %12s %12s\n' "$label" "startup s" "max RSS MB"
+  for _ in $(seq "$runs"); do
+    /usr/bin/time -f 'maxrss=%M' "$@" > "$log" 2>&1
+    local startup rss
+    startup=$(sed -n 's/.*Started CdnAnalyserApplication in \([0-9.]*\) seconds.*/\1/p' "$log")
+    rss=$(sed -n 's/^maxrss=\([0-9]*\)$/\1/p' "$log")
+    printf '%-8s %12s %12d\n' "" "${startup:-?}" "$((rss / 1024))"
+  done
+  rm -f "$log"
+}
+
+measure jvm java -cp "$jar" "$main"
+measure native "./$native"
@@ -1,11 +1,17 @@
 package uk.gov.companieshouse.cdnanalyser;
 
+import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.NativeRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class CdnAnalyserApplication {
 
     public static void main(String[] args) {
-        // Intentionally left empty unless using Custom runtime at which point it should include.
+        // Only used by the native image custom runtime, the Java runtime starts the context through FunctionInvoker.
+        SpringApplication.run(CdnAnalyserApplication.class, args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.bind.Name;
+
+/**
+ * The settings of the analysis, bound from the cdn.analysis properties. Each component is named after its full
+ * property, so the properties and the environment variables that set them keep the names they had as @Value
+ * settings, and the defaults below are the only ones.
+ */
+@ConfigurationProperties("cdn.analysis")
+public record AnalysisProperties(
+        @Name("dedup.filter.initial.capacity") @DefaultValue("100000") long dedupFilterInitialCapacity,
+        @Name("dedup.filter.false.positive.probability") @DefaultValue("0.001") double dedupFilterFalsePositiveProbability,
+        @Name("aggregates.retention.days") @DefaultValue("90") int aggregatesRetentionDays,
+        @Name("approximate.enabled") @DefaultValue("false") boolean approximateUsageEnabled,
+        @Name("approximate.sketch.width") @DefaultValue("2048") int approximateSketchWidth,
+        @Name("approximate.sketch.depth") @DefaultValue("5") int approximateSketchDepth,
+        @Name("approximate.top.k") @DefaultValue("100") int approximateTopK,
+        @Name("approximate.report.days") @DefaultValue("30") int approximateReportDays,
+        @Name("totals.sorted") @DefaultValue("false") boolean sortedTotals,
+        @Name("ranking.top.n") @DefaultValue("50") int rankingTopN,
+        @Name("unused.windows") @DefaultValue("30,90,365") List<Integer> unusedAssetWindows,
+        @Name("failed.requests.retention.days") @DefaultValue("7") int failedRequestRetentionDays,
+        @Name("origin.report.days") @DefaultValue("7") int originReportDays,
+        @Name("origin.ttl.seconds") @DefaultValue("86400") long originDefaultTtlSeconds,
+        @Name("origin.fingerprinted.ttl.seconds") @DefaultValue("31536000") long originFingerprintedTtlSeconds,
+        @Name("bandwidth.large.object.bytes") @DefaultValue("102400") long bandwidthLargeObjectBytes,
+        @Name("bandwidth.frequent.fetches.per.day") @DefaultValue("100") double bandwidthFrequentFetchesPerDay,
+        @Name("audit.hot.requests") @DefaultValue("1000") long auditHotRequests,
+        @Name("audit.short.cache.seconds") @DefaultValue("3600") long auditShortCacheSeconds,
+        @Name("trending.bucket.minutes") @DefaultValue("5") int trendingBucketMinutes,
+        @Name("trending.window.hours") @DefaultValue("24") int trendingWindowHours,
+        @Name("trending.recent.minutes") @DefaultValue("60") int trendingRecentMinutes,
+        @Name("trending.top.n") @DefaultValue("100") int trendingTopN,
+        @Name("intraday.enabled") @DefaultValue("false") boolean intradayUsageEnabled,
+        @Name("intraday.slot.minutes") @DefaultValue("60") int intradaySlotMinutes,
+        @Name("intraday.days") @DefaultValue("14") int intradayDays,
+        @Name("referrer.max.hosts") @DefaultValue("200") int referrerMaxHosts,
+        @Name("referrer.max.user.agents") @DefaultValue("1000") int referrerMaxUserAgents) {
+}
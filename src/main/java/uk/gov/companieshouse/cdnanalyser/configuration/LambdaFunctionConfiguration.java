@@ -1,21 +1,60 @@
 package uk.gov.companieshouse.cdnanalyser.configuration;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import software.amazon.awssdk.services.s3.S3Client;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageQuery;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageQueryService;
 import uk.gov.companieshouse.cdnanalyser.service.s3.Processor;
 
 @Configuration
 public class LambdaFunctionConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
     @Bean
     public Supplier<Void> processRequest(S3Client s3Client, Processor processor) {
         return () -> {
+            long start = System.nanoTime();
             processor.handleAssets();
+            logger.info("processRequest completed in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             return null;
         };
     }
+
+    /**
+     * Not run on the schedule, spring.cloud.function.definition selects processRequest. A function deployed with
+     * SPRING_CLOUD_FUNCTION_DEFINITION=queryAssetUsage answers usage queries from the saved index.
+     */
+    @Bean
+    public Function<AssetUsageQuery, AssetUsageReport> queryAssetUsage(AssetUsageQueryService assetUsageQueryService) {
+        return assetUsageQueryService::queryAssetUsage;
+    }
+
+    /**
+     * Answers the same queries as queryAssetUsage from the monthly, weekly and daily reports, for when the index is
+     * missing or to check it, selected with SPRING_CLOUD_FUNCTION_DEFINITION=queryAssetUsageRollups.
+     */
+    @Bean
+    public Function<AssetUsageQuery, AssetUsageReport> queryAssetUsageRollups(AssetUsageQueryService assetUsageQueryService) {
+        return assetUsageQueryService::queryAssetUsageRollups;
+    }
+
+    /**
+     * Answers the origin latency percentiles over any range of days, selected with
+     * SPRING_CLOUD_FUNCTION_DEFINITION=queryOriginLatency.
+     */
+    @Bean
+    public Function<AssetUsageQuery, OriginLatencyReport> queryOriginLatency(AssetUsageQueryService assetUsageQueryService) {
+        return assetUsageQueryService::queryOriginLatency;
+    }
 }
@@ -0,0 +1,115 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import uk.gov.companieshouse.cdnanalyser.models.ApproximateAssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidth;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayload;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPeakUsage;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageQuery;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersion;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionGroup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.DuplicateContent;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.FolderUsage;
+import uk.gov.companieshouse.cdnanalyser.models.HeavyHitter;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LatencyPercentiles;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchSummary;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsage;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAsset;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
+
+/**
+ * Reachability metadata for the native image build. Jackson binds the report and state models reflectively, and the AWS
+ * SDK discovers its execution interceptors from classpath resources and instantiates them by name.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    /**
+     * Every type Jackson reads or writes, whether as a report, a persisted state document or a function payload.
+     * Nested types reachable through fields are registered transitively, but listing each one keeps models that are
+     * only ever bound as collection elements from being missed.
+     */
+    static final List<Class<?>> MODELS = List.of(
+        ApproximateAssetUsageReport.class, AssetAccessLog.class, AssetBandwidth.class, AssetBandwidthReport.class,
+        AssetFolderUsageReport.class, AssetMetadata.class, AssetOriginFetches.class, AssetPayload.class,
+        AssetPayloadReport.class, AssetPeakUsage.class, AssetRequestFailureReport.class, AssetRequestSketch.class,
+        AssetUsageQuery.class, AssetUsageRanking.class, AssetUsageReport.class, AssetUsageRollup.class,
+        AssetVersion.class, AssetVersionGroup.class, AssetVersionReport.class, DuplicateContent.class,
+        FoldedAssetUsage.class, FolderUsage.class, HeavyHitter.class, IntradayUsageReport.class, LatencyPercentiles.class,
+        LogObjectAggregate.class, OriginFetchReport.class, OriginFetchSummary.class, OriginLatencyReport.class,
+        ReferrerUsage.class, ReferrerUsageReport.class, S3File.class, TrendingAsset.class, TrendingAssetsReport.class,
+        UnusedAssetsReport.class);
+
+    private static final List<String> AWS_SDK_INTERCEPTOR_RESOURCES = List.of(
+        "software/amazon/awssdk/global/handlers/execution.interceptors",
+        "software/amazon/awssdk/services/s3/execution.interceptors");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+            MODELS.toArray(Class<?>[]::new));
+
+        hints.resources().registerPattern("software/amazon/awssdk/global/partitions.json");
+        AWS_SDK_INTERCEPTOR_RESOURCES.forEach(resource -> {
+            hints.resources().registerPattern(resource);
+            interceptorClassNames(classLoader, resource).forEach(className ->
+                hints.reflection().registerType(TypeReference.of(className), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS));
+        });
+    }
+
+    private static List<String> interceptorClassNames(ClassLoader classLoader, String resource) {
+        if (classLoader == null) {
+            return List.of();
+        }
+        try {
+            return Collections.list(classLoader.getResources(resource)).stream()
+                    .flatMap(url -> readLines(url).stream())
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> readLines(URL url) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
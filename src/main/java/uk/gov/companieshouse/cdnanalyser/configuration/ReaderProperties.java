@@ -0,0 +1,23 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.boot.context.properties.bind.Name;
+
+/**
+ * The settings of the S3 reads, bound from the cdn properties: the access log pipeline, the asset header requests and
+ * the adaptive concurrency and retries shared by both. Each component is named after its full property, as in
+ * {@link AnalysisProperties}.
+ */
+@ConfigurationProperties("cdn")
+public record ReaderProperties(
+        @Name("access.logs.pipeline.downloaders") @DefaultValue("32") int pipelineDownloaders,
+        @Name("access.logs.pipeline.parsers") @DefaultValue("2") int pipelineParsers,
+        @Name("access.logs.pipeline.chunk.lines") @DefaultValue("1000") int pipelineChunkLines,
+        @Name("access.logs.pipeline.queue.capacity") @DefaultValue("32") int pipelineQueueCapacity,
+        @Name("assets.head.concurrency") @DefaultValue("32") int headConcurrency,
+        @Name("s3.concurrency.initial") @DefaultValue("8") int initialConcurrency,
+        @Name("s3.retry.max.attempts") @DefaultValue("5") int retryMaxAttempts,
+        @Name("s3.retry.base.delay.millis") @DefaultValue("100") long retryBaseDelayMillis,
+        @Name("s3.retry.max.delay.millis") @DefaultValue("5000") long retryMaxDelayMillis) {
+}
@@ -5,17 +5,21 @@ import java.net.URI;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
 
 @Configuration
+@EnableConfigurationProperties({AnalysisProperties.class, ReaderProperties.class})
 public class ServiceConfiguration {
 
 @Value("${aws.endpoint}")
@@ -37,6 +41,22 @@ private boolean pathStyleAccess;
 
     @Bean
     public S3Client s3Client(){
+        return s3ClientBuilder().build();
+    }
+
+    /**
+     * The client of the access log and asset requests, whose throttling the adaptive concurrency limiters handle. Only
+     * injected where asked for by name, so everything else gets the client above.
+     */
+    @Bean(name = ReaderService.LIMITED_S3_CLIENT, defaultCandidate = false)
+    public S3Client limitedS3Client(){
+        return s3ClientBuilder().overrideConfiguration(ClientOverrideConfiguration.builder()
+                                                                                  .retryStrategy(ReaderService.limitedRetryStrategy())
+                                                                                  .build())
+                                .build();
+    }
+
+    private S3ClientBuilder s3ClientBuilder(){
         S3ClientBuilder builder =  S3Client.builder()
             .region(Region.of(region))
             .credentialsProvider(
@@ -52,6 +72,6 @@ private boolean pathStyleAccess;
         else{
             logger.info("USING PRODUCTION CONFIGS");
         }
-        return builder.build();
+        return builder;
     }
 }
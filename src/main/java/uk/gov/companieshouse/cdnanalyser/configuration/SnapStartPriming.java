@@ -0,0 +1,106 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import java.util.concurrent.TimeUnit;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.function.context.FunctionCatalog;
+import org.springframework.stereotype.Component;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.WriterService;
+
+/**
+ * Primes the function before the SnapStart snapshot is taken, so the first invocation after a restore does not pay
+ * for class loading and initialisation of the log parser, the Jackson serialisers, the S3 clients' HTTP stacks and the
+ * Spring Cloud Function lookup. After a restore the S3 connection is re-established, as connections in the snapshot
+ * are no longer usable.
+ */
+@Component
+public class SnapStartPriming implements Resource {
+
+    private static final String PRIMING_LOG_ENTRY = "57f2f030b6e5545bca67c0389164fd7e495aef43831451cc8275ca1bcc012683 chs-cdn.development.ch.gov.uk [01/Jan/2025:00:00:00 +0000] - svc:cloudfront.amazonaws.com PRIMING0000000000 REST.GET.OBJECT %1$spriming.js \"GET /%1$spriming.js HTTP/1.1\" 200 - 1 1 1 1 \"-\" \"-\" - priming SigV4 ECDHE-RSA-AES128-GCM-SHA256 AuthHeader chs-cdn.development.ch.gov.uk.s3.eu-west-2.amazonaws.com TLSv1.2 - -";
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final S3Client s3Client;
+
+    private final S3Client limitedS3Client;
+
+    private final ReaderService readerService;
+
+    private final WriterService writerService;
+
+    private final FunctionCatalog functionCatalog;
+
+    private final String cdnAnalysisBucket;
+
+    private final String accessLogFilterInPath;
+
+    private final boolean primingEnabled;
+
+    public SnapStartPriming(S3Client s3Client, @Qualifier(ReaderService.LIMITED_S3_CLIENT) S3Client limitedS3Client, ReaderService readerService, WriterService writerService, FunctionCatalog functionCatalog,
+                            @Value("${cdn.analysis.bucket}") String cdnAnalysisBucket,
+                            @Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath,
+                            @Value("${cdn.snapstart.priming.enabled:true}") boolean primingEnabled) {
+        this.s3Client = s3Client;
+        this.limitedS3Client = limitedS3Client;
+        this.readerService = readerService;
+        this.writerService = writerService;
+        this.functionCatalog = functionCatalog;
+        this.cdnAnalysisBucket = cdnAnalysisBucket;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.primingEnabled = primingEnabled;
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        if (!primingEnabled) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        String filterInPath = Util.filterInPaths(accessLogFilterInPath).get(0);
+        AssetAccessLog assetAccessLog = Util.parseLogEntry(String.format(PRIMING_LOG_ENTRY, filterInPath), filterInPath);
+        writerService.primeSerialisers(assetAccessLog);
+        readerService.primeDeserialisers();
+        primeS3Client(s3Client);
+        primeS3Client(limitedS3Client);
+        functionCatalog.lookup("processRequest");
+
+        logger.info("SnapStart priming before checkpoint took {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        if (!primingEnabled) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        primeS3Client(s3Client);
+        primeS3Client(limitedS3Client);
+
+        logger.info("SnapStart re-established S3 connection after restore in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void primeS3Client(S3Client s3Client) {
+        // A single key listing initialises credentials, endpoint resolution, signing and the HTTP connection pool.
+        try {
+            s3Client.listObjectsV2(ListObjectsV2Request.builder().bucket(cdnAnalysisBucket).maxKeys(1).build());
+        } catch (SdkException e) {
+            logger.warn("S3 client priming against bucket {} failed: {}", cdnAnalysisBucket, e.getMessage());
+        }
+    }
+}
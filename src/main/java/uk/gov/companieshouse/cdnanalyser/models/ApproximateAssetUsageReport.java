@@ -0,0 +1,92 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Approximate request counts over a range of days, merged from the daily {@link AssetRequestSketch}es. Each estimated
+ * count exceeds the true count by at most estimateErrorBound, with high probability.
+ */
+public class ApproximateAssetUsageReport {
+
+    private String from;
+
+    private String to;
+
+    private long totalRequests;
+
+    private long estimateErrorBound;
+
+    private Map<String, Integer> assetAccessCount = new HashMap<>();
+
+    private List<HeavyHitter> topAssets = new ArrayList<>();
+
+    private List<HeavyHitter> topFailures = new ArrayList<>();
+
+    public ApproximateAssetUsageReport() {
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public long getTotalRequests() {
+        return totalRequests;
+    }
+
+    public void setTotalRequests(long totalRequests) {
+        this.totalRequests = totalRequests;
+    }
+
+    public long getEstimateErrorBound() {
+        return estimateErrorBound;
+    }
+
+    public void setEstimateErrorBound(long estimateErrorBound) {
+        this.estimateErrorBound = estimateErrorBound;
+    }
+
+    public Map<String, Integer> getAssetAccessCount() {
+        return assetAccessCount;
+    }
+
+    public void setAssetAccessCount(Map<String, Integer> assetAccessCount) {
+        this.assetAccessCount = assetAccessCount;
+    }
+
+    public List<HeavyHitter> getTopAssets() {
+        return topAssets;
+    }
+
+    public void setTopAssets(List<HeavyHitter> topAssets) {
+        this.topAssets = topAssets;
+    }
+
+    public List<HeavyHitter> getTopFailures() {
+        return topFailures;
+    }
+
+    public void setTopFailures(List<HeavyHitter> topFailures) {
+        this.topFailures = topFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "ApproximateAssetUsageReport [from=" + from + ", to=" + to + ", totalRequests=" + totalRequests + ", estimateErrorBound="
+               + estimateErrorBound + ", topAssets=" + topAssets + ", topFailures=" + topFailures + "]";
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.companieshouse.cdnanalyser.models;
 import java.time.Instant;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 public class AssetAccessLog {
 
@@ -15,6 +16,29 @@ public class AssetAccessLog {
 
     private Integer statusCode;
 
+    // The S3 request ID, which tells apart requests for the same asset with the same status in the same second; null
+    // for records saved before it was parsed, which are equal to any record with the same request type, asset,
+    // timestamp and status
+    private String requestId;
+
+    // Response body bytes and the object's size, 0 where the log has "-"; not part of a record's identity
+    private long bytesSent;
+
+    private long objectSize;
+
+    // Milliseconds S3 took to send the response and to process the request, -1 where the log has "-"
+    private long totalTime = -1;
+
+    private long turnAroundTime = -1;
+
+    // The host of the Referer header and the User-Agent header, null where the log has "-"; not kept in the raw data,
+    // where the user agent alone would be most of a record's size
+    @JsonIgnore
+    private String referrerHost;
+
+    @JsonIgnore
+    private String userAgent;
+
     public String getRequestType() {
         return requestType;
     }
@@ -50,10 +74,66 @@ public class AssetAccessLog {
     public void setStatusCode(Integer statusCode) {
         this.statusCode = statusCode;
     }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public long getObjectSize() {
+        return objectSize;
+    }
+
+    public void setObjectSize(long objectSize) {
+        this.objectSize = objectSize;
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    public void setTotalTime(long totalTime) {
+        this.totalTime = totalTime;
+    }
+
+    public long getTurnAroundTime() {
+        return turnAroundTime;
+    }
+
+    public void setTurnAroundTime(long turnAroundTime) {
+        this.turnAroundTime = turnAroundTime;
+    }
+
+    public String getReferrerHost() {
+        return referrerHost;
+    }
+
+    public void setReferrerHost(String referrerHost) {
+        this.referrerHost = referrerHost;
+    }
+
+    public String getUserAgent() {
+        return userAgent;
+    }
+
+    public void setUserAgent(String userAgent) {
+        this.userAgent = userAgent;
+    }
     @Override
     public String toString() {
         return "Log [requestType=" + requestType + ", asset=" + asset + ", timestamp=" + timestamp + ", statusCode="
-                + statusCode + "]";
+                + statusCode + ", requestId=" + requestId + ", bytesSent=" + bytesSent + ", objectSize=" + objectSize + ", totalTime=" + totalTime + ", turnAroundTime=" + turnAroundTime + "]";
     }
     @Override
     public int hashCode() {
@@ -63,6 +143,7 @@ public class AssetAccessLog {
         result = prime * result + ((asset == null) ? 0 : asset.hashCode());
         result = prime * result + ((timestamp == null) ? 0 : timestamp.hashCode());
         result = prime * result + ((statusCode == null) ? 0 : statusCode.hashCode());
+        // The request ID is left out, a record saved without one hashes as the same record read again with it
         return result;
     }
     @Override
@@ -94,6 +175,9 @@ public class AssetAccessLog {
                 return false;
         } else if (!statusCode.equals(other.statusCode))
             return false;
+        // Only told apart by request ID when both have one
+        if (requestId != null && other.requestId != null && !requestId.equals(other.requestId))
+            return false;
         return true;
     }
 
@@ -0,0 +1,78 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytes the origin sent for one asset over the days of an {@link AssetBandwidthReport}.
+ */
+public class AssetBandwidth {
+
+    private String asset;
+
+    private long bytesSent;
+
+    // Fraction of all the bytes sent
+    private double share;
+
+    private long fetches;
+
+    // Largest object size seen
+    private long objectSize;
+
+    // Changes that would cut the bytes sent, for large assets fetched often
+    private List<String> candidates = new ArrayList<>();
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public double getShare() {
+        return share;
+    }
+
+    public void setShare(double share) {
+        this.share = share;
+    }
+
+    public long getFetches() {
+        return fetches;
+    }
+
+    public void setFetches(long fetches) {
+        this.fetches = fetches;
+    }
+
+    public long getObjectSize() {
+        return objectSize;
+    }
+
+    public void setObjectSize(long objectSize) {
+        this.objectSize = objectSize;
+    }
+
+    public List<String> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(List<String> candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetBandwidth [asset=" + asset + ", bytesSent=" + bytesSent + ", fetches=" + fetches + ", objectSize=" + objectSize + ", candidates=" + candidates + "]";
+    }
+}
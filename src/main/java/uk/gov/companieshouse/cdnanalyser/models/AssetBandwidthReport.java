@@ -0,0 +1,55 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytes sent by the origin from one day to another, both included, the assets sending the most first.
+ */
+public class AssetBandwidthReport {
+
+    private String from;
+
+    private String to;
+
+    private long totalBytesSent;
+
+    private List<AssetBandwidth> assets = new ArrayList<>();
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public long getTotalBytesSent() {
+        return totalBytesSent;
+    }
+
+    public void setTotalBytesSent(long totalBytesSent) {
+        this.totalBytesSent = totalBytesSent;
+    }
+
+    public List<AssetBandwidth> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<AssetBandwidth> assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetBandwidthReport [from=" + from + ", to=" + to + ", totalBytesSent=" + totalBytesSent + ", assets=" + assets + "]";
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The usage of every folder of the asset bucket from the total successful requests, in folder order.
+ */
+public class AssetFolderUsageReport {
+
+    // Day the report was made
+    private String id;
+
+    private List<FolderUsage> folders = new ArrayList<>();
+
+    public AssetFolderUsageReport() {
+    }
+
+    public AssetFolderUsageReport(String id, List<FolderUsage> folders) {
+        this.id = id;
+        this.folders = folders;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<FolderUsage> getFolders() {
+        return folders;
+    }
+
+    public void setFolders(List<FolderUsage> folders) {
+        this.folders = folders;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetFolderUsageReport [id=" + id + ", folders=" + folders + "]";
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * What the asset bucket holds for one asset: its size, ETag and storage class from the listing, and the
+ * Content-Encoding and Cache-Control it is served with from a HEAD request.
+ */
+public class AssetMetadata {
+
+    private long size;
+
+    private String eTag;
+
+    private String storageClass;
+
+    private String contentEncoding;
+
+    private String cacheControl;
+
+    public AssetMetadata() {
+    }
+
+    public AssetMetadata(long size, String eTag, String storageClass) {
+        this.size = size;
+        this.eTag = eTag;
+        this.storageClass = storageClass;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getStorageClass() {
+        return storageClass;
+    }
+
+    public void setStorageClass(String storageClass) {
+        this.storageClass = storageClass;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    public void setCacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetMetadata [size=" + size + ", eTag=" + eTag + ", storageClass=" + storageClass + ", contentEncoding=" + contentEncoding
+                + ", cacheControl=" + cacheControl + "]";
+    }
+}
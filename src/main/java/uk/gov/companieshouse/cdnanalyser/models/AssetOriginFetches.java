@@ -0,0 +1,97 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The origin fetches of one day. Every request in the S3 access logs is CloudFront fetching from the origin on a
+ * cache miss or to revalidate, so these are counted per asset and hour of the day, along with the revalidations
+ * answered 304 Not Modified, the bytes sent, the largest object size seen and histograms of the time taken.
+ */
+public class AssetOriginFetches {
+
+    // Day, as used for AssetUsageReport ids
+    private String id;
+
+    // Asset to its fetches in each hour of the day
+    private Map<String, int[]> hourlyFetches = new HashMap<>();
+
+    private Map<String, Integer> notModified = new HashMap<>();
+
+    private Map<String, Long> bytesSent = new HashMap<>();
+
+    private Map<String, Long> objectSizes = new HashMap<>();
+
+    // Asset to the counters of a LatencyHistogram of the total and turn-around times
+    private Map<String, int[]> totalTimes = new HashMap<>();
+
+    private Map<String, int[]> turnAroundTimes = new HashMap<>();
+
+    public AssetOriginFetches() {
+    }
+
+    public AssetOriginFetches(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Map<String, int[]> getHourlyFetches() {
+        return hourlyFetches;
+    }
+
+    public void setHourlyFetches(Map<String, int[]> hourlyFetches) {
+        this.hourlyFetches = hourlyFetches;
+    }
+
+    public Map<String, Integer> getNotModified() {
+        return notModified;
+    }
+
+    public void setNotModified(Map<String, Integer> notModified) {
+        this.notModified = notModified;
+    }
+
+    public Map<String, Long> getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(Map<String, Long> bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public Map<String, Long> getObjectSizes() {
+        return objectSizes;
+    }
+
+    public void setObjectSizes(Map<String, Long> objectSizes) {
+        this.objectSizes = objectSizes;
+    }
+
+    public Map<String, int[]> getTotalTimes() {
+        return totalTimes;
+    }
+
+    public void setTotalTimes(Map<String, int[]> totalTimes) {
+        this.totalTimes = totalTimes;
+    }
+
+    public Map<String, int[]> getTurnAroundTimes() {
+        return turnAroundTimes;
+    }
+
+    public void setTurnAroundTimes(Map<String, int[]> turnAroundTimes) {
+        this.turnAroundTimes = turnAroundTimes;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetOriginFetches [id=" + id + ", assets=" + hourlyFetches.size() + "]";
+    }
+}
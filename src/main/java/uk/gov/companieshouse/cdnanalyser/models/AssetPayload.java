@@ -0,0 +1,110 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The bytes one requested asset could be serving, its size times its successful requests, with the headers it is
+ * served with, as listed in an {@link AssetPayloadReport}.
+ */
+public class AssetPayload {
+
+    private String asset;
+
+    private long requests;
+
+    private long size;
+
+    // Size times requests, the bytes served were every request a full response
+    private long bytesServedPotential;
+
+    private String contentEncoding;
+
+    private String cacheControl;
+
+    // Seconds a shared cache may keep the asset, 0 when it may not, -1 when the CDN's default TTL applies
+    private long cacheLifetimeSeconds;
+
+    private String storageClass;
+
+    // Changes that would cut the bytes served
+    private List<String> candidates = new ArrayList<>();
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getBytesServedPotential() {
+        return bytesServedPotential;
+    }
+
+    public void setBytesServedPotential(long bytesServedPotential) {
+        this.bytesServedPotential = bytesServedPotential;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getCacheControl() {
+        return cacheControl;
+    }
+
+    public void setCacheControl(String cacheControl) {
+        this.cacheControl = cacheControl;
+    }
+
+    public long getCacheLifetimeSeconds() {
+        return cacheLifetimeSeconds;
+    }
+
+    public void setCacheLifetimeSeconds(long cacheLifetimeSeconds) {
+        this.cacheLifetimeSeconds = cacheLifetimeSeconds;
+    }
+
+    public String getStorageClass() {
+        return storageClass;
+    }
+
+    public void setStorageClass(String storageClass) {
+        this.storageClass = storageClass;
+    }
+
+    public List<String> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(List<String> candidates) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetPayload [asset=" + asset + ", requests=" + requests + ", size=" + size + ", bytesServedPotential=" + bytesServedPotential
+                + ", contentEncoding=" + contentEncoding + ", cacheControl=" + cacheControl + ", candidates=" + candidates + "]";
+    }
+}
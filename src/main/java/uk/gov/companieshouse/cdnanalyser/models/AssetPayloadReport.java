@@ -0,0 +1,45 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The requested assets ranked by the bytes they could be serving, the largest first, as of the day in its id.
+ */
+public class AssetPayloadReport {
+
+    private String id;
+
+    private long totalBytesServedPotential;
+
+    private List<AssetPayload> assets = new ArrayList<>();
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getTotalBytesServedPotential() {
+        return totalBytesServedPotential;
+    }
+
+    public void setTotalBytesServedPotential(long totalBytesServedPotential) {
+        this.totalBytesServedPotential = totalBytesServedPotential;
+    }
+
+    public List<AssetPayload> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<AssetPayload> assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetPayloadReport [id=" + id + ", totalBytesServedPotential=" + totalBytesServedPotential + ", assets=" + assets + "]";
+    }
+}
@@ -0,0 +1,64 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * The busiest slot of the day for one asset over the days of an {@link IntradayUsageReport}.
+ */
+public class AssetPeakUsage {
+
+    private String asset;
+
+    private long requests;
+
+    // Start of the busiest slot, HH:mm UTC
+    private String peakSlot;
+
+    private long peakRequests;
+
+    // Fraction of the asset's requests made in the busiest slot
+    private double peakShare;
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public String getPeakSlot() {
+        return peakSlot;
+    }
+
+    public void setPeakSlot(String peakSlot) {
+        this.peakSlot = peakSlot;
+    }
+
+    public long getPeakRequests() {
+        return peakRequests;
+    }
+
+    public void setPeakRequests(long peakRequests) {
+        this.peakRequests = peakRequests;
+    }
+
+    public double getPeakShare() {
+        return peakShare;
+    }
+
+    public void setPeakShare(double peakShare) {
+        this.peakShare = peakShare;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetPeakUsage [asset=" + asset + ", requests=" + requests + ", peakSlot=" + peakSlot + ", peakRequests=" + peakRequests + "]";
+    }
+}
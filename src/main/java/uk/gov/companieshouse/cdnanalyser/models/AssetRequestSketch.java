@@ -0,0 +1,93 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The approximate request counts of one day, kept so any range of days can be merged into a report: a Count-Min
+ * sketch of successful requests per asset, and Space-Saving summaries of the most requested assets and the most
+ * frequent asset and failure status code pairs.
+ */
+public class AssetRequestSketch {
+
+    // Day, as used for AssetUsageReport ids
+    private String id;
+
+    private int width;
+
+    private int depth;
+
+    // Count-Min counters, row by row
+    private long[] counts;
+
+    private long total;
+
+    private List<HeavyHitter> topAssets = new ArrayList<>();
+
+    private List<HeavyHitter> topFailures = new ArrayList<>();
+
+    public AssetRequestSketch() {
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public long[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(long[] counts) {
+        this.counts = counts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public List<HeavyHitter> getTopAssets() {
+        return topAssets;
+    }
+
+    public void setTopAssets(List<HeavyHitter> topAssets) {
+        this.topAssets = topAssets;
+    }
+
+    public List<HeavyHitter> getTopFailures() {
+        return topFailures;
+    }
+
+    public void setTopFailures(List<HeavyHitter> topFailures) {
+        this.topFailures = topFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetRequestSketch [id=" + id + ", width=" + width + ", depth=" + depth + ", total=" + total + ", topAssets=" + topAssets
+               + ", topFailures=" + topFailures + "]";
+    }
+}
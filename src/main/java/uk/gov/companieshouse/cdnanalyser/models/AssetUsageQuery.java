@@ -0,0 +1,81 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * A request for the successful requests between two days, in yyyy-MM-dd form and both included, of one asset, of
+ * the assets starting with a prefix, or of every asset when neither is given. The origin latency query takes the same
+ * request. With several environments in the filter in path, the environment names whose analysis is queried, the
+ * first when none is given.
+ */
+public class AssetUsageQuery {
+
+    private String from;
+
+    private String to;
+
+    private String asset;
+
+    private String assetPrefix;
+
+    private String environment;
+
+    public AssetUsageQuery() {
+    }
+
+    public AssetUsageQuery(String from, String to, String asset, String assetPrefix) {
+        this.from = from;
+        this.to = to;
+        this.asset = asset;
+        this.assetPrefix = assetPrefix;
+    }
+
+    public AssetUsageQuery(String from, String to, String asset, String assetPrefix, String environment) {
+        this(from, to, asset, assetPrefix);
+        this.environment = environment;
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public String getAssetPrefix() {
+        return assetPrefix;
+    }
+
+    public void setAssetPrefix(String assetPrefix) {
+        this.assetPrefix = assetPrefix;
+    }
+
+    public String getEnvironment() {
+        return environment;
+    }
+
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetUsageQuery [from=" + from + ", to=" + to + ", asset=" + asset + ", assetPrefix=" + assetPrefix
+                + ", environment=" + environment + "]";
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most requested assets, highest count first, and the identified assets that were not requested at all.
+ */
+public class AssetUsageRanking {
+
+    private Map<String, Integer> topAssets = new LinkedHashMap<>();
+
+    private List<String> unusedAssets = new ArrayList<>();
+
+    public AssetUsageRanking() {
+    }
+
+    public AssetUsageRanking(Map<String, Integer> topAssets, List<String> unusedAssets) {
+        this.topAssets = topAssets;
+        this.unusedAssets = unusedAssets;
+    }
+
+    public Map<String, Integer> getTopAssets() {
+        return topAssets;
+    }
+
+    public void setTopAssets(Map<String, Integer> topAssets) {
+        this.topAssets = topAssets;
+    }
+
+    public List<String> getUnusedAssets() {
+        return unusedAssets;
+    }
+
+    public void setUnusedAssets(List<String> unusedAssets) {
+        this.unusedAssets = unusedAssets;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetUsageRanking [topAssets=" + topAssets + ", unusedAssets=" + unusedAssets + "]";
+    }
+}
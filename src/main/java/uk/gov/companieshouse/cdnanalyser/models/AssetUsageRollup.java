@@ -0,0 +1,50 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * The successful requests per asset over a week or a month, indexed by the asset dictionary so a year of usage is a
+ * handful of small arrays. Assets added to the dictionary after the rollup was last saved have no entry yet, which
+ * counts as no requests.
+ */
+public class AssetUsageRollup {
+
+    // First day of the period, in yyyy-MM-dd form
+    private String id;
+
+    // Last day of the period, in yyyy-MM-dd form
+    private String to;
+
+    private int[] counts = new int[0];
+
+    public AssetUsageRollup() {
+    }
+
+    public AssetUsageRollup(String id, String to, int[] counts) {
+        this.id = id;
+        this.to = to;
+        this.counts = counts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public int[] getCounts() {
+        return counts;
+    }
+
+    public void setCounts(int[] counts) {
+        this.counts = counts;
+    }
+}
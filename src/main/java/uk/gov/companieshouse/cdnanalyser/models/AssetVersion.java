@@ -0,0 +1,75 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * One key of an {@link AssetVersionGroup}, with its successful requests.
+ */
+public class AssetVersion {
+
+    private String asset;
+
+    private long size;
+
+    private String eTag;
+
+    // Successful requests over every reported day
+    private long requests;
+
+    // Requested within the report's window of days
+    private boolean requestedRecently;
+
+    public AssetVersion() {
+    }
+
+    public AssetVersion(String asset, long size, String eTag, long requests, boolean requestedRecently) {
+        this.asset = asset;
+        this.size = size;
+        this.eTag = eTag;
+        this.requests = requests;
+        this.requestedRecently = requestedRecently;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public boolean isRequestedRecently() {
+        return requestedRecently;
+    }
+
+    public void setRequestedRecently(boolean requestedRecently) {
+        this.requestedRecently = requestedRecently;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetVersion [asset=" + asset + ", size=" + size + ", requests=" + requests + ", requestedRecently=" + requestedRecently + "]";
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The keys sharing one logical name, the asset's key without its content hash, the most requested first.
+ */
+public class AssetVersionGroup {
+
+    private String logicalName;
+
+    private long requests;
+
+    private List<AssetVersion> versions = new ArrayList<>();
+
+    // Versions not requested within the report's window
+    private int deadVersions;
+
+    private long deadBytes;
+
+    public String getLogicalName() {
+        return logicalName;
+    }
+
+    public void setLogicalName(String logicalName) {
+        this.logicalName = logicalName;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public List<AssetVersion> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(List<AssetVersion> versions) {
+        this.versions = versions;
+    }
+
+    public int getDeadVersions() {
+        return deadVersions;
+    }
+
+    public void setDeadVersions(int deadVersions) {
+        this.deadVersions = deadVersions;
+    }
+
+    public long getDeadBytes() {
+        return deadBytes;
+    }
+
+    public void setDeadBytes(long deadBytes) {
+        this.deadBytes = deadBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetVersionGroup [logicalName=" + logicalName + ", requests=" + requests + ", versions=" + versions + ", deadVersions=" + deadVersions
+                + ", deadBytes=" + deadBytes + "]";
+    }
+}
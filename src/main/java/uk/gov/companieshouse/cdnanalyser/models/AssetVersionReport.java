@@ -0,0 +1,79 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Assets held under more than one key as of the day in its id: the cache-busted versions of each logical name, with
+ * the versions not requested in the last windowDays days as dead weight, and keys with byte-identical content.
+ */
+public class AssetVersionReport {
+
+    private String id;
+
+    private int windowDays;
+
+    private long deadBytes;
+
+    private long redundantBytes;
+
+    // The most dead bytes first
+    private List<AssetVersionGroup> groups = new ArrayList<>();
+
+    // The most redundant bytes first
+    private List<DuplicateContent> duplicateContent = new ArrayList<>();
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    public void setWindowDays(int windowDays) {
+        this.windowDays = windowDays;
+    }
+
+    public long getDeadBytes() {
+        return deadBytes;
+    }
+
+    public void setDeadBytes(long deadBytes) {
+        this.deadBytes = deadBytes;
+    }
+
+    public long getRedundantBytes() {
+        return redundantBytes;
+    }
+
+    public void setRedundantBytes(long redundantBytes) {
+        this.redundantBytes = redundantBytes;
+    }
+
+    public List<AssetVersionGroup> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(List<AssetVersionGroup> groups) {
+        this.groups = groups;
+    }
+
+    public List<DuplicateContent> getDuplicateContent() {
+        return duplicateContent;
+    }
+
+    public void setDuplicateContent(List<DuplicateContent> duplicateContent) {
+        this.duplicateContent = duplicateContent;
+    }
+
+    @Override
+    public String toString() {
+        return "AssetVersionReport [id=" + id + ", windowDays=" + windowDays + ", deadBytes=" + deadBytes + ", redundantBytes=" + redundantBytes
+                + ", groups=" + groups + ", duplicateContent=" + duplicateContent + "]";
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keys of the asset bucket holding byte-identical content, found by their shared ETag.
+ */
+public class DuplicateContent {
+
+    private String eTag;
+
+    private long size;
+
+    private List<String> assets = new ArrayList<>();
+
+    // The bytes held by every copy but one
+    private long redundantBytes;
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public List<String> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<String> assets) {
+        this.assets = assets;
+    }
+
+    public long getRedundantBytes() {
+        return redundantBytes;
+    }
+
+    public void setRedundantBytes(long redundantBytes) {
+        this.redundantBytes = redundantBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "DuplicateContent [eTag=" + eTag + ", size=" + size + ", assets=" + assets + ", redundantBytes=" + redundantBytes + "]";
+    }
+}
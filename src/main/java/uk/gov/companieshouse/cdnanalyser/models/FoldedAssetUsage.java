@@ -0,0 +1,51 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The successful requests per asset on one day counted by log objects whose aggregates have expired, along with the
+ * aggregate partitions already folded in, so folding a partition again adds nothing.
+ */
+public class FoldedAssetUsage {
+
+    // The day, in yyyy-MM-dd form
+    private String id;
+
+    private List<String> partitions = new ArrayList<>();
+
+    private Map<String, Integer> assetAccessCount = new HashMap<>();
+
+    public FoldedAssetUsage() {
+    }
+
+    public FoldedAssetUsage(String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public List<String> getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(List<String> partitions) {
+        this.partitions = partitions;
+    }
+
+    public Map<String, Integer> getAssetAccessCount() {
+        return assetAccessCount;
+    }
+
+    public void setAssetAccessCount(Map<String, Integer> assetAccessCount) {
+        this.assetAccessCount = assetAccessCount;
+    }
+}
@@ -0,0 +1,75 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * The successful requests, files, files without requests and bytes of every asset under one folder of the asset
+ * bucket, subfolders included.
+ */
+public class FolderUsage {
+
+    // Ends with a slash
+    private String folder;
+
+    private long requests;
+
+    private int files;
+
+    private int unusedFiles;
+
+    private long bytes;
+
+    public FolderUsage() {
+    }
+
+    public FolderUsage(String folder, long requests, int files, int unusedFiles, long bytes) {
+        this.folder = folder;
+        this.requests = requests;
+        this.files = files;
+        this.unusedFiles = unusedFiles;
+        this.bytes = bytes;
+    }
+
+    public String getFolder() {
+        return folder;
+    }
+
+    public void setFolder(String folder) {
+        this.folder = folder;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public void setFiles(int files) {
+        this.files = files;
+    }
+
+    public int getUnusedFiles() {
+        return unusedFiles;
+    }
+
+    public void setUnusedFiles(int unusedFiles) {
+        this.unusedFiles = unusedFiles;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(long bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FolderUsage [folder=" + folder + ", requests=" + requests + ", files=" + files + ", unusedFiles=" + unusedFiles + ", bytes=" + bytes + "]";
+    }
+}
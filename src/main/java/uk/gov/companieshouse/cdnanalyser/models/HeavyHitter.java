@@ -0,0 +1,66 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * An approximate count of requests for an asset, or for an asset with a failure status code, from a Space-Saving
+ * summary. The count may exceed the true count by at most the error.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HeavyHitter {
+
+    private String asset;
+
+    private Integer statusCode;
+
+    private long count;
+
+    private long error;
+
+    public HeavyHitter() {
+    }
+
+    public HeavyHitter(String asset, Integer statusCode, long count, long error) {
+        this.asset = asset;
+        this.statusCode = statusCode;
+        this.count = count;
+        this.error = error;
+    }
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public void setStatusCode(Integer statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getError() {
+        return error;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyHitter [asset=" + asset + ", statusCode=" + statusCode + ", count=" + count + ", error=" + error + "]";
+    }
+}
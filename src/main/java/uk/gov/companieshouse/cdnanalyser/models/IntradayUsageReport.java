@@ -0,0 +1,78 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The successful requests in each slot of the day, summed over the days from one day to another, both included, with
+ * the assets busiest in their peak slot first.
+ */
+public class IntradayUsageReport {
+
+    private String from;
+
+    private String to;
+
+    private int slotMinutes;
+
+    // Requests of every asset per slot, the first starting at 00:00 UTC
+    private long[] requestsBySlot;
+
+    // Start of the busiest slot, HH:mm UTC
+    private String peakSlot;
+
+    private List<AssetPeakUsage> assets = new ArrayList<>();
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    public void setSlotMinutes(int slotMinutes) {
+        this.slotMinutes = slotMinutes;
+    }
+
+    public long[] getRequestsBySlot() {
+        return requestsBySlot;
+    }
+
+    public void setRequestsBySlot(long[] requestsBySlot) {
+        this.requestsBySlot = requestsBySlot;
+    }
+
+    public String getPeakSlot() {
+        return peakSlot;
+    }
+
+    public void setPeakSlot(String peakSlot) {
+        this.peakSlot = peakSlot;
+    }
+
+    public List<AssetPeakUsage> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<AssetPeakUsage> assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public String toString() {
+        return "IntradayUsageReport [from=" + from + ", to=" + to + ", slotMinutes=" + slotMinutes + ", peakSlot=" + peakSlot + ", assets=" + assets + "]";
+    }
+}
@@ -0,0 +1,95 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * The origin latency percentiles, in milliseconds, of an asset or of every asset under a folder. Total time runs
+ * from S3 receiving the request to sending the last byte, turn-around time is S3's processing alone.
+ */
+public class LatencyPercentiles {
+
+    // Asset, or folder ending with a slash
+    private String name;
+
+    private long requests;
+
+    private long totalTimeP50;
+
+    private long totalTimeP95;
+
+    private long totalTimeP99;
+
+    private long turnAroundTimeP50;
+
+    private long turnAroundTimeP95;
+
+    private long turnAroundTimeP99;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getTotalTimeP50() {
+        return totalTimeP50;
+    }
+
+    public void setTotalTimeP50(long totalTimeP50) {
+        this.totalTimeP50 = totalTimeP50;
+    }
+
+    public long getTotalTimeP95() {
+        return totalTimeP95;
+    }
+
+    public void setTotalTimeP95(long totalTimeP95) {
+        this.totalTimeP95 = totalTimeP95;
+    }
+
+    public long getTotalTimeP99() {
+        return totalTimeP99;
+    }
+
+    public void setTotalTimeP99(long totalTimeP99) {
+        this.totalTimeP99 = totalTimeP99;
+    }
+
+    public long getTurnAroundTimeP50() {
+        return turnAroundTimeP50;
+    }
+
+    public void setTurnAroundTimeP50(long turnAroundTimeP50) {
+        this.turnAroundTimeP50 = turnAroundTimeP50;
+    }
+
+    public long getTurnAroundTimeP95() {
+        return turnAroundTimeP95;
+    }
+
+    public void setTurnAroundTimeP95(long turnAroundTimeP95) {
+        this.turnAroundTimeP95 = turnAroundTimeP95;
+    }
+
+    public long getTurnAroundTimeP99() {
+        return turnAroundTimeP99;
+    }
+
+    public void setTurnAroundTimeP99(long turnAroundTimeP99) {
+        this.turnAroundTimeP99 = turnAroundTimeP99;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyPercentiles [name=" + name + ", requests=" + requests + ", totalTimeP50=" + totalTimeP50 + ", totalTimeP95=" + totalTimeP95
+                + ", totalTimeP99=" + totalTimeP99 + "]";
+    }
+}
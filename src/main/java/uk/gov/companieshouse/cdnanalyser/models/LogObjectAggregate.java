@@ -0,0 +1,48 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The contribution of a single access log object to the reports, cached against the object's ETag so the object
+ * is only read again if it changes. Unknown properties are ignored, as aggregates cached before failures were
+ * counted incrementally also hold failure counts.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LogObjectAggregate {
+
+    private String eTag;
+
+    // Day (as used for AssetUsageReport ids) to asset to successful request count
+    private Map<String, Map<String, Integer>> successCounts = new HashMap<>();
+
+    public LogObjectAggregate() {
+    }
+
+    public LogObjectAggregate(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public Map<String, Map<String, Integer>> getSuccessCounts() {
+        return successCounts;
+    }
+
+    public void setSuccessCounts(Map<String, Map<String, Integer>> successCounts) {
+        this.successCounts = successCounts;
+    }
+
+    @Override
+    public String toString() {
+        return "LogObjectAggregate [eTag=" + eTag + ", successCounts=" + successCounts + "]";
+    }
+}
@@ -0,0 +1,57 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The origin fetches of each asset from one day to another, both included, the assets fetched most often for their
+ * TTL class first.
+ */
+public class OriginFetchReport {
+
+    private String from;
+
+    private String to;
+
+    // Days in the range with origin fetches, which the rates are averaged over
+    private int days;
+
+    private List<OriginFetchSummary> assets = new ArrayList<>();
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public void setDays(int days) {
+        this.days = days;
+    }
+
+    public List<OriginFetchSummary> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<OriginFetchSummary> assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public String toString() {
+        return "OriginFetchReport [from=" + from + ", to=" + to + ", days=" + days + ", assets=" + assets + "]";
+    }
+}
@@ -0,0 +1,106 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * The origin fetches of one asset over the days of an {@link OriginFetchReport}, set against the fetches a day its
+ * TTL class should allow.
+ */
+public class OriginFetchSummary {
+
+    private String asset;
+
+    private String ttlClass;
+
+    private long fetches;
+
+    // Fraction of the fetches that were revalidations answered 304
+    private double notModifiedShare;
+
+    private double fetchesPerHour;
+
+    private int peakHourlyFetches;
+
+    private double fetchesPerDay;
+
+    // One fetch each time the TTL expires
+    private double expectedFetchesPerDay;
+
+    private double ttlRatio;
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public String getTtlClass() {
+        return ttlClass;
+    }
+
+    public void setTtlClass(String ttlClass) {
+        this.ttlClass = ttlClass;
+    }
+
+    public long getFetches() {
+        return fetches;
+    }
+
+    public void setFetches(long fetches) {
+        this.fetches = fetches;
+    }
+
+    public double getNotModifiedShare() {
+        return notModifiedShare;
+    }
+
+    public void setNotModifiedShare(double notModifiedShare) {
+        this.notModifiedShare = notModifiedShare;
+    }
+
+    public double getFetchesPerHour() {
+        return fetchesPerHour;
+    }
+
+    public void setFetchesPerHour(double fetchesPerHour) {
+        this.fetchesPerHour = fetchesPerHour;
+    }
+
+    public int getPeakHourlyFetches() {
+        return peakHourlyFetches;
+    }
+
+    public void setPeakHourlyFetches(int peakHourlyFetches) {
+        this.peakHourlyFetches = peakHourlyFetches;
+    }
+
+    public double getFetchesPerDay() {
+        return fetchesPerDay;
+    }
+
+    public void setFetchesPerDay(double fetchesPerDay) {
+        this.fetchesPerDay = fetchesPerDay;
+    }
+
+    public double getExpectedFetchesPerDay() {
+        return expectedFetchesPerDay;
+    }
+
+    public void setExpectedFetchesPerDay(double expectedFetchesPerDay) {
+        this.expectedFetchesPerDay = expectedFetchesPerDay;
+    }
+
+    public double getTtlRatio() {
+        return ttlRatio;
+    }
+
+    public void setTtlRatio(double ttlRatio) {
+        this.ttlRatio = ttlRatio;
+    }
+
+    @Override
+    public String toString() {
+        return "OriginFetchSummary [asset=" + asset + ", ttlClass=" + ttlClass + ", fetches=" + fetches + ", notModifiedShare=" + notModifiedShare
+                + ", peakHourlyFetches=" + peakHourlyFetches + ", ttlRatio=" + ttlRatio + "]";
+    }
+}
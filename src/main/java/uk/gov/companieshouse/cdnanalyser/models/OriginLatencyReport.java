@@ -0,0 +1,56 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The origin latency percentiles of each asset and folder from one day to another, both included, the slowest by
+ * 99th percentile total time first.
+ */
+public class OriginLatencyReport {
+
+    private String from;
+
+    private String to;
+
+    private List<LatencyPercentiles> assets = new ArrayList<>();
+
+    private List<LatencyPercentiles> folders = new ArrayList<>();
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public List<LatencyPercentiles> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<LatencyPercentiles> assets) {
+        this.assets = assets;
+    }
+
+    public List<LatencyPercentiles> getFolders() {
+        return folders;
+    }
+
+    public void setFolders(List<LatencyPercentiles> folders) {
+        this.folders = folders;
+    }
+
+    @Override
+    public String toString() {
+        return "OriginLatencyReport [from=" + from + ", to=" + to + ", assets=" + assets.size() + ", folders=" + folders.size() + "]";
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The successful requests made from pages of one referrer host, with the assets and user agents that made the most.
+ */
+public class ReferrerUsage {
+
+    private String referrerHost;
+
+    private long requests;
+
+    private long bytesSent;
+
+    // Most requested first
+    private Map<String, Long> assets = new LinkedHashMap<>();
+
+    private Map<String, Long> userAgents = new LinkedHashMap<>();
+
+    public String getReferrerHost() {
+        return referrerHost;
+    }
+
+    public void setReferrerHost(String referrerHost) {
+        this.referrerHost = referrerHost;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public void setBytesSent(long bytesSent) {
+        this.bytesSent = bytesSent;
+    }
+
+    public Map<String, Long> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(Map<String, Long> assets) {
+        this.assets = assets;
+    }
+
+    public Map<String, Long> getUserAgents() {
+        return userAgents;
+    }
+
+    public void setUserAgents(Map<String, Long> userAgents) {
+        this.userAgents = userAgents;
+    }
+
+    @Override
+    public String toString() {
+        return "ReferrerUsage [referrerHost=" + referrerHost + ", requests=" + requests + ", bytesSent=" + bytesSent + "]";
+    }
+}
@@ -0,0 +1,58 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The successful asset requests of every run so far by the host of the page that made them, the most requests first.
+ * Requests without a Referer header are under "(none)", and those from hosts or user agents beyond the caps under
+ * "(other)".
+ */
+public class ReferrerUsageReport {
+
+    private long requests;
+
+    private int maxReferrerHosts;
+
+    private int maxUserAgents;
+
+    private List<ReferrerUsage> referrers = new ArrayList<>();
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(long requests) {
+        this.requests = requests;
+    }
+
+    public int getMaxReferrerHosts() {
+        return maxReferrerHosts;
+    }
+
+    public void setMaxReferrerHosts(int maxReferrerHosts) {
+        this.maxReferrerHosts = maxReferrerHosts;
+    }
+
+    public int getMaxUserAgents() {
+        return maxUserAgents;
+    }
+
+    public void setMaxUserAgents(int maxUserAgents) {
+        this.maxUserAgents = maxUserAgents;
+    }
+
+    public List<ReferrerUsage> getReferrers() {
+        return referrers;
+    }
+
+    public void setReferrers(List<ReferrerUsage> referrers) {
+        this.referrers = referrers;
+    }
+
+    @Override
+    public String toString() {
+        return "ReferrerUsageReport [requests=" + requests + ", maxReferrerHosts=" + maxReferrerHosts + ", maxUserAgents=" + maxUserAgents
+               + ", referrers=" + referrers + "]";
+    }
+}
@@ -8,6 +8,8 @@ public class S3File {
 
     private Instant modifiedDate;
 
+    private String eTag;
+
     private String content = "";
 
     public S3File(String filename, Instant modifiedDate) {
@@ -15,6 +17,11 @@ public class S3File {
         this.modifiedDate = modifiedDate;
     }
 
+    public S3File(String filename, Instant modifiedDate, String eTag) {
+        this(filename, modifiedDate);
+        this.eTag = eTag;
+    }
+
     public String getFilename() {
         return filename;
     }
@@ -23,6 +30,10 @@ public class S3File {
         return modifiedDate;
     }
 
+    public String getETag() {
+        return eTag;
+    }
+
     public String getContent() {
         return content;
     }
@@ -33,6 +44,6 @@ public class S3File {
 
     @Override
     public String toString() {
-        return "S3File [filename=" + filename + ", modifiedDate=" + modifiedDate + ", content=" + content + "]";
+        return "S3File [filename=" + filename + ", modifiedDate=" + modifiedDate + ", eTag=" + eTag + ", content=" + content + "]";
     }
 }
@@ -0,0 +1,65 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+/**
+ * An asset whose origin fetch rate over the recent minutes of a {@link TrendingAssetsReport} is above its rate over
+ * the rest of the window.
+ */
+public class TrendingAsset {
+
+    private String asset;
+
+    private double recentFetchesPerHour;
+
+    private double earlierFetchesPerHour;
+
+    // Recent less earlier fetches an hour
+    private double rise;
+
+    private boolean fingerprinted;
+
+    public String getAsset() {
+        return asset;
+    }
+
+    public void setAsset(String asset) {
+        this.asset = asset;
+    }
+
+    public double getRecentFetchesPerHour() {
+        return recentFetchesPerHour;
+    }
+
+    public void setRecentFetchesPerHour(double recentFetchesPerHour) {
+        this.recentFetchesPerHour = recentFetchesPerHour;
+    }
+
+    public double getEarlierFetchesPerHour() {
+        return earlierFetchesPerHour;
+    }
+
+    public void setEarlierFetchesPerHour(double earlierFetchesPerHour) {
+        this.earlierFetchesPerHour = earlierFetchesPerHour;
+    }
+
+    public double getRise() {
+        return rise;
+    }
+
+    public void setRise(double rise) {
+        this.rise = rise;
+    }
+
+    public boolean isFingerprinted() {
+        return fingerprinted;
+    }
+
+    public void setFingerprinted(boolean fingerprinted) {
+        this.fingerprinted = fingerprinted;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendingAsset [asset=" + asset + ", recentFetchesPerHour=" + recentFetchesPerHour + ", earlierFetchesPerHour=" + earlierFetchesPerHour
+                + ", rise=" + rise + ", fingerprinted=" + fingerprinted + "]";
+    }
+}
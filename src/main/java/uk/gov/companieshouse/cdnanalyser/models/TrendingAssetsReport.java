@@ -0,0 +1,57 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The assets whose origin fetch rate is rising fastest, the fastest first, as a list of assets to pre-warm in the CDN.
+ * The window ends with the latest record seen, not the time of the run.
+ */
+public class TrendingAssetsReport {
+
+    // ISO-8601 instants, the window's end exclusive
+    private String from;
+
+    private String to;
+
+    private int recentMinutes;
+
+    private List<TrendingAsset> assets = new ArrayList<>();
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public int getRecentMinutes() {
+        return recentMinutes;
+    }
+
+    public void setRecentMinutes(int recentMinutes) {
+        this.recentMinutes = recentMinutes;
+    }
+
+    public List<TrendingAsset> getAssets() {
+        return assets;
+    }
+
+    public void setAssets(List<TrendingAsset> assets) {
+        this.assets = assets;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendingAssetsReport [from=" + from + ", to=" + to + ", recentMinutes=" + recentMinutes + ", assets=" + assets + "]";
+    }
+}
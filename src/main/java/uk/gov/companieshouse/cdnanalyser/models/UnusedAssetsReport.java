@@ -0,0 +1,57 @@
+package uk.gov.companieshouse.cdnanalyser.models;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The identified assets with no successful requests in each window of days up to and including the report day,
+ * keyed by the number of days in the window.
+ */
+public class UnusedAssetsReport {
+
+    // Last day of every window
+    private String id;
+
+    private int assetCount;
+
+    private Map<Integer, List<String>> unusedAssets = new LinkedHashMap<>();
+
+    public UnusedAssetsReport() {
+    }
+
+    public UnusedAssetsReport(String id, int assetCount, Map<Integer, List<String>> unusedAssets) {
+        this.id = id;
+        this.assetCount = assetCount;
+        this.unusedAssets = unusedAssets;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public int getAssetCount() {
+        return assetCount;
+    }
+
+    public void setAssetCount(int assetCount) {
+        this.assetCount = assetCount;
+    }
+
+    public Map<Integer, List<String>> getUnusedAssets() {
+        return unusedAssets;
+    }
+
+    public void setUnusedAssets(Map<Integer, List<String>> unusedAssets) {
+        this.unusedAssets = unusedAssets;
+    }
+
+    @Override
+    public String toString() {
+        return "UnusedAssetsReport [id=" + id + ", assetCount=" + assetCount + ", unusedAssets=" + unusedAssets + "]";
+    }
+}
@@ -0,0 +1,102 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Count-Min sketch (Cormode and Muthukrishnan) of counts per item in a fixed depth x width table of counters.
+ * An estimate is never below the true count, and exceeds it by at most e * total / width with probability
+ * 1 - e^-depth, however many distinct items are added. Sketches of the same dimensions merge by adding counters.
+ */
+public class CountMinSketch {
+
+    private final int width;
+
+    private final int depth;
+
+    private final long[] counts;
+
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        this(width, depth, new long[width * depth], 0);
+    }
+
+    public CountMinSketch(int width, int depth, long[] counts, long total) {
+        if (width < 1 || depth < 1 || counts.length != width * depth) {
+            throw new IllegalArgumentException("Counts do not match a sketch of width " + width + " and depth " + depth);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = counts;
+        this.total = total;
+    }
+
+    public void add(String item, long count) {
+        long firstHash = hash(item);
+        long secondHash = secondHash(firstHash);
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + (int) Long.remainderUnsigned(firstHash + row * secondHash, width)] += count;
+        }
+        total += count;
+    }
+
+    public long estimate(String item) {
+        long firstHash = hash(item);
+        long secondHash = secondHash(firstHash);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + (int) Long.remainderUnsigned(firstHash + row * secondHash, width)]);
+        }
+        return estimate;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge a sketch of width " + other.width + " and depth " + other.depth
+                                               + " into one of width " + width + " and depth " + depth);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * The most an estimate exceeds the true count by, with probability 1 - e^-depth.
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E * total / width);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long[] getCounts() {
+        return counts;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    private static long hash(String item) {
+        // 64 bit FNV-1a
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long secondHash(long hash) {
+        // SplitMix64 finaliser, forced odd so the rows never probe the same column sequence
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return (hash ^ (hash >>> 31)) | 1L;
+    }
+}
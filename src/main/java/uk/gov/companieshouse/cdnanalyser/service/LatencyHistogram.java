@@ -0,0 +1,107 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import java.util.Arrays;
+
+/**
+ * A log-bucketed histogram of latencies in milliseconds, in the style of HdrHistogram. Values below 32 have a bucket
+ * each, and every power of two above that is split into 16 buckets, so a recorded value is known to within 1/16 of
+ * itself (about 6%) in a fixed 448 counters up to Integer.MAX_VALUE. Histograms merge by adding counters, so daily
+ * histograms merge into any range of days.
+ */
+public class LatencyHistogram {
+
+    // Buckets per power of two are 2^(SIGNIFICANT_BITS - 1)
+    private static final int SIGNIFICANT_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << (SIGNIFICANT_BITS - 1);
+
+    static final int BUCKETS = (31 - SIGNIFICANT_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final int[] counts;
+
+    private long count;
+
+    public LatencyHistogram() {
+        counts = new int[BUCKETS];
+    }
+
+    /**
+     * A histogram from the counters saved by {@link #getCounts()}.
+     */
+    public LatencyHistogram(int[] savedCounts) {
+        if (savedCounts.length > BUCKETS) {
+            throw new IllegalArgumentException(savedCounts.length + " counters do not match a latency histogram of " + BUCKETS);
+        }
+        counts = Arrays.copyOf(savedCounts, BUCKETS);
+        for (int bucketCount : savedCounts) {
+            count += bucketCount;
+        }
+    }
+
+    public void record(long milliseconds) {
+        counts[bucket(Math.max(0, Math.min(milliseconds, Integer.MAX_VALUE)))]++;
+        count++;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+    }
+
+    /**
+     * The latency at or below which the given fraction of values fall, as the middle of its bucket, 0 when empty.
+     */
+    public long percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return lowestValue(i) + (bucketWidth(i) - 1) / 2;
+            }
+        }
+        return lowestValue(BUCKETS - 1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The counters up to the last that is not zero, which is all a histogram of low latencies needs to save.
+     */
+    public int[] getCounts() {
+        int last = BUCKETS;
+        while (last > 0 && counts[last - 1] == 0) {
+            last--;
+        }
+        return Arrays.copyOf(counts, last);
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - (SIGNIFICANT_BITS - 1);
+        // The top SIGNIFICANT_BITS bits of the value, from SUB_BUCKETS to 2 * SUB_BUCKETS - 1
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    private static long bucketWidth(int bucket) {
+        return bucket < 2 * SUB_BUCKETS ? 1 : 1L << (bucket / SUB_BUCKETS - 1);
+    }
+}
@@ -0,0 +1,179 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A Bloom filter over 64 bit fingerprints that grows as it fills (Almeida et al., "Scalable Bloom Filters").
+ * When the newest stage reaches its capacity a stage twice the size is added, each new stage with half the false
+ * positive probability of the one before, so the overall false positive probability stays within the configured
+ * budget however many fingerprints are added. A fingerprint is never reported absent once added.
+ */
+public class ScalableBloomFilter {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int GROWTH_FACTOR = 2;
+
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final long initialCapacity;
+
+    private final double falsePositiveProbability;
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    /**
+     * @param initialCapacity fingerprints the first stage holds before the filter grows
+     * @param falsePositiveProbability overall false positive budget, shared between the stages
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveProbability) {
+        if (initialCapacity < 1 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("Capacity must be positive and the false positive probability between 0 and 1");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public boolean mightContain(long fingerprint) {
+        long secondHash = secondHash(fingerprint);
+        for (Stage stage : stages) {
+            if (stage.mightContain(fingerprint, secondHash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(long fingerprint) {
+        Stage stage = stages.isEmpty() ? null : stages.get(stages.size() - 1);
+        if (stage == null || stage.count >= stage.capacity) {
+            int index = stages.size();
+            // The stage probabilities form a geometric series summing to the overall budget
+            double stageProbability = falsePositiveProbability * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, index);
+            stage = new Stage(initialCapacity * (long) Math.pow(GROWTH_FACTOR, index), stageProbability);
+            stages.add(stage);
+        }
+        stage.add(fingerprint, secondHash(fingerprint));
+    }
+
+    /**
+     * The number of fingerprints added.
+     */
+    public long size() {
+        return stages.stream().mapToLong(stage -> stage.count).sum();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeLong(initialCapacity);
+            output.writeDouble(falsePositiveProbability);
+            output.writeInt(stages.size());
+            for (Stage stage : stages) {
+                output.writeLong(stage.capacity);
+                output.writeLong(stage.count);
+                output.writeInt(stage.hashes);
+                output.writeLong(stage.bitCount);
+                output.writeInt(stage.bits.length);
+                for (long word : stage.bits) {
+                    output.writeLong(word);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static ScalableBloomFilter fromBytes(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = input.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported Bloom filter format version " + version);
+            }
+            ScalableBloomFilter filter = new ScalableBloomFilter(input.readLong(), input.readDouble());
+            int stageCount = input.readInt();
+            for (int i = 0; i < stageCount; i++) {
+                long capacity = input.readLong();
+                long count = input.readLong();
+                int hashes = input.readInt();
+                long bitCount = input.readLong();
+                long[] bits = new long[input.readInt()];
+                for (int word = 0; word < bits.length; word++) {
+                    bits[word] = input.readLong();
+                }
+                filter.stages.add(new Stage(capacity, count, hashes, bitCount, bits));
+            }
+            return filter;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long secondHash(long fingerprint) {
+        // SplitMix64 finaliser, forced odd so successive probes never repeat within a stage
+        long hash = fingerprint + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return (hash ^ (hash >>> 31)) | 1L;
+    }
+
+    private static final class Stage {
+
+        private final long capacity;
+
+        private final int hashes;
+
+        private final long bitCount;
+
+        private final long[] bits;
+
+        private long count;
+
+        private Stage(long capacity, double falsePositiveProbability) {
+            this.capacity = capacity;
+            double ln2 = Math.log(2);
+            this.bitCount = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveProbability) / (ln2 * ln2)));
+            this.hashes = Math.max(1, (int) Math.ceil(-Math.log(falsePositiveProbability) / ln2));
+            this.bits = new long[(int) ((bitCount + 63) / 64)];
+        }
+
+        private Stage(long capacity, long count, int hashes, long bitCount, long[] bits) {
+            this.capacity = capacity;
+            this.count = count;
+            this.hashes = hashes;
+            this.bitCount = bitCount;
+            this.bits = bits;
+        }
+
+        private boolean mightContain(long firstHash, long secondHash) {
+            long combined = firstHash;
+            for (int i = 0; i < hashes; i++) {
+                long index = Long.remainderUnsigned(combined, bitCount);
+                if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += secondHash;
+            }
+            return true;
+        }
+
+        private void add(long firstHash, long secondHash) {
+            long combined = firstHash;
+            for (int i = 0; i < hashes; i++) {
+                long index = Long.remainderUnsigned(combined, bitCount);
+                bits[(int) (index >>> 6)] |= 1L << index;
+                combined += secondHash;
+            }
+            count++;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A Space-Saving summary (Metwally et al.) of the most frequent items, keeping at most a fixed number of counters.
+ * When all counters are taken, a new item replaces the smallest and inherits its count as the possible error, so
+ * every count is an overestimate by at most its error and any item more frequent than total / capacity is kept.
+ * Summaries merge as described by Agarwal et al., "Mergeable Summaries".
+ */
+public class SpaceSavingSummary {
+
+    private static final Comparator<Counter> BY_COUNT = Comparator.comparingLong(Counter::getCount).thenComparing(Counter::getItem);
+
+    private final int capacity;
+
+    private final Map<String, Counter> counters = new HashMap<>();
+
+    private final TreeSet<Counter> countersByCount = new TreeSet<>(BY_COUNT);
+
+    public SpaceSavingSummary(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(String item, long count) {
+        add(item, count, 0);
+    }
+
+    public void add(String item, long count, long error) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            countersByCount.remove(counter);
+            counter.count += count;
+            counter.error += error;
+        } else if (counters.size() < capacity) {
+            counter = new Counter(item, count, error);
+            counters.put(item, counter);
+        } else {
+            Counter smallest = countersByCount.pollFirst();
+            counters.remove(smallest.item);
+            counter = new Counter(item, smallest.count + count, smallest.count + error);
+            counters.put(item, counter);
+        }
+        countersByCount.add(counter);
+    }
+
+    public void merge(SpaceSavingSummary other) {
+        // An item one summary does not track occurred there at most its smallest count times
+        long smallest = smallestCount();
+        long otherSmallest = other.smallestCount();
+        Set<String> items = new HashSet<>(counters.keySet());
+        items.addAll(other.counters.keySet());
+
+        List<Counter> merged = new ArrayList<>(items.size());
+        for (String item : items) {
+            Counter counter = counters.get(item);
+            Counter otherCounter = other.counters.get(item);
+            long count = (counter != null ? counter.count : smallest) + (otherCounter != null ? otherCounter.count : otherSmallest);
+            long error = (counter != null ? counter.error : smallest) + (otherCounter != null ? otherCounter.error : otherSmallest);
+            merged.add(new Counter(item, count, error));
+        }
+        merged.sort(BY_COUNT.reversed());
+
+        counters.clear();
+        countersByCount.clear();
+        merged.stream().limit(capacity).forEach(counter -> {
+            counters.put(counter.item, counter);
+            countersByCount.add(counter);
+        });
+    }
+
+    /**
+     * The counters, most frequent first.
+     */
+    public List<Counter> getCounters() {
+        return new ArrayList<>(countersByCount.descendingSet());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private long smallestCount() {
+        return counters.size() < capacity ? 0 : countersByCount.first().count;
+    }
+
+    public static final class Counter {
+
+        private final String item;
+
+        private long count;
+
+        private long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getItem() {
+            return item;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * The most the count may exceed the true count by.
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encodes the User-Agent headers of the log lines read in a run, so each distinct header is copied out of a line once
+ * and every record with it shares that one String. A header already in the dictionary is found by hashing and
+ * comparing it where it lies in the line, without copying it. The headers repeat heavily, a few hundred browsers
+ * across millions of lines, so the dictionary stays small; once it holds its maximum, or for a header longer than the
+ * longest it keeps, the header is copied for its record as before, so junk values cannot grow it without bound.
+ *
+ * Thread safe, the parsers of a pipeline share one.
+ */
+public final class UserAgentDictionary {
+
+    private final int maxEntries;
+
+    private final int maxLength;
+
+    // Entries by the hash of their characters, almost always one per hash
+    private final ConcurrentHashMap<Integer, String[]> entries = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @param maxEntries the most distinct headers kept
+     * @param maxLength the longest header kept
+     */
+    public UserAgentDictionary(int maxEntries, int maxLength) {
+        if (maxEntries < 1 || maxLength < 1) {
+            throw new IllegalArgumentException("Maximum entries and length must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * The header between the indexes of the line, the dictionary's copy when it has one.
+     */
+    public String encode(String line, int start, int end) {
+        int length = end - start;
+        if (length > maxLength) {
+            return line.substring(start, end);
+        }
+        int hash = hash(line, start, end);
+        String found = find(entries.get(hash), line, start, length);
+        if (found != null) {
+            return found;
+        }
+        String userAgent = line.substring(start, end);
+        if (size.get() >= maxEntries) {
+            return userAgent;
+        }
+        String[] updated = entries.compute(hash, (key, existing) -> {
+            if (existing == null) {
+                size.incrementAndGet();
+                return new String[] {userAgent};
+            }
+            if (find(existing, line, start, length) != null) {
+                return existing;
+            }
+            size.incrementAndGet();
+            String[] added = Arrays.copyOf(existing, existing.length + 1);
+            added[existing.length] = userAgent;
+            return added;
+        });
+        // Another parser may have added the same header first
+        return find(updated, line, start, length);
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private static String find(String[] candidates, String line, int start, int length) {
+        if (candidates != null) {
+            for (String candidate : candidates) {
+                if (candidate.length() == length && line.regionMatches(start, candidate, 0, length)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The String hash of the characters between the indexes
+    private static int hash(String line, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -5,11 +5,18 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
@@ -18,7 +25,9 @@ import org.slf4j.LoggerFactory;
 import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
 import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetDictionary;
 
 public class Util {
 
@@ -26,48 +35,163 @@ public class Util {
 
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("d/MMM/yyyy:HH:mm:ss ZZZ", Locale.ENGLISH);
 
+    // A run of at least eight hex digits set off in the file name, with any -v2 style revision after it
+    private static final Pattern FINGERPRINT = Pattern.compile("[-._][0-9a-fA-F]{8,}(?:-v\\d+)?(?=[-._]|$)");
+
+    // Text types that compress well, images and fonts mostly do not
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of("js", "css", "svg", "json", "html", "txt", "map", "xml");
+
+    // Directives that keep a response out of a shared cache, or make it revalidate every time
+    private static final Pattern NO_SHARED_CACHE = Pattern.compile("(?:^|,)\\s*(?:no-store|no-cache|private)\\b", Pattern.CASE_INSENSITIVE);
+
+    // The shared cache lifetime wins over max-age at the CDN
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*\"?(\\d+)", Pattern.CASE_INSENSITIVE);
+
     private Util() {
         throw new IllegalStateException("Utility class");
     }
 
     public static List<AssetRequestFailureReport> calculateFailedAssetRequests(List<AssetAccessLog> assetAccessLogs, List<AssetRequestFailureReport> existingAssetFailureReport) {
-        Map<String, AssetRequestFailureReport> failureMap = new HashMap<>();
+        return calculateFailedAssetRequests(assetAccessLogs, existingAssetFailureReport, "");
+    }
+
+    public static List<AssetRequestFailureReport> calculateFailedAssetRequests(List<AssetAccessLog> assetAccessLogs, List<AssetRequestFailureReport> existingAssetFailureReport,
+                                                                               String accessLogFilterInPath) {
+        return calculateFailedAssetRequests(assetAccessLogs, existingAssetFailureReport, accessLogFilterInPath, new AssetDictionary(List.of()));
+    }
+
+    /**
+     * Adds the failed requests, with the filter in path removed from their asset, to the existing report of failures
+     * per asset and status code. Counts are keyed by the asset's index in the dictionary and the status code packed
+     * into a long, so no key string is built per request. Failing paths that are not identified assets, such as
+     * probes for missing files, are numbered after the dictionary's assets for this call only.
+     */
+    public static List<AssetRequestFailureReport> calculateFailedAssetRequests(List<AssetAccessLog> assetAccessLogs, List<AssetRequestFailureReport> existingAssetFailureReport,
+                                                                               String accessLogFilterInPath, AssetDictionary dictionary) {
+        Map<String, Integer> unidentifiedAssetIds = new HashMap<>();
+        Map<Long, AssetRequestFailureReport> failureMap = new LinkedHashMap<>();
+        updateFailureReport(existingAssetFailureReport, failureMap, dictionary, unidentifiedAssetIds);
         assetAccessLogs.stream()
                 .filter(assetAccessLog -> assetAccessLog.getStatusCode() >= 400)
                 .forEach(assetAccessLog -> {
-                    String key = assetAccessLog.getAsset() + "-" + assetAccessLog.getStatusCode();
-                    AssetRequestFailureReport failureCount = failureMap.computeIfAbsent(key, assetFailure -> new AssetRequestFailureReport(assetAccessLog.getAsset(), assetAccessLog.getStatusCode(), 0));
+                    String asset = assetAccessLog.getAsset();
+                    if (!accessLogFilterInPath.isEmpty() && asset.startsWith(accessLogFilterInPath)) {
+                        asset = asset.substring(accessLogFilterInPath.length());
+                    }
+                    AssetRequestFailureReport failureCount = failureCount(failureMap, dictionary, unidentifiedAssetIds, asset, assetAccessLog.getStatusCode());
                     failureCount.setFailureCount(failureCount.getFailureCount() + 1);
                 });
-        return updateFailureReport(existingAssetFailureReport,failureMap);
+        return new ArrayList<>(failureMap.values());
     }
 
-    private static List<AssetRequestFailureReport> updateFailureReport(List<AssetRequestFailureReport> existingAssetFailureReport, Map<String, AssetRequestFailureReport> failedAssetRequests) {
+    private static void updateFailureReport(List<AssetRequestFailureReport> existingAssetFailureReport, Map<Long, AssetRequestFailureReport> failedAssetRequests,
+                                            AssetDictionary dictionary, Map<String, Integer> unidentifiedAssetIds) {
         existingAssetFailureReport.forEach(
             assetFailureCount -> {
-                String key = assetFailureCount.getAsset()+ "-" + assetFailureCount.getFailureCode();
-                AssetRequestFailureReport failureCount = failedAssetRequests.computeIfAbsent(key, assetFailure -> new AssetRequestFailureReport(assetFailureCount.getAsset(), assetFailureCount.getFailureCode(), 0));
+                AssetRequestFailureReport failureCount = failureCount(failedAssetRequests, dictionary, unidentifiedAssetIds, assetFailureCount.getAsset(),
+                                                                      assetFailureCount.getFailureCode());
                 failureCount.setFailureCount(failureCount.getFailureCount() + assetFailureCount.getFailureCount());
         });
-        return new ArrayList<>(failedAssetRequests.values());
+    }
+
+    private static AssetRequestFailureReport failureCount(Map<Long, AssetRequestFailureReport> failedAssetRequests, AssetDictionary dictionary,
+                                                          Map<String, Integer> unidentifiedAssetIds, String asset, int failureCode) {
+        int assetId = dictionary.find(asset);
+        if (assetId < 0) {
+            assetId = unidentifiedAssetIds.computeIfAbsent(asset, id -> dictionary.size() + unidentifiedAssetIds.size());
+        }
+        long key = failureKey(assetId, failureCode);
+        return failedAssetRequests.computeIfAbsent(key, assetFailure -> new AssetRequestFailureReport(asset, failureCode, 0));
+    }
+
+    /**
+     * The asset's dictionary index in the high 32 bits and the status code in the low 32 bits.
+     */
+    static long failureKey(int assetId, int failureCode) {
+        return ((long) assetId << 32) | (failureCode & 0xFFFFFFFFL);
     }
 
     public static AssetUsageReport calculateAssetRequestTotals(List<AssetUsageReport> assetUsageReports) {
-        AssetUsageReport assetUsageReportTotal = new AssetUsageReport("total", new HashMap<>());
+        return calculateAssetRequestTotals(assetUsageReports, true);
+    }
+
+    /**
+     * Merges the daily reports into one total per asset, sorted from high to low only if requested, see
+     * {@link #rankAssetRequestTotals(Map, List, int)} for the top assets without a full sort.
+     */
+    public static AssetUsageReport calculateAssetRequestTotals(List<AssetUsageReport> assetUsageReports, boolean sorted) {
         Map<String, Integer> assetAccessCount = new HashMap<>();
+        assetUsageReports.forEach(assetUsageReport ->
+            assetUsageReport.getAssetAccessCount().forEach((asset, count) -> assetAccessCount.merge(asset, count, Integer::sum)));
 
-        assetUsageReports.forEach(assetUsageReport -> {
-            assetUsageReport.getAssetAccessCount().forEach((asset, count) -> {
-                assetAccessCount.merge(asset, count, Integer::sum);
-            });
-        });
+        return new AssetUsageReport("total", sorted ? sortByCountDescending(assetAccessCount) : assetAccessCount);
+    }
 
-        assetAccessCount.forEach((asset, count) -> {
-            assetUsageReportTotal.getAssetAccessCount().merge(asset, count, Integer::sum);
-        });
+    /**
+     * Adds the changes in request counts to a saved report, a daily report or the total, keeping a count for every
+     * identified asset and no others.
+     */
+    public static AssetUsageReport updateAssetRequestCounts(AssetUsageReport assetUsageReport, Map<String, Integer> changes, List<String> assets, boolean sorted) {
+        Map<String, Integer> assetAccessCount = new HashMap<>();
+        for (String asset : assets) {
+            assetAccessCount.put(asset, assetUsageReport.getAssetAccessCount().getOrDefault(asset, 0) + changes.getOrDefault(asset, 0));
+        }
+        return new AssetUsageReport(assetUsageReport.getId(), sorted ? sortByCountDescending(assetAccessCount) : assetAccessCount);
+    }
+
+    /**
+     * Ranks the totals without sorting them all: the top N assets by count come from a min-heap of at most N entries,
+     * and the identified assets with no requests from a scan of a bitset of those that were requested.
+     */
+    public static AssetUsageRanking rankAssetRequestTotals(Map<String, Integer> assetAccessCount, List<String> assets, int topN) {
+        // The smallest count at the head, ties broken so the alphabetically first asset ranks higher
+        Comparator<Map.Entry<String, Integer>> ranking = Map.Entry.<String, Integer>comparingByValue()
+                                                                  .thenComparing(Map.Entry.<String, Integer>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<String, Integer>> topAssets = new PriorityQueue<>(Math.max(1, topN), ranking);
+        for (Map.Entry<String, Integer> entry : assetAccessCount.entrySet()) {
+            if (entry.getValue() <= 0 || topN <= 0) {
+                continue;
+            }
+            if (topAssets.size() < topN) {
+                topAssets.add(entry);
+            } else if (ranking.compare(entry, topAssets.peek()) > 0) {
+                topAssets.poll();
+                topAssets.add(entry);
+            }
+        }
+        List<Map.Entry<String, Integer>> descending = new ArrayList<>(topAssets);
+        descending.sort(ranking.reversed());
+        Map<String, Integer> top = new LinkedHashMap<>();
+        descending.forEach(entry -> top.put(entry.getKey(), entry.getValue()));
 
+        BitSet requested = new BitSet(assets.size());
+        for (int i = 0; i < assets.size(); i++) {
+            Integer count = assetAccessCount.get(assets.get(i));
+            if (count != null && count > 0) {
+                requested.set(i);
+            }
+        }
+        List<String> unusedAssets = new ArrayList<>(assets.size() - requested.cardinality());
+        for (int i = requested.nextClearBit(0); i < assets.size(); i = requested.nextClearBit(i + 1)) {
+            unusedAssets.add(assets.get(i));
+        }
+
+        return new AssetUsageRanking(top, unusedAssets);
+    }
+
+    /**
+     * The approximate counterpart of {@link #calculateAssetRequestTotals(List)}, estimating the total for each asset
+     * from a Count-Min sketch of the successful requests, such as the merged daily sketches of a date range.
+     */
+    public static AssetUsageReport calculateApproximateAssetRequestTotals(CountMinSketch assetRequestCounts, List<String> assets) {
+        Map<String, Integer> assetAccessCount = new HashMap<>();
+        assets.forEach(asset -> assetAccessCount.put(asset, (int) Math.min(Integer.MAX_VALUE, assetRequestCounts.estimate(asset))));
+        return new AssetUsageReport("total", sortByCountDescending(assetAccessCount));
+    }
+
+    private static Map<String, Integer> sortByCountDescending(Map<String, Integer> assetAccessCount) {
         // Sort the map from high to low by value
-        Map<String, Integer> sortedAssetAccessCount = assetUsageReportTotal.getAssetAccessCount().entrySet().stream()
+        return assetAccessCount.entrySet().stream()
             .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
             .collect(Collectors.toMap(
                 Map.Entry::getKey,
@@ -75,89 +199,280 @@ public class Util {
                 (e1, e2) -> e1,
                 LinkedHashMap::new
             ));
-            assetUsageReportTotal.setAssetAccessCount(sortedAssetAccessCount);
-        return assetUsageReportTotal;
     }
 
-    public static AssetAccessLog parseLogEntry(String logEntry, String accessLogFilterInPath) {
-        if (logEntry.contains(" REST.GET.OBJECT ")){
-            //Split the string based on `"` to obtain the REST request type and requested asset
-            String[] logSections = logEntry.split("\"");
-            String[] requestDetail = logSections[1].split(" ");
-
-            if (requestDetail.length != 3 ){
-                logger.error("Invalid log entry, request type not present : {}", logEntry);
-                return null;
-            }
+    /**
+     * Whether the asset's file name carries a content hash, such as app-3f9a1c2b.js, so it never changes under the
+     * same key and can be cached for as long as the CDN allows.
+     */
+    public static boolean isFingerprinted(String asset) {
+        return FINGERPRINT.matcher(asset.substring(asset.lastIndexOf('/') + 1)).find();
+    }
 
-            Instant timestamp = parseTimestamp(logSections[0]);
-            if (timestamp == null) {
-                return null;
-            }
-            String endOfRequest = "HTTP/1.1\"";
-            Integer statusCode = null;
+    /**
+     * Whether the asset is a text type worth serving compressed.
+     */
+    public static boolean isCompressible(String asset) {
+        return COMPRESSIBLE_EXTENSIONS.contains(asset.substring(asset.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * The seconds a shared cache may keep a response with the given Cache-Control header, s-maxage before max-age,
+     * 0 when it may not keep it at all, or -1 when the header sets no lifetime and the CDN's default TTL applies.
+     */
+    public static long cacheLifetimeSeconds(String cacheControl) {
+        if (cacheControl == null) {
+            return -1;
+        }
+        if (NO_SHARED_CACHE.matcher(cacheControl).find()) {
+            return 0;
+        }
+        long maxAge = -1;
+        Matcher matcher = MAX_AGE.matcher(cacheControl);
+        while (matcher.find()) {
+            long seconds;
             try {
+                seconds = Long.parseLong(matcher.group(2));
+            } catch (NumberFormatException e) {
+                seconds = Long.MAX_VALUE;
+            }
+            if (matcher.group(1).equalsIgnoreCase("s-maxage")) {
+                return seconds;
+            }
+            maxAge = seconds;
+        }
+        return maxAge;
+    }
 
-                int startOfStatusCode = logEntry.indexOf(endOfRequest) + endOfRequest.length() + 1;
-                int endOfStatusCode = startOfStatusCode + 3;
+    /**
+     * The asset's key with the content hash, and any revision after it, taken out of its file name, so every
+     * cache-busted version of an asset has the same logical name: fonts/bold-b542beb274-v2.woff2 is fonts/bold.woff2.
+     */
+    public static String logicalName(String asset) {
+        int fileName = asset.lastIndexOf('/') + 1;
+        Matcher matcher = FINGERPRINT.matcher(asset).region(fileName, asset.length());
+        if (!matcher.find()) {
+            return asset;
+        }
+        return asset.substring(0, matcher.start()) + asset.substring(matcher.end());
+    }
 
-                statusCode = Integer.valueOf(logEntry.substring(startOfStatusCode, endOfStatusCode));
+    /**
+     * The host of a Referer header, lower case and without any user info or port, or null when the header is "-",
+     * empty or not an absolute URL. Only the host is copied out of the header.
+     */
+    public static String referrerHost(String referrer) {
+        return referrerHost(referrer, 0, referrer.length());
+    }
 
-            } catch (StringIndexOutOfBoundsException | NumberFormatException e) {
-                logger.error("Invalid log entry, STATUS_CODE not present : {}", logEntry);
-            }
+    /**
+     * The host of the Referer header between the indexes of a log entry, as {@link #referrerHost(String)}.
+     */
+    public static String referrerHost(String logEntry, int headerStart, int headerEnd) {
+        int scheme = logEntry.indexOf("://", headerStart);
+        if (scheme <= headerStart || scheme + 3 > headerEnd) {
+            return null;
+        }
+        int start = scheme + 3;
+        int end = start;
+        while (end < headerEnd && "/?#".indexOf(logEntry.charAt(end)) < 0) {
+            end++;
+        }
+        if (start == end) {
+            return null;
+        }
+        int userInfo = logEntry.lastIndexOf('@', end - 1);
+        if (userInfo >= start) {
+            start = userInfo + 1;
+        }
+        if (start == end) {
+            return null;
+        }
+        // An IPv6 address is bracketed and full of colons
+        int closingBracket = logEntry.charAt(start) == '[' ? logEntry.indexOf(']', start) : -1;
+        int port = logEntry.indexOf(':', closingBracket >= start && closingBracket < end ? closingBracket : start);
+        if (port >= 0 && port < end) {
+            end = port;
+        }
+        return start >= end ? null : logEntry.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The prefix of each environment in the access log filter in path, which can list several separated by commas.
+     * A filter without a comma is the one prefix, as it always was.
+     */
+    public static List<String> filterInPaths(String accessLogFilterInPath) {
+        if (accessLogFilterInPath.indexOf(',') < 0) {
+            return List.of(accessLogFilterInPath);
+        }
+        List<String> filterInPaths = Arrays.stream(accessLogFilterInPath.split(","))
+                                           .map(String::trim)
+                                           .filter(filterInPath -> !filterInPath.isEmpty())
+                                           .distinct()
+                                           .toList();
+        return filterInPaths.isEmpty() ? List.of("") : filterInPaths;
+    }
+
+    public static AssetAccessLog parseLogEntry(String logEntry, String accessLogFilterInPath) {
+        return parseLogEntry(logEntry, accessLogFilterInPath, null);
+    }
+
+    /**
+     * Parses a REST.GET.OBJECT line of an S3 server access log by the indexes of its fields, copying only the values
+     * kept out of the line. The User-Agent is taken from the dictionary when one is given, otherwise copied.
+     */
+    public static AssetAccessLog parseLogEntry(String logEntry, String accessLogFilterInPath, UserAgentDictionary userAgents) {
+        if (!logEntry.contains(" REST.GET.OBJECT ")) {
+            logger.debug("Log entry not of the required type, log can't be parsed", logEntry);
+            return null;
+        }
+        // The Request-URI, "GET /key HTTP/1.1", is the first quoted field
+        int requestStart = logEntry.indexOf('"') + 1;
+        int requestEnd = requestStart == 0 ? -1 : logEntry.indexOf('"', requestStart);
+        int methodEnd = requestEnd < 0 ? -1 : logEntry.indexOf(' ', requestStart);
+        int pathEnd = methodEnd < 0 || methodEnd >= requestEnd ? -1 : logEntry.indexOf(' ', methodEnd + 1);
+        int extraSpace = pathEnd < 0 ? -1 : logEntry.indexOf(' ', pathEnd + 1);
+        // Exactly three non-empty parts
+        if (pathEnd < 0 || pathEnd >= requestEnd || methodEnd == requestStart || pathEnd == methodEnd + 1
+                || pathEnd + 1 == requestEnd || extraSpace >= 0 && extraSpace < requestEnd) {
+            logger.error("Invalid log entry, request type not present : {}", logEntry);
+            return null;
+        }
+
+        Instant timestamp = parseTimestamp(logEntry, requestStart - 1);
+        if (timestamp == null) {
+            return null;
+        }
 
-            String asset = requestDetail[1].substring(1 );
-            if (! asset.contains(accessLogFilterInPath)){
-                logger.debug("The asset: {} is not a valid asset", asset);
-                return null;
+        // The asset is the path without its leading slash
+        int assetStart = methodEnd + 2;
+        int filterInPath = logEntry.indexOf(accessLogFilterInPath, assetStart);
+        if (filterInPath < 0 || filterInPath + accessLogFilterInPath.length() > pathEnd) {
+            logger.debug("The asset: {} is not a valid asset", logEntry.substring(assetStart, pathEnd));
+            return null;
+        }
+
+        // The status code follows the Request-URI
+        int statusStart = requestEnd + 2;
+        int statusEnd = fieldEnd(logEntry, statusStart);
+        int statusCode = statusEnd - statusStart == 3 ? (int) parseNumber(logEntry, statusStart, statusEnd, -1) : -1;
+        if (statusCode < 0) {
+            logger.error("Invalid log entry, STATUS_CODE not present : {}", logEntry);
+            return null;
+        }
+
+        AssetAccessLog log = new AssetAccessLog();
+        log.setStatusCode(statusCode);
+        log.setRequestType(methodEnd - requestStart == 3 && logEntry.startsWith("GET", requestStart) ? "GET" : logEntry.substring(requestStart, methodEnd));
+        log.setAsset(logEntry.substring(assetStart, pathEnd));
+        log.setTimestamp(timestamp);
+        log.setRequestId(requestId(logEntry));
+
+        // Error code, bytes sent, object size, total time and turn-around time follow the status code
+        int errorCodeEnd = fieldEnd(logEntry, statusEnd + 1);
+        int bytesSentEnd = fieldEnd(logEntry, errorCodeEnd + 1);
+        int objectSizeEnd = fieldEnd(logEntry, bytesSentEnd + 1);
+        int totalTimeEnd = fieldEnd(logEntry, objectSizeEnd + 1);
+        int turnAroundTimeEnd = fieldEnd(logEntry, totalTimeEnd + 1);
+        log.setBytesSent(parseNumber(logEntry, errorCodeEnd + 1, bytesSentEnd, 0));
+        log.setObjectSize(parseNumber(logEntry, bytesSentEnd + 1, objectSizeEnd, 0));
+        log.setTotalTime(parseNumber(logEntry, objectSizeEnd + 1, totalTimeEnd, -1));
+        log.setTurnAroundTime(parseNumber(logEntry, totalTimeEnd + 1, turnAroundTimeEnd, -1));
+
+        // The Referer and User-Agent headers are the next two quoted fields
+        int referrerStart = logEntry.indexOf('"', requestEnd + 1) + 1;
+        int referrerEnd = referrerStart == 0 ? -1 : logEntry.indexOf('"', referrerStart);
+        int userAgentStart = referrerEnd < 0 ? 0 : logEntry.indexOf('"', referrerEnd + 1) + 1;
+        if (userAgentStart > 0) {
+            int userAgentEnd = logEntry.indexOf('"', userAgentStart);
+            if (userAgentEnd < 0) {
+                userAgentEnd = logEntry.length();
             }
-            AssetAccessLog log = null;
-            log = new AssetAccessLog();
-            log.setStatusCode(statusCode);
-            log.setRequestType(requestDetail[0]);
-            log.setAsset(requestDetail[1].substring(1 ));
-            log.setTimestamp(timestamp);
-
-            if (statusCode != null && requestDetail[0] != null && requestDetail[1] != null && timestamp != null) {
-                logger.debug("Log entry parsed successfully: {}", log);
-            return log;
-            } else {
-                logger.error("Log entry, log can't be parsed", logEntry);
-                return null;
+            log.setReferrerHost(referrerHost(logEntry, referrerStart, referrerEnd));
+            if (userAgentEnd > userAgentStart && !(userAgentEnd - userAgentStart == 1 && logEntry.charAt(userAgentStart) == '-')) {
+                log.setUserAgent(userAgents == null ? logEntry.substring(userAgentStart, userAgentEnd) : userAgents.encode(logEntry, userAgentStart, userAgentEnd));
             }
-        } else {
-            logger.debug("Log entry not of the required type, log can't be parsed", logEntry);
+        }
+
+        logger.debug("Log entry parsed successfully: {}", log);
+        return log;
+    }
+
+    // The request ID, the third field after the time, following the remote IP and the requester, or null when missing
+    private static String requestId(String logEntry) {
+        int start = logEntry.indexOf(']');
+        for (int field = 0; field < 3 && start >= 0; field++) {
+            start = logEntry.indexOf(' ', start + 1);
+        }
+        int end = start < 0 ? -1 : logEntry.indexOf(' ', start + 1);
+        if (end < 0) {
             return null;
         }
+        String requestId = logEntry.substring(start + 1, end);
+        return requestId.isEmpty() || "-".equals(requestId) ? null : requestId;
+    }
+
+    // The index of the space ending the field starting at the index, or the end of the entry
+    private static int fieldEnd(String logEntry, int start) {
+        if (start >= logEntry.length()) {
+            return logEntry.length();
+        }
+        int end = logEntry.indexOf(' ', start);
+        return end < 0 ? logEntry.length() : end;
+    }
+
+    // A number field of the log entry between the indexes, or the given value when it is "-" or missing
+    private static long parseNumber(String logEntry, int start, int end, long missing) {
+        if (start >= end || end - start > 18) {
+            return missing;
+        }
+        long number = 0;
+        for (int i = start; i < end; i++) {
+            char digit = logEntry.charAt(i);
+            if (digit < '0' || digit > '9') {
+                if (end - start > 1 || digit != '-') {
+                    logger.debug("Invalid number {} in log entry", logEntry.substring(start, end));
+                }
+                return missing;
+            }
+            number = number * 10 + (digit - '0');
+        }
+        return number;
     }
 
-    private static Instant parseTimestamp(String logEntryPart) {
+    // The time within the brackets before the given index of the log entry
+    private static Instant parseTimestamp(String logEntry, int end) {
         //obtain the Date/Time from within the `[ ]` brackets
-        int indexOfStartOfDate = logEntryPart.indexOf("[");
-        int indexOfEndStartOfDate = logEntryPart.indexOf("]");
+        int indexOfStartOfDate = logEntry.indexOf('[');
+        int indexOfEndStartOfDate = logEntry.indexOf(']');
+        if (indexOfStartOfDate >= end) {
+            indexOfStartOfDate = -1;
+        }
+        if (indexOfEndStartOfDate >= end) {
+            indexOfEndStartOfDate = -1;
+        }
 
         if (indexOfStartOfDate == -1) {
-            logger.error("Invalid log entry, start marker for timestamp not present: {}", logEntryPart);
+            logger.error("Invalid log entry, start marker for timestamp not present: {}", logEntry);
             return null;
         }
 
         if (indexOfEndStartOfDate == -1) {
-            logger.error("Invalid log entry, end marker for timestamp not present: {}", logEntryPart);
+            logger.error("Invalid log entry, end marker for timestamp not present: {}", logEntry);
             return null;
         }
 
         if (indexOfEndStartOfDate < indexOfStartOfDate) {
-            logger.error("Invalid log entry, start marker is after end marker: {}", logEntryPart);
+            logger.error("Invalid log entry, start marker is after end marker: {}", logEntry);
             return null;
         }
 
-        String requiredString = logEntryPart.substring(logEntryPart.indexOf("[") + 1, logEntryPart.indexOf("]"));
+        String requiredString = logEntry.substring(indexOfStartOfDate + 1, indexOfEndStartOfDate);
         try{
             ZonedDateTime dateTime = ZonedDateTime.parse(requiredString, formatter);
             return dateTime.toInstant();
         } catch (DateTimeParseException e){
-            logger.error("invalid date in log entry {}", logEntryPart);
+            logger.error("invalid date in log entry {}", logEntry);
             return null;
         }
     }
@@ -1,15 +1,146 @@
 package uk.gov.companieshouse.cdnanalyser.service.interfaces;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
 
 public interface AnalysisInputInterface {
 
+    /**
+     * The same input for one of several environments, reading that environment's access logs and its analysis from
+     * under the environment's prefix.
+     */
+    AnalysisInputInterface forEnvironment(String environment);
+
     List<String> readAssets ();
 
+    /**
+     * Lists every asset, in key order, with its size in bytes.
+     */
+    Map<String, Long> readAssetSizes();
+
+    /**
+     * Lists every asset, in key order, with the size, ETag and storage class of its listing.
+     */
+    Map<String, AssetMetadata> readAssetInventory();
+
+    /**
+     * Requests the headers of the given assets, a few at a time, returning their metadata with the Content-Encoding
+     * and Cache-Control set. Assets whose request fails are left out.
+     */
+    Map<String, AssetMetadata> readAssetHeaders(Map<String, AssetMetadata> assets);
+
+    /**
+     * Reads the asset metadata saved by the previous audit.
+     */
+    Map<String, AssetMetadata> readAssetMetadata();
+
     Set<AssetAccessLog> readAccessLogs();
 
+    /**
+     * Streams the parsed access logs to the consumer as they are read, along with the log object each came from,
+     * without holding them all in memory. Log objects whose key and ETag appear in knownETags are not read, nor are
+     * those whose key is dated before oldestLogDay, in yyyy-MM-dd form, when it is given.
+     *
+     * @return the log objects that were read in full
+     */
+    List<S3File> readAccessLogs(Map<String, String> knownETags, String oldestLogDay, BiConsumer<S3File, AssetAccessLog> consumer);
+
+    /**
+     * Reads the raw data written before it was partitioned by day, empty once it has been migrated.
+     */
     List<AssetAccessLog> readRawAssetAccessLogs();
+
+    /**
+     * Reads the raw data partition holding the records of one day, in yyyy-MM-dd form.
+     */
+    List<AssetAccessLog> readRawAssetAccessLogs(String day);
+
+    Optional<byte[]> readDeduplicationFilter(String day);
+
+    List<AssetAccessLog> readFailedAssetRequests();
+
+    /**
+     * Reads the failure report saved by the previous run, one count per asset and status code.
+     */
+    List<AssetRequestFailureReport> readFailedAssetRequestTotals();
+
+    Optional<AssetUsageReport> readSuccessfulAssetRequests();
+
+    /**
+     * Lists the days, in yyyy-MM-dd form, with a saved daily usage report.
+     */
+    List<String> readAssetUsageReportDays();
+
+    Optional<AssetUsageReport> readAssetUsageReport(String day);
+
+    /**
+     * Lists the first days of the saved rollups of a period, "weeks" or "months".
+     */
+    List<String> readAssetUsageRollupIds(String period);
+
+    Optional<AssetUsageRollup> readAssetUsageRollup(String period, String id);
+
+    /**
+     * Reads the prefix-sum index of successful requests per asset and day, in the form saved by AssetUsageIndex.
+     */
+    Optional<byte[]> readAssetUsageIndex();
+
+    /**
+     * Reads the log object aggregates saved as one document before they were partitioned, empty once moved.
+     */
+    Map<String, LogObjectAggregate> readLogObjectAggregates();
+
+    /**
+     * Lists the partitions of the saved log object aggregates, see LogObjectAggregateStore.
+     */
+    List<String> readLogObjectAggregatePartitions();
+
+    Map<String, LogObjectAggregate> readLogObjectAggregates(String partition);
+
+    /**
+     * Lists the days, in yyyy-MM-dd form, with requests folded in from expired log object aggregates.
+     */
+    List<String> readFoldedAssetUsageDays();
+
+    Optional<FoldedAssetUsage> readFoldedAssetUsage(String day);
+
+    Optional<AssetRequestSketch> readAssetRequestSketch(String day);
+
+    Optional<AssetOriginFetches> readAssetOriginFetches(String day);
+
+    /**
+     * Reads the ring buffer counts of recent origin fetches, in the form saved by TrendingAssets.
+     */
+    Optional<byte[]> readTrendingAssets();
+
+    /**
+     * Reads the requests per asset and slot of one day, in yyyy-MM-dd form, in the form saved by IntradayUsage.
+     */
+    Optional<byte[]> readIntradayUsage(String day);
+
+    /**
+     * Reads the asset requests by referrer host and user agent in the form saved by ReferrerBreakdown.
+     */
+    Optional<byte[]> readReferrerUsage();
+
+    List<String> readAssetDictionary();
+
+    /**
+     * Reads the bitsets, over the asset dictionary, of the assets requested on each day.
+     */
+    Map<String, byte[]> readAssetUsageBitsets();
 }
@@ -1,17 +1,122 @@
 package uk.gov.companieshouse.cdnanalyser.service.interfaces;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+import uk.gov.companieshouse.cdnanalyser.models.ApproximateAssetUsageReport;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
 
 public interface AnalysisOutputInterface {
 
+    /**
+     * The same output for one of several environments, saving that environment's analysis under its prefix.
+     */
+    AnalysisOutputInterface forEnvironment(String environment);
+
     void saveFailedAssetsRequests(List<AssetAccessLog> assetAccessLogsWithErrors);
 
-    void saveRawData(Set<AssetAccessLog> assetAccessLogs);
+    /**
+     * Removes the failed requests, once none are left in the retention window.
+     */
+    void deleteFailedAssetRequests();
+
+    /**
+     * Adds the records to the raw data partition of one day, in yyyy-MM-dd form, alongside those saved before.
+     */
+    void saveRawData(String day, Collection<AssetAccessLog> assetAccessLogs);
+
+    void saveDeduplicationFilter(String day, byte[] filter);
+
+    void deleteLegacyRawData();
 
     void saveSuccessfulAssetRequests(AssetUsageReport assetUsageReportTotals);
 
+    /**
+     * Saves the usage report of one day, replacing any saved before.
+     */
+    void saveAssetUsageReport(AssetUsageReport dailyAssetUsageReport);
+
+    /**
+     * Saves the rollup of a period, "weeks" or "months", replacing any saved before.
+     */
+    void saveAssetUsageRollup(String period, AssetUsageRollup assetUsageRollup);
+
+    void saveAssetUsageIndex(byte[] assetUsageIndex);
+
+    void saveAssetUsageRanking(AssetUsageRanking assetUsageRanking);
+
+    void saveAssetDictionary(List<String> assetDictionary);
+
+    void saveAssetUsageBitsets(Map<String, byte[]> assetUsageBitsets);
+
+    void saveUnusedAssets(UnusedAssetsReport unusedAssetsReport);
+
+    void saveAssetFolderUsage(AssetFolderUsageReport assetFolderUsageReport);
+
+    void saveFailedAssetRequestTotals(List<AssetRequestFailureReport> assetRequestFailureReports);
+
+    /**
+     * Saves the log object aggregates of one partition, replacing any saved before.
+     */
+    void saveLogObjectAggregates(String partition, Map<String, LogObjectAggregate> logObjectAggregates);
+
+    void deleteLogObjectAggregates(String partition);
+
+    /**
+     * Deletes the log object aggregates saved as one document before they were partitioned.
+     */
+    void deleteLegacyLogObjectAggregates();
+
+    void saveFoldedAssetUsage(FoldedAssetUsage foldedAssetUsage);
+
+    void saveAssetRequestSketch(AssetRequestSketch assetRequestSketch);
+
+    void saveApproximateAssetRequests(ApproximateAssetUsageReport approximateAssetUsageReport);
+
+    void saveAssetOriginFetches(AssetOriginFetches assetOriginFetches);
+
+    void saveOriginFetchReport(OriginFetchReport originFetchReport);
+
+    void saveAssetBandwidthReport(AssetBandwidthReport assetBandwidthReport);
+
+    void saveOriginLatencyReport(OriginLatencyReport originLatencyReport);
+
+    void saveAssetMetadata(Map<String, AssetMetadata> assetMetadata);
+
+    void saveAssetPayloadReport(AssetPayloadReport assetPayloadReport);
+
+    void saveAssetVersionReport(AssetVersionReport assetVersionReport);
+
+    void saveTrendingAssets(byte[] trendingAssets);
+
+    void saveTrendingAssetsReport(TrendingAssetsReport trendingAssetsReport);
+
+    void saveIntradayUsage(String day, byte[] intradayUsage);
+
+    void saveIntradayUsageReport(IntradayUsageReport intradayUsageReport);
+
+    void saveReferrerUsage(byte[] referrerUsage);
+
+    void saveReferrerUsageReport(ReferrerUsageReport referrerUsageReport);
+
 }
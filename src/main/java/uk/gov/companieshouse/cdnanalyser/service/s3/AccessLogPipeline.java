@@ -0,0 +1,358 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+import uk.gov.companieshouse.cdnanalyser.service.UserAgentDictionary;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+
+/**
+ * Reads an access log bucket as a set of concurrent stages joined by bounded queues:
+ * a lister feeds object keys to the downloaders, the downloaders pass each object on as chunks of lines to the
+ * parsers, and the parsers hand batches of parsed records to the calling thread, which passes them to the consumer.
+ * Lines that {@link LogLineFilter} shows cannot hold a record are dropped by the downloaders before they are decoded.
+ * The parsers share a {@link UserAgentDictionary}, so the records of a run hold each User-Agent header once.
+ * A full queue blocks the stage feeding it, so downloading and parsing overlap while the data in flight is capped
+ * by the queue capacities rather than the size of the bucket. Objects whose ETag is already known, or whose key is
+ * dated before the aggregates' retention window, are not downloaded.
+ * Requests to the log bucket go through an {@link AdaptiveConcurrencyLimiter}, so the downloaders are a ceiling on the
+ * GETs in flight rather than a fixed number, and a throttled request is retried rather than losing its object. A
+ * downloader only holds a slot while it reads the object, not while it waits for the parsers to take its lines.
+ *
+ * A pipeline instance is single use.
+ */
+class AccessLogPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    // Distinct User-Agent headers shared between the records of a run, and the longest shared, beyond which they are copied
+    private static final int MAX_USER_AGENTS = 4096;
+
+    private static final int MAX_USER_AGENT_LENGTH = 512;
+
+    // End of stream markers, compared by identity.
+    private static final S3Object END_OF_OBJECTS = S3Object.builder().build();
+
+    private static final Chunk END_OF_CHUNKS = new Chunk(null, List.of());
+
+    private static final RecordBatch END_OF_RECORDS = new RecordBatch(null, List.of());
+
+    private final S3Client s3Client;
+
+    private final String accessLogFileBucket;
+
+    private final String accessLogFilterInPath;
+
+    private final Map<String, String> knownETags;
+
+    private final String oldestLogDay;
+
+    private final int downloaders;
+
+    private final int parsers;
+
+    private final int chunkLines;
+
+    private final LogLineFilter logLineFilter;
+
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final UserAgentDictionary userAgents = new UserAgentDictionary(MAX_USER_AGENTS, MAX_USER_AGENT_LENGTH);
+
+    private final BlockingQueue<S3Object> objects;
+
+    private final BlockingQueue<Chunk> chunks;
+
+    private final BlockingQueue<RecordBatch> records;
+
+    private final Queue<S3File> completedObjects = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger activeDownloaders;
+
+    private final AtomicInteger activeParsers;
+
+    private final AtomicInteger objectCount = new AtomicInteger();
+
+    private final AtomicInteger skippedObjectCount = new AtomicInteger();
+
+    // Counted per line by every downloader
+    private final LongAdder lineCount = new LongAdder();
+
+    private final LongAdder keptLineCount = new LongAdder();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private volatile boolean stopped;
+
+    AccessLogPipeline(S3Client s3Client, String accessLogFileBucket, String accessLogFilterInPath, Map<String, String> knownETags,
+                      int downloaders, int parsers, int chunkLines, int queueCapacity) {
+        this(s3Client, accessLogFileBucket, accessLogFilterInPath, knownETags, null, downloaders, parsers, chunkLines, queueCapacity,
+             new AdaptiveConcurrencyLimiter("access-log", downloaders, downloaders, 1, 0, 0));
+    }
+
+    /**
+     * @param oldestLogDay objects whose key is dated before this day, in yyyy-MM-dd form, are not read, null to read
+     *                     them all
+     * @param limiter limits the log bucket requests in flight, up to one per downloader
+     */
+    AccessLogPipeline(S3Client s3Client, String accessLogFileBucket, String accessLogFilterInPath, Map<String, String> knownETags,
+                      String oldestLogDay, int downloaders, int parsers, int chunkLines, int queueCapacity, AdaptiveConcurrencyLimiter limiter) {
+        this.s3Client = s3Client;
+        this.accessLogFileBucket = accessLogFileBucket;
+        List<String> filterInPaths = Util.filterInPaths(accessLogFilterInPath);
+        // With several environments the line filter keeps the paths under any of their prefixes, and the caller routes each record
+        this.accessLogFilterInPath = filterInPaths.size() == 1 ? filterInPaths.get(0) : "";
+        this.knownETags = knownETags;
+        this.oldestLogDay = oldestLogDay;
+        this.downloaders = downloaders;
+        this.parsers = parsers;
+        this.chunkLines = chunkLines;
+        this.limiter = limiter;
+        this.logLineFilter = filterInPaths.size() == 1 ? new LogLineFilter(filterInPaths.get(0)) : new LogLineFilter(filterInPaths);
+        this.objects = new ArrayBlockingQueue<>(queueCapacity);
+        this.chunks = new ArrayBlockingQueue<>(queueCapacity);
+        this.records = new ArrayBlockingQueue<>(queueCapacity);
+        this.activeDownloaders = new AtomicInteger(downloaders);
+        this.activeParsers = new AtomicInteger(parsers);
+    }
+
+    /**
+     * Runs the pipeline to completion, calling the consumer on the calling thread for every parsed record along with
+     * the log object it came from. An unexpected failure in any stage is rethrown once the pipeline has drained.
+     *
+     * @return the log objects that were read in full
+     */
+    List<S3File> run(BiConsumer<S3File, AssetAccessLog> consumer) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(1 + downloaders + parsers, runnable -> {
+            Thread thread = new Thread(runnable, "access-log-pipeline-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            executor.execute(() -> stage(this::list));
+            for (int i = 0; i < downloaders; i++) {
+                executor.execute(() -> stage(this::download));
+            }
+            for (int i = 0; i < parsers; i++) {
+                executor.execute(() -> stage(this::parse));
+            }
+            for (RecordBatch batch = records.take(); batch != END_OF_RECORDS; batch = records.take()) {
+                for (AssetAccessLog assetAccessLog : batch.assetAccessLogs()) {
+                    consumer.accept(batch.logObject(), assetAccessLog);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while reading access logs from bucket {}", accessLogFileBucket);
+        } finally {
+            shutdown(executor);
+        }
+
+        logger.info("{} access log files found in bucket: {}, {} unchanged since they were last read or expired, {} lines read, {} kept by the line filter",
+                    objectCount.get() + skippedObjectCount.get(), accessLogFileBucket, skippedObjectCount.get(), lineCount.sum(), keptLineCount.sum());
+        limiter.publishMetrics();
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return new ArrayList<>(completedObjects);
+    }
+
+    private void list() throws InterruptedException {
+        String continuationToken = null;
+        try {
+            do {
+                ListObjectsV2Request listObjRequest = ListObjectsV2Request.builder()
+                                                                          .bucket(accessLogFileBucket)
+                                                                          .continuationToken(continuationToken).maxKeys(1000)
+                                                                          .build();
+                ListObjectsV2Response listObjResponse = limiter.call(() -> s3Client.listObjectsV2(listObjRequest));
+                for (S3Object s3Object : listObjResponse.contents()) {
+                    if (s3Object.eTag() != null && s3Object.eTag().equals(knownETags.get(s3Object.key()))
+                        || oldestLogDay != null && LogObjectAggregateStore.isBefore(s3Object.key(), oldestLogDay)) {
+                        skippedObjectCount.incrementAndGet();
+                    } else {
+                        objects.put(s3Object);
+                    }
+                }
+                continuationToken = listObjResponse.nextContinuationToken();
+            } while (continuationToken != null);
+        } catch (NoSuchBucketException e) {
+            logger.error("Bucket {} does not exist", accessLogFileBucket);
+        } catch (SdkClientException e) {
+            logger.error("Error listing objects in bucket {} : {}", accessLogFileBucket, e.getMessage());
+        } catch (UncheckedIOException | S3Exception e) {
+            logger.error("Error processing files in bucket {} : {}", accessLogFileBucket, e.getMessage());
+        } finally {
+            endOfStream(objects, END_OF_OBJECTS, downloaders);
+        }
+    }
+
+    private void download() throws InterruptedException {
+        try {
+            for (S3Object s3Object = objects.take(); s3Object != END_OF_OBJECTS; s3Object = objects.take()) {
+                downloadObject(new S3File(s3Object.key(), s3Object.lastModified(), s3Object.eTag()));
+            }
+        } finally {
+            if (activeDownloaders.decrementAndGet() == 0) {
+                endOfStream(chunks, END_OF_CHUNKS, parsers);
+            }
+        }
+    }
+
+    private void downloadObject(S3File logObject) throws InterruptedException {
+        String key = logObject.getFilename();
+        try {
+            // The whole read is retried on throttling, and no line is passed on until it has succeeded
+            byte[] content = limiter.call(() -> readObject(logObject));
+            addLines(logObject, content);
+            objectCount.incrementAndGet();
+            completedObjects.add(logObject);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Error reading content from S3 object {} : {}", key, e.getMessage());
+        } catch (SdkException e) {
+            logger.error("Error obtaining S3 object {} from the bucket {} : {}", key, accessLogFileBucket, e.getMessage());
+        }
+    }
+
+    private byte[] readObject(S3File logObject) throws IOException {
+        try (InputStream inputStream = s3Client.getObject(GetObjectRequest.builder().bucket(accessLogFileBucket).key(logObject.getFilename()).build())) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    // Lines are split and filtered as bytes, only those the filter keeps are decoded
+    private void addLines(S3File logObject, byte[] content) throws InterruptedException {
+        List<String> lines = new ArrayList<>(chunkLines);
+        int start = 0;
+        for (int end = LogLineFilter.nextLine(content, start, content.length); end >= 0; end = LogLineFilter.nextLine(content, start, content.length)) {
+            lines = addLine(logObject, lines, content, start, end);
+            start = end + 1;
+        }
+        if (start < content.length) {
+            lines = addLine(logObject, lines, content, start, content.length);
+        }
+        if (!lines.isEmpty()) {
+            chunks.put(new Chunk(logObject, lines));
+        }
+    }
+
+    // Adds the line if the filter keeps it, passing the lines on once there is a chunk of them
+    private List<String> addLine(S3File logObject, List<String> lines, byte[] buffer, int start, int end) throws InterruptedException {
+        lineCount.increment();
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        if (!logLineFilter.accepts(buffer, start, end)) {
+            return lines;
+        }
+        keptLineCount.increment();
+        lines.add(new String(buffer, start, end - start, StandardCharsets.UTF_8));
+        if (lines.size() < chunkLines) {
+            return lines;
+        }
+        chunks.put(new Chunk(logObject, lines));
+        return new ArrayList<>(chunkLines);
+    }
+
+    private void parse() throws InterruptedException {
+        try {
+            for (Chunk chunk = chunks.take(); chunk != END_OF_CHUNKS; chunk = chunks.take()) {
+                List<AssetAccessLog> assetAccessLogs = new ArrayList<>(chunk.lines().size());
+                for (String line : chunk.lines()) {
+                    AssetAccessLog assetAccessLog = Util.parseLogEntry(line, accessLogFilterInPath, userAgents);
+                    if (assetAccessLog != null) {
+                        assetAccessLogs.add(assetAccessLog);
+                    }
+                }
+                if (!assetAccessLogs.isEmpty()) {
+                    records.put(new RecordBatch(chunk.logObject(), assetAccessLogs));
+                }
+            }
+        } finally {
+            if (activeParsers.decrementAndGet() == 0) {
+                endOfStream(records, END_OF_RECORDS, 1);
+            }
+        }
+    }
+
+    private void stage(InterruptibleStage stage) {
+        try {
+            stage.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+    }
+
+    private <T> void endOfStream(BlockingQueue<T> queue, T marker, int consumers) {
+        try {
+            for (int i = 0; i < consumers; i++) {
+                // Once the pipeline is stopped nothing drains the queue, so give up rather than block forever.
+                while (!queue.offer(marker, 100, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void shutdown(ExecutorService executor) {
+        stopped = true;
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Access log pipeline threads did not stop within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface InterruptibleStage {
+        void run() throws InterruptedException;
+    }
+
+    private record Chunk(S3File logObject, List<String> lines) {
+    }
+
+    private record RecordBatch(S3File logObject, List<AssetAccessLog> assetAccessLogs) {
+    }
+}
@@ -0,0 +1,244 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.retries.DefaultRetryStrategy;
+import software.amazon.awssdk.retries.api.RetryStrategy;
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+
+/**
+ * Caps the S3 requests in flight at a limit found by additive increase and multiplicative decrease. A request that
+ * succeeds while at least half the limit is in use, and while the recent latency is within twice the long run latency,
+ * adds 1/limit to the limit, so a full window of healthy requests raises it by one, up to the maximum. A throttled
+ * request (503 Slow Down, or any error the SDK counts as throttling) halves the limit, down to one. Requests started
+ * before the last decrease do not decrease it again, so one burst of throttling is one decrease.
+ *
+ * Throttled requests are retried after a random delay between zero and a cap that doubles with each attempt, so the
+ * retries of many threads do not arrive together. Any other failure is passed straight to the caller. The S3 client
+ * the limiter's requests run on must not retry a throttled request itself, see {@link #sdkRetryStrategy()}, or the
+ * limiter would only see the throttling once the SDK gave up, and each of its retries would be several requests.
+ *
+ * The limit, and the throttled and retried requests since the last publish, are published as a CloudWatch embedded
+ * metric format document on standard output. A warm Lambda keeps the limiter between runs, so publishing the totals
+ * would count the earlier runs' requests again.
+ *
+ * Thread safe.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    /**
+     * An S3 request, run while it holds one of the limiter's slots.
+     */
+    @FunctionalInterface
+    interface S3Request<T, E extends Exception> {
+        T run() throws E, InterruptedException;
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    // How far the recent latency can rise over the long run latency before the limit stops growing
+    private static final double LATENCY_TOLERANCE = 2.0;
+
+    private static final double RECENT_LATENCY_WEIGHT = 0.2;
+
+    private static final double LONG_RUN_LATENCY_WEIGHT = 0.02;
+
+    private final String name;
+
+    private final int maxLimit;
+
+    private final int maxAttempts;
+
+    private final long baseDelayMillis;
+
+    private final long maxDelayMillis;
+
+    // Guarded by this
+    private double limit;
+
+    private int inFlight;
+
+    private long lastDecrease;
+
+    private double recentLatency;
+
+    private double longRunLatency;
+
+    private long throttledRequests;
+
+    private long retries;
+
+    private long publishedThrottledRequests;
+
+    private long publishedRetries;
+
+    /**
+     * @param name the name the limiter's metrics are published under
+     * @param initialLimit the requests allowed in flight at first
+     * @param maxLimit the most requests ever allowed in flight
+     * @param maxAttempts the attempts at a throttled request before its failure is passed on
+     * @param baseDelayMillis the cap on the delay before the first retry, doubled for each retry after it
+     * @param maxDelayMillis the most the cap on the delay before a retry can reach
+     */
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int maxLimit, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.name = name;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(1, Math.min(initialLimit, this.maxLimit));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.lastDecrease = System.nanoTime();
+    }
+
+    /**
+     * Runs the request once a slot is free, retrying it after a jittered delay while it is throttled.
+     */
+    <T, E extends Exception> T call(S3Request<T, E> request) throws E, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            long start = acquire();
+            try {
+                T result = request.run();
+                succeeded(start);
+                return result;
+            } catch (SdkServiceException e) {
+                if (!isThrottling(e)) {
+                    throw e;
+                }
+                throttled(start);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+            } finally {
+                release();
+            }
+            long delay = ThreadLocalRandom.current().nextLong(Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30)) + 1);
+            logger.debug("{} request throttled on attempt {}, retrying in {} ms", name, attempt, delay);
+            synchronized (this) {
+                retries++;
+            }
+            TimeUnit.MILLISECONDS.sleep(delay);
+        }
+    }
+
+    static boolean isThrottling(SdkServiceException e) {
+        return e.isThrottlingException() || e.statusCode() == 503;
+    }
+
+    /**
+     * The retry strategy of the S3 client the limiters' requests run on. The SDK retries an I/O error or a server error
+     * other than throttling, which the limiter passes straight on, and leaves every throttled request to the limiter.
+     */
+    static RetryStrategy sdkRetryStrategy() {
+        return DefaultRetryStrategy.standardStrategyBuilder()
+                                   .useClientDefaults(false)
+                                   .retryOnException(AdaptiveConcurrencyLimiter::isRetriedBySdk)
+                                   .build();
+    }
+
+    static boolean isRetriedBySdk(Throwable e) {
+        if (e instanceof SdkServiceException serviceException) {
+            return !isThrottling(serviceException) && serviceException.statusCode() >= 500;
+        }
+        return e instanceof SdkClientException && e.getCause() instanceof IOException;
+    }
+
+    private synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+
+    private synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void succeeded(long start) {
+        long latency = System.nanoTime() - start;
+        if (longRunLatency == 0) {
+            recentLatency = latency;
+            longRunLatency = latency;
+        } else {
+            recentLatency += (latency - recentLatency) * RECENT_LATENCY_WEIGHT;
+            longRunLatency += (latency - longRunLatency) * LONG_RUN_LATENCY_WEIGHT;
+        }
+        // A limit that is not being used says nothing about whether S3 would take more
+        if (inFlight >= limit / 2 && recentLatency <= longRunLatency * LATENCY_TOLERANCE) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private synchronized void throttled(long start) {
+        throttledRequests++;
+        if (start - lastDecrease > 0) {
+            limit = Math.max(1, limit / 2);
+            lastDecrease = System.nanoTime();
+            logger.info("{} requests throttled, concurrency limit lowered to {}", name, getLimit());
+        }
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized long getThrottledRequests() {
+        return throttledRequests;
+    }
+
+    synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * The limit, and the throttled requests and retries since the metrics were last taken, as an embedded metric format
+     * document with the limiter's name as a dimension.
+     */
+    synchronized Map<String, Object> metrics() {
+        Map<String, Object> metricDirective = new LinkedHashMap<>();
+        metricDirective.put("Namespace", Constants.APPLICATION_NAME_SPACE);
+        metricDirective.put("Dimensions", List.of(List.of("Limiter")));
+        metricDirective.put("Metrics", List.of(Map.of("Name", "ConcurrencyLimit", "Unit", "Count"),
+                                               Map.of("Name", "ThrottledRequests", "Unit", "Count"),
+                                               Map.of("Name", "RetriedRequests", "Unit", "Count")));
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("_aws", Map.of("Timestamp", System.currentTimeMillis(), "CloudWatchMetrics", List.of(metricDirective)));
+        metrics.put("Limiter", name);
+        metrics.put("ConcurrencyLimit", getLimit());
+        metrics.put("ThrottledRequests", throttledRequests - publishedThrottledRequests);
+        metrics.put("RetriedRequests", retries - publishedRetries);
+        publishedThrottledRequests = throttledRequests;
+        publishedRetries = retries;
+        return metrics;
+    }
+
+    /**
+     * Writes the metrics to standard output, where Lambda passes them to CloudWatch as they are.
+     */
+    void publishMetrics() {
+        Map<String, Object> metrics = metrics();
+        try {
+            System.out.println(OBJECT_MAPPER.writeValueAsString(metrics));
+        } catch (JsonProcessingException e) {
+            logger.warn("Concurrency metrics of {} not published: {}", name, e.getMessage());
+        }
+        logger.info("{} concurrency limit is {}, {} requests throttled and {} retried since the last run", name, metrics.get("ConcurrencyLimit"),
+                    metrics.get("ThrottledRequests"), metrics.get("RetriedRequests"));
+    }
+}
@@ -0,0 +1,161 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.ApproximateAssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.HeavyHitter;
+import uk.gov.companieshouse.cdnanalyser.service.CountMinSketch;
+import uk.gov.companieshouse.cdnanalyser.service.SpaceSavingSummary;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Approximate aggregation, in memory fixed by the sketch dimensions and top-K size however many distinct paths are
+ * requested. New records are added to the {@link AssetRequestSketch} of their day, read from the analysis bucket the
+ * first time a day is seen. {@link #save(List)} saves the sketches of those days and merges the sketches of the
+ * report window into an {@link ApproximateAssetUsageReport}.
+ *
+ * Not thread safe, records are added from a single thread.
+ */
+public class ApproximateAssetUsage {
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final String accessLogFilterInPath;
+
+    private final int sketchWidth;
+
+    private final int sketchDepth;
+
+    private final int topK;
+
+    private final int reportDays;
+
+    private final Map<String, DaySketch> daySketches = new HashMap<>();
+
+    public ApproximateAssetUsage(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,
+                                 String accessLogFilterInPath, int sketchWidth, int sketchDepth, int topK, int reportDays) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.sketchWidth = sketchWidth;
+        this.sketchDepth = sketchDepth;
+        this.topK = topK;
+        this.reportDays = reportDays;
+    }
+
+    public void add(AssetAccessLog assetAccessLog) {
+        String day = LocalDate.ofInstant(assetAccessLog.getTimestamp().truncatedTo(ChronoUnit.DAYS), Constants.LONDON_ZONE_ID).toString();
+        DaySketch daySketch = daySketches.computeIfAbsent(day, this::readDaySketch);
+
+        String asset = assetAccessLog.getAsset();
+        if (asset.startsWith(accessLogFilterInPath)) {
+            asset = asset.substring(accessLogFilterInPath.length());
+        }
+        if (assetAccessLog.getStatusCode() >= 400) {
+            daySketch.topFailures.add(assetAccessLog.getStatusCode() + " " + asset, 1);
+        } else {
+            daySketch.assetCounts.add(asset, 1);
+            daySketch.topAssets.add(asset, 1);
+        }
+    }
+
+    /**
+     * Saves the sketches of the days records were added to, then the report over the reportDays days up to today.
+     */
+    public void save(List<String> assets) {
+        daySketches.forEach((day, daySketch) -> analysisOutputInterface.saveAssetRequestSketch(daySketch.toSketch(day)));
+
+        LocalDate to = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        LocalDate from = to.minusDays(reportDays - 1L);
+        DaySketch merged = new DaySketch(new CountMinSketch(sketchWidth, sketchDepth), new SpaceSavingSummary(topK), new SpaceSavingSummary(topK));
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            String day = date.toString();
+            DaySketch daySketch = daySketches.containsKey(day) ? daySketches.get(day) : readDaySketch(day);
+            merged.assetCounts.merge(daySketch.assetCounts);
+            merged.topAssets.merge(daySketch.topAssets);
+            merged.topFailures.merge(daySketch.topFailures);
+        }
+
+        ApproximateAssetUsageReport report = new ApproximateAssetUsageReport();
+        report.setFrom(from.toString());
+        report.setTo(to.toString());
+        report.setTotalRequests(merged.assetCounts.getTotal());
+        report.setEstimateErrorBound(merged.assetCounts.errorBound());
+        report.setAssetAccessCount(Util.calculateApproximateAssetRequestTotals(merged.assetCounts, assets).getAssetAccessCount());
+        report.setTopAssets(heavyHitters(merged.topAssets, false));
+        report.setTopFailures(heavyHitters(merged.topFailures, true));
+        logger.info("Approximate asset usage from {} to {} saved from {} requests, estimates within {} of the true counts",
+                    report.getFrom(), report.getTo(), report.getTotalRequests(), report.getEstimateErrorBound());
+        analysisOutputInterface.saveApproximateAssetRequests(report);
+    }
+
+    private DaySketch readDaySketch(String day) {
+        AssetRequestSketch sketch = analysisInputInterface.readAssetRequestSketch(day).orElse(null);
+        if (sketch != null && (sketch.getWidth() != sketchWidth || sketch.getDepth() != sketchDepth)) {
+            logger.warn("Asset request sketch for {} has width {} and depth {} rather than {} and {}, so will be replaced",
+                        day, sketch.getWidth(), sketch.getDepth(), sketchWidth, sketchDepth);
+            sketch = null;
+        }
+        if (sketch == null) {
+            return new DaySketch(new CountMinSketch(sketchWidth, sketchDepth), new SpaceSavingSummary(topK), new SpaceSavingSummary(topK));
+        }
+        return new DaySketch(new CountMinSketch(sketchWidth, sketchDepth, sketch.getCounts(), sketch.getTotal()),
+                             summary(sketch.getTopAssets(), false), summary(sketch.getTopFailures(), true));
+    }
+
+    private SpaceSavingSummary summary(List<HeavyHitter> heavyHitters, boolean failures) {
+        SpaceSavingSummary summary = new SpaceSavingSummary(topK);
+        // Saved most frequent first, so a smaller top-K keeps the most frequent
+        heavyHitters.stream().limit(topK).forEach(heavyHitter ->
+            summary.add(failures ? heavyHitter.getStatusCode() + " " + heavyHitter.getAsset() : heavyHitter.getAsset(),
+                        heavyHitter.getCount(), heavyHitter.getError()));
+        return summary;
+    }
+
+    private static List<HeavyHitter> heavyHitters(SpaceSavingSummary summary, boolean failures) {
+        List<HeavyHitter> heavyHitters = new ArrayList<>();
+        for (SpaceSavingSummary.Counter counter : summary.getCounters()) {
+            if (failures) {
+                int separator = counter.getItem().indexOf(' ');
+                heavyHitters.add(new HeavyHitter(counter.getItem().substring(separator + 1), Integer.valueOf(counter.getItem().substring(0, separator)),
+                                                 counter.getCount(), counter.getError()));
+            } else {
+                heavyHitters.add(new HeavyHitter(counter.getItem(), null, counter.getCount(), counter.getError()));
+            }
+        }
+        return heavyHitters;
+    }
+
+    private record DaySketch(CountMinSketch assetCounts, SpaceSavingSummary topAssets, SpaceSavingSummary topFailures) {
+
+        private AssetRequestSketch toSketch(String day) {
+            AssetRequestSketch sketch = new AssetRequestSketch();
+            sketch.setId(day);
+            sketch.setWidth(assetCounts.getWidth());
+            sketch.setDepth(assetCounts.getDepth());
+            sketch.setCounts(assetCounts.getCounts());
+            sketch.setTotal(assetCounts.getTotal());
+            sketch.setTopAssets(heavyHitters(topAssets, false));
+            sketch.setTopFailures(heavyHitters(topFailures, true));
+            return sketch;
+        }
+    }
+}
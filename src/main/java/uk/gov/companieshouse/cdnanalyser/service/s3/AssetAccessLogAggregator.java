@@ -0,0 +1,248 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+
+/**
+ * Final stage of the access log pipeline. Each record read from a log object is counted into that object's
+ * {@link LogObjectAggregate}, and the usage totals are built by merging the aggregates of every log object seen so
+ * far, so log objects cached from earlier runs are never parsed again. The aggregates past their retention window
+ * are folded away by {@link LogObjectAggregateStore} before they get here. Failed requests are not counted here, the
+ * failure report is merged incrementally by {@link Util#calculateFailedAssetRequests(List, List, String, AssetDictionary)}.
+ *
+ * The first run without cached aggregates also folds raw records that no current log object accounts for (their
+ * log objects have since expired) into a single aggregate, so no history is lost when moving to the cache.
+ *
+ * Not thread safe, records are added from a single thread.
+ */
+public class AssetAccessLogAggregator {
+
+    static final String RAW_DATA_AGGREGATE_KEY = "raw-asset-access-data.json";
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final List<String> assets;
+
+    private final AssetPathTrie assetPathTrie;
+
+    private final String accessLogFilterInPath;
+
+    private final Map<String, LogObjectAggregate> logObjectAggregates;
+
+    private final Map<String, LogObjectAggregate> readAggregates = new HashMap<>();
+
+    // Raw records not yet matched to a log object, only tracked when there are no cached aggregates
+    private Set<AssetAccessLog> unclaimedAssetAccessLogs;
+
+    private boolean changed;
+
+    // Days whose counts the log objects completed this run have changed
+    private final Set<String> changedDays = new TreeSet<>();
+
+    // Keys of the aggregates added or replaced this run
+    private final Set<String> changedLogObjects = new HashSet<>();
+
+    private S3File currentLogObject;
+
+    private LogObjectAggregate currentAggregate;
+
+    private long currentEpochDay = Long.MIN_VALUE;
+
+    private String currentDay;
+
+    public AssetAccessLogAggregator(List<String> assets, String accessLogFilterInPath, Map<String, LogObjectAggregate> logObjectAggregates) {
+        this(assets, new AssetPathTrie(assets.stream().collect(Collectors.toMap(asset -> asset, asset -> 0L, (first, second) -> first))),
+             accessLogFilterInPath, logObjectAggregates);
+    }
+
+    public AssetAccessLogAggregator(List<String> assets, AssetPathTrie assetPathTrie, String accessLogFilterInPath, Map<String, LogObjectAggregate> logObjectAggregates) {
+        this.assets = assets;
+        this.assetPathTrie = assetPathTrie;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.logObjectAggregates = new HashMap<>(logObjectAggregates);
+        if (logObjectAggregates.isEmpty()) {
+            unclaimedAssetAccessLogs = new HashSet<>();
+        }
+    }
+
+    /**
+     * Adds a record from the raw data store, which only counts towards the totals when there are no cached
+     * aggregates and no current log object accounts for it.
+     */
+    public void add(AssetAccessLog assetAccessLog) {
+        if (unclaimedAssetAccessLogs != null) {
+            unclaimedAssetAccessLogs.add(assetAccessLog);
+        }
+    }
+
+    /**
+     * Adds a record read from a new or changed log object.
+     */
+    public void add(S3File logObject, AssetAccessLog assetAccessLog) {
+        if (unclaimedAssetAccessLogs != null) {
+            // The raw records were saved without request IDs, and each is equal to the same request read with one
+            unclaimedAssetAccessLogs.remove(assetAccessLog);
+        }
+        if (logObject != currentLogObject) {
+            currentLogObject = logObject;
+            currentAggregate = readAggregates.computeIfAbsent(logObject.getFilename(), key -> new LogObjectAggregate(logObject.getETag()));
+        }
+        count(currentAggregate, assetAccessLog);
+    }
+
+    /**
+     * Keeps the aggregates of the log objects that were read in full. Records from any other log object are not
+     * kept in the aggregates, so that object is read again on the next run.
+     */
+    public void completed(List<S3File> logObjects) {
+        logObjects.forEach(logObject -> {
+            LogObjectAggregate aggregate = readAggregates.getOrDefault(logObject.getFilename(), new LogObjectAggregate(logObject.getETag()));
+            // A changed log object replaces what it counted before
+            LogObjectAggregate replaced = logObjectAggregates.put(logObject.getFilename(), aggregate);
+            changedLogObjects.add(logObject.getFilename());
+            changedDays.addAll(aggregate.getSuccessCounts().keySet());
+            if (replaced != null) {
+                changedDays.addAll(replaced.getSuccessCounts().keySet());
+            }
+        });
+        changed |= !logObjects.isEmpty();
+
+        if (unclaimedAssetAccessLogs != null && !unclaimedAssetAccessLogs.isEmpty()) {
+            LogObjectAggregate rawDataAggregate = new LogObjectAggregate();
+            unclaimedAssetAccessLogs.forEach(assetAccessLog -> count(rawDataAggregate, assetAccessLog));
+            logObjectAggregates.put(RAW_DATA_AGGREGATE_KEY, rawDataAggregate);
+            changedLogObjects.add(RAW_DATA_AGGREGATE_KEY);
+            changedDays.addAll(rawDataAggregate.getSuccessCounts().keySet());
+            logger.info("{} raw asset access logs without a log object kept as an aggregate", unclaimedAssetAccessLogs.size());
+            changed = true;
+        }
+        unclaimedAssetAccessLogs = null;
+        readAggregates.clear();
+        currentLogObject = null;
+        currentAggregate = null;
+    }
+
+    private void count(LogObjectAggregate aggregate, AssetAccessLog assetAccessLog) {
+        if (assetAccessLog.getStatusCode() < 400) {
+            String path = assetAccessLog.getAsset();
+            int start = path.startsWith(accessLogFilterInPath) ? accessLogFilterInPath.length() : 0;
+            // An identified asset is counted under the inventory's key, so no substring is built for it
+            String filename = assetPathTrie.find(path, start);
+            if (filename == null) {
+                filename = path.substring(start);
+            }
+            aggregate.getSuccessCounts().computeIfAbsent(day(assetAccessLog.getTimestamp()), key -> new HashMap<>())
+                                        .merge(filename, 1, Integer::sum);
+        }
+    }
+
+    private String day(Instant timestamp) {
+        // Records arrive roughly in time order, so the formatted day is reused until it changes.
+        long epochDay = Math.floorDiv(timestamp.getEpochSecond(), 86_400L);
+        if (epochDay != currentEpochDay) {
+            currentEpochDay = epochDay;
+            currentDay = LocalDate.ofInstant(timestamp.truncatedTo(ChronoUnit.DAYS), Constants.LONDON_ZONE_ID).toString();
+        }
+        return currentDay;
+    }
+
+    public boolean isEmpty() {
+        return logObjectAggregates.isEmpty();
+    }
+
+    /**
+     * Whether the aggregates have changed since they were read and need saving.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    public Map<String, LogObjectAggregate> getLogObjectAggregates() {
+        return logObjectAggregates;
+    }
+
+    /**
+     * The days, in yyyy-MM-dd form, that the log objects completed this run count requests on, or counted requests
+     * on before they changed. Only these daily reports need rebuilding.
+     */
+    public Set<String> getChangedDays() {
+        return changedDays;
+    }
+
+    /**
+     * The keys of the aggregates the log objects completed this run added or replaced.
+     */
+    public Set<String> getChangedLogObjects() {
+        return changedLogObjects;
+    }
+
+    /**
+     * Every day the aggregates count requests on.
+     */
+    public Set<String> getDays() {
+        Set<String> days = new TreeSet<>();
+        logObjectAggregates.values().forEach(aggregate -> days.addAll(aggregate.getSuccessCounts().keySet()));
+        return days;
+    }
+
+    /**
+     * Merges the daily success counts of every log object into one report per day, covering every identified asset.
+     */
+    public List<AssetUsageReport> getSuccessfulAssetUsageReports() {
+        return getSuccessfulAssetUsageReports(getDays());
+    }
+
+    /**
+     * Rebuilds the reports of the given days from the daily success counts of every log object, each covering every
+     * identified asset, including a day no log object counts requests on any more. A report rebuilt in full is the
+     * same however many times it is built, unlike one updated with changes.
+     */
+    public List<AssetUsageReport> getSuccessfulAssetUsageReports(Set<String> days) {
+        Map<String, AssetUsageReport> assetUsageReportsByDay = new HashMap<>();
+        Set<String> unidentifiedAssets = new TreeSet<>();
+        // Create a new assetUsageReport, initialising the hashMap of assets to 0
+        days.forEach(day -> assetUsageReportsByDay.put(day, new AssetUsageReport(day, initialCounts())));
+
+        logObjectAggregates.values().forEach(aggregate -> aggregate.getSuccessCounts().forEach((day, counts) -> {
+            AssetUsageReport assetUsageReport = assetUsageReportsByDay.get(day);
+            if (assetUsageReport == null) {
+                return;
+            }
+            counts.forEach((asset, count) -> {
+                if (assetUsageReport.getAssetAccessCount().containsKey(asset)) {
+                    assetUsageReport.getAssetAccessCount().merge(asset, count, Integer::sum);
+                } else {
+                    unidentifiedAssets.add(asset);
+                }
+            });
+        }));
+
+        unidentifiedAssets.forEach(asset -> logger.warn("Asset {} not found in the list of identified CDN assets", asset));
+        return new ArrayList<>(assetUsageReportsByDay.values());
+    }
+
+    private Map<String, Integer> initialCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        assets.forEach(asset -> counts.put(asset, 0));
+        return counts;
+    }
+}
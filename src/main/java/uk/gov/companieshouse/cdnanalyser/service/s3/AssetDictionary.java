@@ -0,0 +1,72 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives each asset a fixed index the first time it is seen. The dictionary is saved alongside anything indexed by
+ * it, the usage bitsets and rollups, so what earlier runs saved keeps its meaning as assets are added and removed.
+ *
+ * Not thread safe.
+ */
+public class AssetDictionary {
+
+    private final List<String> assets;
+
+    private final Map<String, Integer> index = new HashMap<>();
+
+    private boolean changed;
+
+    public AssetDictionary(List<String> assets) {
+        this.assets = new ArrayList<>(assets);
+        for (int i = 0; i < this.assets.size(); i++) {
+            index.put(this.assets.get(i), i);
+        }
+    }
+
+    /**
+     * Adds any assets not yet in the dictionary.
+     */
+    public void addAssets(List<String> assets) {
+        assets.forEach(this::indexOf);
+    }
+
+    /**
+     * The index of the asset, adding it to the dictionary if it is not there yet.
+     */
+    public int indexOf(String asset) {
+        return index.computeIfAbsent(asset, key -> {
+            assets.add(key);
+            changed = true;
+            return assets.size() - 1;
+        });
+    }
+
+    /**
+     * The index of the asset, or -1 if it is not in the dictionary.
+     */
+    public int find(String asset) {
+        return index.getOrDefault(asset, -1);
+    }
+
+    public String get(int index) {
+        return assets.get(index);
+    }
+
+    public int size() {
+        return assets.size();
+    }
+
+    public List<String> getAssets() {
+        return assets;
+    }
+
+    /**
+     * Whether assets have been added since the dictionary was read and it needs saving.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+}
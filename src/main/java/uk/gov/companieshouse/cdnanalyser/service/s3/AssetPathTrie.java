@@ -0,0 +1,232 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FolderUsage;
+
+/**
+ * The asset inventory as a compressed trie over path segments. Each edge holds one or more whole segments, a folder
+ * with a single entry being merged into its edge, and children are found by their first segment. Paths from the
+ * access logs are looked up in place from an offset, so the filter in path is skipped without building a substring,
+ * and an identified asset is returned as the inventory's own key.
+ *
+ * Not thread safe, lookups share one probe key.
+ */
+public class AssetPathTrie {
+
+    private final Node root = new Node("");
+
+    private final Segment probe = new Segment();
+
+    private int size;
+
+    /**
+     * Builds the trie from the asset keys and their sizes in bytes. Keys ending in a slash are folder placeholders
+     * and are left out.
+     */
+    public AssetPathTrie(Map<String, Long> assetSizes) {
+        assetSizes.forEach((asset, bytes) -> {
+            if (!asset.isEmpty() && !asset.endsWith("/")) {
+                insert(asset, bytes);
+            }
+        });
+    }
+
+    /**
+     * The number of assets in the trie.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the asset whose key is the path from the offset on.
+     *
+     * @return the inventory's key of the asset, or null if it is not an identified asset
+     */
+    public String find(String path, int from) {
+        Node node = root;
+        int i = from;
+        while (i < path.length()) {
+            if (node.children == null) {
+                return null;
+            }
+            Node child = node.children.get(probe.set(path, i, segmentEnd(path, i)));
+            if (child == null || !path.startsWith(child.label, i)) {
+                return null;
+            }
+            i += child.label.length();
+            node = child;
+        }
+        return node.asset;
+    }
+
+    /**
+     * Rolls the request count of each asset up through its folders in one bottom-up pass, listing every folder with
+     * its requests, files, files without requests and bytes.
+     */
+    public AssetFolderUsageReport folderUsage(String id, Map<String, Integer> assetAccessCount) {
+        List<FolderUsage> folders = new ArrayList<>();
+        rollUp(root, "", assetAccessCount, folders);
+        folders.sort(Comparator.comparing(FolderUsage::getFolder));
+        return new AssetFolderUsageReport(id, folders);
+    }
+
+    private long[] rollUp(Node node, String path, Map<String, Integer> assetAccessCount, List<FolderUsage> folders) {
+        // Requests, files, unused files and bytes
+        long[] totals = new long[4];
+        if (node.asset != null) {
+            int requests = assetAccessCount.getOrDefault(node.asset, 0);
+            totals[0] = requests;
+            totals[1] = 1;
+            totals[2] = requests > 0 ? 0 : 1;
+            totals[3] = node.bytes;
+        }
+        if (node.children != null) {
+            String childPath = path + node.label;
+            node.children.values().forEach(child -> {
+                long[] childTotals = rollUp(child, childPath, assetAccessCount, folders);
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += childTotals[i];
+                }
+            });
+        }
+        // Every folder the edge passes through holds the same assets
+        for (int slash = node.label.indexOf('/'); slash >= 0; slash = node.label.indexOf('/', slash + 1)) {
+            folders.add(new FolderUsage(path + node.label.substring(0, slash + 1), totals[0], (int) totals[1], (int) totals[2], totals[3]));
+        }
+        return totals;
+    }
+
+    private void insert(String asset, long bytes) {
+        Node node = root;
+        int i = 0;
+        while (true) {
+            int firstSegmentEnd = segmentEnd(asset, i);
+            Node child = node.children == null ? null : node.children.get(new Segment().set(asset, i, firstSegmentEnd));
+            if (child == null) {
+                Node leaf = new Node(asset.substring(i));
+                leaf.asset = asset;
+                leaf.bytes = bytes;
+                node.addChild(leaf);
+                size++;
+                return;
+            }
+            int common = commonLength(child.label, asset, i);
+            if (common < child.label.length()) {
+                child = node.split(child, common);
+            }
+            i += common;
+            if (i == asset.length()) {
+                if (child.asset == null) {
+                    size++;
+                }
+                child.asset = asset;
+                child.bytes = bytes;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * The length of the whole segments the label shares with the asset from the offset, the whole label if it matches
+     * and either ends a folder or ends the asset.
+     */
+    private static int commonLength(String label, String asset, int from) {
+        int common = 0;
+        int i = 0;
+        while (i < label.length() && from + i < asset.length() && label.charAt(i) == asset.charAt(from + i)) {
+            if (label.charAt(i) == '/') {
+                common = i + 1;
+            }
+            i++;
+        }
+        if (i == label.length() && from + i == asset.length()) {
+            return i;
+        }
+        return common;
+    }
+
+    // The end of the segment starting at from, after its slash if it has one
+    private static int segmentEnd(String path, int from) {
+        int slash = path.indexOf('/', from);
+        return slash < 0 ? path.length() : slash + 1;
+    }
+
+    private static final class Node {
+
+        private String label;
+
+        private Map<Segment, Node> children;
+
+        // The inventory key when an asset ends here
+        private String asset;
+
+        private long bytes;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private void addChild(Node child) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            children.put(new Segment().set(child.label, 0, segmentEnd(child.label, 0)), child);
+        }
+
+        // Splits a child's edge after its first length characters, returning the new node in between
+        private Node split(Node child, int length) {
+            Node middle = new Node(child.label.substring(0, length));
+            child.label = child.label.substring(length);
+            middle.addChild(child);
+            addChild(middle);
+            return middle;
+        }
+    }
+
+    /**
+     * A range of characters of a string, equal to any range with the same characters.
+     */
+    private static final class Segment {
+
+        private String text;
+
+        private int start;
+
+        private int end;
+
+        private int hash;
+
+        private Segment set(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Segment segment)) {
+                return false;
+            }
+            return end - start == segment.end - segment.start && text.regionMatches(start, segment.text, segment.start, end - start);
+        }
+    }
+}
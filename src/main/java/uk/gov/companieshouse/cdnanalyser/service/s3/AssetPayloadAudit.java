@@ -0,0 +1,127 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayload;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Joins the metadata of the asset inventory with the successful requests of each asset, ranking the requested assets
+ * by the bytes they could be serving. The Content-Encoding and Cache-Control of an asset come from a HEAD request,
+ * which is only made again when its listing shows a new ETag or size, so a run over an unchanged bucket makes none.
+ */
+public class AssetPayloadAudit {
+
+    static final String COMPRESSION = "compression";
+
+    static final String LONGER_CACHE = "longer-cache";
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final long largeObjectBytes;
+
+    private final long hotRequests;
+
+    private final long shortCacheSeconds;
+
+    private final long defaultTtlSeconds;
+
+    /**
+     * @param largeObjectBytes size from which an uncompressed text asset is a compression candidate
+     * @param hotRequests successful requests from which an asset is a candidate at all
+     * @param shortCacheSeconds cache lifetime below which a hot asset is a longer cache candidate
+     * @param defaultTtlSeconds cache lifetime of assets whose Cache-Control sets none
+     */
+    public AssetPayloadAudit(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,
+                             long largeObjectBytes, long hotRequests, long shortCacheSeconds, long defaultTtlSeconds) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.largeObjectBytes = largeObjectBytes;
+        this.hotRequests = hotRequests;
+        this.shortCacheSeconds = shortCacheSeconds;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+    }
+
+    /**
+     * Brings the saved metadata up to date with the inventory, saving it if anything changed, and saves the ranking
+     * of the requested assets.
+     */
+    public AssetPayloadReport audit(String id, Map<String, AssetMetadata> assetInventory, Map<String, Integer> assetAccessCount) {
+        Map<String, AssetMetadata> savedMetadata = analysisInputInterface.readAssetMetadata();
+        Map<String, AssetMetadata> changedAssets = new LinkedHashMap<>();
+        assetInventory.forEach((asset, listed) -> {
+            AssetMetadata saved = savedMetadata.get(asset);
+            if (saved == null || saved.getSize() != listed.getSize() || !Objects.equals(saved.getETag(), listed.getETag())) {
+                changedAssets.put(asset, listed);
+            }
+        });
+
+        Map<String, AssetMetadata> assetMetadata = new LinkedHashMap<>();
+        Map<String, AssetMetadata> assetHeaders = analysisInputInterface.readAssetHeaders(changedAssets);
+        assetInventory.forEach((asset, listed) -> {
+            AssetMetadata current = changedAssets.containsKey(asset) ? assetHeaders.get(asset) : savedMetadata.get(asset);
+            // An asset whose request failed is left out, so it is requested again next run
+            if (current != null) {
+                assetMetadata.put(asset, current);
+            }
+        });
+        if (!assetHeaders.isEmpty() || !assetMetadata.keySet().equals(savedMetadata.keySet())) {
+            logger.info("Headers of {} of {} changed assets requested, metadata of {} assets saved", assetHeaders.size(), changedAssets.size(), assetMetadata.size());
+            analysisOutputInterface.saveAssetMetadata(assetMetadata);
+        }
+
+        AssetPayloadReport report = report(id, assetInventory, assetMetadata, assetAccessCount);
+        analysisOutputInterface.saveAssetPayloadReport(report);
+        return report;
+    }
+
+    AssetPayloadReport report(String id, Map<String, AssetMetadata> assetInventory, Map<String, AssetMetadata> assetMetadata, Map<String, Integer> assetAccessCount) {
+        AssetPayloadReport report = new AssetPayloadReport();
+        report.setId(id);
+        assetInventory.forEach((asset, listed) -> {
+            int requests = assetAccessCount.getOrDefault(asset, 0);
+            if (requests == 0) {
+                return;
+            }
+            AssetMetadata headers = assetMetadata.getOrDefault(asset, listed);
+            AssetPayload payload = new AssetPayload();
+            payload.setAsset(asset);
+            payload.setRequests(requests);
+            payload.setSize(listed.getSize());
+            payload.setBytesServedPotential(listed.getSize() * requests);
+            payload.setContentEncoding(headers.getContentEncoding());
+            payload.setCacheControl(headers.getCacheControl());
+            payload.setCacheLifetimeSeconds(Util.cacheLifetimeSeconds(headers.getCacheControl()));
+            payload.setStorageClass(listed.getStorageClass());
+            // Headers are only known once their request succeeds
+            if (headers != listed && requests >= hotRequests) {
+                if (listed.getSize() >= largeObjectBytes && headers.getContentEncoding() == null && Util.isCompressible(asset)) {
+                    payload.getCandidates().add(COMPRESSION);
+                }
+                long cacheLifetimeSeconds = payload.getCacheLifetimeSeconds() < 0 ? defaultTtlSeconds : payload.getCacheLifetimeSeconds();
+                if (cacheLifetimeSeconds < shortCacheSeconds) {
+                    payload.getCandidates().add(LONGER_CACHE);
+                }
+            }
+            report.getAssets().add(payload);
+        });
+        report.getAssets().sort(Comparator.comparingLong(AssetPayload::getBytesServedPotential).reversed().thenComparing(AssetPayload::getAsset));
+        report.setTotalBytesServedPotential(report.getAssets().stream().mapToLong(AssetPayload::getBytesServedPotential).sum());
+        return report;
+    }
+}
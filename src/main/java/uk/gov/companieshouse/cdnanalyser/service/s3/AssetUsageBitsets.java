@@ -0,0 +1,79 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
+
+/**
+ * Which assets were requested on each day, as one bitset per day over the {@link AssetDictionary}. Assets unused over
+ * a window of days are those whose bit is clear in the OR of the window's bitsets.
+ */
+public class AssetUsageBitsets {
+
+    private final AssetDictionary dictionary;
+
+    private final Map<String, BitSet> days = new TreeMap<>();
+
+    public AssetUsageBitsets(AssetDictionary dictionary, Map<String, byte[]> days) {
+        this.dictionary = dictionary;
+        days.forEach((day, bits) -> this.days.put(day, BitSet.valueOf(bits)));
+    }
+
+    /**
+     * Sets the bit of every asset with requests in the daily report, replacing any bitset of that day.
+     */
+    public void add(AssetUsageReport dailyReport) {
+        BitSet requested = new BitSet(dictionary.size());
+        days.put(dailyReport.getId(), requested);
+        dailyReport.getAssetAccessCount().forEach((asset, count) -> {
+            if (count > 0) {
+                requested.set(dictionary.indexOf(asset));
+            }
+        });
+    }
+
+    /**
+     * Lists the current assets not requested in each window of days ending today, oldest window last.
+     */
+    public UnusedAssetsReport unusedAssets(List<String> assets, LocalDate today, List<Integer> windows) {
+        BitSet current = new BitSet(dictionary.size());
+        assets.forEach(asset -> current.set(dictionary.indexOf(asset)));
+
+        Map<Integer, List<String>> unusedAssets = new LinkedHashMap<>();
+        for (int window : windows) {
+            String from = today.minusDays(window - 1L).toString();
+            BitSet unused = (BitSet) current.clone();
+            days.entrySet().stream()
+                .filter(day -> day.getKey().compareTo(from) >= 0 && day.getKey().compareTo(today.toString()) <= 0)
+                .forEach(day -> unused.andNot(day.getValue()));
+
+            List<String> unusedInWindow = new ArrayList<>(unused.cardinality());
+            for (int i = unused.nextSetBit(0); i >= 0; i = unused.nextSetBit(i + 1)) {
+                unusedInWindow.add(dictionary.get(i));
+            }
+            unusedAssets.put(window, unusedInWindow);
+        }
+        return new UnusedAssetsReport(today.toString(), assets.size(), unusedAssets);
+    }
+
+    /**
+     * The bitsets of the days up to retainDays before today, ready to save.
+     */
+    public Map<String, byte[]> toBytes(LocalDate today, int retainDays) {
+        String oldest = today.minusDays(retainDays - 1L).toString();
+        Map<String, byte[]> bytes = new TreeMap<>();
+        days.forEach((day, bits) -> {
+            if (day.compareTo(oldest) >= 0) {
+                bytes.put(day, bits.toByteArray());
+            }
+        });
+        return bytes;
+    }
+}
@@ -0,0 +1,176 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cumulative successful request counts per asset over day ordinals, one column per asset in the
+ * {@link AssetDictionary}. Entry d of an asset's column is the asset's requests from the first indexed day up to and
+ * including day d, so the count between any two days is the difference of two entries. Setting a day adds the
+ * difference from its saved count to that day's entry and every later one, and new days extend each column with its
+ * last entry. The entries are longs, as the running total of a busy asset over years of days can pass the largest int.
+ *
+ * Not thread safe.
+ */
+public class AssetUsageIndex {
+
+    private static final int VERSION = 2;
+
+    // Columns of int entries, read and widened to longs
+    private static final int INT_VERSION = 1;
+
+    private long firstEpochDay;
+
+    private int dayCount;
+
+    private final List<long[]> columns;
+
+    private boolean changed;
+
+    public AssetUsageIndex() {
+        this(0, 0, new ArrayList<>());
+    }
+
+    private AssetUsageIndex(long firstEpochDay, int dayCount, List<long[]> columns) {
+        this.firstEpochDay = firstEpochDay;
+        this.dayCount = dayCount;
+        this.columns = columns;
+    }
+
+    /**
+     * Sets the request counts of one day, in yyyy-MM-dd form, from its daily report. Assets not in the report have
+     * no requests that day, and assets not in the dictionary are not counted, as they are not in the daily reports
+     * either. Setting the same counts again leaves the index as it is.
+     */
+    public void set(String day, Map<String, Integer> counts, AssetDictionary dictionary) {
+        long epochDay = LocalDate.parse(day).toEpochDay();
+        coverDay(epochDay);
+        while (columns.size() < dictionary.size()) {
+            columns.add(new long[dayCount]);
+        }
+        int ordinal = (int) (epochDay - firstEpochDay);
+        for (int assetId = 0; assetId < columns.size(); assetId++) {
+            long[] column = columns.get(assetId);
+            long saved = column[ordinal] - (ordinal == 0 ? 0 : column[ordinal - 1]);
+            long change = counts.getOrDefault(dictionary.get(assetId), 0) - saved;
+            if (change != 0) {
+                for (int d = ordinal; d < dayCount; d++) {
+                    column[d] += change;
+                }
+                changed = true;
+            }
+        }
+    }
+
+    /**
+     * The asset's requests from one day to another, both included. Days outside the index have no requests.
+     */
+    public long count(int assetId, LocalDate from, LocalDate to) {
+        if (assetId < 0 || assetId >= columns.size() || dayCount == 0) {
+            return 0;
+        }
+        long fromOrdinal = Math.max(from.toEpochDay() - firstEpochDay, 0);
+        long toOrdinal = Math.min(to.toEpochDay() - firstEpochDay, dayCount - 1L);
+        if (fromOrdinal > toOrdinal) {
+            return 0;
+        }
+        long[] column = columns.get(assetId);
+        return column[(int) toOrdinal] - (fromOrdinal == 0 ? 0 : column[(int) fromOrdinal - 1]);
+    }
+
+    /**
+     * The asset's requests over every indexed day.
+     */
+    public long total(int assetId) {
+        if (assetId < 0 || assetId >= columns.size() || dayCount == 0) {
+            return 0;
+        }
+        return columns.get(assetId)[dayCount - 1];
+    }
+
+    /**
+     * The first indexed day, only meaningful when there are days.
+     */
+    public LocalDate getFirstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * Whether counts have been added since the index was read and it needs saving.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * The index column by column: a version, the first day, the number of days and of columns, then each column.
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES + Long.BYTES * dayCount * columns.size());
+        buffer.putInt(VERSION).putLong(firstEpochDay).putInt(dayCount).putInt(columns.size());
+        for (long[] column : columns) {
+            buffer.asLongBuffer().put(column);
+            buffer.position(buffer.position() + Long.BYTES * dayCount);
+        }
+        return buffer.array();
+    }
+
+    public static AssetUsageIndex fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int version = buffer.getInt();
+        if (version != VERSION && version != INT_VERSION) {
+            throw new IllegalArgumentException("Unsupported asset usage index version " + version);
+        }
+        long firstEpochDay = buffer.getLong();
+        int dayCount = buffer.getInt();
+        int columnCount = buffer.getInt();
+        List<long[]> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            long[] column = new long[dayCount];
+            if (version == INT_VERSION) {
+                for (int d = 0; d < dayCount; d++) {
+                    column[d] = buffer.getInt();
+                }
+            } else {
+                buffer.asLongBuffer().get(column);
+                buffer.position(buffer.position() + Long.BYTES * dayCount);
+            }
+            columns.add(column);
+        }
+        return new AssetUsageIndex(firstEpochDay, dayCount, columns);
+    }
+
+    private void coverDay(long epochDay) {
+        if (dayCount == 0) {
+            firstEpochDay = epochDay;
+            dayCount = 1;
+            columns.replaceAll(column -> new long[1]);
+        } else if (epochDay < firstEpochDay) {
+            // Earlier days have no requests yet, so the cumulative counts start with zeros
+            int added = (int) (firstEpochDay - epochDay);
+            columns.replaceAll(column -> {
+                long[] extended = new long[dayCount + added];
+                System.arraycopy(column, 0, extended, added, dayCount);
+                return extended;
+            });
+            firstEpochDay = epochDay;
+            dayCount += added;
+        } else if (epochDay >= firstEpochDay + dayCount) {
+            int newDayCount = (int) (epochDay - firstEpochDay + 1);
+            columns.replaceAll(column -> {
+                long[] extended = Arrays.copyOf(column, newDayCount);
+                Arrays.fill(extended, dayCount, newDayCount, column[dayCount - 1]);
+                return extended;
+            });
+            dayCount = newDayCount;
+        }
+    }
+}
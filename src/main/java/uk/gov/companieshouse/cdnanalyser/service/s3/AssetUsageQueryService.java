@@ -0,0 +1,137 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageQuery;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+
+@Service
+public class AssetUsageQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final List<String> environments;
+
+    public AssetUsageQueryService(AnalysisInputInterface analysisInputInterface,
+                                  @Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.environments = Util.filterInPaths(accessLogFilterInPath);
+    }
+
+    /**
+     * Totals the successful requests between the query's days from the {@link AssetUsageIndex}, two lookups per
+     * asset however long the range, without reading any daily reports or access logs.
+     */
+    public AssetUsageReport queryAssetUsage(AssetUsageQuery query) {
+        LocalDate from = parseDay(query.getFrom(), "from");
+        LocalDate to = parseDay(query.getTo(), "to");
+        checkRange(from, to);
+
+        AnalysisInputInterface environmentInput = environmentInput(query);
+        AssetDictionary dictionary = new AssetDictionary(environmentInput.readAssetDictionary());
+        AssetUsageIndex index = environmentInput.readAssetUsageIndex().map(AssetUsageIndex::fromBytes).orElseGet(AssetUsageIndex::new);
+        Map<String, Integer> assetAccessCount = new HashMap<>();
+        if (query.getAsset() != null) {
+            assetAccessCount.put(query.getAsset(), Math.toIntExact(index.count(dictionary.find(query.getAsset()), from, to)));
+        } else {
+            String assetPrefix = query.getAssetPrefix() == null ? "" : query.getAssetPrefix();
+            for (int assetId = 0; assetId < dictionary.size(); assetId++) {
+                if (dictionary.get(assetId).startsWith(assetPrefix)) {
+                    assetAccessCount.put(dictionary.get(assetId), Math.toIntExact(index.count(assetId, from, to)));
+                }
+            }
+        }
+        logger.info("{} answered for {} assets", query, assetAccessCount.size());
+        return new AssetUsageReport(from + "/" + to, assetAccessCount);
+    }
+
+    /**
+     * Totals the successful requests between the query's days from the monthly and weekly rollups and the daily
+     * reports, see {@link AssetUsageRangeQuery}. Only assets with requests are listed. Unlike
+     * {@link #queryAssetUsage(AssetUsageQuery)} it does not need the index, only the saved reports.
+     */
+    public AssetUsageReport queryAssetUsageRollups(AssetUsageQuery query) {
+        LocalDate from = parseDay(query.getFrom(), "from");
+        LocalDate to = parseDay(query.getTo(), "to");
+        checkRange(from, to);
+
+        AssetUsageReport assetUsageReport = new AssetUsageRangeQuery(environmentInput(query)).query(from, to);
+        assetUsageReport.getAssetAccessCount().keySet().removeIf(asset -> !isQueried(query, asset));
+        logger.info("{} answered from the rollups for {} assets", query, assetUsageReport.getAssetAccessCount().size());
+        return assetUsageReport;
+    }
+
+    /**
+     * The origin latency percentiles between the query's days, see {@link OriginLatencyQuery}, of the queried assets
+     * and of the folders holding them.
+     */
+    public OriginLatencyReport queryOriginLatency(AssetUsageQuery query) {
+        LocalDate from = parseDay(query.getFrom(), "from");
+        LocalDate to = parseDay(query.getTo(), "to");
+        checkRange(from, to);
+
+        OriginLatencyReport originLatencyReport = new OriginLatencyQuery(environmentInput(query)).query(from, to);
+        originLatencyReport.getAssets().removeIf(asset -> !isQueried(query, asset.getName()));
+        originLatencyReport.getFolders().removeIf(folder -> !isQueriedFolder(query, folder.getName()));
+        logger.info("{} answered with the origin latency of {} assets", query, originLatencyReport.getAssets().size());
+        return originLatencyReport;
+    }
+
+    // The first environment's analysis is kept at the root of the analysis bucket and the others' under their prefix
+    private AnalysisInputInterface environmentInput(AssetUsageQuery query) {
+        String environment = query.getEnvironment();
+        if (environment == null || environment.equals(environments.get(0))) {
+            return analysisInputInterface;
+        }
+        if (!environments.contains(environment)) {
+            throw new IllegalArgumentException("Query environment " + environment + " is not one of " + environments);
+        }
+        return analysisInputInterface.forEnvironment(environment);
+    }
+
+    private static boolean isQueried(AssetUsageQuery query, String asset) {
+        if (query.getAsset() != null) {
+            return query.getAsset().equals(asset);
+        }
+        return query.getAssetPrefix() == null || asset.startsWith(query.getAssetPrefix());
+    }
+
+    private static boolean isQueriedFolder(AssetUsageQuery query, String folder) {
+        if (query.getAsset() != null) {
+            return query.getAsset().startsWith(folder);
+        }
+        return query.getAssetPrefix() == null || folder.startsWith(query.getAssetPrefix()) || query.getAssetPrefix().startsWith(folder);
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Query from " + from + " is after to " + to);
+        }
+    }
+
+    private static LocalDate parseDay(String day, String name) {
+        if (day == null) {
+            throw new IllegalArgumentException("Query " + name + " day is required");
+        }
+        try {
+            return LocalDate.parse(day);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Query " + name + " day " + day + " is not in yyyy-MM-dd form", e);
+        }
+    }
+}
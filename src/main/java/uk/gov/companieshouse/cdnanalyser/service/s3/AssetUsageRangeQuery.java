@@ -0,0 +1,87 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageRollups.Period;
+
+/**
+ * Answers the successful requests per asset over a range of days from the coarsest saved reports that fit: whole
+ * months from the monthly rollups, whole weeks from the weekly rollups and the days left over from the daily reports,
+ * so a year costs around a dozen reads rather than hundreds.
+ */
+public class AssetUsageRangeQuery {
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    public AssetUsageRangeQuery(AnalysisInputInterface analysisInputInterface) {
+        this.analysisInputInterface = analysisInputInterface;
+    }
+
+    /**
+     * The assets with successful requests from one day to another, both included, and their request counts.
+     */
+    public AssetUsageReport query(LocalDate from, LocalDate to) {
+        AssetDictionary dictionary = new AssetDictionary(analysisInputInterface.readAssetDictionary());
+        Map<String, Integer> assetAccessCount = new HashMap<>();
+        for (RangePart part : plan(from, to)) {
+            if (part.period() == null) {
+                analysisInputInterface.readAssetUsageReport(part.start().toString()).ifPresent(dailyReport ->
+                    dailyReport.getAssetAccessCount().forEach((asset, count) -> add(assetAccessCount, asset, count)));
+            } else {
+                analysisInputInterface.readAssetUsageRollup(part.period().getKey(), part.start().toString()).ifPresent(rollup -> {
+                    int[] counts = rollup.getCounts();
+                    for (int i = 0; i < Math.min(counts.length, dictionary.size()); i++) {
+                        add(assetAccessCount, dictionary.get(i), counts[i]);
+                    }
+                });
+            }
+        }
+        return new AssetUsageReport(from + "/" + to, assetAccessCount);
+    }
+
+    private static void add(Map<String, Integer> assetAccessCount, String asset, int count) {
+        if (count != 0) {
+            assetAccessCount.merge(asset, count, Integer::sum);
+        }
+    }
+
+    /**
+     * Splits the range into whole months, whole weeks and single days, preferring the coarsest at each step.
+     */
+    static List<RangePart> plan(LocalDate from, LocalDate to) {
+        List<RangePart> parts = new ArrayList<>();
+        LocalDate day = from;
+        while (!day.isAfter(to)) {
+            Period period = coarsestPeriod(day, to);
+            parts.add(new RangePart(period, day));
+            day = period == null ? day.plusDays(1) : period.end(day).plusDays(1);
+        }
+        return parts;
+    }
+
+    private static Period coarsestPeriod(LocalDate day, LocalDate to) {
+        if (Period.MONTH.start(day).equals(day) && !Period.MONTH.end(day).isAfter(to)) {
+            return Period.MONTH;
+        }
+        if (Period.WEEK.start(day).equals(day) && !Period.WEEK.end(day).isAfter(to)) {
+            // A week running into a month that fits whole would stop that month being used
+            LocalDate nextMonth = Period.MONTH.end(day).plusDays(1);
+            if (nextMonth.isAfter(Period.WEEK.end(day)) || Period.MONTH.end(nextMonth).isAfter(to)) {
+                return Period.WEEK;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A rollup of the period starting on the day, or the daily report of the day when the period is null.
+     */
+    record RangePart(Period period, LocalDate start) {
+    }
+}
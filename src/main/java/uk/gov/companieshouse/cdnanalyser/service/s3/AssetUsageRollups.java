@@ -0,0 +1,109 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Weekly and monthly rollups of the daily usage reports. The week and month of each rebuilt day are summed again
+ * from the {@link AssetUsageIndex}, so saving a rollup twice gives the same counts, and {@link #save()} saves those
+ * that were rebuilt.
+ *
+ * Not thread safe.
+ */
+public class AssetUsageRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    public enum Period {
+
+        // Monday to Sunday
+        WEEK("weeks") {
+            @Override
+            public LocalDate start(LocalDate day) {
+                return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+
+            @Override
+            public LocalDate end(LocalDate day) {
+                return start(day).plusDays(6);
+            }
+        },
+        MONTH("months") {
+            @Override
+            public LocalDate start(LocalDate day) {
+                return day.withDayOfMonth(1);
+            }
+
+            @Override
+            public LocalDate end(LocalDate day) {
+                return day.with(TemporalAdjusters.lastDayOfMonth());
+            }
+        };
+
+        private final String key;
+
+        Period(String key) {
+            this.key = key;
+        }
+
+        /**
+         * The name the rollups of this period are saved under.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public abstract LocalDate start(LocalDate day);
+
+        public abstract LocalDate end(LocalDate day);
+    }
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final AssetDictionary dictionary;
+
+    private final AssetUsageIndex assetUsageIndex;
+
+    // Period to the first and last days of each rollup to rebuild
+    private final Map<Period, Map<LocalDate, LocalDate>> changedRollups = new EnumMap<>(Period.class);
+
+    public AssetUsageRollups(AnalysisOutputInterface analysisOutputInterface, AssetDictionary dictionary, AssetUsageIndex assetUsageIndex) {
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.dictionary = dictionary;
+        this.assetUsageIndex = assetUsageIndex;
+    }
+
+    /**
+     * Marks the week and month of a day, in yyyy-MM-dd form, for rebuilding once the index holds the day's counts.
+     */
+    public void rebuild(String day) {
+        LocalDate date = LocalDate.parse(day);
+        for (Period period : Period.values()) {
+            changedRollups.computeIfAbsent(period, key -> new TreeMap<>()).put(period.start(date), period.end(date));
+        }
+    }
+
+    public void save() {
+        changedRollups.forEach((period, rollups) -> {
+            rollups.forEach((start, end) -> {
+                int[] counts = new int[dictionary.size()];
+                for (int assetId = 0; assetId < counts.length; assetId++) {
+                    counts[assetId] = Math.toIntExact(assetUsageIndex.count(assetId, start, end));
+                }
+                analysisOutputInterface.saveAssetUsageRollup(period.getKey(), new AssetUsageRollup(start.toString(), end.toString(), counts));
+            });
+            logger.info("{} {} of asset usage rollups updated", rollups.size(), period.getKey());
+        });
+    }
+}
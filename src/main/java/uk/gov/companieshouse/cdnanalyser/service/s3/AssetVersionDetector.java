@@ -0,0 +1,86 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersion;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionGroup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.DuplicateContent;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+
+/**
+ * Finds the assets held under more than one key. One pass over the inventory groups the keys by logical name, the
+ * key with its content hash taken out, and by ETag, so only the groups with more than one key are looked at again.
+ */
+public class AssetVersionDetector {
+
+    private AssetVersionDetector() {
+    }
+
+    /**
+     * @param assetAccessCount the successful requests of each asset over every reported day
+     * @param unusedAssets the assets not requested in the last windowDays days, whose other versions make them dead
+     */
+    public static AssetVersionReport detect(String id, Map<String, AssetMetadata> assetInventory, Map<String, Integer> assetAccessCount,
+                                            Set<String> unusedAssets, int windowDays) {
+        Map<String, List<String>> keysByLogicalName = new HashMap<>();
+        Map<String, List<String>> keysByETag = new HashMap<>();
+        assetInventory.forEach((asset, assetMetadata) -> {
+            keysByLogicalName.computeIfAbsent(Util.logicalName(asset), logicalName -> new ArrayList<>(1)).add(asset);
+            // Every empty object has the same ETag
+            if (assetMetadata.getSize() > 0 && assetMetadata.getETag() != null) {
+                keysByETag.computeIfAbsent(assetMetadata.getETag(), eTag -> new ArrayList<>(1)).add(asset);
+            }
+        });
+
+        AssetVersionReport report = new AssetVersionReport();
+        report.setId(id);
+        report.setWindowDays(windowDays);
+        keysByLogicalName.forEach((logicalName, assets) -> {
+            if (assets.size() > 1) {
+                report.getGroups().add(group(logicalName, assets, assetInventory, assetAccessCount, unusedAssets));
+            }
+        });
+        keysByETag.forEach((eTag, assets) -> {
+            if (assets.size() > 1) {
+                DuplicateContent duplicateContent = new DuplicateContent();
+                duplicateContent.setETag(eTag);
+                duplicateContent.setSize(assetInventory.get(assets.get(0)).getSize());
+                duplicateContent.setAssets(assets.stream().sorted().toList());
+                duplicateContent.setRedundantBytes(duplicateContent.getSize() * (assets.size() - 1));
+                report.getDuplicateContent().add(duplicateContent);
+            }
+        });
+
+        report.getGroups().sort(Comparator.comparingLong(AssetVersionGroup::getDeadBytes).reversed().thenComparing(AssetVersionGroup::getLogicalName));
+        report.getDuplicateContent().sort(Comparator.comparingLong(DuplicateContent::getRedundantBytes).reversed().thenComparing(DuplicateContent::getETag));
+        report.setDeadBytes(report.getGroups().stream().mapToLong(AssetVersionGroup::getDeadBytes).sum());
+        report.setRedundantBytes(report.getDuplicateContent().stream().mapToLong(DuplicateContent::getRedundantBytes).sum());
+        return report;
+    }
+
+    private static AssetVersionGroup group(String logicalName, List<String> assets, Map<String, AssetMetadata> assetInventory,
+                                           Map<String, Integer> assetAccessCount, Set<String> unusedAssets) {
+        AssetVersionGroup group = new AssetVersionGroup();
+        group.setLogicalName(logicalName);
+        assets.forEach(asset -> {
+            AssetMetadata assetMetadata = assetInventory.get(asset);
+            AssetVersion version = new AssetVersion(asset, assetMetadata.getSize(), assetMetadata.getETag(),
+                                                    assetAccessCount.getOrDefault(asset, 0), !unusedAssets.contains(asset));
+            group.getVersions().add(version);
+            group.setRequests(group.getRequests() + version.getRequests());
+            if (!version.isRequestedRecently()) {
+                group.setDeadVersions(group.getDeadVersions() + 1);
+                group.setDeadBytes(group.getDeadBytes() + version.getSize());
+            }
+        });
+        group.getVersions().sort(Comparator.comparingLong(AssetVersion::getRequests).reversed().thenComparing(AssetVersion::getAsset));
+        return group;
+    }
+}
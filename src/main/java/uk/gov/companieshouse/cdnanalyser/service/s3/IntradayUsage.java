@@ -0,0 +1,288 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPeakUsage;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Counts the successful requests of each identified asset per slot of the UTC day, 24 hourly or up to 1440 minute
+ * slots, for the peak-hour load profile the daily reports hide. Each day is one flat int array of slots per asset, so
+ * a day takes 4 bytes per asset and slot in memory however the requests are spread. While records are added the
+ * arrays are indexed by the asset's place in the inventory; when saved they are indexed by the {@link AssetDictionary}
+ * and written sparsely, as variable-length deltas of the asset indexes and slots with their counts, so a day's object
+ * grows with the slots that had requests. Only the last days are kept, which bounds the memory of a first run over a
+ * whole log bucket.
+ *
+ * Not thread safe.
+ */
+public class IntradayUsage {
+
+    private static final int VERSION = 1;
+
+    private static final int MINUTES_PER_DAY = 1_440;
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final AssetPathTrie assetPathTrie;
+
+    private final AssetDictionary inventory;
+
+    private final String accessLogFilterInPath;
+
+    private final int slotMinutes;
+
+    private final int slots;
+
+    private final int days;
+
+    private final int topN;
+
+    private final LocalDate today;
+
+    // Day to counts indexed by inventory place and slot
+    private final Map<String, int[]> dayCounts = new HashMap<>();
+
+    /**
+     * @param days the days up to today that are counted and reported on
+     */
+    public IntradayUsage(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface, List<String> assets,
+                         AssetPathTrie assetPathTrie, String accessLogFilterInPath, int slotMinutes, int days, int topN) {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalArgumentException("Intraday slots of " + slotMinutes + " minutes do not divide a day");
+        }
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.assetPathTrie = assetPathTrie;
+        this.inventory = new AssetDictionary(assets);
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.slotMinutes = slotMinutes;
+        this.slots = MINUTES_PER_DAY / slotMinutes;
+        this.days = days;
+        this.topN = topN;
+        this.today = LocalDate.now(ZoneOffset.UTC);
+    }
+
+    public void add(AssetAccessLog assetAccessLog) {
+        if (assetAccessLog.getStatusCode() >= 400) {
+            return;
+        }
+        long epochSecond = assetAccessLog.getTimestamp().getEpochSecond();
+        long epochDay = Math.floorDiv(epochSecond, 86_400L);
+        if (epochDay <= today.toEpochDay() - days || epochDay > today.toEpochDay()) {
+            return;
+        }
+        String path = assetAccessLog.getAsset();
+        String asset = assetPathTrie.find(path, path.startsWith(accessLogFilterInPath) ? accessLogFilterInPath.length() : 0);
+        if (asset == null) {
+            return;
+        }
+        int slot = (int) (Math.floorMod(epochSecond, 86_400L) / 60 / slotMinutes);
+        int[] counts = dayCounts.computeIfAbsent(LocalDate.ofEpochDay(epochDay).toString(), day -> new int[inventory.size() * slots]);
+        counts[inventory.find(asset) * slots + slot]++;
+    }
+
+    /**
+     * Whether requests have been counted, so there is something to save.
+     */
+    public boolean isChanged() {
+        return !dayCounts.isEmpty();
+    }
+
+    /**
+     * Adds the counts to the saved days, reindexed by the dictionary, and saves them and the report over the kept
+     * days. Assets missing from the dictionary are not saved.
+     */
+    public IntradayUsageReport save(AssetDictionary dictionary) {
+        long[] totals = new long[dictionary.size() * slots];
+        dayCounts.forEach((day, counts) -> {
+            int[] saved = read(day, dictionary.size());
+            for (int place = 0; place < inventory.size(); place++) {
+                int id = dictionary.find(inventory.get(place));
+                if (id < 0) {
+                    continue;
+                }
+                int base = id * slots;
+                for (int slot = 0; slot < slots; slot++) {
+                    saved[base + slot] += counts[place * slots + slot];
+                }
+            }
+            analysisOutputInterface.saveIntradayUsage(day, toBytes(saved));
+            add(totals, saved);
+        });
+        for (LocalDate date = today.minusDays(days - 1L); !date.isAfter(today); date = date.plusDays(1)) {
+            if (!dayCounts.containsKey(date.toString())) {
+                add(totals, read(date.toString(), dictionary.size()));
+            }
+        }
+
+        IntradayUsageReport report = report(dictionary, totals);
+        logger.info("Intraday usage of {} days saved, the busiest {} minutes start at {} UTC", dayCounts.size(), slotMinutes, report.getPeakSlot());
+        analysisOutputInterface.saveIntradayUsageReport(report);
+        return report;
+    }
+
+    private IntradayUsageReport report(AssetDictionary dictionary, long[] totals) {
+        IntradayUsageReport report = new IntradayUsageReport();
+        report.setFrom(today.minusDays(days - 1L).toString());
+        report.setTo(today.toString());
+        report.setSlotMinutes(slotMinutes);
+        long[] requestsBySlot = new long[slots];
+        for (int id = 0; id < dictionary.size(); id++) {
+            long requests = 0;
+            int peak = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                long count = totals[id * slots + slot];
+                requestsBySlot[slot] += count;
+                requests += count;
+                if (count > totals[id * slots + peak]) {
+                    peak = slot;
+                }
+            }
+            if (requests > 0) {
+                AssetPeakUsage assetPeakUsage = new AssetPeakUsage();
+                assetPeakUsage.setAsset(dictionary.get(id));
+                assetPeakUsage.setRequests(requests);
+                assetPeakUsage.setPeakSlot(slotStart(peak));
+                assetPeakUsage.setPeakRequests(totals[id * slots + peak]);
+                assetPeakUsage.setPeakShare((double) assetPeakUsage.getPeakRequests() / requests);
+                report.getAssets().add(assetPeakUsage);
+            }
+        }
+        int peak = 0;
+        for (int slot = 1; slot < slots; slot++) {
+            if (requestsBySlot[slot] > requestsBySlot[peak]) {
+                peak = slot;
+            }
+        }
+        report.setRequestsBySlot(requestsBySlot);
+        report.setPeakSlot(slotStart(peak));
+        report.getAssets().sort(Comparator.comparingLong(AssetPeakUsage::getPeakRequests).reversed().thenComparing(AssetPeakUsage::getAsset));
+        if (report.getAssets().size() > topN) {
+            report.setAssets(new ArrayList<>(report.getAssets().subList(0, topN)));
+        }
+        return report;
+    }
+
+    private String slotStart(int slot) {
+        return LocalTime.MIDNIGHT.plusMinutes((long) slot * slotMinutes).toString();
+    }
+
+    private static void add(long[] totals, int[] counts) {
+        for (int i = 0; i < counts.length; i++) {
+            totals[i] += counts[i];
+        }
+    }
+
+    private int[] read(String day, int assetCount) {
+        int[] counts = new int[assetCount * slots];
+        Optional<byte[]> saved = analysisInputInterface.readIntradayUsage(day);
+        if (saved.isEmpty()) {
+            return counts;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(saved.get());
+            int version = readVarInt(buffer);
+            int savedSlotMinutes = readVarInt(buffer);
+            if (version != VERSION || savedSlotMinutes != slotMinutes) {
+                logger.info("Intraday usage of {} was saved with a different version or slot length and is replaced", day);
+                return counts;
+            }
+            int entries = readVarInt(buffer);
+            int id = 0;
+            for (int i = 0; i < entries; i++) {
+                id += readVarInt(buffer);
+                int counted = readVarInt(buffer);
+                int slot = 0;
+                for (int j = 0; j < counted; j++) {
+                    slot += readVarInt(buffer);
+                    counts[id * slots + slot] = readVarInt(buffer);
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            logger.error("Intraday usage of {} could not be read and is replaced", day);
+            return new int[assetCount * slots];
+        }
+        return counts;
+    }
+
+    /**
+     * A day's counts: the version and slot minutes, the number of assets with requests, then for each the delta of
+     * its dictionary index from the previous one and its number of slots with requests, then for each of those the
+     * delta of the slot from the previous one and the count, all as unsigned variable-length integers.
+     */
+    byte[] toBytes(int[] counts) {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int entryCount = 0;
+        int previousId = 0;
+        for (int id = 0; id < counts.length / slots; id++) {
+            int counted = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                counted += counts[id * slots + slot] == 0 ? 0 : 1;
+            }
+            if (counted == 0) {
+                continue;
+            }
+            writeVarInt(entries, id - previousId);
+            writeVarInt(entries, counted);
+            int previousSlot = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                if (counts[id * slots + slot] != 0) {
+                    writeVarInt(entries, slot - previousSlot);
+                    writeVarInt(entries, counts[id * slots + slot]);
+                    previousSlot = slot;
+                }
+            }
+            previousId = id;
+            entryCount++;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeVarInt(bytes, VERSION);
+        writeVarInt(bytes, slotMinutes);
+        writeVarInt(bytes, entryCount);
+        bytes.writeBytes(entries.toByteArray());
+        return bytes.toByteArray();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IndexOutOfBoundsException("Variable-length integer is too long");
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Picks out the lines of a log object that can hold a record for the environment before any of them is decoded. A
+ * line is kept only if its bytes hold " REST.GET.OBJECT " and the filter in path, as every line
+ * {@link uk.gov.companieshouse.cdnanalyser.service.Util#parseLogEntry(String, String)} accepts does, so the filter
+ * never drops a record. Line ends and the first byte of each token are found eight bytes at a time, by testing a long
+ * read from the buffer for a matching byte, and a candidate token is compared with the JDK's vectorised array
+ * comparison.
+ *
+ * With several environments a line is kept if the requested path, where the parser takes it from, starts with one of
+ * their prefixes, which a {@link PrefixMatcher} tells in one walk of the path however many prefixes there are.
+ */
+final class LogLineFilter {
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private static final byte[] OPERATION = " REST.GET.OBJECT ".getBytes(StandardCharsets.US_ASCII);
+
+    // The R of the operation, spaces are everywhere in a log line
+    private static final int OPERATION_ANCHOR = 1;
+
+    private final byte[] filterInPath;
+
+    // The environments' prefixes when there are several, otherwise null
+    private final PrefixMatcher<String> pathPrefixes;
+
+    LogLineFilter(String accessLogFilterInPath) {
+        this.filterInPath = accessLogFilterInPath.getBytes(StandardCharsets.UTF_8);
+        this.pathPrefixes = null;
+    }
+
+    LogLineFilter(List<String> pathPrefixes) {
+        this.filterInPath = null;
+        this.pathPrefixes = new PrefixMatcher<>(pathPrefixes.stream().collect(Collectors.toMap(prefix -> prefix, prefix -> prefix, (first, second) -> first)));
+    }
+
+    /**
+     * Whether the line from the first index up to the second can hold a record for the environment.
+     */
+    boolean accepts(byte[] bytes, int from, int to) {
+        int operation = indexOf(bytes, OPERATION, OPERATION_ANCHOR, from, to);
+        if (operation < 0) {
+            return false;
+        }
+        if (pathPrefixes == null) {
+            return indexOf(bytes, filterInPath, 0, from, to) >= 0;
+        }
+        return pathPrefixes.find(bytes, pathStart(bytes, from, to), to) != null;
+    }
+
+    // The start of the path in the request, past the first quote, the method, its space and the leading slash
+    private static int pathStart(byte[] bytes, int from, int to) {
+        int quote = indexOf(bytes, (byte) '"', from, to);
+        int space = quote < 0 ? -1 : indexOf(bytes, (byte) ' ', quote + 1, to);
+        return space < 0 ? to : Math.min(space + 2, to);
+    }
+
+    /**
+     * The index of the first newline from the first index up to the second, or -1 if there is none.
+     */
+    static int nextLine(byte[] bytes, int from, int to) {
+        return indexOf(bytes, (byte) '\n', from, to);
+    }
+
+    // The first index of the value, eight bytes at a time while there are eight left
+    static int indexOf(byte[] bytes, byte value, int from, int to) {
+        long pattern = (value & 0xFFL) * ONES;
+        int i = from;
+        for (; i <= to - Long.BYTES; i += Long.BYTES) {
+            long word = (long) LONGS.get(bytes, i) ^ pattern;
+            // The high bit of the lowest byte that is zero, those of higher bytes may be set falsely by the borrow
+            long found = (word - ONES) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The first index of the token, found by its byte at the anchor
+    private static int indexOf(byte[] bytes, byte[] token, int anchor, int from, int to) {
+        if (token.length == 0) {
+            return from;
+        }
+        int last = to - token.length;
+        for (int start = from; start <= last; start++) {
+            int found = indexOf(bytes, token[anchor], start + anchor, last + anchor + 1);
+            if (found < 0) {
+                return -1;
+            }
+            start = found - anchor;
+            if (Arrays.equals(bytes, start, start + token.length, token, 0, token.length)) {
+                return start;
+            }
+        }
+        return -1;
+    }
+}
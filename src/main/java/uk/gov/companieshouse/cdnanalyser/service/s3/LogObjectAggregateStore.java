@@ -0,0 +1,191 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Keeps the log object aggregates partitioned by the date in each log object's key, so a run only rewrites the
+ * partitions its log objects fall in. Partitions dated before the retention window are folded into one
+ * {@link FoldedAssetUsage} per day and deleted, and their log objects are no longer read, so the aggregates held
+ * in memory and the log objects listed stay bounded however long the analysis runs. A day's successful requests are
+ * the sum of its folded usage and the live aggregates counting requests on it.
+ *
+ * Folding is safe to repeat: each day's folded usage lists the partitions folded into it, and a partition is only
+ * deleted once every day it counts requests on has been saved.
+ */
+public class LogObjectAggregateStore {
+
+    /**
+     * The partition of aggregates whose key has no date, such as the raw data aggregate. It never expires.
+     */
+    static final String UNDATED_PARTITION = "undated";
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private static final Pattern KEY_DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}");
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final String oldestLogDay;
+
+    // Partitions read from the document saved before the aggregates were partitioned, saved on the next save
+    private final Set<String> movedPartitions = new TreeSet<>();
+
+    private boolean legacyAggregatesRead;
+
+    public LogObjectAggregateStore(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,
+                                   LocalDate today, int retentionDays) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.oldestLogDay = today.minusDays(retentionDays).toString();
+    }
+
+    /**
+     * The yyyy-MM-dd date in the last segment of a log object key, S3 server access logs are named after the time
+     * they were delivered.
+     */
+    static String partitionOf(String key) {
+        Matcher matcher = KEY_DATE.matcher(key);
+        return matcher.find(key.lastIndexOf('/') + 1) ? matcher.group() : UNDATED_PARTITION;
+    }
+
+    /**
+     * Whether a log object key is dated before the given yyyy-MM-dd day. An undated key never is.
+     */
+    static boolean isBefore(String key, String day) {
+        String partition = partitionOf(key);
+        return !UNDATED_PARTITION.equals(partition) && partition.compareTo(day) < 0;
+    }
+
+    /**
+     * The first day, in yyyy-MM-dd form, whose log objects are still read.
+     */
+    public String getOldestLogDay() {
+        return oldestLogDay;
+    }
+
+    /**
+     * Reads the aggregates of every partition in the retention window, first folding the expired partitions.
+     */
+    public Map<String, LogObjectAggregate> load() {
+        Map<String, Map<String, LogObjectAggregate>> partitions = new HashMap<>();
+        analysisInputInterface.readLogObjectAggregatePartitions()
+                              .forEach(partition -> partitions.put(partition, analysisInputInterface.readLogObjectAggregates(partition)));
+
+        // Aggregates saved before they were partitioned are moved into the partitions on the first run
+        Map<String, LogObjectAggregate> legacyAggregates = analysisInputInterface.readLogObjectAggregates();
+        legacyAggregatesRead = !legacyAggregates.isEmpty();
+        legacyAggregates.forEach((key, aggregate) -> {
+            String partition = partitionOf(key);
+            if (partitions.computeIfAbsent(partition, name -> new HashMap<>()).putIfAbsent(key, aggregate) == null) {
+                movedPartitions.add(partition);
+            }
+        });
+
+        Map<String, LogObjectAggregate> logObjectAggregates = new HashMap<>();
+        int folded = 0;
+        for (Map.Entry<String, Map<String, LogObjectAggregate>> partition : partitions.entrySet()) {
+            if (!UNDATED_PARTITION.equals(partition.getKey()) && partition.getKey().compareTo(oldestLogDay) < 0) {
+                fold(partition.getKey(), partition.getValue());
+                folded++;
+            } else {
+                logObjectAggregates.putAll(partition.getValue());
+            }
+        }
+        logger.info("{} log object aggregates read from {} partitions, {} partitions before {} folded", logObjectAggregates.size(),
+                    partitions.size() - folded, folded, oldestLogDay);
+        return logObjectAggregates;
+    }
+
+    private void fold(String partition, Map<String, LogObjectAggregate> aggregates) {
+        Map<String, Map<String, Integer>> countsByDay = new HashMap<>();
+        aggregates.values().forEach(aggregate -> aggregate.getSuccessCounts().forEach((day, counts) ->
+            counts.forEach((asset, count) -> countsByDay.computeIfAbsent(day, key -> new HashMap<>()).merge(asset, count, Integer::sum))));
+
+        countsByDay.forEach((day, counts) -> {
+            FoldedAssetUsage foldedAssetUsage = analysisInputInterface.readFoldedAssetUsage(day).orElseGet(() -> new FoldedAssetUsage(day));
+            // Already folded by a run that stopped before deleting the partition
+            if (!foldedAssetUsage.getPartitions().contains(partition)) {
+                counts.forEach((asset, count) -> foldedAssetUsage.getAssetAccessCount().merge(asset, count, Integer::sum));
+                foldedAssetUsage.getPartitions().add(partition);
+                analysisOutputInterface.saveFoldedAssetUsage(foldedAssetUsage);
+            }
+        });
+        analysisOutputInterface.deleteLogObjectAggregates(partition);
+        movedPartitions.remove(partition);
+    }
+
+    /**
+     * Every day, in yyyy-MM-dd form, with folded usage. Only needed when every daily report is rebuilt.
+     */
+    public Set<String> getFoldedDays() {
+        return new TreeSet<>(analysisInputInterface.readFoldedAssetUsageDays());
+    }
+
+    /**
+     * Adds the folded usage to reports rebuilt from the live aggregates. Only days up to the oldest day still read can
+     * have folded usage, as a folded log object is dated before it and holds requests made before it was delivered.
+     */
+    public void addFoldedUsage(List<AssetUsageReport> assetUsageReports) {
+        assetUsageReports.stream()
+                         .filter(assetUsageReport -> assetUsageReport.getId().compareTo(oldestLogDay) <= 0)
+                         .forEach(assetUsageReport -> analysisInputInterface.readFoldedAssetUsage(assetUsageReport.getId())
+                             .ifPresent(foldedAssetUsage -> foldedAssetUsage.getAssetAccessCount().forEach((asset, count) -> {
+                                 // Unidentified assets are kept in the folded usage but not reported, as with the live aggregates
+                                 if (assetUsageReport.getAssetAccessCount().containsKey(asset)) {
+                                     assetUsageReport.getAssetAccessCount().merge(asset, count, Integer::sum);
+                                 }
+                             })));
+    }
+
+    /**
+     * Whether aggregates read from the document saved before partitioning still have to be saved in partitions.
+     */
+    public boolean isChanged() {
+        return !movedPartitions.isEmpty() || legacyAggregatesRead;
+    }
+
+    /**
+     * Saves the partitions holding the given changed log objects, and any moved from the unpartitioned document.
+     */
+    public void save(Map<String, LogObjectAggregate> logObjectAggregates, Set<String> changedLogObjects) {
+        Set<String> changedPartitions = new TreeSet<>(movedPartitions);
+        changedLogObjects.forEach(key -> changedPartitions.add(partitionOf(key)));
+
+        Map<String, Map<String, LogObjectAggregate>> partitions = new HashMap<>();
+        changedPartitions.forEach(partition -> partitions.put(partition, new HashMap<>()));
+        logObjectAggregates.forEach((key, aggregate) -> {
+            Map<String, LogObjectAggregate> partition = partitions.get(partitionOf(key));
+            if (partition != null) {
+                partition.put(key, aggregate);
+            }
+        });
+        partitions.forEach(analysisOutputInterface::saveLogObjectAggregates);
+        logger.info("{} log object aggregate partitions saved: {}", partitions.size(), new ArrayList<>(partitions.keySet()));
+
+        if (legacyAggregatesRead) {
+            analysisOutputInterface.deleteLegacyLogObjectAggregates();
+            legacyAggregatesRead = false;
+        }
+        movedPartitions.clear();
+    }
+}
@@ -0,0 +1,263 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidth;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchSummary;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.service.LatencyHistogram;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Origin fetch (cache miss) analytics. New records are added to the {@link AssetOriginFetches} of their day, read
+ * from the analysis bucket the first time a day is seen. {@link #save()} saves those days and reports each asset's
+ * fetch rate, revalidation share and fetches a day against the TTL of its class over the report window, to find the
+ * assets whose cache headers cause needless origin traffic, ranks the assets by the bytes the origin sent,
+ * flagging large assets fetched often as candidates for pre-compression or a longer TTL, and reports the origin
+ * latency percentiles of each asset and folder from the merged daily {@link LatencyHistogram}s.
+ *
+ * Not thread safe, records are added from a single thread.
+ */
+public class OriginFetchAnalytics {
+
+    static final String FINGERPRINTED = "fingerprinted";
+
+    static final String DEFAULT = "default";
+
+    static final String PRE_COMPRESSION = "pre-compression";
+
+    static final String LONGER_TTL = "longer-ttl";
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private static final double SECONDS_PER_DAY = 86_400;
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final AssetPathTrie assetPathTrie;
+
+    private final String accessLogFilterInPath;
+
+    private final int reportDays;
+
+    private final long defaultTtlSeconds;
+
+    private final long fingerprintedTtlSeconds;
+
+    private final long largeObjectBytes;
+
+    private final double frequentFetchesPerDay;
+
+    private final Map<String, AssetOriginFetches> days = new HashMap<>();
+
+    // Day to asset to the histograms of its total and turn-around times, written back to the day when saved
+    private final Map<String, Map<String, LatencyHistogram[]>> latencies = new HashMap<>();
+
+    public OriginFetchAnalytics(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface, AssetPathTrie assetPathTrie,
+                                String accessLogFilterInPath, int reportDays, long defaultTtlSeconds, long fingerprintedTtlSeconds, long largeObjectBytes, double frequentFetchesPerDay) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.assetPathTrie = assetPathTrie;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.reportDays = reportDays;
+        this.defaultTtlSeconds = defaultTtlSeconds;
+        this.fingerprintedTtlSeconds = fingerprintedTtlSeconds;
+        this.largeObjectBytes = largeObjectBytes;
+        this.frequentFetchesPerDay = frequentFetchesPerDay;
+    }
+
+    /**
+     * Adds a record of a fetch of an identified asset. Fetches of any other path, such as probes for files that do
+     * not exist, are not kept, so the daily documents only grow with the inventory.
+     */
+    public void add(AssetAccessLog assetAccessLog) {
+        String path = assetAccessLog.getAsset();
+        String asset = assetPathTrie.find(path, path.startsWith(accessLogFilterInPath) ? accessLogFilterInPath.length() : 0);
+        if (asset == null) {
+            return;
+        }
+        ZonedDateTime time = assetAccessLog.getTimestamp().atZone(Constants.LONDON_ZONE_ID);
+        String id = time.toLocalDate().toString();
+        AssetOriginFetches day = days.computeIfAbsent(id, this::readDay);
+
+        day.getHourlyFetches().computeIfAbsent(asset, key -> new int[24])[time.getHour()]++;
+        if (assetAccessLog.getStatusCode() == 304) {
+            day.getNotModified().merge(asset, 1, Integer::sum);
+        }
+        if (assetAccessLog.getBytesSent() > 0) {
+            day.getBytesSent().merge(asset, assetAccessLog.getBytesSent(), Long::sum);
+        }
+        if (assetAccessLog.getObjectSize() > 0) {
+            day.getObjectSizes().merge(asset, assetAccessLog.getObjectSize(), Math::max);
+        }
+        if (assetAccessLog.getTotalTime() >= 0 || assetAccessLog.getTurnAroundTime() >= 0) {
+            LatencyHistogram[] histograms = latencies.computeIfAbsent(id, key -> new HashMap<>())
+                                                     .computeIfAbsent(asset, key -> new LatencyHistogram[] {
+                                                         new LatencyHistogram(day.getTotalTimes().getOrDefault(key, new int[0])),
+                                                         new LatencyHistogram(day.getTurnAroundTimes().getOrDefault(key, new int[0]))});
+            if (assetAccessLog.getTotalTime() >= 0) {
+                histograms[0].record(assetAccessLog.getTotalTime());
+            }
+            if (assetAccessLog.getTurnAroundTime() >= 0) {
+                histograms[1].record(assetAccessLog.getTurnAroundTime());
+            }
+        }
+    }
+
+    /**
+     * Whether records have been added, so there is something to save.
+     */
+    public boolean isChanged() {
+        return !days.isEmpty();
+    }
+
+    /**
+     * Saves the days records were added to, then the origin fetch, bandwidth and latency reports over the reportDays
+     * days up to today.
+     */
+    public void save() {
+        latencies.forEach((id, assets) -> assets.forEach((asset, histograms) -> {
+            days.get(id).getTotalTimes().put(asset, histograms[0].getCounts());
+            days.get(id).getTurnAroundTimes().put(asset, histograms[1].getCounts());
+        }));
+        days.values().forEach(analysisOutputInterface::saveAssetOriginFetches);
+
+        LocalDate to = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        LocalDate from = to.minusDays(reportDays - 1L);
+        List<AssetOriginFetches> reportedDays = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            String id = date.toString();
+            AssetOriginFetches day = days.containsKey(id) ? days.get(id) : analysisInputInterface.readAssetOriginFetches(id).orElse(null);
+            if (day != null && !day.getHourlyFetches().isEmpty()) {
+                reportedDays.add(day);
+            }
+        }
+
+        Map<String, OriginFetchSummary> summaries = originFetchSummaries(reportedDays);
+        OriginFetchReport report = new OriginFetchReport();
+        report.setFrom(from.toString());
+        report.setTo(to.toString());
+        report.setDays(reportedDays.size());
+        List<OriginFetchSummary> assets = new ArrayList<>(summaries.values());
+        assets.sort(Comparator.comparingDouble(OriginFetchSummary::getTtlRatio).reversed().thenComparing(OriginFetchSummary::getAsset));
+        report.setAssets(assets);
+        logger.info("Origin fetches of {} assets from {} to {} saved from {} days of logs", assets.size(), report.getFrom(), report.getTo(), reportedDays.size());
+        analysisOutputInterface.saveOriginFetchReport(report);
+
+        AssetBandwidthReport bandwidthReport = bandwidthReport(reportedDays, summaries);
+        bandwidthReport.setFrom(from.toString());
+        bandwidthReport.setTo(to.toString());
+        logger.info("{} bytes sent by the origin from {} to {}, {} assets flagged to cut them", bandwidthReport.getTotalBytesSent(), bandwidthReport.getFrom(),
+                    bandwidthReport.getTo(), bandwidthReport.getAssets().stream().filter(asset -> !asset.getCandidates().isEmpty()).count());
+        analysisOutputInterface.saveAssetBandwidthReport(bandwidthReport);
+
+        OriginLatencyReport latencyReport = OriginLatencyQuery.report(from.toString(), to.toString(), reportedDays);
+        latencyReport.getAssets().stream().findFirst().ifPresent(slowest ->
+            logger.info("Origin latency of {} assets saved, the slowest {} with a 99th percentile of {} ms", latencyReport.getAssets().size(),
+                        slowest.getName(), slowest.getTotalTimeP99()));
+        analysisOutputInterface.saveOriginLatencyReport(latencyReport);
+    }
+
+    private Map<String, OriginFetchSummary> originFetchSummaries(List<AssetOriginFetches> reportedDays) {
+        Map<String, OriginFetchSummary> summaries = new HashMap<>();
+        reportedDays.forEach(day -> {
+            day.getHourlyFetches().forEach((asset, hourlyFetches) -> {
+                OriginFetchSummary summary = summaries.computeIfAbsent(asset, this::summary);
+                for (int fetches : hourlyFetches) {
+                    summary.setFetches(summary.getFetches() + fetches);
+                    summary.setPeakHourlyFetches(Math.max(summary.getPeakHourlyFetches(), fetches));
+                }
+            });
+            // The share is worked out once every day is added
+            day.getNotModified().forEach((asset, notModified) -> {
+                OriginFetchSummary summary = summaries.computeIfAbsent(asset, this::summary);
+                summary.setNotModifiedShare(summary.getNotModifiedShare() + notModified);
+            });
+        });
+
+        int dayCount = Math.max(reportedDays.size(), 1);
+        summaries.values().forEach(summary -> {
+            summary.setNotModifiedShare(summary.getFetches() == 0 ? 0 : summary.getNotModifiedShare() / summary.getFetches());
+            summary.setFetchesPerDay((double) summary.getFetches() / dayCount);
+            summary.setFetchesPerHour(summary.getFetchesPerDay() / 24);
+            summary.setTtlRatio(summary.getFetchesPerDay() / summary.getExpectedFetchesPerDay());
+        });
+        return summaries;
+    }
+
+    private AssetBandwidthReport bandwidthReport(List<AssetOriginFetches> reportedDays, Map<String, OriginFetchSummary> summaries) {
+        Map<String, AssetBandwidth> bandwidths = new HashMap<>();
+        reportedDays.forEach(day -> {
+            day.getBytesSent().forEach((asset, bytesSent) -> {
+                AssetBandwidth bandwidth = bandwidth(bandwidths, asset);
+                bandwidth.setBytesSent(bandwidth.getBytesSent() + bytesSent);
+            });
+            day.getObjectSizes().forEach((asset, objectSize) -> {
+                AssetBandwidth bandwidth = bandwidth(bandwidths, asset);
+                bandwidth.setObjectSize(Math.max(bandwidth.getObjectSize(), objectSize));
+            });
+        });
+
+        long totalBytesSent = bandwidths.values().stream().mapToLong(AssetBandwidth::getBytesSent).sum();
+        bandwidths.values().forEach(bandwidth -> {
+            OriginFetchSummary summary = summaries.get(bandwidth.getAsset());
+            bandwidth.setFetches(summary == null ? 0 : summary.getFetches());
+            bandwidth.setShare(totalBytesSent == 0 ? 0 : (double) bandwidth.getBytesSent() / totalBytesSent);
+            if (summary != null && bandwidth.getObjectSize() >= largeObjectBytes && summary.getFetchesPerDay() >= frequentFetchesPerDay) {
+                if (Util.isCompressible(bandwidth.getAsset())) {
+                    bandwidth.getCandidates().add(PRE_COMPRESSION);
+                }
+                if (summary.getTtlRatio() > 1) {
+                    bandwidth.getCandidates().add(LONGER_TTL);
+                }
+            }
+        });
+
+        AssetBandwidthReport report = new AssetBandwidthReport();
+        report.setTotalBytesSent(totalBytesSent);
+        List<AssetBandwidth> assets = new ArrayList<>(bandwidths.values());
+        assets.sort(Comparator.comparingLong(AssetBandwidth::getBytesSent).reversed().thenComparing(AssetBandwidth::getAsset));
+        report.setAssets(assets);
+        return report;
+    }
+
+    private static AssetBandwidth bandwidth(Map<String, AssetBandwidth> bandwidths, String asset) {
+        return bandwidths.computeIfAbsent(asset, key -> {
+            AssetBandwidth bandwidth = new AssetBandwidth();
+            bandwidth.setAsset(key);
+            return bandwidth;
+        });
+    }
+
+    private OriginFetchSummary summary(String asset) {
+        OriginFetchSummary summary = new OriginFetchSummary();
+        summary.setAsset(asset);
+        boolean fingerprinted = Util.isFingerprinted(asset);
+        summary.setTtlClass(fingerprinted ? FINGERPRINTED : DEFAULT);
+        summary.setExpectedFetchesPerDay(SECONDS_PER_DAY / (fingerprinted ? fingerprintedTtlSeconds : defaultTtlSeconds));
+        return summary;
+    }
+
+    private AssetOriginFetches readDay(String day) {
+        return analysisInputInterface.readAssetOriginFetches(day).orElseGet(() -> new AssetOriginFetches(day));
+    }
+}
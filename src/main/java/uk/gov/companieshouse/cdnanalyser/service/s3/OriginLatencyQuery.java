@@ -0,0 +1,82 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.LatencyPercentiles;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.service.LatencyHistogram;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+
+/**
+ * Answers the origin latency percentiles of each asset and folder over a range of days, merging the daily latency
+ * histograms saved in the {@link AssetOriginFetches} of each day.
+ */
+public class OriginLatencyQuery {
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    public OriginLatencyQuery(AnalysisInputInterface analysisInputInterface) {
+        this.analysisInputInterface = analysisInputInterface;
+    }
+
+    public OriginLatencyReport query(LocalDate from, LocalDate to) {
+        List<AssetOriginFetches> days = new ArrayList<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            analysisInputInterface.readAssetOriginFetches(date.toString()).ifPresent(days::add);
+        }
+        return report(from.toString(), to.toString(), days);
+    }
+
+    static OriginLatencyReport report(String from, String to, List<AssetOriginFetches> days) {
+        Map<String, LatencyHistogram[]> assets = new HashMap<>();
+        days.forEach(day -> {
+            day.getTotalTimes().forEach((asset, counts) -> histograms(assets, asset)[0].merge(new LatencyHistogram(counts)));
+            day.getTurnAroundTimes().forEach((asset, counts) -> histograms(assets, asset)[1].merge(new LatencyHistogram(counts)));
+        });
+
+        // Each asset's histograms are merged into every folder above it
+        Map<String, LatencyHistogram[]> folders = new HashMap<>();
+        assets.forEach((asset, histograms) -> {
+            for (int slash = asset.indexOf('/'); slash >= 0; slash = asset.indexOf('/', slash + 1)) {
+                LatencyHistogram[] folderHistograms = histograms(folders, asset.substring(0, slash + 1));
+                folderHistograms[0].merge(histograms[0]);
+                folderHistograms[1].merge(histograms[1]);
+            }
+        });
+
+        OriginLatencyReport report = new OriginLatencyReport();
+        report.setFrom(from);
+        report.setTo(to);
+        report.setAssets(percentiles(assets));
+        report.setFolders(percentiles(folders));
+        return report;
+    }
+
+    private static LatencyHistogram[] histograms(Map<String, LatencyHistogram[]> histograms, String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram[] {new LatencyHistogram(), new LatencyHistogram()});
+    }
+
+    private static List<LatencyPercentiles> percentiles(Map<String, LatencyHistogram[]> histograms) {
+        List<LatencyPercentiles> percentiles = new ArrayList<>();
+        histograms.forEach((name, nameHistograms) -> {
+            LatencyPercentiles namePercentiles = new LatencyPercentiles();
+            namePercentiles.setName(name);
+            namePercentiles.setRequests(nameHistograms[0].getCount());
+            namePercentiles.setTotalTimeP50(nameHistograms[0].percentile(0.50));
+            namePercentiles.setTotalTimeP95(nameHistograms[0].percentile(0.95));
+            namePercentiles.setTotalTimeP99(nameHistograms[0].percentile(0.99));
+            namePercentiles.setTurnAroundTimeP50(nameHistograms[1].percentile(0.50));
+            namePercentiles.setTurnAroundTimeP95(nameHistograms[1].percentile(0.95));
+            namePercentiles.setTurnAroundTimeP99(nameHistograms[1].percentile(0.99));
+            percentiles.add(namePercentiles);
+        });
+        percentiles.sort(Comparator.comparingLong(LatencyPercentiles::getTotalTimeP99).reversed().thenComparing(LatencyPercentiles::getName));
+        return percentiles;
+    }
+}
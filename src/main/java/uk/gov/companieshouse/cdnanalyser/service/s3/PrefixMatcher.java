@@ -0,0 +1,87 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Finds the longest of a set of path prefixes that a path starts with, each prefix mapped to a value, by walking a
+ * trie over the UTF-8 bytes of the prefixes. A lookup follows one child per byte of the path until it runs out of
+ * prefix, so it costs the length of the longest prefix however many prefixes there are. Paths are matched either as
+ * strings or in place in the bytes of a log line.
+ */
+final class PrefixMatcher<T> {
+
+    private final Node<T> root = new Node<>();
+
+    PrefixMatcher(Map<String, T> prefixes) {
+        prefixes.forEach((prefix, value) -> {
+            Node<T> node = root;
+            for (byte b : prefix.getBytes(StandardCharsets.UTF_8)) {
+                node = node.child(b);
+            }
+            node.value = value;
+        });
+    }
+
+    /**
+     * The value of the longest prefix the bytes from the first index up to the second start with, or null if none.
+     */
+    T find(byte[] bytes, int from, int to) {
+        Node<T> node = root;
+        T found = node.value;
+        for (int i = from; i < to && node.children != null; i++) {
+            node = node.children[bytes[i] & 0xFF];
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = node.value;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The value of the longest prefix the path starts with, or null if none.
+     */
+    T find(String path) {
+        Node<T> node = root;
+        T found = node.value;
+        for (int i = 0; i < path.length() && node.children != null; i++) {
+            char c = path.charAt(i);
+            if (c >= 0x80) {
+                // Past ASCII a character is more than one byte, which is rare enough to encode the path for
+                byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+                return find(bytes, 0, bytes.length);
+            }
+            node = node.children[c];
+            if (node == null) {
+                break;
+            }
+            if (node.value != null) {
+                found = node.value;
+            }
+        }
+        return found;
+    }
+
+    private static final class Node<T> {
+
+        private Node<T>[] children;
+
+        private T value;
+
+        @SuppressWarnings("unchecked")
+        private Node<T> child(byte b) {
+            if (children == null) {
+                children = new Node[256];
+            }
+            Node<T> child = children[b & 0xFF];
+            if (child == null) {
+                child = new Node<>();
+                children[b & 0xFF] = child;
+            }
+            return child;
+        }
+    }
+}
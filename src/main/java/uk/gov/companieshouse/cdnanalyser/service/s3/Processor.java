@@ -1,22 +1,37 @@
 package uk.gov.companieshouse.cdnanalyser.service.s3;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import uk.gov.companieshouse.cdnanalyser.configuration.AnalysisProperties;
 import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
 import uk.gov.companieshouse.cdnanalyser.service.Util;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
@@ -31,97 +46,357 @@ public class Processor {
 
     private final String accessLogFilterInPath;
 
+    private final AnalysisProperties properties;
+
     private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
 
-    public Processor(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,@Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath){
+    public Processor(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,
+                     @Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath, AnalysisProperties properties) {
         this.analysisOutputInterface = analysisOutputInterface;
         this.analysisInputInterface = analysisInputInterface;
         this.accessLogFilterInPath = accessLogFilterInPath;
+        this.properties = properties;
     }
 
+    /**
+     * Analyses the access logs of each environment in the filter in path. With several environments the log bucket is
+     * read once, each record going to the environment whose prefix its path starts with. The first environment's
+     * analysis stays at the root of the analysis bucket, where it was kept while it was the only one, and each other
+     * environment's is kept under its prefix.
+     */
     public void handleAssets() {
 
-        List<String> assets = analysisInputInterface.readAssets();
-        logger.info("The number of assets found is: {}", assets.size());
+        Map<String, AssetMetadata> assetInventory = analysisInputInterface.readAssetInventory();
+        List<String> environments = Util.filterInPaths(accessLogFilterInPath);
+        if (environments.size() == 1) {
+            EnvironmentAnalysis analysis = new EnvironmentAnalysis(assetInventory);
+            analysis.complete(analysisInputInterface.readAccessLogs(analysis.knownETags, analysis.logObjectAggregateStore.getOldestLogDay(), analysis::add));
+            return;
+        }
 
-        Set<AssetAccessLog> assetAccessLogs = analysisInputInterface.readAccessLogs();
+        Map<String, EnvironmentAnalysis> analyses = new LinkedHashMap<>();
+        environments.forEach(environment -> {
+            logger.info("Analysing environment {}", environment);
+            analyses.put(environment, forEnvironment(environment, environment.equals(environments.get(0))).new EnvironmentAnalysis(assetInventory));
+        });
+        PrefixMatcher<EnvironmentAnalysis> environmentMatcher = new PrefixMatcher<>(analyses);
+        // A log object is only skipped when every environment has read it as it is
+        Map<String, String> knownETags = new HashMap<>(analyses.get(environments.get(0)).knownETags);
+        analyses.values().forEach(analysis -> knownETags.entrySet().retainAll(analysis.knownETags.entrySet()));
+        // Every environment keeps its aggregates for the same retention window
+        String oldestLogDay = analyses.get(environments.get(0)).logObjectAggregateStore.getOldestLogDay();
+        List<S3File> logObjects = analysisInputInterface.readAccessLogs(knownETags, oldestLogDay, (logObject, assetAccessLog) -> {
+            EnvironmentAnalysis analysis = environmentMatcher.find(assetAccessLog.getAsset());
+            if (analysis != null) {
+                analysis.add(logObject, assetAccessLog);
+            }
+        });
+        analyses.forEach((environment, analysis) -> {
+            logger.info("Saving the analysis of environment {}", environment);
+            analysis.complete(logObjects);
+        });
+    }
 
-        logger.info("The number of asset access logs found is: {}", assetAccessLogs.size());
+    // The same processor for one of several environments, reading and saving at the root for the first environment
+    // and under the environment's prefix for the others
+    private Processor forEnvironment(String environment, boolean first) {
+        if (first) {
+            return new Processor(analysisInputInterface, analysisOutputInterface, environment, properties);
+        }
+        return new Processor(analysisInputInterface.forEnvironment(environment), analysisOutputInterface.forEnvironment(environment), environment, properties);
+    }
 
-        List<AssetAccessLog> existingLogs = analysisInputInterface.readRawAssetAccessLogs();
+    /**
+     * The analysis of one environment over a run, built from the saved state of the environment's analysis, fed the
+     * records of the log objects it has not read as they are, then saved.
+     */
+    private class EnvironmentAnalysis {
 
-        logger.info("The number of existing asset access logs found is: {}", existingLogs.size());
+        private final Map<String, AssetMetadata> assetInventory;
 
-        existingLogs.forEach(existingLog ->{
-            assetAccessLogs.add(existingLog);
-        } );
+        private final List<String> assets;
 
-        if (!assetAccessLogs.isEmpty() && ! assets.isEmpty()) {
-            processAssetAccessLogs(assetAccessLogs, assets);
-        } else {
-            logger.info("No reports will be produced due to missing data.");
-        }
-    }
+        private final AssetPathTrie assetPathTrie;
 
-    public Set<AssetAccessLog> convertLogsToAssetAccessLogs() {
-        return analysisInputInterface.readAccessLogs();
-    }
+        private final Map<String, String> knownETags = new HashMap<>();
 
-    private void saveAssetLogs(AssetUsageReport successfulAssetRequestTotals, List<AssetAccessLog> failedAssetAccessLogs, Set<AssetAccessLog> assetAccessLogs) {
-        analysisOutputInterface.saveRawData(assetAccessLogs);
-        analysisOutputInterface.saveFailedAssetsRequests(failedAssetAccessLogs);
-        analysisOutputInterface.saveSuccessfulAssetRequests(successfulAssetRequestTotals);
-    }
+        private final LogObjectAggregateStore logObjectAggregateStore;
 
-    private void processAssetAccessLogs(Set<AssetAccessLog> assetAccessLogs, List<String> assets) {
+        private final AssetAccessLogAggregator aggregator;
 
-        List<AssetUsageReport> successfulAssetUsageReports = collectSuccessfulAssetUsageReports(assetAccessLogs, assets);
-        logger.debug("logging the assetUsageReports: {}", successfulAssetUsageReports);
+        private final RawAccessLogStore rawAccessLogStore;
 
-        List<AssetAccessLog> failedAssetAccessLogs = collectFailedRequests(assetAccessLogs);
-        logger.info("Of the {} assets access logs, {} will be saved as failed asset requests", assetAccessLogs.size(), failedAssetAccessLogs.size());
+        private final ApproximateAssetUsage approximateAssetUsage;
 
-        AssetUsageReport assetUsageReportTotal = Util.calculateAssetRequestTotals(successfulAssetUsageReports);
+        private final OriginFetchAnalytics originFetchAnalytics;
 
-        saveAssetLogs(assetUsageReportTotal, failedAssetAccessLogs, assetAccessLogs);
-    }
+        private final TrendingAssets trendingAssets;
 
-    private List<AssetAccessLog> collectFailedRequests(Set<AssetAccessLog> assetAccessLogs) {
-        return assetAccessLogs.stream()
-                              .filter(assetAccessLog -> assetAccessLog.getStatusCode() >= 400)
-                              .collect(Collectors.toList());
-    }
+        private final ReferrerBreakdown referrerBreakdown;
 
-    private List<AssetUsageReport> collectSuccessfulAssetUsageReports(Set<AssetAccessLog> assetAccessLogs, List<String> assets) {
+        private final IntradayUsage intradayUsage;
 
-        List<AssetAccessLog> successfulAssetRequests =  assetAccessLogs.stream()
-                                                            .filter(t -> t.getStatusCode() < 400)
-                                                            .collect(Collectors.toList());
+        private final List<AssetAccessLog> existingLogs;
 
-        logger.info("Of the {} assets access logs, {} will be saved in usage reports", assetAccessLogs.size(), successfulAssetRequests.size());
+        private final List<AssetAccessLog> failedAssetAccessLogs = new ArrayList<>();
 
+        private final int existingLogCount;
 
-        Map<Instant, AssetUsageReport> assetUsageReportsByDate = new HashMap<>();
+        private final int existingFailureCount;
 
-        successfulAssetRequests.forEach(assetAccessLog -> {
-            Instant dateOfLog = assetAccessLog.getTimestamp().truncatedTo(ChronoUnit.DAYS);
-            String filename = assetAccessLog.getAsset();
+        private EnvironmentAnalysis(Map<String, AssetMetadata> assetInventory) {
+            this.assetInventory = assetInventory;
+            Map<String, Long> assetSizes = new LinkedHashMap<>();
+            assetInventory.forEach((asset, assetMetadata) -> assetSizes.put(asset, assetMetadata.getSize()));
+            assets = new ArrayList<>(assetSizes.keySet());
+            logger.info("The number of assets found is: {}", assets.size());
+            assetPathTrie = new AssetPathTrie(assetSizes);
 
-            if (filename.startsWith(accessLogFilterInPath)) {
-                filename = assetAccessLog.getAsset().substring(1 ).substring(accessLogFilterInPath.length()-1, assetAccessLog.getAsset().length() - 1);
-            }
-            // Create a new assetUsageReport, initialising the hashMap of assets to 0
-            AssetUsageReport assetUsageLog = assetUsageReportsByDate.computeIfAbsent(dateOfLog, key ->new AssetUsageReport(dateOfLog, assets.stream().collect(Collectors.toMap(asset -> asset, requestCount -> 0))));
-            if (!assetUsageLog.getAssetAccessCount().containsKey(filename)) {
-                logger.warn("Asset {} not found in the list of identified CDN assets", filename);
+            logObjectAggregateStore = new LogObjectAggregateStore(analysisInputInterface, analysisOutputInterface, LocalDate.now(Constants.LONDON_ZONE_ID),
+                                                                  properties.aggregatesRetentionDays());
+            Map<String, LogObjectAggregate> logObjectAggregates = logObjectAggregateStore.load();
+
+            logger.info("The number of cached log object aggregates found is: {}", logObjectAggregates.size());
+            logObjectAggregates.forEach((key, logObjectAggregate) -> knownETags.put(key, logObjectAggregate.getETag()));
+
+            aggregator = new AssetAccessLogAggregator(assets, assetPathTrie, accessLogFilterInPath, logObjectAggregates);
+            rawAccessLogStore = new RawAccessLogStore(analysisInputInterface, analysisOutputInterface,
+                                                      properties.dedupFilterInitialCapacity(), properties.dedupFilterFalsePositiveProbability());
+            approximateAssetUsage = properties.approximateUsageEnabled()
+                ? new ApproximateAssetUsage(analysisInputInterface, analysisOutputInterface, accessLogFilterInPath,
+                                            properties.approximateSketchWidth(), properties.approximateSketchDepth(), properties.approximateTopK(), properties.approximateReportDays())
+                : null;
+            originFetchAnalytics = new OriginFetchAnalytics(analysisInputInterface, analysisOutputInterface, assetPathTrie, accessLogFilterInPath,
+                                                            properties.originReportDays(), properties.originDefaultTtlSeconds(), properties.originFingerprintedTtlSeconds(),
+                                                            properties.bandwidthLargeObjectBytes(), properties.bandwidthFrequentFetchesPerDay());
+            trendingAssets = new TrendingAssets(analysisInputInterface, analysisOutputInterface, assetPathTrie, accessLogFilterInPath,
+                                                properties.trendingBucketMinutes(), properties.trendingWindowHours(), properties.trendingRecentMinutes(), properties.trendingTopN());
+            referrerBreakdown = new ReferrerBreakdown(analysisInputInterface, analysisOutputInterface, assetPathTrie, accessLogFilterInPath,
+                                                      properties.referrerMaxHosts(), properties.referrerMaxUserAgents(), properties.rankingTopN());
+            intradayUsage = properties.intradayUsageEnabled()
+                ? new IntradayUsage(analysisInputInterface, analysisOutputInterface, assets, assetPathTrie, accessLogFilterInPath,
+                                    properties.intradaySlotMinutes(), properties.intradayDays(), properties.rankingTopN())
+                : null;
+
+            // Raw data saved before the store was partitioned by day is moved into the partitions on the first run
+            existingLogs = analysisInputInterface.readRawAssetAccessLogs();
+            logger.info("The number of existing asset access logs to partition by day is: {}", existingLogs.size());
+            existingLogs.forEach(assetAccessLog -> {
+                aggregator.add(assetAccessLog);
+                count(assetAccessLog);
+            });
+            existingLogCount = rawAccessLogStore.getNewRecords();
+            // The existing failed requests are already in failed-asset-requests.json, so only count towards the report
+            existingFailureCount = failedAssetAccessLogs.size();
+        }
+
+        /**
+         * Adds a record read from a log object, unless this environment has already read the object as it is.
+         */
+        private void add(S3File logObject, AssetAccessLog assetAccessLog) {
+            if (isKnown(logObject)) {
                 return;
             }
-            int value = assetUsageLog.getAssetAccessCount().get(filename);
+            aggregator.add(logObject, assetAccessLog);
+            count(assetAccessLog);
+        }
 
-            //updating the count for the matching key/value
-            assetUsageLog.getAssetAccessCount().put(filename, ++value);
-        });
+        private boolean isKnown(S3File logObject) {
+            return logObject.getETag() != null && logObject.getETag().equals(knownETags.get(logObject.getFilename()));
+        }
+
+        private void count(AssetAccessLog assetAccessLog) {
+            if (rawAccessLogStore.add(assetAccessLog)) {
+                if (assetAccessLog.getStatusCode() >= 400) {
+                    failedAssetAccessLogs.add(assetAccessLog);
+                }
+                if (approximateAssetUsage != null) {
+                    approximateAssetUsage.add(assetAccessLog);
+                }
+                originFetchAnalytics.add(assetAccessLog);
+                trendingAssets.add(assetAccessLog);
+                referrerBreakdown.add(assetAccessLog);
+                if (intradayUsage != null) {
+                    intradayUsage.add(assetAccessLog);
+                }
+            }
+        }
+
+        /**
+         * Completes the analysis with the log objects read in full, and saves it.
+         */
+        private void complete(List<S3File> logObjects) {
+            aggregator.completed(logObjects.stream().filter(logObject -> !isKnown(logObject)).toList());
+
+            logger.info("The number of asset access logs found is: {}", rawAccessLogStore.getNewRecords() - existingLogCount);
+
+            if (!aggregator.isEmpty() && ! assets.isEmpty()) {
+                processAssetAccessLogs(assets, assetInventory, assetPathTrie, aggregator, logObjectAggregateStore, rawAccessLogStore, failedAssetAccessLogs,
+                                       existingFailureCount, intradayUsage);
+                if (approximateAssetUsage != null) {
+                    approximateAssetUsage.save(assets);
+                }
+                // Only rebuilt when new records arrive, so a run with nothing new reads no days
+                if (originFetchAnalytics.isChanged()) {
+                    originFetchAnalytics.save();
+                }
+                if (trendingAssets.isChanged()) {
+                    trendingAssets.save();
+                }
+                if (referrerBreakdown.isChanged()) {
+                    referrerBreakdown.save();
+                }
+                if (!existingLogs.isEmpty()) {
+                    analysisOutputInterface.deleteLegacyRawData();
+                }
+            } else {
+                logger.info("No reports will be produced due to missing data.");
+            }
+        }
+    }
+
+    public Set<AssetAccessLog> convertLogsToAssetAccessLogs() {
+        return analysisInputInterface.readAccessLogs();
+    }
+
+    private void saveFailedAssetRequests(List<AssetAccessLog> failedAssetAccessLogs, int existingFailureCount, AssetDictionary dictionary) {
+        // Every failed request is new to the raw data store, so the previous report only needs the new ones added
+        if (!failedAssetAccessLogs.isEmpty()) {
+            List<AssetRequestFailureReport> failedAssetRequestTotals = Util.calculateFailedAssetRequests(failedAssetAccessLogs,
+                analysisInputInterface.readFailedAssetRequestTotals(), accessLogFilterInPath, dictionary);
+            logger.info("{} failed requests added to the failure report of {} assets and status codes", failedAssetAccessLogs.size(), failedAssetRequestTotals.size());
+            analysisOutputInterface.saveFailedAssetRequestTotals(failedAssetRequestTotals);
+        }
+
+        // The individual failed requests are only kept for the retention window
+        Instant oldest = Instant.now().minus(properties.failedRequestRetentionDays(), ChronoUnit.DAYS);
+        List<AssetAccessLog> newFailedAssetAccessLogs = failedAssetAccessLogs.subList(existingFailureCount, failedAssetAccessLogs.size());
+        List<AssetAccessLog> previousFailedAssetAccessLogs = analysisInputInterface.readFailedAssetRequests();
+        List<AssetAccessLog> recentFailedAssetAccessLogs = Stream.concat(previousFailedAssetAccessLogs.stream(), newFailedAssetAccessLogs.stream())
+                                                                 .filter(assetAccessLog -> !assetAccessLog.getTimestamp().isBefore(oldest))
+                                                                 .toList();
+        int expired = previousFailedAssetAccessLogs.size() + newFailedAssetAccessLogs.size() - recentFailedAssetAccessLogs.size();
+        if (expired > 0 || !newFailedAssetAccessLogs.isEmpty()) {
+            logger.info("{} failed asset requests kept, {} older than {} days removed", recentFailedAssetAccessLogs.size(), expired, properties.failedRequestRetentionDays());
+            // An empty list is not saved, so the previous requests would be kept if they had all expired
+            if (recentFailedAssetAccessLogs.isEmpty()) {
+                analysisOutputInterface.deleteFailedAssetRequests();
+            } else {
+                analysisOutputInterface.saveFailedAssetsRequests(recentFailedAssetAccessLogs);
+            }
+        }
+    }
+
+    private void processAssetAccessLogs(List<String> assets, Map<String, AssetMetadata> assetInventory, AssetPathTrie assetPathTrie, AssetAccessLogAggregator aggregator,
+                                        LogObjectAggregateStore logObjectAggregateStore, RawAccessLogStore rawAccessLogStore, List<AssetAccessLog> failedAssetAccessLogs,
+                                        int existingFailureCount, IntradayUsage intradayUsage) {
+        AssetDictionary dictionary = new AssetDictionary(analysisInputInterface.readAssetDictionary());
+        dictionary.addAssets(assets);
+        // The dictionary gives the index, bitsets and rollups their meaning, so is saved first
+        if (dictionary.isChanged()) {
+            analysisOutputInterface.saveAssetDictionary(dictionary.getAssets());
+        }
+        Optional<byte[]> savedIndex = analysisInputInterface.readAssetUsageIndex();
+        AssetUsageIndex assetUsageIndex = savedIndex.map(AssetUsageIndex::fromBytes).orElseGet(AssetUsageIndex::new);
+        // Every day is rebuilt until an index has been saved, then only the days this run's log objects changed
+        Set<String> changedDays = aggregator.getChangedDays();
+        if (savedIndex.isEmpty()) {
+            changedDays = new TreeSet<>(aggregator.getDays());
+            changedDays.addAll(logObjectAggregateStore.getFoldedDays());
+        }
+        List<AssetUsageReport> changedAssetUsageReports = aggregator.getSuccessfulAssetUsageReports(changedDays);
+        logObjectAggregateStore.addFoldedUsage(changedAssetUsageReports);
+        changedAssetUsageReports.forEach(dailyReport -> assetUsageIndex.set(dailyReport.getId(), dailyReport.getAssetAccessCount(), dictionary));
+        AssetUsageReport assetUsageReportTotal = calculateAssetUsageTotal(assets, dictionary, assetUsageIndex);
+        logger.debug("logging the assetUsageReports: {}", changedAssetUsageReports);
+
+        logger.info("Of the {} new assets access logs, {} will be saved as failed asset requests", rawAccessLogStore.getNewRecords(), failedAssetAccessLogs.size());
+        logger.info("{} successful requests from {} log objects will be saved in usage reports, {} daily reports have changed",
+                    assetUsageReportTotal.getAssetAccessCount().values().stream().mapToLong(Integer::longValue).sum(),
+                    aggregator.getLogObjectAggregates().size(), changedAssetUsageReports.size());
+
+        rawAccessLogStore.save();
+        saveFailedAssetRequests(failedAssetAccessLogs, existingFailureCount, dictionary);
+        // Each report, the index, the rollups and the total are rebuilt in full from the log object aggregates, so if
+        // the run stops before the aggregates are saved the next run reads the same log objects and saves the same
+        changedAssetUsageReports.forEach(analysisOutputInterface::saveAssetUsageReport);
+        saveAssetUsageIndex(assetUsageIndex);
+        saveAssetUsageRollups(dictionary, assetUsageIndex, changedAssetUsageReports);
+        analysisOutputInterface.saveSuccessfulAssetRequests(assetUsageReportTotal);
+        AssetUsageRanking assetUsageRanking = Util.rankAssetRequestTotals(assetUsageReportTotal.getAssetAccessCount(), assets, properties.rankingTopN());
+        logger.info("{} of the {} assets have not been requested", assetUsageRanking.getUnusedAssets().size(), assets.size());
+        analysisOutputInterface.saveAssetUsageRanking(assetUsageRanking);
+        AssetFolderUsageReport assetFolderUsageReport = assetPathTrie.folderUsage(LocalDate.now(Constants.LONDON_ZONE_ID).toString(),
+                                                                                  assetUsageReportTotal.getAssetAccessCount());
+        logger.info("Usage of {} folders rolled up from {} assets", assetFolderUsageReport.getFolders().size(), assetPathTrie.size());
+        analysisOutputInterface.saveAssetFolderUsage(assetFolderUsageReport);
+        AssetPayloadReport assetPayloadReport = new AssetPayloadAudit(analysisInputInterface, analysisOutputInterface, properties.bandwidthLargeObjectBytes(),
+                                                                      properties.auditHotRequests(), properties.auditShortCacheSeconds(), properties.originDefaultTtlSeconds())
+            .audit(assetFolderUsageReport.getId(), assetInventory, assetUsageReportTotal.getAssetAccessCount());
+        logger.info("{} requested assets could be serving {} bytes", assetPayloadReport.getAssets().size(), assetPayloadReport.getTotalBytesServedPotential());
+        UnusedAssetsReport unusedAssetsReport = saveUnusedAssets(assets, dictionary, changedAssetUsageReports);
+        saveAssetVersions(assetInventory, assetUsageReportTotal, unusedAssetsReport);
+        if (intradayUsage != null && intradayUsage.isChanged()) {
+            intradayUsage.save(dictionary);
+        }
+        if (aggregator.isChanged() || logObjectAggregateStore.isChanged()) {
+            logObjectAggregateStore.save(aggregator.getLogObjectAggregates(), aggregator.getChangedLogObjects());
+        }
+    }
+
+    /**
+     * The total of every identified asset over every indexed day.
+     */
+    private AssetUsageReport calculateAssetUsageTotal(List<String> assets, AssetDictionary dictionary, AssetUsageIndex assetUsageIndex) {
+        Map<String, Integer> assetAccessCount = new HashMap<>();
+        // The report counts are ints, so a total past the largest fails the run rather than wrapping
+        assets.forEach(asset -> assetAccessCount.put(asset, Math.toIntExact(assetUsageIndex.total(dictionary.find(asset)))));
+        return Util.calculateAssetRequestTotals(List.of(new AssetUsageReport("total", assetAccessCount)), properties.sortedTotals());
+    }
+
+    private UnusedAssetsReport saveUnusedAssets(List<String> assets, AssetDictionary dictionary, List<AssetUsageReport> changedAssetUsageReports) {
+        AssetUsageBitsets assetUsageBitsets = new AssetUsageBitsets(dictionary, analysisInputInterface.readAssetUsageBitsets());
+        changedAssetUsageReports.forEach(assetUsageBitsets::add);
+
+        LocalDate today = LocalDate.now(Constants.LONDON_ZONE_ID);
+        UnusedAssetsReport unusedAssetsReport = assetUsageBitsets.unusedAssets(assets, today, properties.unusedAssetWindows());
+        unusedAssetsReport.getUnusedAssets().forEach((window, unusedAssets) ->
+            logger.info("{} of the {} assets have not been requested in the last {} days", unusedAssets.size(), assets.size(), window));
+
+        analysisOutputInterface.saveAssetUsageBitsets(assetUsageBitsets.toBytes(today, properties.unusedAssetWindows().stream().mapToInt(Integer::intValue).max().orElse(1)));
+        analysisOutputInterface.saveUnusedAssets(unusedAssetsReport);
+        return unusedAssetsReport;
+    }
 
-        return new ArrayList<>(assetUsageReportsByDate.values());
+    private void saveAssetVersions(Map<String, AssetMetadata> assetInventory, AssetUsageReport assetUsageReportTotal, UnusedAssetsReport unusedAssetsReport) {
+        // A version is dead weight when it has gone unrequested for the shortest window
+        int windowDays = properties.unusedAssetWindows().stream().mapToInt(Integer::intValue).min().orElse(1);
+        Set<String> unusedAssets = new HashSet<>(unusedAssetsReport.getUnusedAssets().getOrDefault(windowDays, List.of()));
+        AssetVersionReport assetVersionReport = AssetVersionDetector.detect(unusedAssetsReport.getId(), assetInventory,
+                                                                            assetUsageReportTotal.getAssetAccessCount(), unusedAssets, windowDays);
+        logger.info("{} assets have more than one version, {} bytes unrequested in {} days, and {} sets of keys hold identical content",
+                    assetVersionReport.getGroups().size(), assetVersionReport.getDeadBytes(), windowDays, assetVersionReport.getDuplicateContent().size());
+        analysisOutputInterface.saveAssetVersionReport(assetVersionReport);
+    }
+
+    private void saveAssetUsageRollups(AssetDictionary dictionary, AssetUsageIndex assetUsageIndex, List<AssetUsageReport> changedAssetUsageReports) {
+        AssetUsageRollups assetUsageRollups = new AssetUsageRollups(analysisOutputInterface, dictionary, assetUsageIndex);
+        if (analysisInputInterface.readAssetUsageRollupIds(AssetUsageRollups.Period.MONTH.getKey()).isEmpty()) {
+            // No rollups saved yet, so they are built for every indexed day
+            LocalDate firstDay = assetUsageIndex.getFirstDay();
+            for (int d = 0; d < assetUsageIndex.getDayCount(); d++) {
+                assetUsageRollups.rebuild(firstDay.plusDays(d).toString());
+            }
+        } else {
+            changedAssetUsageReports.forEach(dailyReport -> assetUsageRollups.rebuild(dailyReport.getId()));
+        }
+        assetUsageRollups.save();
+    }
+
+    private void saveAssetUsageIndex(AssetUsageIndex assetUsageIndex) {
+        if (assetUsageIndex.isChanged()) {
+            logger.info("Asset usage index of {} days saved", assetUsageIndex.getDayCount());
+            analysisOutputInterface.saveAssetUsageIndex(assetUsageIndex.toBytes());
+        }
     }
 }
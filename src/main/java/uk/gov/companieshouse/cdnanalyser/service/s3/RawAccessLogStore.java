@@ -0,0 +1,155 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.service.ScalableBloomFilter;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Keeps the raw data store free of duplicate records without loading its history. The store is partitioned by the
+ * UTC day of each record, and every day has a {@link ScalableBloomFilter} of the fingerprints of its records. A record
+ * the filter has not seen is new; only when the filter reports a probable hit is that day's partition read to tell
+ * a duplicate from a false positive. New records are held until {@link #save()}, which adds them to their partitions
+ * and saves the filters of the days they fall on.
+ *
+ * Not thread safe, records are added from a single thread.
+ */
+public class RawAccessLogStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final long filterInitialCapacity;
+
+    private final double filterFalsePositiveProbability;
+
+    private final Map<String, ScalableBloomFilter> filters = new HashMap<>();
+
+    private final Map<String, Set<AssetAccessLog>> storedAssetAccessLogs = new HashMap<>();
+
+    private final Map<String, Set<AssetAccessLog>> newAssetAccessLogs = new HashMap<>();
+
+    private int newRecords;
+
+    private int probableDuplicates;
+
+    private int duplicates;
+
+    public RawAccessLogStore(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface,
+                             long filterInitialCapacity, double filterFalsePositiveProbability) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.filterInitialCapacity = filterInitialCapacity;
+        this.filterFalsePositiveProbability = filterFalsePositiveProbability;
+    }
+
+    /**
+     * @return true if the record was not already in the store, or added earlier in this run
+     */
+    public boolean add(AssetAccessLog assetAccessLog) {
+        String day = LocalDate.ofInstant(assetAccessLog.getTimestamp(), ZoneOffset.UTC).toString();
+        ScalableBloomFilter filter = filters.computeIfAbsent(day, this::readFilter);
+        long fingerprint = fingerprint(assetAccessLog);
+        Set<AssetAccessLog> newForDay = newAssetAccessLogs.computeIfAbsent(day, key -> new LinkedHashSet<>());
+
+        if (filter.mightContain(fingerprint) || mightContainLegacy(filter, assetAccessLog)) {
+            probableDuplicates++;
+            if (newForDay.contains(assetAccessLog)
+                || storedAssetAccessLogs.computeIfAbsent(day, key -> new HashSet<>(analysisInputInterface.readRawAssetAccessLogs(key))).contains(assetAccessLog)) {
+                duplicates++;
+                return false;
+            }
+        }
+        filter.add(fingerprint);
+        newForDay.add(assetAccessLog);
+        newRecords++;
+        return true;
+    }
+
+    public void save() {
+        newAssetAccessLogs.forEach((day, assetAccessLogs) -> {
+            if (!assetAccessLogs.isEmpty()) {
+                analysisOutputInterface.saveRawData(day, assetAccessLogs);
+                analysisOutputInterface.saveDeduplicationFilter(day, filters.get(day).toBytes());
+            }
+        });
+        logger.info("{} new raw asset access logs saved, {} probable duplicates of which {} were confirmed and {} were false positives, {} day partitions read",
+                    newRecords, probableDuplicates, duplicates, probableDuplicates - duplicates, storedAssetAccessLogs.size());
+        newAssetAccessLogs.clear();
+    }
+
+    public int getNewRecords() {
+        return newRecords;
+    }
+
+    /**
+     * Whether the day may hold the record under the identity of a record saved before request IDs were parsed, which
+     * is equal to it. Records saved without a request ID are in the filter by {@link #legacyFingerprint}, so a record
+     * with one is also looked up by that. The filter cannot answer for a record without one, as the records saved with
+     * a request ID are in it by their full fingerprint, so its day's partition is always checked; only raw data saved
+     * before request IDs were parsed has such records.
+     */
+    private static boolean mightContainLegacy(ScalableBloomFilter filter, AssetAccessLog assetAccessLog) {
+        return assetAccessLog.getRequestId() == null || filter.mightContain(legacyFingerprint(assetAccessLog));
+    }
+
+    private ScalableBloomFilter readFilter(String day) {
+        return analysisInputInterface.readDeduplicationFilter(day)
+                                     .map(ScalableBloomFilter::fromBytes)
+                                     .orElseGet(() -> new ScalableBloomFilter(filterInitialCapacity, filterFalsePositiveProbability));
+    }
+
+    /**
+     * A 64 bit FNV-1a hash of the fields that make two records equal. A collision only costs a read of the
+     * day's partition, never a lost record.
+     */
+    static long fingerprint(AssetAccessLog assetAccessLog) {
+        long hash = legacyFingerprint(assetAccessLog);
+        return assetAccessLog.getRequestId() == null ? hash : hash(hash, assetAccessLog.getRequestId());
+    }
+
+    /**
+     * The fingerprint of the fields other than the request ID, as records were fingerprinted before it was parsed.
+     */
+    static long legacyFingerprint(AssetAccessLog assetAccessLog) {
+        long hash = 0xCBF29CE484222325L;
+        hash = hash(hash, assetAccessLog.getRequestType());
+        hash = hash(hash, assetAccessLog.getAsset());
+        hash = hash(hash, assetAccessLog.getTimestamp().getEpochSecond());
+        hash = hash(hash, assetAccessLog.getTimestamp().getNano());
+        return hash(hash, assetAccessLog.getStatusCode() == null ? -1 : assetAccessLog.getStatusCode());
+    }
+
+    private static long hash(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * 0x100000001B3L;
+            }
+        }
+        // Separator, so moving characters between fields changes the hash
+        return (hash ^ 0xFFFF) * 0x100000001B3L;
+    }
+
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xFF)) * 0x100000001B3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}
@@ -1,19 +1,28 @@
 package uk.gov.companieshouse.cdnanalyser.service.s3;
 
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -24,26 +33,44 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.retries.api.RetryStrategy;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
 import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
 import software.amazon.awssdk.services.s3.model.S3Exception;
-import software.amazon.awssdk.services.s3.model.S3Object;
 import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.configuration.ReaderProperties;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
 import uk.gov.companieshouse.cdnanalyser.models.S3File;
-import uk.gov.companieshouse.cdnanalyser.service.Util;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
 
 @Service
 public class ReaderService implements AnalysisInputInterface{
 
+    /**
+     * The name of the S3 client bean the access log and asset requests run on, see {@link #limitedRetryStrategy()}.
+     */
+    public static final String LIMITED_S3_CLIENT = "limitedS3Client";
+
     private final S3Client s3Client;
 
+    // Runs the requests the limiters run, so a throttled request is retried by its limiter and not by the SDK
+    private final S3Client limitedS3Client;
+
     private final String accessLogFileBucket;
 
     private final String cdnAssetBucket;
@@ -54,6 +81,24 @@ public class ReaderService implements AnalysisInputInterface{
 
     private final String cdnAnalysisBucket;
 
+    private final int pipelineDownloaders;
+
+    private final int pipelineParsers;
+
+    private final int pipelineChunkLines;
+
+    private final int pipelineQueueCapacity;
+
+    private final int headConcurrency;
+
+    // Shared by every environment, so what one run learns of the log and asset buckets carries on to the next
+    private final AdaptiveConcurrencyLimiter accessLogLimiter;
+
+    private final AdaptiveConcurrencyLimiter assetLimiter;
+
+    // Where this environment's analysis is kept in the analysis bucket, empty when there is only one environment
+    private final String analysisKeyPrefix;
+
     private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
 
     private final ObjectMapper objectMapper = new ObjectMapper()
@@ -61,30 +106,93 @@ public class ReaderService implements AnalysisInputInterface{
                                     .findAndRegisterModules()
                                     .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
 
-    public ReaderService(S3Client s3Client, @Value("${cdn.access.logs.bucket}") String accessLogFileBucket,  @Value("${cdn.assets.bucket}")
+    /**
+     * Runs every request on the one client, which is how the tests read their in-memory buckets.
+     */
+    public ReaderService(S3Client s3Client, String accessLogFileBucket, String cdnAssetBucket, String accessLogFilterInPath, String cdnAssetFilterInPath,
+                         String cdnAnalysisBucket, ReaderProperties properties) {
+        this(s3Client, s3Client, accessLogFileBucket, cdnAssetBucket, accessLogFilterInPath, cdnAssetFilterInPath, cdnAnalysisBucket, properties);
+    }
+
+    @Autowired
+    public ReaderService(S3Client s3Client, @Qualifier(LIMITED_S3_CLIENT) S3Client limitedS3Client, @Value("${cdn.access.logs.bucket}") String accessLogFileBucket,  @Value("${cdn.assets.bucket}")
      String cdnAssetBucket,
-    @Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath, @Value("${cdn.assets.filterinpath}") String cdnAssetFilterInPath, @Value("${cdn.analysis.bucket}") String cdnAnalysisBucket) {
+    @Value("${cdn.access.logs.filterinpath}") String accessLogFilterInPath, @Value("${cdn.assets.filterinpath}") String cdnAssetFilterInPath, @Value("${cdn.analysis.bucket}") String cdnAnalysisBucket,
+    ReaderProperties properties) {
+        this(s3Client, limitedS3Client, accessLogFileBucket, cdnAssetBucket, accessLogFilterInPath, cdnAssetFilterInPath, cdnAnalysisBucket, properties.pipelineDownloaders(),
+             properties.pipelineParsers(), properties.pipelineChunkLines(), properties.pipelineQueueCapacity(), properties.headConcurrency(),
+             new AdaptiveConcurrencyLimiter("access-log", properties.initialConcurrency(), properties.pipelineDownloaders(), properties.retryMaxAttempts(),
+                                            properties.retryBaseDelayMillis(), properties.retryMaxDelayMillis()),
+             new AdaptiveConcurrencyLimiter("asset", properties.initialConcurrency(), properties.headConcurrency(), properties.retryMaxAttempts(),
+                                            properties.retryBaseDelayMillis(), properties.retryMaxDelayMillis()), "");
+    }
+
+    private ReaderService(S3Client s3Client, S3Client limitedS3Client, String accessLogFileBucket, String cdnAssetBucket, String accessLogFilterInPath, String cdnAssetFilterInPath,
+                          String cdnAnalysisBucket, int pipelineDownloaders, int pipelineParsers, int pipelineChunkLines, int pipelineQueueCapacity,
+                          int headConcurrency, AdaptiveConcurrencyLimiter accessLogLimiter, AdaptiveConcurrencyLimiter assetLimiter, String analysisKeyPrefix) {
         this.s3Client = s3Client;
+        this.limitedS3Client = limitedS3Client;
         this.accessLogFileBucket = accessLogFileBucket;
         this.cdnAssetBucket = cdnAssetBucket;
         this.accessLogFilterInPath = accessLogFilterInPath;
         this.cdnAssetFilterInPath = cdnAssetFilterInPath;
         this.cdnAnalysisBucket = cdnAnalysisBucket;
+        this.pipelineDownloaders = pipelineDownloaders;
+        this.pipelineParsers = pipelineParsers;
+        this.pipelineChunkLines = pipelineChunkLines;
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+        this.headConcurrency = headConcurrency;
+        this.accessLogLimiter = accessLogLimiter;
+        this.assetLimiter = assetLimiter;
+        this.analysisKeyPrefix = analysisKeyPrefix;
+    }
+
+    @Override
+    public ReaderService forEnvironment(String environment) {
+        return new ReaderService(s3Client, limitedS3Client, accessLogFileBucket, cdnAssetBucket, environment, cdnAssetFilterInPath, cdnAnalysisBucket, pipelineDownloaders,
+                                 pipelineParsers, pipelineChunkLines, pipelineQueueCapacity, headConcurrency, accessLogLimiter, assetLimiter,
+                                 analysisKeyPrefix + environment);
+    }
+
+    /**
+     * The retry strategy of the {@link #LIMITED_S3_CLIENT} client, which leaves throttled requests to the limiters.
+     */
+    public static RetryStrategy limitedRetryStrategy() {
+        return AdaptiveConcurrencyLimiter.sdkRetryStrategy();
     }
 
     @Override
     public List<String> readAssets() {
-        List<String> assetKeys = new ArrayList<>();
+        return new ArrayList<>(readAssetSizes().keySet());
+    }
+
+    @Override
+    public Map<String, Long> readAssetSizes() {
+        Map<String, Long> assetSizes = new LinkedHashMap<>();
+        readAssetInventory().forEach((asset, assetMetadata) -> assetSizes.put(asset, assetMetadata.getSize()));
+        return assetSizes;
+    }
+
+    @Override
+    public Map<String, AssetMetadata> readAssetInventory() {
+        Map<String, AssetMetadata> assetInventory = new LinkedHashMap<>();
+        String continuationToken = null;
         try {
-            assetKeys = s3Client
-                            .listObjectsV2(
-                                ListObjectsV2Request.builder()
-                                    .bucket(cdnAssetBucket)
-                                    .build())
-                                    .contents()
-                                    .stream()
-                                    .filter(s3Object -> s3Object.key().contains(cdnAssetFilterInPath))
-                                    .map(S3Object::key).collect(Collectors.toList());
+            do {
+                ListObjectsV2Request listObjRequest = ListObjectsV2Request.builder()
+                                                                          .bucket(cdnAssetBucket)
+                                                                          .continuationToken(continuationToken)
+                                                                          .build();
+                ListObjectsV2Response listObjResponse = assetLimiter.call(() -> limitedS3Client.listObjectsV2(listObjRequest));
+                listObjResponse.contents().stream()
+                               .filter(s3Object -> s3Object.key().contains(cdnAssetFilterInPath))
+                               .forEach(s3Object -> assetInventory.put(s3Object.key(), new AssetMetadata(s3Object.size() == null ? 0L : s3Object.size(),
+                                                                                                         s3Object.eTag(), s3Object.storageClassAsString())));
+                continuationToken = listObjResponse.nextContinuationToken();
+            } while (continuationToken != null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted listing objects in bucket {}", cdnAssetBucket);
         }catch (NoSuchBucketException e){
             logger.error("Bucket {} does not exist", cdnAssetBucket);
         } catch (SdkClientException e) {
@@ -92,89 +200,297 @@ public class ReaderService implements AnalysisInputInterface{
         } catch (UncheckedIOException| S3Exception e) {
             logger.error("Error processing files in bucket {} : {}", cdnAssetBucket, e.getMessage());
         }
-        return assetKeys;
+        return assetInventory;
     }
 
     @Override
-    public  Set<AssetAccessLog> readAccessLogs() {
-        List<S3File> logFiles = parseAccessLogBucket();
-        Set<AssetAccessLog> assetAccessLogs = logFiles.stream()
-                .flatMap(s3File -> s3File.getContent().lines())
-                .map(log -> Util.parseLogEntry(log, accessLogFilterInPath))
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-                return assetAccessLogs;
+    public Map<String, AssetMetadata> readAssetHeaders(Map<String, AssetMetadata> assets) {
+        Map<String, AssetMetadata> assetHeaders = new LinkedHashMap<>();
+        if (assets.isEmpty()) {
+            return assetHeaders;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(headConcurrency, assets.size())), runnable -> {
+            Thread thread = new Thread(runnable, "asset-head-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<String, Future<Optional<HeadObjectResponse>>> responses = new LinkedHashMap<>();
+            assets.keySet().forEach(asset -> responses.put(asset, executor.submit(() -> headAsset(asset))));
+            for (Map.Entry<String, Future<Optional<HeadObjectResponse>>> response : responses.entrySet()) {
+                response.getValue().get().ifPresent(headObjectResponse -> {
+                    AssetMetadata listed = assets.get(response.getKey());
+                    AssetMetadata assetMetadata = new AssetMetadata(listed.getSize(), listed.getETag(), listed.getStorageClass());
+                    assetMetadata.setContentEncoding(headObjectResponse.contentEncoding());
+                    assetMetadata.setCacheControl(headObjectResponse.cacheControl());
+                    assetHeaders.put(response.getKey(), assetMetadata);
+                });
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted requesting the headers of assets in bucket {}", cdnAssetBucket);
+        } catch (ExecutionException e) {
+            logger.error("Error requesting the headers of assets in bucket {} : {}", cdnAssetBucket, e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        assetLimiter.publishMetrics();
+        return assetHeaders;
     }
 
-    private List<S3File> parseAccessLogBucket() {
-        List<S3File> files = new ArrayList<>();
+    private Optional<HeadObjectResponse> headAsset(String asset) {
+        try {
+            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+                                                                   .bucket(cdnAssetBucket)
+                                                                   .key(asset)
+                                                                   .build();
+            return Optional.of(assetLimiter.call(() -> limitedS3Client.headObject(headObjectRequest)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (NoSuchKeyException e) {
+            logger.debug("Asset {} was removed after it was listed", asset);
+        } catch (SdkClientException | S3Exception e) {
+            logger.error("Error requesting the headers of {} in bucket {} : {}", asset, cdnAssetBucket, e.getMessage());
+        }
+        return Optional.empty();
+    }
 
-        String continuationToken = null;
-         try {
-            do {
-                ListObjectsV2Request listObjectsV2Request = ListObjectsV2Request.builder()
-                                                                .bucket(accessLogFileBucket)
-                                                                .continuationToken(continuationToken).maxKeys(1000)
-                                                                .build();
+    @Override
+    public Map<String, AssetMetadata> readAssetMetadata() {
+        return readAnalysisObject("asset-metadata.json", new TypeReference<Map<String, AssetMetadata>>(){}, new HashMap<>());
+    }
 
-                ListObjectsV2Response listObjResponse = s3Client.listObjectsV2(listObjectsV2Request);
+    @Override
+    public Set<AssetAccessLog> readAccessLogs() {
+        Set<AssetAccessLog> assetAccessLogs = new HashSet<>();
+        readAccessLogs(Map.of(), null, (logObject, assetAccessLog) -> assetAccessLogs.add(assetAccessLog));
+        return assetAccessLogs;
+    }
 
-                List<S3File> batchFiles = listObjResponse.contents().parallelStream()
-                        .map(s3Object -> processS3File(s3Object, accessLogFileBucket))
-                        .collect(Collectors.toList());
-                files.addAll(batchFiles);
-                continuationToken = listObjResponse.nextContinuationToken();
-            } while (continuationToken != null);
-        }catch (NoSuchBucketException e){
-            logger.error("Bucket {} does not exist", accessLogFileBucket);
-        } catch (SdkClientException e) {
-            logger.error("Error listing objects in bucket {} :", accessLogFileBucket, e.getMessage());
-        } catch (UncheckedIOException e) {
-            logger.error("Error processing files in bucket {} :", accessLogFileBucket, e.getMessage());
+    @Override
+    public List<S3File> readAccessLogs(Map<String, String> knownETags, String oldestLogDay, BiConsumer<S3File, AssetAccessLog> consumer) {
+        return new AccessLogPipeline(limitedS3Client, accessLogFileBucket, accessLogFilterInPath, knownETags, oldestLogDay,
+                                     pipelineDownloaders, pipelineParsers, pipelineChunkLines, pipelineQueueCapacity, accessLogLimiter)
+            .run(consumer);
+    }
+
+    @Override
+    public List<AssetAccessLog> readRawAssetAccessLogs() {
+        return readAnalysisObject("raw-asset-access-data.json", new TypeReference<List<AssetAccessLog>>(){}, new ArrayList<>());
+    }
+
+    @Override
+    public List<AssetAccessLog> readRawAssetAccessLogs(String day) {
+        List<AssetAccessLog> assetAccessLogs = new ArrayList<>();
+        for (String key : listAnalysisKeys("raw-asset-access-data/" + day + "/")) {
+            assetAccessLogs.addAll(readAnalysisObject(key, new TypeReference<List<AssetAccessLog>>(){}, List.of()));
         }
+        return assetAccessLogs;
+    }
 
-        logger.info("" + files.size() + " access log files found in bucket: " + accessLogFileBucket);
+    @Override
+    public Optional<byte[]> readDeduplicationFilter(String day) {
+        return readAnalysisBytes("dedup-filters/" + day + ".bin");
+    }
 
-        return files;
+    @Override
+    public List<AssetAccessLog> readFailedAssetRequests() {
+        // Saved as one JSON document per line
+        List<AssetAccessLog> failedAssetRequests = new ArrayList<>();
+        readAnalysisBytes("failed-asset-requests.json").ifPresent(data -> {
+            for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    failedAssetRequests.add(objectMapper.readValue(line, AssetAccessLog.class));
+                } catch (IOException e) {
+                    logger.error("Error has occurred converting failed-asset-requests.json into an object");
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        return failedAssetRequests;
     }
 
     @Override
-    public List<AssetAccessLog> readRawAssetAccessLogs() {
-        List<AssetAccessLog> assetAccessLogs = new ArrayList<>();
+    public List<AssetRequestFailureReport> readFailedAssetRequestTotals() {
+        return readAnalysisObject("failed-asset-request-totals.json", new TypeReference<List<AssetRequestFailureReport>>(){}, new ArrayList<>());
+    }
+
+    @Override
+    public Optional<AssetUsageReport> readSuccessfulAssetRequests() {
+        return Optional.ofNullable(readAnalysisObject("successful-asset-requests.json", new TypeReference<AssetUsageReport>(){}, null));
+    }
+
+    @Override
+    public List<String> readAssetUsageReportDays() {
+        return listAnalysisKeys("asset-usage-reports/").stream()
+                                                      .map(key -> key.substring("asset-usage-reports/".length(), key.length() - ".json".length()))
+                                                      .toList();
+    }
+
+    @Override
+    public Optional<AssetUsageReport> readAssetUsageReport(String day) {
+        return Optional.ofNullable(readAnalysisObject("asset-usage-reports/" + day + ".json", new TypeReference<AssetUsageReport>(){}, null));
+    }
+
+    @Override
+    public List<String> readAssetUsageRollupIds(String period) {
+        String prefix = "asset-usage-rollups/" + period + "/";
+        return listAnalysisKeys(prefix).stream()
+                                       .map(key -> key.substring(prefix.length(), key.length() - ".json".length()))
+                                       .toList();
+    }
+
+    @Override
+    public Optional<AssetUsageRollup> readAssetUsageRollup(String period, String id) {
+        return Optional.ofNullable(readAnalysisObject("asset-usage-rollups/" + period + "/" + id + ".json", new TypeReference<AssetUsageRollup>(){}, null));
+    }
+
+    @Override
+    public Optional<byte[]> readAssetUsageIndex() {
+        return readAnalysisBytes("asset-usage-index.bin");
+    }
+
+    @Override
+    public Map<String, LogObjectAggregate> readLogObjectAggregates() {
+        return readAnalysisObject("log-object-aggregates.json", new TypeReference<Map<String, LogObjectAggregate>>(){}, new HashMap<>());
+    }
+
+    @Override
+    public List<String> readLogObjectAggregatePartitions() {
+        return listAnalysisKeys("log-object-aggregates/").stream()
+                                                         .map(key -> key.substring("log-object-aggregates/".length(), key.length() - ".json".length()))
+                                                         .toList();
+    }
+
+    @Override
+    public Map<String, LogObjectAggregate> readLogObjectAggregates(String partition) {
+        return readAnalysisObject("log-object-aggregates/" + partition + ".json", new TypeReference<Map<String, LogObjectAggregate>>(){}, new HashMap<>());
+    }
+
+    @Override
+    public List<String> readFoldedAssetUsageDays() {
+        return listAnalysisKeys("folded-asset-usage/").stream()
+                                                      .map(key -> key.substring("folded-asset-usage/".length(), key.length() - ".json".length()))
+                                                      .toList();
+    }
+
+    @Override
+    public Optional<FoldedAssetUsage> readFoldedAssetUsage(String day) {
+        return Optional.ofNullable(readAnalysisObject("folded-asset-usage/" + day + ".json", new TypeReference<FoldedAssetUsage>(){}, null));
+    }
+
+    @Override
+    public Optional<AssetRequestSketch> readAssetRequestSketch(String day) {
+        return Optional.ofNullable(readAnalysisObject("asset-request-sketches/" + day + ".json", new TypeReference<AssetRequestSketch>(){}, null));
+    }
+
+    @Override
+    public Optional<AssetOriginFetches> readAssetOriginFetches(String day) {
+        return Optional.ofNullable(readAnalysisObject("origin-fetches/" + day + ".json", new TypeReference<AssetOriginFetches>(){}, null));
+    }
+
+    @Override
+    public Optional<byte[]> readTrendingAssets() {
+        return readAnalysisBytes("trending-assets.bin");
+    }
+
+    @Override
+    public Optional<byte[]> readIntradayUsage(String day) {
+        return readAnalysisBytes("intraday-usage/" + day + ".bin");
+    }
+
+    @Override
+    public Optional<byte[]> readReferrerUsage() {
+        return readAnalysisBytes("referrer-usage.bin");
+    }
+
+    @Override
+    public List<String> readAssetDictionary() {
+        return readAnalysisObject("asset-dictionary.json", new TypeReference<List<String>>(){}, new ArrayList<>());
+    }
+
+    @Override
+    public Map<String, byte[]> readAssetUsageBitsets() {
+        return readAnalysisObject("asset-usage-bitsets.json", new TypeReference<Map<String, byte[]>>(){}, new HashMap<>());
+    }
+
+    /**
+     * Reads and parses a document of the analysis state, or gives the default value when it has not been saved yet.
+     * Any other failure is thrown rather than read as a missing document, since the run would otherwise rebuild the
+     * state from nothing and overwrite what was saved.
+     */
+    private <T> T readAnalysisObject(String key, TypeReference<T> type, T defaultValue) {
+        Optional<byte[]> data = readAnalysisBytes(key);
+        if (data.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return objectMapper.readValue(data.get(), type);
+        } catch (IOException e) {
+            logger.error("Error has occurred converting {} into an object", key);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<String> listAnalysisKeys(String prefix) {
+        List<String> keys = new ArrayList<>();
+        String continuationToken = null;
+        try {
+            do {
+                ListObjectsV2Response listObjResponse = s3Client.listObjectsV2(ListObjectsV2Request.builder()
+                                                                                    .bucket(cdnAnalysisBucket)
+                                                                                    .prefix(analysisKeyPrefix + prefix)
+                                                                                    .continuationToken(continuationToken)
+                                                                                    .build());
+                listObjResponse.contents().forEach(s3Object -> keys.add(s3Object.key().substring(analysisKeyPrefix.length())));
+                continuationToken = listObjResponse.nextContinuationToken();
+            } while (continuationToken != null);
+        } catch (NoSuchBucketException e) {
+            logger.error("Bucket {} does not exist", cdnAnalysisBucket);
+            throw e;
+        } catch (SdkClientException | S3Exception e) {
+            logger.error("Error listing objects in bucket {} : {}", cdnAnalysisBucket, e.getMessage());
+            throw e;
+        }
+        return keys;
+    }
+
+    // Only a missing key reads as empty, see readAnalysisObject
+    private Optional<byte[]> readAnalysisBytes(String key) {
         GetObjectRequest objectRequest = GetObjectRequest
             .builder()
-            .key("raw-asset-access-data.json")
+            .key(analysisKeyPrefix + key)
             .bucket(cdnAnalysisBucket)
             .build();
         try{
             ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObject(objectRequest, ResponseTransformer.toBytes());
-            byte[] data = objectBytes.asByteArray();
-
-            assetAccessLogs = objectMapper.readValue(data, new TypeReference<List<AssetAccessLog>>(){});
-
-        } catch (IOException e) {
-            logger.error("Error has occurred converting the data into an object");
+            return Optional.of(objectBytes.asByteArray());
         } catch(NoSuchKeyException e){
             logger.debug("{} doesn't exist so will be created.", objectRequest.key());
+            return Optional.empty();
         } catch(NoSuchBucketException e){
             logger.error("Bucket {} does not exist", cdnAnalysisBucket);
-        } catch(SdkClientException e){
+            throw e;
+        } catch(SdkClientException | S3Exception e){
             logger.error("Error obtaining data from the bucket {}", cdnAnalysisBucket);
+            throw e;
         }
-
-        return assetAccessLogs;
     }
 
-    private S3File processS3File(S3Object content,String bucket) {
-        String filePath = content.key();
-        S3File file = new S3File(filePath, content.lastModified());
-        try (InputStream inputStream = s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(filePath).build());
-             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
-                file.setContent(reader.lines().collect(Collectors.joining(System.lineSeparator())));
+    /**
+     * Deserialises a representative raw data document, so the deserialisers are built and cached before a SnapStart
+     * snapshot.
+     */
+    public void primeDeserialisers() {
+        String sample = "[{\"requestType\":\"GET\",\"asset\":\"priming.js\",\"timestamp\":\"2025-01-01T00:00:00.000Z\",\"statusCode\":200}]";
+        try {
+            objectMapper.readValue(sample, new TypeReference<List<AssetAccessLog>>(){});
         } catch (IOException e) {
-            logger.error("Error reading content from S3 object {} : {}", filePath, e.getMessage());
-            throw new UncheckedIOException(e);
+            logger.warn("Deserialiser priming failed: {}", e.getMessage());
         }
-        return file;
     }
 }
\ No newline at end of file
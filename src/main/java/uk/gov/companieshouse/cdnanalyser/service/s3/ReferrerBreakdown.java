@@ -0,0 +1,319 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsage;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Counts the successful requests of each identified asset by the host of the page that referred them, and by user
+ * agent, to attribute asset load to the web applications that make it. Referrer hosts, user agents and assets repeat
+ * on almost every record, so each is held once in a dictionary and the counts are keyed by a pair of dictionary
+ * indexes packed into a long. The referrer host and user agent dictionaries are capped, and values beyond a cap are
+ * counted as "(other)", so junk headers cannot grow the counts without bound. The counts are saved between runs and
+ * read when the first record is added.
+ *
+ * Not thread safe.
+ */
+public class ReferrerBreakdown {
+
+    static final String NONE = "(none)";
+
+    static final String OTHER = "(other)";
+
+    private static final int VERSION = 1;
+
+    // Longer user agents are cut short, they only differ in the detail
+    private static final int MAX_USER_AGENT_LENGTH = 512;
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final AssetPathTrie assetPathTrie;
+
+    private final String accessLogFilterInPath;
+
+    private final int maxReferrerHosts;
+
+    private final int maxUserAgents;
+
+    private final int topN;
+
+    private Dictionary referrerHosts;
+
+    private Dictionary userAgents;
+
+    private Dictionary assets;
+
+    // Requests and bytes sent keyed by referrer host and asset index
+    private Map<Long, long[]> assetCounts;
+
+    // Requests keyed by referrer host and user agent index
+    private Map<Long, long[]> userAgentCounts;
+
+    private boolean changed;
+
+    /**
+     * @param maxReferrerHosts the referrer hosts counted apart, beyond which they are counted as "(other)"
+     * @param maxUserAgents the user agents counted apart, beyond which they are counted as "(other)"
+     * @param topN the assets and user agents listed for each referrer host
+     */
+    public ReferrerBreakdown(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface, AssetPathTrie assetPathTrie,
+                             String accessLogFilterInPath, int maxReferrerHosts, int maxUserAgents, int topN) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.assetPathTrie = assetPathTrie;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.maxReferrerHosts = maxReferrerHosts;
+        this.maxUserAgents = maxUserAgents;
+        this.topN = topN;
+    }
+
+    public void add(AssetAccessLog assetAccessLog) {
+        if (assetAccessLog.getStatusCode() >= 400) {
+            return;
+        }
+        if (assetCounts == null) {
+            load();
+        }
+        String path = assetAccessLog.getAsset();
+        String asset = assetPathTrie.find(path, path.startsWith(accessLogFilterInPath) ? accessLogFilterInPath.length() : 0);
+        if (asset == null) {
+            return;
+        }
+        String userAgent = assetAccessLog.getUserAgent();
+        if (userAgent != null && userAgent.length() > MAX_USER_AGENT_LENGTH) {
+            userAgent = userAgent.substring(0, MAX_USER_AGENT_LENGTH);
+        }
+        int referrerHost = referrerHosts.indexOf(assetAccessLog.getReferrerHost());
+        long[] assetCount = assetCounts.computeIfAbsent(key(referrerHost, assets.indexOf(asset)), key -> new long[2]);
+        assetCount[0]++;
+        assetCount[1] += assetAccessLog.getBytesSent();
+        userAgentCounts.computeIfAbsent(key(referrerHost, userAgents.indexOf(userAgent)), key -> new long[1])[0]++;
+        changed = true;
+    }
+
+    /**
+     * Whether records have been counted, so there is something to save.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Saves the counts and the report by referrer host.
+     */
+    public ReferrerUsageReport save() {
+        analysisOutputInterface.saveReferrerUsage(toBytes());
+        ReferrerUsageReport report = report();
+        logger.info("Asset requests of {} referrer hosts and {} user agents saved", referrerHosts.size(), userAgents.size());
+        analysisOutputInterface.saveReferrerUsageReport(report);
+        return report;
+    }
+
+    ReferrerUsageReport report() {
+        Map<Integer, ReferrerUsage> referrers = new HashMap<>();
+        Map<Integer, List<long[]>> assetsByReferrer = new HashMap<>();
+        Map<Integer, List<long[]>> userAgentsByReferrer = new HashMap<>();
+        assetCounts.forEach((key, counts) -> {
+            ReferrerUsage referrerUsage = referrers.computeIfAbsent(high(key), this::referrerUsage);
+            referrerUsage.setRequests(referrerUsage.getRequests() + counts[0]);
+            referrerUsage.setBytesSent(referrerUsage.getBytesSent() + counts[1]);
+            assetsByReferrer.computeIfAbsent(high(key), referrer -> new ArrayList<>()).add(new long[] {low(key), counts[0]});
+        });
+        userAgentCounts.forEach((key, counts) ->
+            userAgentsByReferrer.computeIfAbsent(high(key), referrer -> new ArrayList<>()).add(new long[] {low(key), counts[0]}));
+
+        ReferrerUsageReport report = new ReferrerUsageReport();
+        report.setMaxReferrerHosts(maxReferrerHosts);
+        report.setMaxUserAgents(maxUserAgents);
+        referrers.forEach((referrer, referrerUsage) -> {
+            referrerUsage.setAssets(top(assetsByReferrer.get(referrer), assets));
+            referrerUsage.setUserAgents(top(userAgentsByReferrer.getOrDefault(referrer, new ArrayList<>()), userAgents));
+            report.getReferrers().add(referrerUsage);
+            report.setRequests(report.getRequests() + referrerUsage.getRequests());
+        });
+        report.getReferrers().sort(Comparator.comparingLong(ReferrerUsage::getRequests).reversed().thenComparing(ReferrerUsage::getReferrerHost));
+        return report;
+    }
+
+    private ReferrerUsage referrerUsage(int referrer) {
+        ReferrerUsage referrerUsage = new ReferrerUsage();
+        referrerUsage.setReferrerHost(referrerHosts.get(referrer));
+        return referrerUsage;
+    }
+
+    // The most requested of index and count pairs, most first
+    private Map<String, Long> top(List<long[]> counts, Dictionary dictionary) {
+        counts.sort(Comparator.<long[]>comparingLong(count -> count[1]).reversed().thenComparing(count -> dictionary.get((int) count[0])));
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.stream().limit(topN).forEach(count -> top.put(dictionary.get((int) count[0]), count[1]));
+        return top;
+    }
+
+    /**
+     * The dictionaries, each as its size and values, then the asset counts as their referrer host and asset index,
+     * requests and bytes sent, then the user agent counts as their referrer host and user agent index and requests.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(VERSION);
+            for (Dictionary dictionary : List.of(referrerHosts, userAgents, assets)) {
+                output.writeInt(dictionary.size());
+                for (String value : dictionary.values) {
+                    output.writeUTF(value);
+                }
+            }
+            output.writeInt(assetCounts.size());
+            for (Map.Entry<Long, long[]> entry : assetCounts.entrySet()) {
+                output.writeLong(entry.getKey());
+                output.writeLong(entry.getValue()[0]);
+                output.writeLong(entry.getValue()[1]);
+            }
+            output.writeInt(userAgentCounts.size());
+            for (Map.Entry<Long, long[]> entry : userAgentCounts.entrySet()) {
+                output.writeLong(entry.getKey());
+                output.writeLong(entry.getValue()[0]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void load() {
+        reset();
+        Optional<byte[]> saved = analysisInputInterface.readReferrerUsage();
+        if (saved.isEmpty()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(saved.get()))) {
+            if (input.readInt() != VERSION) {
+                logger.info("Saved referrer counts have a different version, counting starts again");
+                return;
+            }
+            // Saved indexes are mapped to the current dictionaries, whose caps may be lower than before
+            int[] savedReferrerHosts = readDictionary(input, referrerHosts);
+            int[] savedUserAgents = readDictionary(input, userAgents);
+            List<String> savedAssets = new ArrayList<>();
+            int assetCount = input.readInt();
+            for (int i = 0; i < assetCount; i++) {
+                savedAssets.add(input.readUTF());
+            }
+            int assetCountEntries = input.readInt();
+            for (int i = 0; i < assetCountEntries; i++) {
+                long key = input.readLong();
+                long requests = input.readLong();
+                long bytesSent = input.readLong();
+                String asset = savedAssets.get(low(key));
+                // Assets no longer in the inventory are dropped
+                if (assetPathTrie.find(asset, 0) != null) {
+                    long[] counts = assetCounts.computeIfAbsent(key(savedReferrerHosts[high(key)], assets.indexOf(asset)), k -> new long[2]);
+                    counts[0] += requests;
+                    counts[1] += bytesSent;
+                }
+            }
+            int userAgentCountEntries = input.readInt();
+            for (int i = 0; i < userAgentCountEntries; i++) {
+                long key = input.readLong();
+                userAgentCounts.computeIfAbsent(key(savedReferrerHosts[high(key)], savedUserAgents[low(key)]), k -> new long[1])[0] += input.readLong();
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            logger.error("Error reading the saved referrer counts, counting starts again: {}", e.getMessage());
+            reset();
+        }
+    }
+
+    private void reset() {
+        referrerHosts = new Dictionary(maxReferrerHosts);
+        userAgents = new Dictionary(maxUserAgents);
+        assets = new Dictionary(Integer.MAX_VALUE);
+        assetCounts = new HashMap<>();
+        userAgentCounts = new HashMap<>();
+    }
+
+    private static int[] readDictionary(DataInputStream input, Dictionary dictionary) throws IOException {
+        int[] indexes = new int[input.readInt()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = dictionary.indexOf(input.readUTF());
+        }
+        return indexes;
+    }
+
+    private static long key(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private static int high(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int low(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Values and their indexes, "(none)" for a missing value at 0 and "(other)" at 1 for those beyond the cap.
+     */
+    private static final class Dictionary {
+
+        private final int cap;
+
+        private final List<String> values = new ArrayList<>();
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private Dictionary(int cap) {
+            this.cap = cap;
+            indexOf(NONE);
+            indexOf(OTHER);
+        }
+
+        private int indexOf(String value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer index = indexes.get(value);
+            if (index != null) {
+                return index;
+            }
+            if (values.size() - 2 >= cap) {
+                return 1;
+            }
+            values.add(value);
+            indexes.put(value, values.size() - 1);
+            return values.size() - 1;
+        }
+
+        private String get(int index) {
+            return values.get(index);
+        }
+
+        private int size() {
+            return values.size();
+        }
+    }
+}
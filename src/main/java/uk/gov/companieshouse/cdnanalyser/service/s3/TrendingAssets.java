@@ -0,0 +1,268 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAsset;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+
+/**
+ * Counts the origin fetches of each identified asset in a ring of fixed time buckets, 5 minutes over 24 hours by
+ * default, and lists the assets whose fetch rate over the recent minutes has risen the most above their rate over the
+ * rest of the window. The window ends at the latest record seen, so records can be added as they arrive, in a batch
+ * or a run at a time, and in any order within the window; older records are not counted. The rings are saved
+ * between runs, read when the first record is added, and only identified assets have one, so their size is bounded
+ * by the asset count.
+ *
+ * Not thread safe.
+ */
+public class TrendingAssets {
+
+    private static final int VERSION = 1;
+
+    // Before any bucket is counted
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
+
+    private final AnalysisInputInterface analysisInputInterface;
+
+    private final AnalysisOutputInterface analysisOutputInterface;
+
+    private final AssetPathTrie assetPathTrie;
+
+    private final String accessLogFilterInPath;
+
+    private final int bucketMinutes;
+
+    private final int buckets;
+
+    private final int recentBuckets;
+
+    private final int topN;
+
+    private Map<String, Ring> rings;
+
+    // The latest bucket of any record, where the window ends
+    private long head = NONE;
+
+    private boolean changed;
+
+    /**
+     * @param recentMinutes the minutes up to the end of the window whose fetch rate is compared with the rest of it
+     */
+    public TrendingAssets(AnalysisInputInterface analysisInputInterface, AnalysisOutputInterface analysisOutputInterface, AssetPathTrie assetPathTrie,
+                          String accessLogFilterInPath, int bucketMinutes, int windowHours, int recentMinutes, int topN) {
+        this.analysisInputInterface = analysisInputInterface;
+        this.analysisOutputInterface = analysisOutputInterface;
+        this.assetPathTrie = assetPathTrie;
+        this.accessLogFilterInPath = accessLogFilterInPath;
+        this.bucketMinutes = bucketMinutes;
+        this.buckets = windowHours * 60 / bucketMinutes;
+        this.recentBuckets = Math.max(1, Math.min(buckets - 1, recentMinutes / bucketMinutes));
+        this.topN = topN;
+    }
+
+    public void add(AssetAccessLog assetAccessLog) {
+        if (assetAccessLog.getStatusCode() >= 400) {
+            return;
+        }
+        if (rings == null) {
+            load();
+        }
+        String path = assetAccessLog.getAsset();
+        String asset = assetPathTrie.find(path, path.startsWith(accessLogFilterInPath) ? accessLogFilterInPath.length() : 0);
+        if (asset == null) {
+            return;
+        }
+        long bucket = Math.floorDiv(assetAccessLog.getTimestamp().getEpochSecond(), bucketMinutes * 60L);
+        if (head != NONE && bucket <= head - buckets) {
+            return;
+        }
+        head = Math.max(head, bucket);
+        rings.computeIfAbsent(asset, key -> new Ring(buckets)).add(bucket);
+        changed = true;
+    }
+
+    /**
+     * Whether records have been counted, so there is something to save.
+     */
+    public boolean isChanged() {
+        return changed;
+    }
+
+    /**
+     * Saves the rings and the pre-warm list.
+     */
+    public TrendingAssetsReport save() {
+        analysisOutputInterface.saveTrendingAssets(toBytes());
+        TrendingAssetsReport report = report();
+        logger.info("{} of {} assets counted are trending", report.getAssets().size(), rings.size());
+        analysisOutputInterface.saveTrendingAssetsReport(report);
+        return report;
+    }
+
+    TrendingAssetsReport report() {
+        double recentHours = recentBuckets * bucketMinutes / 60.0;
+        double earlierHours = (buckets - recentBuckets) * bucketMinutes / 60.0;
+        TrendingAssetsReport report = new TrendingAssetsReport();
+        report.setFrom(Instant.ofEpochSecond((head - buckets + 1) * bucketMinutes * 60L).toString());
+        report.setTo(Instant.ofEpochSecond((head + 1) * bucketMinutes * 60L).toString());
+        report.setRecentMinutes(recentBuckets * bucketMinutes);
+        rings.forEach((asset, ring) -> {
+            long recent = ring.sum(head - recentBuckets + 1, head);
+            if (recent == 0) {
+                return;
+            }
+            long earlier = ring.sum(head - buckets + 1, head - recentBuckets);
+            TrendingAsset trendingAsset = new TrendingAsset();
+            trendingAsset.setAsset(asset);
+            trendingAsset.setRecentFetchesPerHour(recent / recentHours);
+            trendingAsset.setEarlierFetchesPerHour(earlier / earlierHours);
+            trendingAsset.setRise(trendingAsset.getRecentFetchesPerHour() - trendingAsset.getEarlierFetchesPerHour());
+            trendingAsset.setFingerprinted(Util.isFingerprinted(asset));
+            if (trendingAsset.getRise() > 0) {
+                report.getAssets().add(trendingAsset);
+            }
+        });
+        report.getAssets().sort(Comparator.comparingDouble(TrendingAsset::getRise).reversed().thenComparing(TrendingAsset::getAsset));
+        if (report.getAssets().size() > topN) {
+            report.setAssets(new ArrayList<>(report.getAssets().subList(0, topN)));
+        }
+        return report;
+    }
+
+    /**
+     * The rings with a count in the window: a version, the bucket minutes and count, the head, the number of rings,
+     * then each ring's asset, latest bucket and its counts that are not zero as slot and count pairs.
+     */
+    byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            Map<String, Ring> current = new HashMap<>();
+            rings.forEach((asset, ring) -> {
+                if (ring.latest > head - buckets) {
+                    current.put(asset, ring);
+                }
+            });
+            output.writeInt(VERSION);
+            output.writeInt(bucketMinutes);
+            output.writeInt(buckets);
+            output.writeLong(head);
+            output.writeInt(current.size());
+            for (Map.Entry<String, Ring> entry : current.entrySet()) {
+                Ring ring = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeLong(ring.latest);
+                int counted = 0;
+                for (int count : ring.counts) {
+                    counted += count == 0 ? 0 : 1;
+                }
+                output.writeShort(counted);
+                for (int slot = 0; slot < buckets; slot++) {
+                    if (ring.counts[slot] != 0) {
+                        output.writeShort(slot);
+                        output.writeInt(ring.counts[slot]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void load() {
+        rings = new HashMap<>();
+        Optional<byte[]> saved = analysisInputInterface.readTrendingAssets();
+        if (saved.isEmpty()) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(saved.get()))) {
+            int version = input.readInt();
+            if (version != VERSION || input.readInt() != bucketMinutes || input.readInt() != buckets) {
+                logger.info("Saved trending asset counts have a different version or window, counting starts again");
+                return;
+            }
+            head = input.readLong();
+            int ringCount = input.readInt();
+            for (int i = 0; i < ringCount; i++) {
+                String asset = input.readUTF();
+                Ring ring = new Ring(buckets);
+                ring.latest = input.readLong();
+                int counted = input.readUnsignedShort();
+                for (int j = 0; j < counted; j++) {
+                    ring.counts[input.readUnsignedShort()] = input.readInt();
+                }
+                // Assets no longer in the inventory are dropped
+                if (assetPathTrie.find(asset, 0) != null) {
+                    rings.put(asset, ring);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error reading the saved trending asset counts, counting starts again: {}", e.getMessage());
+            rings.clear();
+            head = NONE;
+        }
+    }
+
+    /**
+     * Counts in the slots of the buckets up to the latest one counted, a slot being reused once its bucket has left
+     * the window.
+     */
+    private static final class Ring {
+
+        private final int[] counts;
+
+        private long latest = NONE;
+
+        private Ring(int buckets) {
+            counts = new int[buckets];
+        }
+
+        private void add(long bucket) {
+            if (latest != NONE && bucket <= latest - counts.length) {
+                return;
+            }
+            if (latest == NONE || bucket > latest) {
+                // The slots of the buckets skipped over held counts from before the window
+                long from = latest == NONE ? bucket : Math.max(latest + 1, bucket - counts.length + 1);
+                for (long b = from; b <= bucket; b++) {
+                    counts[slot(b)] = 0;
+                }
+                latest = bucket;
+            }
+            counts[slot(bucket)]++;
+        }
+
+        private long sum(long from, long to) {
+            long sum = 0;
+            for (long b = Math.max(from, latest - counts.length + 1); b <= Math.min(to, latest); b++) {
+                sum += counts[slot(b)];
+            }
+            return sum;
+        }
+
+        private int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) counts.length);
+        }
+    }
+}
@@ -3,26 +3,51 @@ package uk.gov.companieshouse.cdnanalyser.service.s3;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.ApproximateAssetUsageReport;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetOriginFetches;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestSketch;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRollup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
 
 @Service
@@ -32,15 +57,29 @@ import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterf
 
     private final String cdnAnalysisBucket;
 
+    // Where this environment's analysis is kept in the analysis bucket, empty when there is only one environment
+    private final String analysisKeyPrefix;
+
     private static final Logger logger = LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE);
 
     private final ObjectMapper objectMapper = new ObjectMapper()
                                                         .registerModule(new JavaTimeModule())
                                                         .enable(SerializationFeature.INDENT_OUTPUT);
 
+    @Autowired
     public WriterService(S3Client s3Client, @Value("${cdn.analysis.bucket}") String cdnAnalysisBucket) {
+        this(s3Client, cdnAnalysisBucket, "");
+    }
+
+    private WriterService(S3Client s3Client, String cdnAnalysisBucket, String analysisKeyPrefix) {
         this.s3Client = s3Client;
         this.cdnAnalysisBucket = cdnAnalysisBucket;
+        this.analysisKeyPrefix = analysisKeyPrefix;
+    }
+
+    @Override
+    public WriterService forEnvironment(String environment) {
+        return new WriterService(s3Client, cdnAnalysisBucket, analysisKeyPrefix + environment);
     }
 
     @Override
@@ -48,7 +87,7 @@ import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterf
 
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
             .bucket(cdnAnalysisBucket)
-            .key("failed-asset-requests.json")
+            .key(analysisKeyPrefix + "failed-asset-requests.json")
             .build();
 
         String failedAssetRequests = assetAccessLogsWithErrors.stream()
@@ -71,20 +110,70 @@ import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterf
     }
 
     @Override
-    public void saveRawData(Set<AssetAccessLog> assetAccessLogs) {
+    public void deleteFailedAssetRequests() {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                                                 .bucket(cdnAnalysisBucket)
+                                                 .key(analysisKeyPrefix + "failed-asset-requests.json")
+                                                 .build());
+    }
+
+    @Override
+    public void saveRawData(String day, Collection<AssetAccessLog> assetAccessLogs) {
+        // Each run adds its own object to the day's partition, so existing records are never read back to append
+        saveJson("raw-asset-access-data/" + day + "/" + Instant.now() + ".json", assetAccessLogs, objectMapper.writer());
+    }
+
+    @Override
+    public void saveDeduplicationFilter(String day, byte[] filter) {
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-            .bucket(cdnAnalysisBucket)
-            .key("raw-asset-access-data.json")
-            .build();
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + "dedup-filters/" + day + ".bin")
+                                                            .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(filter));
+    }
 
-        String assetRequests;
-        try {
-            assetRequests = objectMapper.writeValueAsString(assetAccessLogs);
-            s3Client.putObject(putObjectRequest,RequestBody.fromByteBuffer(ByteBuffer.wrap(assetRequests.getBytes(StandardCharsets.UTF_8))));
-        } catch (JsonProcessingException e) {
-            logger.error("Error has occurred while converting assetAccessLogs to JSON: {}", e.getMessage());
-        }
+    @Override
+    public void saveAssetUsageIndex(byte[] assetUsageIndex) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + "asset-usage-index.bin")
+                                                            .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(assetUsageIndex));
+    }
 
+    @Override
+    public void saveTrendingAssets(byte[] trendingAssets) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + "trending-assets.bin")
+                                                            .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(trendingAssets));
+    }
+
+    @Override
+    public void saveIntradayUsage(String day, byte[] intradayUsage) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + "intraday-usage/" + day + ".bin")
+                                                            .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(intradayUsage));
+    }
+
+    @Override
+    public void saveReferrerUsage(byte[] referrerUsage) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + "referrer-usage.bin")
+                                                            .build();
+        s3Client.putObject(putObjectRequest, RequestBody.fromBytes(referrerUsage));
+    }
+
+    @Override
+    public void deleteLegacyRawData() {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                                                 .bucket(cdnAnalysisBucket)
+                                                 .key(analysisKeyPrefix + "raw-asset-access-data.json")
+                                                 .build());
     }
 
     @Override
@@ -92,7 +181,7 @@ import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterf
 
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                                                             .bucket(cdnAnalysisBucket)
-                                                            .key("successful-asset-requests.json")
+                                                            .key(analysisKeyPrefix + "successful-asset-requests.json")
                                                             .build();
 
         String json;
@@ -103,4 +192,157 @@ import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterf
             logger.error("Failed to save asset usage total report S3 bucket {}", e.getMessage());
         }
     }
+
+    @Override
+    public void saveAssetUsageReport(AssetUsageReport dailyAssetUsageReport) {
+        // Rewritten whenever new logs touch the day, so not indented
+        saveJson("asset-usage-reports/" + dailyAssetUsageReport.getId() + ".json", dailyAssetUsageReport, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void saveAssetUsageRollup(String period, AssetUsageRollup assetUsageRollup) {
+        saveJson("asset-usage-rollups/" + period + "/" + assetUsageRollup.getId() + ".json", assetUsageRollup, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void saveAssetUsageRanking(AssetUsageRanking assetUsageRanking) {
+        saveJson("asset-usage-ranking.json", assetUsageRanking, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetDictionary(List<String> assetDictionary) {
+        saveJson("asset-dictionary.json", assetDictionary, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetUsageBitsets(Map<String, byte[]> assetUsageBitsets) {
+        saveJson("asset-usage-bitsets.json", assetUsageBitsets, objectMapper.writer());
+    }
+
+    @Override
+    public void saveUnusedAssets(UnusedAssetsReport unusedAssetsReport) {
+        saveJson("unused-assets.json", unusedAssetsReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetFolderUsage(AssetFolderUsageReport assetFolderUsageReport) {
+        saveJson("asset-folder-usage.json", assetFolderUsageReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveFailedAssetRequestTotals(List<AssetRequestFailureReport> assetRequestFailureReports) {
+        saveJson("failed-asset-request-totals.json", assetRequestFailureReports, objectMapper.writer());
+    }
+
+    @Override
+    public void saveLogObjectAggregates(String partition, Map<String, LogObjectAggregate> logObjectAggregates) {
+        // Rewritten whenever a new log object is read, so not indented
+        saveJson("log-object-aggregates/" + partition + ".json", logObjectAggregates, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void deleteLogObjectAggregates(String partition) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                                                 .bucket(cdnAnalysisBucket)
+                                                 .key(analysisKeyPrefix + "log-object-aggregates/" + partition + ".json")
+                                                 .build());
+    }
+
+    @Override
+    public void deleteLegacyLogObjectAggregates() {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                                                 .bucket(cdnAnalysisBucket)
+                                                 .key(analysisKeyPrefix + "log-object-aggregates.json")
+                                                 .build());
+    }
+
+    @Override
+    public void saveFoldedAssetUsage(FoldedAssetUsage foldedAssetUsage) {
+        saveJson("folded-asset-usage/" + foldedAssetUsage.getId() + ".json", foldedAssetUsage, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetRequestSketch(AssetRequestSketch assetRequestSketch) {
+        saveJson("asset-request-sketches/" + assetRequestSketch.getId() + ".json", assetRequestSketch, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void saveApproximateAssetRequests(ApproximateAssetUsageReport approximateAssetUsageReport) {
+        saveJson("approximate-asset-requests.json", approximateAssetUsageReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetOriginFetches(AssetOriginFetches assetOriginFetches) {
+        saveJson("origin-fetches/" + assetOriginFetches.getId() + ".json", assetOriginFetches, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void saveOriginFetchReport(OriginFetchReport originFetchReport) {
+        saveJson("origin-fetch-report.json", originFetchReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetBandwidthReport(AssetBandwidthReport assetBandwidthReport) {
+        saveJson("asset-bandwidth-report.json", assetBandwidthReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveOriginLatencyReport(OriginLatencyReport originLatencyReport) {
+        saveJson("origin-latency-report.json", originLatencyReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetMetadata(Map<String, AssetMetadata> assetMetadata) {
+        saveJson("asset-metadata.json", assetMetadata, objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT));
+    }
+
+    @Override
+    public void saveAssetPayloadReport(AssetPayloadReport assetPayloadReport) {
+        saveJson("asset-payload-report.json", assetPayloadReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveAssetVersionReport(AssetVersionReport assetVersionReport) {
+        saveJson("asset-version-report.json", assetVersionReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveTrendingAssetsReport(TrendingAssetsReport trendingAssetsReport) {
+        saveJson("asset-prewarm-list.json", trendingAssetsReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveIntradayUsageReport(IntradayUsageReport intradayUsageReport) {
+        saveJson("intraday-usage-report.json", intradayUsageReport, objectMapper.writer());
+    }
+
+    @Override
+    public void saveReferrerUsageReport(ReferrerUsageReport referrerUsageReport) {
+        saveJson("referrer-usage-report.json", referrerUsageReport, objectMapper.writer());
+    }
+
+    private void saveJson(String key, Object value, ObjectWriter objectWriter) {
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                                                            .bucket(cdnAnalysisBucket)
+                                                            .key(analysisKeyPrefix + key)
+                                                            .build();
+        try {
+            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(objectWriter.writeValueAsBytes(value)));
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to save {} to S3 bucket {} : {}", key, cdnAnalysisBucket, e.getMessage());
+        }
+    }
+
+    /**
+     * Serialises representative objects, so the serialisers are built and cached before a SnapStart snapshot.
+     */
+    public void primeSerialisers(AssetAccessLog assetAccessLog) {
+        AssetAccessLog sample = assetAccessLog != null ? assetAccessLog : new AssetAccessLog();
+        try {
+            objectMapper.writeValueAsBytes(Set.of(sample));
+            objectMapper.writeValueAsBytes(new AssetUsageReport(Instant.EPOCH, Map.of("priming.js", 1)));
+        } catch (JsonProcessingException e) {
+            logger.warn("Serialiser priming failed: {}", e.getMessage());
+        }
+    }
 }
\ No newline at end of file
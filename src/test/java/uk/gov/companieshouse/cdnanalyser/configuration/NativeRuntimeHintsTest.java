@@ -0,0 +1,39 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+
+// The models package is listed from the class output directory, which does not exist inside a native image.
+@DisabledInNativeImage
+class NativeRuntimeHintsTest {
+
+    @Test
+    void registersEveryModel() throws URISyntaxException {
+        String modelsPackage = AssetAccessLog.class.getPackageName();
+        URL directory = getClass().getClassLoader().getResource(modelsPackage.replace('.', '/'));
+        assertNotNull(directory);
+
+        Set<String> models = Arrays.stream(new File(directory.toURI()).list())
+                .filter(name -> name.endsWith(".class") && !name.contains("$"))
+                .map(name -> modelsPackage + "." + name.substring(0, name.length() - ".class".length()))
+                .collect(Collectors.toCollection(TreeSet::new));
+        Set<String> registered = NativeRuntimeHints.MODELS.stream()
+                .map(Class::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        assertEquals(models, registered);
+    }
+}
@@ -4,6 +4,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Optional;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
@@ -13,6 +14,7 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
 
 @TestConfiguration
 public class S3ClientConfigTest {
@@ -36,6 +38,13 @@ public class S3ClientConfigTest {
                 .build();
     }
 
+    @Primary
+    @Bean(name = "localstack.limited.s3.client", defaultCandidate = false)
+    @Qualifier(ReaderService.LIMITED_S3_CLIENT)
+    public S3Client limitedS3Client() throws URISyntaxException {
+        return s3Client();
+    }
+
     private StaticCredentialsProvider getCredentialsProvider() {
         return StaticCredentialsProvider.create(AwsBasicCredentials.create(
                 "test",
@@ -0,0 +1,79 @@
+package uk.gov.companieshouse.cdnanalyser.configuration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.springframework.cloud.function.context.FunctionCatalog;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.WriterService;
+
+// Mockito cannot generate mocks inside a native image.
+@DisabledInNativeImage
+class SnapStartPrimingTest {
+
+    private S3Client s3Client;
+
+    private S3Client limitedS3Client;
+
+    private ReaderService readerService;
+
+    private WriterService writerService;
+
+    private FunctionCatalog functionCatalog;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = mock(S3Client.class);
+        limitedS3Client = mock(S3Client.class);
+        readerService = mock(ReaderService.class);
+        writerService = mock(WriterService.class);
+        functionCatalog = mock(FunctionCatalog.class);
+    }
+
+    @Test
+    void beforeCheckpointPrimesParserSerialisersClientAndFunction() {
+        SnapStartPriming snapStartPriming = new SnapStartPriming(s3Client, limitedS3Client, readerService, writerService, functionCatalog, "analysis", "cidev/", true);
+
+        snapStartPriming.beforeCheckpoint(null);
+
+        verify(writerService).primeSerialisers(any(AssetAccessLog.class));
+        verify(readerService).primeDeserialisers();
+        verify(s3Client).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(limitedS3Client).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(functionCatalog).lookup("processRequest");
+    }
+
+    @Test
+    void afterRestoreReconnectsAndToleratesS3Failures() {
+        when(s3Client.listObjectsV2(any(ListObjectsV2Request.class))).thenThrow(SdkClientException.create("no connection"));
+        SnapStartPriming snapStartPriming = new SnapStartPriming(s3Client, limitedS3Client, readerService, writerService, functionCatalog, "analysis", "cidev/", true);
+
+        assertDoesNotThrow(() -> snapStartPriming.afterRestore(null));
+
+        verify(s3Client, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+        verify(limitedS3Client, times(1)).listObjectsV2(any(ListObjectsV2Request.class));
+    }
+
+    @Test
+    void primingCanBeDisabled() {
+        SnapStartPriming snapStartPriming = new SnapStartPriming(s3Client, limitedS3Client, readerService, writerService, functionCatalog, "analysis", "cidev/", false);
+
+        snapStartPriming.beforeCheckpoint(null);
+        snapStartPriming.afterRestore(null);
+
+        verifyNoInteractions(s3Client, limitedS3Client, readerService, writerService, functionCatalog);
+    }
+}
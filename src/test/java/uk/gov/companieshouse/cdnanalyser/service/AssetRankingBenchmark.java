@@ -0,0 +1,103 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageRanking;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+
+/**
+ * Compares merging the daily reports into fully sorted totals with merging them unsorted and ranking the top
+ * assets and unused assets with {@link Util#rankAssetRequestTotals(Map, List, int)}.
+ *
+ * Not picked up by the default surefire includes, run it with {@code make benchmark-ranking} or
+ * {@code mvn test -Dtest=AssetRankingBenchmark -Dbenchmark.assets=10000,100000,1000000}.
+ */
+@Tag("benchmark")
+class AssetRankingBenchmark {
+
+    private static final int DAYS = 7;
+
+    private static final int TOP_N = 50;
+
+    private static final int RUNS = 7;
+
+    @Test
+    void rankingAgainstFullSort() {
+        List<String> results = new ArrayList<>();
+        for (int assetCount : assetCounts()) {
+            results.add(run(assetCount));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%12s %16s %16s %14s %14s %10s", "assets", "merge+sort ms", "merge+rank ms", "sort ms", "rank ms", "speedup"));
+        results.forEach(System.out::println);
+    }
+
+    private String run(int assetCount) {
+        List<String> assets = new ArrayList<>(assetCount);
+        for (int i = 0; i < assetCount; i++) {
+            assets.add("javascripts/app/asset-" + i + ".js");
+        }
+        // Skewed daily counts, with most assets not requested on a given day and many never requested
+        SplittableRandom random = new SplittableRandom(assetCount);
+        List<AssetUsageReport> dailyReports = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            Map<String, Integer> counts = new HashMap<>();
+            for (String asset : assets) {
+                counts.put(asset, random.nextInt(10) < 2 ? (int) (1_000 / (1 + random.nextInt(1_000))) : 0);
+            }
+            dailyReports.add(new AssetUsageReport("day-" + day, counts));
+        }
+
+        double mergeAndSortMillis = medianMillis(() -> Util.calculateAssetRequestTotals(dailyReports, true));
+        double mergeAndRankMillis = medianMillis(() -> Util.rankAssetRequestTotals(
+            Util.calculateAssetRequestTotals(dailyReports, false).getAssetAccessCount(), assets, TOP_N));
+
+        // The ranking stages alone, from totals already merged
+        List<AssetUsageReport> totals = List.of(Util.calculateAssetRequestTotals(dailyReports, false));
+        Map<String, Integer> totalCounts = totals.get(0).getAssetAccessCount();
+        double sortMillis = medianMillis(() -> Util.calculateAssetRequestTotals(totals, true))
+                            - medianMillis(() -> Util.calculateAssetRequestTotals(totals, false));
+        double rankMillis = medianMillis(() -> Util.rankAssetRequestTotals(totalCounts, assets, TOP_N));
+
+        AssetUsageReport sorted = Util.calculateAssetRequestTotals(dailyReports, true);
+        AssetUsageRanking ranking = Util.rankAssetRequestTotals(sorted.getAssetAccessCount(), assets, TOP_N);
+        assertEquals(sorted.getAssetAccessCount().values().stream().limit(TOP_N).toList(), new ArrayList<>(ranking.getTopAssets().values()));
+
+        return String.format("%12d %16.1f %16.1f %14.1f %14.1f %10.1f", assetCount, mergeAndSortMillis, mergeAndRankMillis, sortMillis, rankMillis,
+                             sortMillis / rankMillis);
+    }
+
+    private static double medianMillis(Supplier<Object> task) {
+        // The first runs warm up the JIT
+        for (int i = 0; i < 2; i++) {
+            task.get();
+        }
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            task.get();
+            millis[i] = (System.nanoTime() - start) / 1_000_000d;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static List<Integer> assetCounts() {
+        return Arrays.stream(System.getProperty("benchmark.assets", "10000,100000,1000000").split(","))
+                     .map(String::trim)
+                     .map(Integer::valueOf)
+                     .toList();
+    }
+}
@@ -0,0 +1,58 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class CountMinSketchTest {
+
+    @Test
+    void estimatesNeverUndercountAndStayWithinTheErrorBound() {
+        CountMinSketch sketch = new CountMinSketch(1024, 5);
+        Map<String, Long> trueCounts = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100_000; i++) {
+            // A few popular assets among many junk paths
+            String item = random.nextInt(10) < 7 ? "asset" + random.nextInt(20) : "junk/" + random.nextInt(50_000);
+            sketch.add(item, 1);
+            trueCounts.merge(item, 1L, Long::sum);
+        }
+
+        trueCounts.forEach((item, count) -> {
+            long estimate = sketch.estimate(item);
+            assertTrue(estimate >= count);
+            assertTrue(estimate - count <= sketch.errorBound(), item + " estimated " + estimate + " for " + count);
+        });
+        assertEquals(100_000, sketch.getTotal());
+    }
+
+    @Test
+    void mergedSketchesCountBothStreams() {
+        CountMinSketch first = new CountMinSketch(256, 4);
+        CountMinSketch second = new CountMinSketch(256, 4);
+        first.add("file1.js", 3);
+        second.add("file1.js", 4);
+        second.add("file2.js", 1);
+
+        first.merge(second);
+
+        assertEquals(7, first.estimate("file1.js"));
+        assertEquals(1, first.estimate("file2.js"));
+        assertEquals(8, first.getTotal());
+        CountMinSketch restored = new CountMinSketch(256, 4, first.getCounts().clone(), first.getTotal());
+        assertEquals(7, restored.estimate("file1.js"));
+    }
+
+    @Test
+    void sketchesOfDifferentDimensionsDoNotMerge() {
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+        CountMinSketch other = new CountMinSketch(512, 4);
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(other));
+    }
+}
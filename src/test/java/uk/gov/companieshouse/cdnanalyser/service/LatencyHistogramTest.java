@@ -0,0 +1,63 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueInOrder() {
+        assertEquals(0, LatencyHistogram.bucket(0));
+        assertEquals(31, LatencyHistogram.bucket(31));
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucket(Integer.MAX_VALUE));
+        for (long value = 1; value < 100_000; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(bucket - LatencyHistogram.bucket(value - 1) <= 1);
+            assertTrue(LatencyHistogram.lowestValue(bucket) <= value && value - LatencyHistogram.lowestValue(bucket) <= value / 16);
+        }
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < values.length; i++) {
+            // Mostly fast, with a long tail
+            values[i] = random.nextInt(100) < 95 ? 5 + random.nextInt(60) : 200 + random.nextInt(5_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double fraction : new double[] {0.5, 0.95, 0.99}) {
+            long exact = values[(int) Math.ceil(fraction * values.length) - 1];
+            long estimate = histogram.percentile(fraction);
+            assertTrue(Math.abs(estimate - exact) <= exact / 16 + 1, fraction + " estimated " + estimate + " for " + exact);
+        }
+        assertEquals(100_000, histogram.getCount());
+    }
+
+    @Test
+    void savedAndMergedHistogramsCountBothStreams() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        for (int i = 1; i <= 50; i++) {
+            first.record(i);
+            second.record(1_000 + i);
+        }
+        assertEquals(LatencyHistogram.bucket(50) + 1, first.getCounts().length);
+        first.merge(new LatencyHistogram(second.getCounts()));
+
+        assertEquals(100, first.getCount());
+        assertEquals(50, first.percentile(0.5));
+        assertTrue(first.percentile(0.99) >= 1_000);
+        assertEquals(0, new LatencyHistogram().percentile(0.5));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(new int[LatencyHistogram.BUCKETS + 1]));
+    }
+}
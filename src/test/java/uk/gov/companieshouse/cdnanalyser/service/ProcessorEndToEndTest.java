@@ -0,0 +1,476 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.AnalysisProperties;
+import uk.gov.companieshouse.cdnanalyser.models.ApproximateAssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidth;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageQuery;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FolderUsage;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageQueryService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.Processor;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.WriterService;
+import uk.gov.companieshouse.cdnanalyser.support.AccessLogGenerator;
+import uk.gov.companieshouse.cdnanalyser.support.InMemoryS3Client;
+import uk.gov.companieshouse.cdnanalyser.support.TestProperties;
+
+class ProcessorEndToEndTest {
+
+    private static final String ASSET_BUCKET = "cdn-assets";
+
+    private static final String ACCESS_LOG_BUCKET = "cdn-access-logs";
+
+    private static final String ANALYSIS_BUCKET = "cdn-analysis-logs";
+
+    private InMemoryS3Client s3Client;
+
+    private AccessLogGenerator generator;
+
+    private Processor processor;
+
+    private ReaderService readerService;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = new InMemoryS3Client();
+        s3Client.createBucket(ANALYSIS_BUCKET);
+        generator = new AccessLogGenerator()
+                            .withAssets(40)
+                            .withDays(3)
+                            .withLinesPerObject(250)
+                            .withMalformedRatio(0.05);
+        generator.writeAssets(s3Client, ASSET_BUCKET);
+
+        readerService = new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, "cidev/", "", ANALYSIS_BUCKET, TestProperties.reader());
+        WriterService writerService = new WriterService(s3Client, ANALYSIS_BUCKET);
+        processor = new Processor(readerService, writerService, "cidev/", analysis(Map.of()));
+    }
+
+    private static AnalysisProperties analysis(Map<String, String> overrides) {
+        Map<String, String> properties = new HashMap<>(overrides);
+        // The generated logs are dated 2024, so their aggregates are kept rather than folded unless a test says otherwise
+        properties.putIfAbsent("aggregates.retention.days", "36500");
+        return TestProperties.analysis(properties);
+    }
+
+    @Test
+    void handleAssetsProducesReportsFromGeneratedLogs() throws IOException {
+        // Recent enough for the failed requests to be kept
+        assertEquals(12, generator.withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS))
+                                  .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000));
+
+        processor.handleAssets();
+
+        List<String> outputs = s3Client.keys(ANALYSIS_BUCKET);
+        assertTrue(outputs.stream().anyMatch(key -> key.startsWith("raw-asset-access-data/")));
+        assertTrue(outputs.stream().anyMatch(key -> key.startsWith("dedup-filters/")));
+        assertTrue(outputs.contains("failed-asset-requests.json"));
+        assertTrue(outputs.contains("failed-asset-request-totals.json"));
+        assertTrue(outputs.contains("successful-asset-requests.json"));
+        assertTrue(outputs.contains("asset-usage-ranking.json"));
+
+        AssetUsageReport total = new ObjectMapper().readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class);
+        Map<String, Integer> counts = total.getAssetAccessCount();
+        assertEquals(40, counts.size());
+        int requests = counts.values().stream().mapToInt(Integer::intValue).sum();
+        assertTrue(requests > 0 && requests < 3_000);
+    }
+
+    @Test
+    void rerunReusesLogObjectAggregatesInsteadOfReadingLogs() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        byte[] firstTotal = s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json");
+        long getRequests = s3Client.getGetRequests();
+        long headRequests = s3Client.getHeadRequests();
+
+        processor.handleAssets();
+
+        // Only the three days of log object aggregates, the legacy aggregates and raw data (both now absent), the failed
+        // requests to expire, the asset dictionary, usage index, usage bitsets and asset metadata are read, none of the
+        // 12 log objects, no raw data partitions, no daily reports and not the total, which is summed from the index
+        assertEquals(10, s3Client.getGetRequests() - getRequests);
+        // The assets are unchanged, so their headers are not requested again
+        assertEquals(0, s3Client.getHeadRequests() - headRequests);
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().anyMatch(key -> key.startsWith("log-object-aggregates/")));
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.readValue(firstTotal, AssetUsageReport.class).getAssetAccessCount(),
+                     objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount());
+    }
+
+    @Test
+    void rerunAfterStoppingBeforeTheAggregatesWereSavedCountsEachRequestOnce() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        byte[] firstTotal = s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json");
+        String day = s3Client.keys(ANALYSIS_BUCKET).stream().filter(key -> key.startsWith("asset-usage-reports/")).findFirst().orElseThrow();
+        byte[] firstDailyReport = s3Client.getObjectContent(ANALYSIS_BUCKET, day);
+
+        // As if the run had stopped after saving the reports, so the next run reads every log object again
+        s3Client.keys(ANALYSIS_BUCKET).stream()
+                .filter(key -> key.startsWith("log-object-aggregates/"))
+                .forEach(key -> s3Client.deleteObject(DeleteObjectRequest.builder().bucket(ANALYSIS_BUCKET).key(key).build()));
+        processor.handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.readValue(firstTotal, AssetUsageReport.class).getAssetAccessCount(),
+                     objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount());
+        assertEquals(objectMapper.readValue(firstDailyReport, AssetUsageReport.class).getAssetAccessCount(),
+                     objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, day), AssetUsageReport.class).getAssetAccessCount());
+    }
+
+    @Test
+    void migratingRawDataSavedWithoutRequestIdsCountsEachRequestOnce() throws IOException {
+        generator.withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS))
+                 .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        byte[] firstTotal = s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json");
+        int firstFailures = readerService.readFailedAssetRequestTotals().stream().mapToInt(AssetRequestFailureReport::getFailureCount).sum();
+
+        // The same records as saved before request IDs were parsed, in the raw data before it was partitioned, and
+        // nothing else, so the next run reads every log object again
+        Set<AssetAccessLog> legacyRawData = new LinkedHashSet<>();
+        List<String> rawDataKeys = s3Client.keys(ANALYSIS_BUCKET).stream().filter(key -> key.startsWith("raw-asset-access-data/")).toList();
+        rawDataKeys.stream()
+                   .map(key -> key.substring("raw-asset-access-data/".length(), key.lastIndexOf('/')))
+                   .distinct()
+                   .flatMap(day -> readerService.readRawAssetAccessLogs(day).stream())
+                   .forEach(assetAccessLog -> {
+                       assetAccessLog.setRequestId(null);
+                       legacyRawData.add(assetAccessLog);
+                   });
+        s3Client.keys(ANALYSIS_BUCKET)
+                .forEach(key -> s3Client.deleteObject(DeleteObjectRequest.builder().bucket(ANALYSIS_BUCKET).key(key).build()));
+        s3Client.putObject(ANALYSIS_BUCKET, "raw-asset-access-data.json", new ObjectMapper().registerModule(new JavaTimeModule()).writeValueAsBytes(legacyRawData));
+
+        processor.handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        assertEquals(objectMapper.readValue(firstTotal, AssetUsageReport.class).getAssetAccessCount(),
+                     objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount());
+        // Each saved record claims the requests read again with its identity, so none is added to the raw data twice
+        List<AssetAccessLog> rawData = s3Client.keys(ANALYSIS_BUCKET).stream()
+                                               .filter(key -> key.startsWith("raw-asset-access-data/"))
+                                               .map(key -> key.substring("raw-asset-access-data/".length(), key.lastIndexOf('/')))
+                                               .distinct()
+                                               .flatMap(day -> readerService.readRawAssetAccessLogs(day).stream())
+                                               .toList();
+        assertEquals(legacyRawData.size(), rawData.size());
+        assertTrue(rawData.stream().allMatch(assetAccessLog -> assetAccessLog.getRequestId() == null));
+        int failures = readerService.readFailedAssetRequestTotals().stream().mapToInt(AssetRequestFailureReport::getFailureCount).sum();
+        assertTrue(failures > 0 && failures <= firstFailures);
+        assertEquals(legacyRawData.stream().filter(assetAccessLog -> assetAccessLog.getStatusCode() >= 400).count(), failures);
+    }
+
+    @Test
+    void expiredAggregatesAreFoldedWithoutChangingTheReports() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Map<String, Integer>> firstReports = new HashMap<>();
+        for (String key : s3Client.keys(ANALYSIS_BUCKET)) {
+            if (key.startsWith("asset-usage-reports/")) {
+                firstReports.put(key, objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, key), AssetUsageReport.class).getAssetAccessCount());
+            }
+        }
+
+        // The default retention window ends long after the logs were written, so every partition is folded
+        Processor foldingProcessor = new Processor(readerService, new WriterService(s3Client, ANALYSIS_BUCKET), "cidev/", TestProperties.analysis());
+        foldingProcessor.handleAssets();
+
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().noneMatch(key -> key.startsWith("log-object-aggregates/")));
+        assertEquals(3, s3Client.keys(ANALYSIS_BUCKET).stream().filter(key -> key.startsWith("folded-asset-usage/")).count());
+
+        // Without an index every daily report is rebuilt, the folded days from their folded usage alone, and the folded
+        // log objects are not read again
+        s3Client.deleteObject(DeleteObjectRequest.builder().bucket(ANALYSIS_BUCKET).key("asset-usage-index.bin").build());
+        new AccessLogGenerator().withAssets(40).withSeed(7).withDays(1).withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(1, ChronoUnit.DAYS))
+                                .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 500);
+        foldingProcessor.handleAssets();
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().noneMatch(key -> key.startsWith("log-object-aggregates/2024-")));
+        for (Map.Entry<String, Map<String, Integer>> report : firstReports.entrySet()) {
+            assertEquals(report.getValue(),
+                         objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, report.getKey()), AssetUsageReport.class).getAssetAccessCount());
+        }
+    }
+
+    @Test
+    void approximateModeFindsTheMostRequestedAssets() throws IOException {
+        generator.withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS))
+                 .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        readerService = new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, "cidev/", "", ANALYSIS_BUCKET, TestProperties.reader());
+        WriterService writerService = new WriterService(s3Client, ANALYSIS_BUCKET);
+        new Processor(readerService, writerService, "cidev/", analysis(Map.of("approximate.enabled", "true", "approximate.top.k", "10", "intraday.enabled", "true"))).handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Integer> exact = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount();
+        ApproximateAssetUsageReport approximate = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "approximate-asset-requests.json"), ApproximateAssetUsageReport.class);
+
+        assertEquals(exact.values().stream().mapToLong(Integer::longValue).sum(), approximate.getTotalRequests());
+        exact.forEach((asset, count) -> assertTrue(approximate.getAssetAccessCount().get(asset) - count <= approximate.getEstimateErrorBound()));
+        int mostRequests = exact.values().stream().mapToInt(Integer::intValue).max().orElseThrow();
+        assertEquals(mostRequests, exact.get(approximate.getTopAssets().get(0).getAsset()));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().anyMatch(key -> key.startsWith("asset-request-sketches/")));
+        IntradayUsageReport intraday = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "intraday-usage-report.json"), IntradayUsageReport.class);
+        assertEquals(approximate.getTotalRequests(), Arrays.stream(intraday.getRequestsBySlot()).sum());
+        assertEquals(24, intraday.getRequestsBySlot().length);
+        ReferrerUsageReport referrers = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "referrer-usage-report.json"), ReferrerUsageReport.class);
+        assertEquals(approximate.getTotalRequests(), referrers.getRequests());
+        assertEquals("find-and-update.company-information.service.gov.uk", referrers.getReferrers().get(0).getReferrerHost());
+    }
+
+    @Test
+    void unusedAssetsAreThoseWithoutRequestsInEachWindow() throws IOException {
+        s3Client.putObject(ASSET_BUCKET, "unrequested/asset.js", new byte[0]);
+        generator.withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS))
+                 .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+
+        processor.handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Integer> exact = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount();
+        Set<String> neverRequested = exact.entrySet().stream().filter(entry -> entry.getValue() == 0).map(Map.Entry::getKey).collect(Collectors.toSet());
+        UnusedAssetsReport unusedAssets = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "unused-assets.json"), UnusedAssetsReport.class);
+
+        assertEquals(List.of(30, 90, 365), List.copyOf(unusedAssets.getUnusedAssets().keySet()));
+        unusedAssets.getUnusedAssets().values().forEach(unused -> assertEquals(neverRequested, Set.copyOf(unused)));
+        assertTrue(neverRequested.contains("unrequested/asset.js"));
+        assertEquals(41, objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "asset-dictionary.json"), List.class).size());
+    }
+
+    @Test
+    void folderUsageTotalsTheAssetsUnderEachFolder() throws IOException {
+        s3Client.putObject(ASSET_BUCKET, "unrequested/asset.js", new byte[12]);
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+
+        processor.handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, Integer> exact = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount();
+        AssetFolderUsageReport folderUsage = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "asset-folder-usage.json"), AssetFolderUsageReport.class);
+
+        assertTrue(folderUsage.getFolders().stream().map(FolderUsage::getFolder).toList()
+                              .containsAll(List.of("assets/", "assets/fonts/", "javascripts/", "javascripts/app/", "javascripts/lib/", "stylesheets/", "images/", "unrequested/")));
+        Map<String, Long> assetSizes = readerService.readAssetSizes();
+        for (FolderUsage folder : folderUsage.getFolders()) {
+            List<String> assets = assetSizes.keySet().stream().filter(asset -> asset.startsWith(folder.getFolder())).toList();
+            assertEquals(assets.stream().mapToLong(exact::get).sum(), folder.getRequests(), folder.getFolder());
+            assertEquals(assets.size(), folder.getFiles(), folder.getFolder());
+            assertEquals(assets.stream().filter(asset -> exact.get(asset) == 0).count(), folder.getUnusedFiles(), folder.getFolder());
+            assertEquals(assets.stream().mapToLong(assetSizes::get).sum(), folder.getBytes(), folder.getFolder());
+        }
+        FolderUsage unrequested = folderUsage.getFolders().get(folderUsage.getFolders().size() - 1);
+        assertEquals("unrequested/", unrequested.getFolder());
+        assertEquals(1, unrequested.getUnusedFiles());
+        assertEquals(12, unrequested.getBytes());
+    }
+
+    @Test
+    void bandwidthReportRanksAssetsByTheBytesInTheirLogLines() throws IOException {
+        generator.withStartDate(Instant.now().truncatedTo(ChronoUnit.DAYS).minus(3, ChronoUnit.DAYS))
+                 .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+
+        processor.handleAssets();
+
+        // Every record is within the report's days, so the raw records hold the same bytes
+        long bytesSent = s3Client.keys(ANALYSIS_BUCKET).stream()
+                                 .filter(key -> key.startsWith("raw-asset-access-data/"))
+                                 .map(key -> key.substring("raw-asset-access-data/".length(), key.lastIndexOf('/')))
+                                 .distinct()
+                                 .flatMap(day -> readerService.readRawAssetAccessLogs(day).stream())
+                                 .mapToLong(AssetAccessLog::getBytesSent)
+                                 .sum();
+        AssetBandwidthReport report = new ObjectMapper().readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "asset-bandwidth-report.json"), AssetBandwidthReport.class);
+        assertTrue(bytesSent > 0);
+        assertEquals(bytesSent, report.getTotalBytesSent());
+        assertEquals(bytesSent, report.getAssets().stream().mapToLong(AssetBandwidth::getBytesSent).sum());
+        List<Long> ranked = report.getAssets().stream().map(AssetBandwidth::getBytesSent).toList();
+        assertEquals(ranked.stream().sorted(Comparator.reverseOrder()).toList(), ranked);
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("origin-fetch-report.json"));
+    }
+
+    @Test
+    void newLogsUpdateOnlyTheirDailyReportsAndTheTotal() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        List<String> dailyReportKeys = s3Client.keys(ANALYSIS_BUCKET).stream().filter(key -> key.startsWith("asset-usage-reports/")).toList();
+        assertEquals(3, dailyReportKeys.size());
+
+        // Two more days of logs, after those already processed
+        new AccessLogGenerator().withAssets(40).withSeed(7).withDays(2).withStartDate(Instant.parse("2024-10-10T00:00:00Z"))
+                                .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 1_000);
+        long putRequests = s3Client.getPutRequests();
+        processor.handleAssets();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<AssetUsageReport> dailyReports = new ArrayList<>();
+        for (String key : s3Client.keys(ANALYSIS_BUCKET)) {
+            if (key.startsWith("asset-usage-reports/")) {
+                dailyReports.add(objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, key), AssetUsageReport.class));
+            }
+        }
+        assertEquals(5, dailyReports.size());
+        assertEquals(Util.calculateAssetRequestTotals(dailyReports).getAssetAccessCount(),
+                     objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"), AssetUsageReport.class).getAssetAccessCount());
+        // Each output is written once, with only the two new daily reports among them
+        assertTrue(s3Client.getPutRequests() - putRequests < 29);
+    }
+
+    @Test
+    void severalEnvironmentsAreAnalysedFromOneReadOfTheLogs() throws IOException {
+        Map<String, Integer> logObjectReads = new ConcurrentHashMap<>();
+        s3Client = new InMemoryS3Client() {
+            @Override
+            public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest) {
+                if (ACCESS_LOG_BUCKET.equals(getObjectRequest.bucket())) {
+                    logObjectReads.merge(getObjectRequest.key(), 1, Integer::sum);
+                }
+                return super.getObject(getObjectRequest);
+            }
+        };
+        for (String bucket : List.of(ANALYSIS_BUCKET, "cidev-analysis", "staging-analysis")) {
+            s3Client.createBucket(bucket);
+        }
+        generator.writeAssets(s3Client, ASSET_BUCKET);
+        int logObjects = generator.withRejectMix(0.05, 0.4).writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        readerService = new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, "cidev/, staging/", "", ANALYSIS_BUCKET, TestProperties.reader());
+
+        new Processor(readerService, new WriterService(s3Client, ANALYSIS_BUCKET), "cidev/, staging/", analysis(Map.of())).handleAssets();
+
+        assertEquals(logObjects, logObjectReads.size());
+        assertTrue(logObjectReads.values().stream().allMatch(reads -> reads == 1));
+        // The first environment is kept at the root, the second under its prefix
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().noneMatch(key -> key.startsWith("cidev/")));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("successful-asset-requests.json"));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("staging/successful-asset-requests.json"));
+
+        // Each environment's reports are those of analysing it on its own
+        ObjectMapper objectMapper = new ObjectMapper();
+        AssetUsageQueryService queryService = new AssetUsageQueryService(readerService, "cidev/, staging/");
+        for (String environment : List.of("cidev/", "staging/")) {
+            String bucket = environment.replace("/", "-analysis");
+            new Processor(new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, environment, "", bucket, TestProperties.reader()), new WriterService(s3Client, bucket), environment, analysis(Map.of()))
+                .handleAssets();
+            Map<String, Integer> alone = objectMapper.readValue(s3Client.getObjectContent(bucket, "successful-asset-requests.json"), AssetUsageReport.class)
+                                                     .getAssetAccessCount();
+            String prefix = "cidev/".equals(environment) ? "" : environment;
+            Map<String, Integer> together = objectMapper.readValue(s3Client.getObjectContent(ANALYSIS_BUCKET, prefix + "successful-asset-requests.json"),
+                                                                   AssetUsageReport.class).getAssetAccessCount();
+            assertTrue(alone.values().stream().mapToInt(Integer::intValue).sum() > 0);
+            assertEquals(alone, together);
+
+            // Queried by environment, the first by default
+            Map<String, Integer> queried = queryService.queryAssetUsage(new AssetUsageQuery("2024-01-01", "2024-12-31", null, null, environment)).getAssetAccessCount();
+            Map<String, Integer> queriedAlone = new AssetUsageQueryService(new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, environment, "", bucket,
+                TestProperties.reader()), environment).queryAssetUsage(new AssetUsageQuery("2024-01-01", "2024-12-31", null, null)).getAssetAccessCount();
+            assertTrue(queried.values().stream().mapToInt(Integer::intValue).sum() > 0);
+            assertEquals(queriedAlone, queried);
+        }
+        assertEquals(queryService.queryAssetUsage(new AssetUsageQuery("2024-01-01", "2024-12-31", null, null, "cidev/")).getAssetAccessCount(),
+                     queryService.queryAssetUsage(new AssetUsageQuery("2024-01-01", "2024-12-31", null, null)).getAssetAccessCount());
+        assertThrows(IllegalArgumentException.class,
+                     () -> queryService.queryAssetUsage(new AssetUsageQuery("2024-01-01", "2024-12-31", null, null, "live/")));
+
+        // A rerun reads no log object, as every environment has read them all
+        logObjectReads.clear();
+        new Processor(readerService, new WriterService(s3Client, ANALYSIS_BUCKET), "cidev/, staging/", analysis(Map.of())).handleAssets();
+        assertTrue(logObjectReads.isEmpty());
+    }
+
+    @Test
+    void addingAnEnvironmentKeepsTheFirstEnvironmentsState() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        byte[] alone = s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json");
+        byte[] aggregates = s3Client.getObjectContent(ANALYSIS_BUCKET, s3Client.keys(ANALYSIS_BUCKET).stream()
+                                                                               .filter(key -> key.startsWith("log-object-aggregates/"))
+                                                                               .findFirst().orElseThrow());
+
+        ReaderService bothReader = new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, "cidev/, staging/", "", ANALYSIS_BUCKET, TestProperties.reader());
+        new Processor(bothReader, new WriterService(s3Client, ANALYSIS_BUCKET), "cidev/, staging/", analysis(Map.of())).handleAssets();
+
+        // The first environment carries on from its state at the root rather than starting again under its prefix
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().noneMatch(key -> key.startsWith("cidev/")));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("staging/successful-asset-requests.json"));
+        assertArrayEquals(alone, s3Client.getObjectContent(ANALYSIS_BUCKET, "successful-asset-requests.json"));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).stream().filter(key -> key.startsWith("log-object-aggregates/"))
+                           .anyMatch(key -> Arrays.equals(aggregates, s3Client.getObjectContent(ANALYSIS_BUCKET, key))));
+    }
+
+    @Test
+    void rangeQueriesFromRollupsMatchTheDailyReports() throws IOException {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_000);
+        processor.handleAssets();
+        new AccessLogGenerator().withAssets(40).withSeed(7).withDays(2).withStartDate(Instant.parse("2024-10-10T00:00:00Z"))
+                                .writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 1_000);
+        processor.handleAssets();
+
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("asset-usage-rollups/months/2024-10-01.json"));
+        assertTrue(s3Client.keys(ANALYSIS_BUCKET).contains("asset-usage-rollups/weeks/2024-10-07.json"));
+        AssetUsageQueryService queryService = new AssetUsageQueryService(readerService, "cidev/");
+        // October from its monthly rollup, then part of it from daily reports and a weekly rollup
+        for (String[] range : new String[][] {{"2024-09-30", "2024-10-31"}, {"2024-10-01", "2024-10-13"}}) {
+            LocalDate from = LocalDate.parse(range[0]);
+            LocalDate to = LocalDate.parse(range[1]);
+            List<AssetUsageReport> dailyReports = new ArrayList<>();
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                readerService.readAssetUsageReport(day.toString()).ifPresent(dailyReports::add);
+            }
+            Map<String, Integer> expected = Util.calculateAssetRequestTotals(dailyReports).getAssetAccessCount().entrySet().stream()
+                                                .filter(entry -> entry.getValue() > 0)
+                                                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+            assertEquals(expected, queryService.queryAssetUsageRollups(new AssetUsageQuery(range[0], range[1], null, null)).getAssetAccessCount());
+            Map<String, Integer> indexed = queryService.queryAssetUsage(new AssetUsageQuery(range[0], range[1], null, null)).getAssetAccessCount();
+            assertEquals(expected, indexed.entrySet().stream().filter(entry -> entry.getValue() > 0)
+                                          .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+        }
+
+        String asset = s3Client.keys(ASSET_BUCKET).get(0);
+        Map<String, Integer> folder = queryService.queryAssetUsage(new AssetUsageQuery("2024-10-02", "2024-10-10", null, asset.substring(0, asset.indexOf('/') + 1)))
+                                                  .getAssetAccessCount();
+        Map<String, Integer> single = queryService.queryAssetUsage(new AssetUsageQuery("2024-10-02", "2024-10-10", asset, null)).getAssetAccessCount();
+        assertTrue(folder.keySet().stream().allMatch(key -> key.startsWith(asset.substring(0, asset.indexOf('/') + 1))));
+        assertEquals(folder.get(asset), single.get(asset));
+        Map<String, Integer> rolledUp = queryService.queryAssetUsageRollups(new AssetUsageQuery("2024-10-02", "2024-10-10", asset, null)).getAssetAccessCount();
+        assertEquals(single.get(asset) > 0 ? single : Map.of(), rolledUp);
+    }
+}
@@ -1,35 +1,50 @@
 package uk.gov.companieshouse.cdnanalyser.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
-import java.time.LocalDate;
-import java.util.Arrays;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
-import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetRequestFailureReport;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisInputInterface;
 import uk.gov.companieshouse.cdnanalyser.service.interfaces.AnalysisOutputInterface;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetDictionary;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageIndex;
 import uk.gov.companieshouse.cdnanalyser.service.s3.Processor;
+import uk.gov.companieshouse.cdnanalyser.support.TestProperties;
 
+// Mockito cannot generate mocks inside a native image.
+@DisabledInNativeImage
 class ProcessorTest {
 
     @Mock
@@ -44,7 +59,7 @@ class ProcessorTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        processor = new Processor(analysisInputInterface, analysisOutputInterface, "/cidev/");
+        processor = new Processor(analysisInputInterface, analysisOutputInterface, "/cidev/", TestProperties.analysis());
     }
 
     @Test
@@ -65,14 +80,13 @@ class ProcessorTest {
 
     @Test
     void testHandleAssetsWithNoAssetsOrLogs() {
-        when(analysisInputInterface.readAssets()).thenReturn(Collections.emptyList());
-        when(analysisInputInterface.readAccessLogs()).thenReturn(Collections.emptySet());
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(Collections.emptyMap()));
         when(analysisInputInterface.readRawAssetAccessLogs()).thenReturn(Collections.emptyList());
 
         processor.handleAssets();
 
-        verify(analysisInputInterface).readAssets();
-        verify(analysisInputInterface).readAccessLogs();
+        verify(analysisInputInterface).readAssetInventory();
+        verify(analysisInputInterface).readAccessLogs(any(), any(), any());
         verify(analysisInputInterface).readRawAssetAccessLogs();
         // No further interactions expected
         verifyNoMoreInteractions(analysisOutputInterface);
@@ -80,7 +94,7 @@ class ProcessorTest {
 
     @Test
     void testHandleAssetsProcessesAndSaves() {
-        List<String> assets = Arrays.asList("file1", "file2");
+        Map<String, Long> assets = Map.of("file1", 10L, "file2", 20L);
         AssetAccessLog log1 = new AssetAccessLog();
         log1.setAsset("/cidev/file1");
         log1.setStatusCode(200);
@@ -94,85 +108,167 @@ class ProcessorTest {
         Set<AssetAccessLog> accessLogs = Set.of(log1, log2);
         List<AssetAccessLog> existingLogs = Collections.emptyList();
 
-        when(analysisInputInterface.readAssets()).thenReturn(assets);
-        when(analysisInputInterface.readAccessLogs()).thenReturn(accessLogs);
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(assets));
+        S3File logObject = new S3File("logfile1.txt", Instant.now(), "\"etag\"");
+        doAnswer(invocation -> {
+            BiConsumer<S3File, AssetAccessLog> consumer = invocation.getArgument(2);
+            accessLogs.forEach(accessLog -> consumer.accept(logObject, accessLog));
+            return List.of(logObject);
+        }).when(analysisInputInterface).readAccessLogs(any(), any(), any());
         when(analysisInputInterface.readRawAssetAccessLogs()).thenReturn(existingLogs);
 
-        doNothing().when(analysisOutputInterface).saveRawData(any());
+        doNothing().when(analysisOutputInterface).saveRawData(any(), any());
         doNothing().when(analysisOutputInterface).saveFailedAssetsRequests(any());
         doNothing().when(analysisOutputInterface).saveSuccessfulAssetRequests(any());
 
         processor.handleAssets();
 
-        verify(analysisOutputInterface).saveRawData(any());
+        verify(analysisOutputInterface).saveRawData(any(), any());
+        verify(analysisOutputInterface).saveDeduplicationFilter(any(), any());
         verify(analysisOutputInterface).saveFailedAssetsRequests(any());
         verify(analysisOutputInterface).saveSuccessfulAssetRequests(any());
+        verify(analysisOutputInterface).saveAssetUsageRanking(any());
+        verify(analysisOutputInterface).saveAssetFolderUsage(any());
+        verify(analysisOutputInterface).saveOriginFetchReport(any());
+        verify(analysisOutputInterface).saveAssetBandwidthReport(any());
+        verify(analysisOutputInterface).saveOriginLatencyReport(any());
+        verify(analysisOutputInterface).saveTrendingAssets(any());
+        verify(analysisOutputInterface).saveTrendingAssetsReport(any());
+        verify(analysisOutputInterface).saveReferrerUsageReport(any());
+        verify(analysisInputInterface).readAssetHeaders(any());
+        verify(analysisOutputInterface).saveAssetPayloadReport(any());
+        verify(analysisOutputInterface).saveAssetUsageBitsets(any());
+        verify(analysisOutputInterface).saveUnusedAssets(any());
+        verify(analysisOutputInterface).saveAssetVersionReport(any());
+        verify(analysisOutputInterface).saveAssetUsageRollup(eq("weeks"), any());
+        verify(analysisOutputInterface).saveAssetUsageRollup(eq("months"), any());
+        verify(analysisOutputInterface).saveAssetUsageIndex(any());
+        verify(analysisOutputInterface).saveFailedAssetRequestTotals(any());
+        verify(analysisOutputInterface).saveLogObjectAggregates(any(), any());
+        verify(analysisOutputInterface, never()).deleteLegacyRawData();
     }
 
     @Test
-    void testCollectFailedRequests() throws Exception {
-        // Reflection to access private method for coverage
-        AssetAccessLog log1 = new AssetAccessLog();
-        log1.setAsset("file1");
-        log1.setStatusCode(200);
-        log1.setTimestamp(Instant.now());
-        AssetAccessLog log2 = new AssetAccessLog();
-        log2.setAsset("file2");
-        log2.setStatusCode(404);
-        log2.setTimestamp(Instant.now());
+    void testHandleAssetsMovesExistingRawDataIntoDayPartitions() {
+        AssetAccessLog existingLog = new AssetAccessLog();
+        existingLog.setRequestType("GET");
+        existingLog.setAsset("/cidev/file1");
+        existingLog.setStatusCode(200);
+        existingLog.setTimestamp(Instant.parse("2025-03-01T12:00:00Z"));
 
-        Set<AssetAccessLog> logs = Set.of(log1, log2);
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(Map.of("file1", 10L)));
+        when(analysisInputInterface.readRawAssetAccessLogs()).thenReturn(List.of(existingLog));
+        when(analysisInputInterface.readAccessLogs(any(), any(), any())).thenReturn(List.of());
 
-        var method = Processor.class.getDeclaredMethod("collectFailedRequests", Set.class);
-        method.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        List<AssetAccessLog> failed = (List<AssetAccessLog>) method.invoke(processor, logs);
+        processor.handleAssets();
 
-        assertEquals(1, failed.size());
-        assertEquals(404, failed.get(0).getStatusCode());
+        verify(analysisOutputInterface).saveRawData(eq("2025-03-01"), any());
+        verify(analysisOutputInterface).saveDeduplicationFilter(eq("2025-03-01"), any());
+        verify(analysisOutputInterface).deleteLegacyRawData();
+        verify(analysisOutputInterface, never()).saveFailedAssetsRequests(any());
     }
 
     @Test
-    void testCollectSuccessfulAssetUsageReports() throws Exception {
+    void testHandleAssetsMergesFailureReportAndKeepsRecentFailedRequests() {
         Instant now = Instant.now();
-        Instant yesterday = now.minus(1, java.time.temporal.ChronoUnit.DAYS);
-        List<String> assets = Arrays.asList("file1", "file2");
-        AssetAccessLog log1 = new AssetAccessLog();
-        log1.setAsset("/cidev/file1");
-        log1.setStatusCode(200);
-        log1.setTimestamp(now);
-        AssetAccessLog log2 = new AssetAccessLog();
-        log2.setAsset("/cidev/file2");
-        log2.setStatusCode(200);
-        log2.setTimestamp(now);
-        AssetAccessLog log3 = new AssetAccessLog();
-        log3.setAsset("/cidev/file2");
-        log3.setStatusCode(200);
-        log3.setTimestamp(yesterday);
+        AssetAccessLog newFailure = failedAssetAccessLog(now);
+        AssetAccessLog recentFailure = failedAssetAccessLog(now.minus(1, ChronoUnit.DAYS));
+        AssetAccessLog expiredFailure = failedAssetAccessLog(now.minus(30, ChronoUnit.DAYS));
+
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(Map.of("file1", 10L)));
+        S3File logObject = new S3File("logfile1.txt", now, "\"etag\"");
+        doAnswer(invocation -> {
+            BiConsumer<S3File, AssetAccessLog> consumer = invocation.getArgument(2);
+            consumer.accept(logObject, newFailure);
+            return List.of(logObject);
+        }).when(analysisInputInterface).readAccessLogs(any(), any(), any());
+        when(analysisInputInterface.readFailedAssetRequestTotals()).thenReturn(List.of(new AssetRequestFailureReport("file1", 404, 5)));
+        when(analysisInputInterface.readFailedAssetRequests()).thenReturn(List.of(expiredFailure, recentFailure));
 
-        Set<AssetAccessLog> logs = Set.of(log1, log2,log3);
+        processor.handleAssets();
 
-        var method = Processor.class.getDeclaredMethod("collectSuccessfulAssetUsageReports", Set.class, List.class);
-        method.setAccessible(true);
         @SuppressWarnings("unchecked")
-        List<AssetUsageReport> reports = (List<AssetUsageReport>) method.invoke(processor, logs, assets);
-
-        assertFalse(reports.isEmpty());
-
-        reports.forEach(report -> {
-            assertEquals(assets.size(), report.getAssetAccessCount().size());
-            if(report.getId().equals(LocalDate.ofInstant(now, Constants.LONDON_ZONE_ID).toString())){
-                Map<String, Integer> counts = report.getAssetAccessCount();
-                assertEquals(1, counts.get("file1"));
-                assertEquals(1, counts.get("file2"));
-            } else if(report.getId().equals(LocalDate.ofInstant(yesterday, Constants.LONDON_ZONE_ID).toString())){
-                Map<String, Integer> counts = report.getAssetAccessCount();
-                assertEquals(0, counts.get("file1"));
-                assertEquals(1, counts.get("file2"));
-            } else {
-                throw new IllegalStateException("Unexpected report date: " + report.getId());
-
-        }
-    });
+        ArgumentCaptor<List<AssetRequestFailureReport>> failureReport = ArgumentCaptor.forClass(List.class);
+        verify(analysisOutputInterface).saveFailedAssetRequestTotals(failureReport.capture());
+        assertEquals(1, failureReport.getValue().size());
+        assertEquals("file1", failureReport.getValue().get(0).getAsset());
+        assertEquals(6, failureReport.getValue().get(0).getFailureCount());
+        verify(analysisOutputInterface).saveFailedAssetsRequests(List.of(recentFailure, newFailure));
+    }
+
+    @Test
+    void testHandleAssetsDeletesTheFailedRequestsWhenEveryOneHasExpired() {
+        Instant now = Instant.now();
+        AssetAccessLog newFailure = failedAssetAccessLog(now.minus(31, ChronoUnit.DAYS));
+        AssetAccessLog expiredFailure = failedAssetAccessLog(now.minus(30, ChronoUnit.DAYS));
+
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(Map.of("file1", 10L)));
+        S3File logObject = new S3File("logfile1.txt", now, "\"etag\"");
+        doAnswer(invocation -> {
+            BiConsumer<S3File, AssetAccessLog> consumer = invocation.getArgument(2);
+            consumer.accept(logObject, newFailure);
+            return List.of(logObject);
+        }).when(analysisInputInterface).readAccessLogs(any(), any(), any());
+        when(analysisInputInterface.readFailedAssetRequests()).thenReturn(List.of(expiredFailure));
+
+        processor.handleAssets();
+
+        verify(analysisOutputInterface).deleteFailedAssetRequests();
+        verify(analysisOutputInterface, never()).saveFailedAssetsRequests(any());
+    }
+
+    @Test
+    void testHandleAssetsRebuildsOnlyTheChangedDailyReportsAndTotal() {
+        AssetAccessLog newRequest = new AssetAccessLog();
+        newRequest.setRequestType("GET");
+        newRequest.setAsset("/cidev/file1");
+        newRequest.setStatusCode(200);
+        newRequest.setTimestamp(Instant.parse("2025-03-01T12:00:00Z"));
+
+        LogObjectAggregate cached = new LogObjectAggregate("\"etag-0\"");
+        cached.getSuccessCounts().put("2025-02-28", new HashMap<>(Map.of("file1", 8, "file2", 3)));
+        cached.getSuccessCounts().put("2025-03-01", new HashMap<>(Map.of("file1", 2, "file2", 1)));
+        AssetDictionary dictionary = new AssetDictionary(List.of("file1", "file2"));
+        AssetUsageIndex savedIndex = new AssetUsageIndex();
+        cached.getSuccessCounts().forEach((day, counts) -> savedIndex.set(day, counts, dictionary));
+
+        when(analysisInputInterface.readAssetInventory()).thenReturn(inventory(Map.of("file1", 10L, "file2", 20L)));
+        when(analysisInputInterface.readLogObjectAggregates()).thenReturn(Map.of("logfile0.txt", cached));
+        when(analysisInputInterface.readAssetDictionary()).thenReturn(List.of("file1", "file2"));
+        when(analysisInputInterface.readAssetUsageIndex()).thenReturn(Optional.of(savedIndex.toBytes()));
+        S3File logObject = new S3File("logfile1.txt", Instant.now(), "\"etag\"");
+        doAnswer(invocation -> {
+            BiConsumer<S3File, AssetAccessLog> consumer = invocation.getArgument(2);
+            consumer.accept(logObject, newRequest);
+            return List.of(logObject);
+        }).when(analysisInputInterface).readAccessLogs(any(), any(), any());
+
+        processor.handleAssets();
+
+        // The changed day is rebuilt from the aggregates rather than read and updated, and the total comes from the index
+        verify(analysisInputInterface, never()).readAssetUsageReport(any());
+        verify(analysisInputInterface, never()).readSuccessfulAssetRequests();
+        ArgumentCaptor<AssetUsageReport> dailyReport = ArgumentCaptor.forClass(AssetUsageReport.class);
+        verify(analysisOutputInterface).saveAssetUsageReport(dailyReport.capture());
+        assertEquals("2025-03-01", dailyReport.getValue().getId());
+        assertEquals(Map.of("file1", 3, "file2", 1), dailyReport.getValue().getAssetAccessCount());
+        ArgumentCaptor<AssetUsageReport> total = ArgumentCaptor.forClass(AssetUsageReport.class);
+        verify(analysisOutputInterface).saveSuccessfulAssetRequests(total.capture());
+        assertEquals(Map.of("file1", 11, "file2", 4), total.getValue().getAssetAccessCount());
+    }
+
+    private static AssetAccessLog failedAssetAccessLog(Instant timestamp) {
+        AssetAccessLog assetAccessLog = new AssetAccessLog();
+        assetAccessLog.setRequestType("GET");
+        assetAccessLog.setAsset("/cidev/file1");
+        assetAccessLog.setStatusCode(404);
+        assetAccessLog.setTimestamp(timestamp);
+        return assetAccessLog;
+    }
+
+    private static Map<String, AssetMetadata> inventory(Map<String, Long> assetSizes) {
+        Map<String, AssetMetadata> assetInventory = new LinkedHashMap<>();
+        assetSizes.forEach((asset, size) -> assetInventory.put(asset, new AssetMetadata(size, "\"" + asset + "\"", "STANDARD")));
+        return assetInventory;
     }
 }
@@ -0,0 +1,132 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.service.s3.Processor;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.WriterService;
+import uk.gov.companieshouse.cdnanalyser.support.AccessLogGenerator;
+import uk.gov.companieshouse.cdnanalyser.support.InMemoryS3Client;
+import uk.gov.companieshouse.cdnanalyser.support.TestProperties;
+
+/**
+ * End to end throughput of {@link Processor#handleAssets()} over synthetic access logs served from memory.
+ *
+ * Not picked up by the default surefire includes, run it with {@code make benchmark} or
+ * {@code mvn test -Dtest=ProcessorThroughputBenchmark -Dbenchmark.lines=100000,1000000}.
+ */
+@Tag("benchmark")
+class ProcessorThroughputBenchmark {
+
+    private static final String ASSET_BUCKET = "cdn-assets";
+
+    private static final String ACCESS_LOG_BUCKET = "cdn-access-logs";
+
+    private static final String ANALYSIS_BUCKET = "cdn-analysis-logs";
+
+    private static final String ACCESS_LOG_FILTER_IN_PATH = "cidev/";
+
+    @Test
+    void handleAssetsThroughput() throws InterruptedException {
+        // The application logger is at DEBUG in tests, per-line logging would dominate the measurement.
+        if (LoggerFactory.getLogger(Constants.APPLICATION_NAME_SPACE) instanceof ch.qos.logback.classic.Logger applicationLogger) {
+            applicationLogger.setLevel(Level.INFO);
+        }
+
+        List<String> results = new ArrayList<>();
+        for (long lines : lineCounts()) {
+            results.add(run(lines));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%12s %8s %10s %14s %14s %10s  %s", "lines", "objects", "seconds", "records/s", "peak heap MB", "rerun s", "outcome"));
+        results.forEach(System.out::println);
+        assertTrue(!results.isEmpty());
+    }
+
+    private String run(long lines) throws InterruptedException {
+        InMemoryS3Client s3Client = new InMemoryS3Client();
+        s3Client.createBucket(ANALYSIS_BUCKET);
+        AccessLogGenerator generator = new AccessLogGenerator();
+        generator.writeAssets(s3Client, ASSET_BUCKET);
+        int objects = generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, lines);
+
+        ReaderService readerService = new ReaderService(s3Client, ACCESS_LOG_BUCKET, ASSET_BUCKET, ACCESS_LOG_FILTER_IN_PATH, "", ANALYSIS_BUCKET, TestProperties.reader());
+        WriterService writerService = new WriterService(s3Client, ANALYSIS_BUCKET);
+        Processor processor = new Processor(readerService, writerService, ACCESS_LOG_FILTER_IN_PATH, TestProperties.analysis());
+
+        System.gc();
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+        String outcome = "ok";
+        long start = System.nanoTime();
+        try {
+            processor.handleAssets();
+        } catch (OutOfMemoryError e) {
+            outcome = "OutOfMemoryError";
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000d;
+        long peakHeap = heapSampler.finish();
+
+        // A second run with no new log objects, served from the cached log object aggregates
+        double rerunSeconds = Double.NaN;
+        if ("ok".equals(outcome)) {
+            long rerunStart = System.nanoTime();
+            processor.handleAssets();
+            rerunSeconds = (System.nanoTime() - rerunStart) / 1_000_000_000d;
+        }
+
+        return String.format("%12d %8d %10.2f %14.0f %14d %10.2f  %s", lines, objects, seconds, lines / seconds, peakHeap / (1024 * 1024), rerunSeconds, outcome);
+    }
+
+    private static List<Long> lineCounts() {
+        return Arrays.stream(System.getProperty("benchmark.lines", "100000,1000000,10000000").split(","))
+                     .map(String::trim)
+                     .map(Long::valueOf)
+                     .toList();
+    }
+
+    /**
+     * Samples used heap on a background thread, closer to the true peak than summing per-pool peaks.
+     */
+    private static class HeapSampler extends Thread {
+
+        private volatile boolean running = true;
+
+        private long peak;
+
+        HeapSampler() {
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (running) {
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            running = false;
+            join();
+            return peak;
+        }
+    }
+}
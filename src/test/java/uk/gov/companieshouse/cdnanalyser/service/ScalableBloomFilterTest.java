@@ -0,0 +1,69 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void addedFingerprintsAreAlwaysFound() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, 0.01);
+        SplittableRandom random = new SplittableRandom(1);
+        long[] fingerprints = random.longs(10_000).toArray();
+
+        for (long fingerprint : fingerprints) {
+            filter.add(fingerprint);
+        }
+
+        for (long fingerprint : fingerprints) {
+            assertTrue(filter.mightContain(fingerprint));
+        }
+        assertEquals(10_000, filter.size());
+    }
+
+    @Test
+    void falsePositivesStayWithinBudgetAsTheFilterGrows() {
+        double budget = 0.01;
+        ScalableBloomFilter filter = new ScalableBloomFilter(1_000, budget);
+        SplittableRandom random = new SplittableRandom(2);
+        // Sixteen times the initial capacity, so five stages
+        random.longs(16_000).forEach(filter::add);
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < probes * budget, "False positive rate " + (double) falsePositives / probes);
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.001);
+        for (long fingerprint = 0; fingerprint < 250; fingerprint++) {
+            filter.add(fingerprint);
+        }
+
+        ScalableBloomFilter copy = ScalableBloomFilter.fromBytes(filter.toBytes());
+
+        assertEquals(250, copy.size());
+        for (long fingerprint = 0; fingerprint < 250; fingerprint++) {
+            assertTrue(copy.mightContain(fingerprint));
+        }
+        assertFalse(new ScalableBloomFilter(100, 0.001).mightContain(1L));
+    }
+
+    @Test
+    void rejectsAnInvalidFalsePositiveProbability() {
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 1.0));
+    }
+}
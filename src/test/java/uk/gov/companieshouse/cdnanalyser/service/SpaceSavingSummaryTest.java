@@ -0,0 +1,58 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class SpaceSavingSummaryTest {
+
+    @Test
+    void keepsTheMostFrequentItemsAmongManyRareOnes() {
+        SpaceSavingSummary summary = new SpaceSavingSummary(20);
+        SplittableRandom random = new SplittableRandom(4);
+        for (int i = 0; i < 50_000; i++) {
+            if (i % 4 == 0) {
+                summary.add("popular" + (i % 3), 1);
+            } else {
+                summary.add("junk/" + random.nextInt(1_000_000), 1);
+            }
+        }
+
+        List<SpaceSavingSummary.Counter> counters = summary.getCounters();
+        assertEquals(20, counters.size());
+        for (int i = 0; i < 3; i++) {
+            SpaceSavingSummary.Counter counter = counters.get(i);
+            assertTrue(counter.getItem().startsWith("popular"), counter.getItem());
+            // Each popular item occurred 50000 / 12 times, to within the error the summary reports
+            assertTrue(counter.getCount() - counter.getError() <= 4_167 && counter.getCount() >= 4_166);
+        }
+    }
+
+    @Test
+    void mergedSummariesKeepTheOverallMostFrequent() {
+        SpaceSavingSummary first = new SpaceSavingSummary(3);
+        SpaceSavingSummary second = new SpaceSavingSummary(3);
+        first.add("a", 10);
+        first.add("b", 5);
+        first.add("c", 1);
+        second.add("b", 8);
+        second.add("d", 4);
+
+        first.merge(second);
+
+        List<SpaceSavingSummary.Counter> counters = first.getCounters();
+        assertEquals(3, counters.size());
+        assertEquals("b", counters.get(0).getItem());
+        assertEquals(13, counters.get(0).getCount());
+        assertEquals("a", counters.get(1).getItem());
+        assertEquals(10, counters.get(1).getCount());
+        // d is not tracked by the first summary, so may have occurred there as often as its smallest counter
+        assertEquals("d", counters.get(2).getItem());
+        assertEquals(5, counters.get(2).getCount());
+        assertEquals(1, counters.get(2).getError());
+    }
+}
@@ -0,0 +1,67 @@
+package uk.gov.companieshouse.cdnanalyser.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class UserAgentDictionaryTest {
+
+    private static final String FIREFOX = "Mozilla/5.0 (X11; Linux x86_64) Firefox/133.0";
+
+    @Test
+    void repeatedHeadersShareOneString() {
+        UserAgentDictionary dictionary = new UserAgentDictionary(10, 100);
+
+        String first = dictionary.encode("\"" + FIREFOX + "\" -", 1, FIREFOX.length() + 1);
+        String second = dictionary.encode("- \"" + FIREFOX + "\"", 3, FIREFOX.length() + 3);
+
+        assertEquals(FIREFOX, first);
+        assertSame(first, second);
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    void headersBeyondTheCapsAreCopied() {
+        UserAgentDictionary dictionary = new UserAgentDictionary(2, 20);
+        List.of("curl/8.5.0", "Wget/1.21").forEach(userAgent -> dictionary.encode(userAgent, 0, userAgent.length()));
+
+        String third = "\"python-requests/2.31\"";
+        assertNotSame(dictionary.encode(third, 1, third.length() - 1), dictionary.encode(third, 1, third.length() - 1));
+        String longest = "\"" + FIREFOX + "\"";
+        assertNotSame(dictionary.encode(longest, 1, longest.length() - 1), dictionary.encode(longest, 1, longest.length() - 1));
+        assertEquals(2, dictionary.size());
+        assertSame(dictionary.encode("curl/8.5.0", 0, 10), dictionary.encode("curl/8.5.0 -", 0, 10));
+    }
+
+    @Test
+    void headersWithTheSameHashAreToldApart() {
+        UserAgentDictionary dictionary = new UserAgentDictionary(10, 100);
+
+        // "Aa" and "BB" have the same String hash
+        assertEquals("Aa", dictionary.encode("Aa", 0, 2));
+        assertEquals("BB", dictionary.encode("BB", 0, 2));
+        assertEquals("Aa", dictionary.encode("Aa", 0, 2));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void concurrentParsersAddEachHeaderOnce() {
+        UserAgentDictionary dictionary = new UserAgentDictionary(1000, 100);
+        Set<String> encoded = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            String userAgent = "agent/" + (i % 50);
+            encoded.add(System.identityHashCode(dictionary.encode(userAgent, 0, userAgent.length())) + userAgent);
+        });
+
+        assertEquals(50, dictionary.size());
+        assertEquals(50, encoded.size());
+    }
+}
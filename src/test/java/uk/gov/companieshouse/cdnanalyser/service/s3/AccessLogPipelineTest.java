@@ -0,0 +1,196 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.support.AccessLogGenerator;
+import uk.gov.companieshouse.cdnanalyser.support.InMemoryS3Client;
+
+class AccessLogPipelineTest {
+
+    private static final String ACCESS_LOG_BUCKET = "cdn-access-logs";
+
+    private InMemoryS3Client s3Client;
+
+    private AccessLogGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        s3Client = new InMemoryS3Client();
+        generator = new AccessLogGenerator()
+                            .withAssets(20)
+                            .withMalformedRatio(0)
+                            .withRejectMix(0, 0)
+                            .withLinesPerObject(3);
+    }
+
+    @Test
+    void everyLineIsParsedAcrossListingPagesWithSmallQueues() {
+        // More than one 1000 key listing page, and queues far smaller than the data so every stage blocks.
+        assertEquals(1_200, generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 3_600));
+        AtomicInteger records = new AtomicInteger();
+
+        List<S3File> completed = new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), 4, 3, 2, 2)
+            .run((logObject, assetAccessLog) -> records.incrementAndGet());
+
+        assertEquals(3_600, records.get());
+        assertEquals(1_200, completed.size());
+        assertEquals(1_200, s3Client.getGetRequests());
+    }
+
+    @Test
+    void logObjectsWithKnownETagsAreNotRead() {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 30);
+        Map<String, String> knownETags = new HashMap<>();
+        new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), 2, 2, 10, 4)
+            .run((logObject, assetAccessLog) -> knownETags.put(logObject.getFilename(), logObject.getETag()));
+        String changedKey = knownETags.keySet().iterator().next();
+        knownETags.put(changedKey, "\"changed\"");
+        AtomicInteger records = new AtomicInteger();
+
+        List<S3File> completed = new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", knownETags, 2, 2, 10, 4)
+            .run((logObject, assetAccessLog) -> records.incrementAndGet());
+
+        assertEquals(1, completed.size());
+        assertEquals(changedKey, completed.get(0).getFilename());
+        assertEquals(3, records.get());
+    }
+
+    @Test
+    void missingBucketProducesNoRecords() {
+        AtomicInteger records = new AtomicInteger();
+
+        new AccessLogPipeline(s3Client, "missing-bucket", "cidev/", Map.of(), 2, 2, 10, 4).run((logObject, assetAccessLog) -> records.incrementAndGet());
+
+        assertEquals(0, records.get());
+    }
+
+    @Test
+    void consumerFailureStopsThePipeline() {
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 30_000);
+        AccessLogPipeline pipeline = new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), 4, 2, 10, 2);
+
+        assertThrows(IllegalStateException.class, () -> pipeline.run((logObject, assetAccessLog) -> {
+            throw new IllegalStateException("aggregation failed");
+        }));
+    }
+
+    @Test
+    void theLineFilterKeepsEveryLineThatParses() {
+        generator.withRejectMix(0.3, 0.5).withMalformedRatio(0.01).withLinesPerObject(1_000).writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 5_000);
+        long parsed = 0;
+        for (String key : s3Client.keys(ACCESS_LOG_BUCKET)) {
+            parsed += new String(s3Client.getObjectContent(ACCESS_LOG_BUCKET, key), StandardCharsets.UTF_8).lines()
+                                                                                                         .map(line -> Util.parseLogEntry(line, "cidev/"))
+                                                                                                         .filter(Objects::nonNull)
+                                                                                                         .count();
+        }
+        AtomicInteger records = new AtomicInteger();
+
+        new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), 2, 2, 100, 4).run((logObject, assetAccessLog) -> records.incrementAndGet());
+
+        assertEquals(parsed, records.get());
+    }
+
+    @Test
+    void linesAreSplitAcrossReadsWhateverTheirEnding() {
+        String line = new String(generator.generateObject(0, 1, Instant.parse("2024-10-01T00:00:00Z"), 1), StandardCharsets.UTF_8).strip();
+        // Lines longer than the read buffer, a CRLF ending and a last line without one
+        String longLine = line.replace("\"Amazon CloudFront\"", "\"" + "x".repeat(200_000) + "\"");
+        String content = line + "\r\n" + longLine + "\n" + longLine + "\n" + line;
+        s3Client.createBucket(ACCESS_LOG_BUCKET);
+        s3Client.putObject(ACCESS_LOG_BUCKET, "cidev/2024-10-01-00-00-00-0000000000000001", content.getBytes(StandardCharsets.UTF_8));
+        List<AssetAccessLog> assetAccessLogs = new ArrayList<>();
+
+        new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), 1, 1, 10, 4).run((logObject, assetAccessLog) -> assetAccessLogs.add(assetAccessLog));
+
+        assertEquals(4, assetAccessLogs.size());
+        assertEquals("Amazon CloudFront", assetAccessLogs.get(0).getUserAgent());
+        assertEquals(200_000, assetAccessLogs.get(1).getUserAgent().length());
+        assertEquals(Util.parseLogEntry(line, "cidev/").getAsset(), assetAccessLogs.get(3).getAsset());
+    }
+
+    @Test
+    void throttledLogObjectsAreRetriedRatherThanLost() {
+        Set<String> throttledOnce = ConcurrentHashMap.newKeySet();
+        s3Client = new InMemoryS3Client() {
+            @Override
+            public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest) {
+                if (throttledOnce.add(getObjectRequest.key())) {
+                    throw S3Exception.builder().statusCode(503).awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                                     .message("Please reduce your request rate.").build();
+                }
+                return super.getObject(getObjectRequest);
+            }
+        };
+        generator.writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 60);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("access-log", 4, 4, 3, 1, 5);
+        AtomicInteger records = new AtomicInteger();
+
+        List<S3File> completed = new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), null, 4, 2, 10, 4, limiter)
+            .run((logObject, assetAccessLog) -> records.incrementAndGet());
+
+        assertEquals(60, records.get());
+        assertEquals(20, completed.size());
+        assertEquals(20, limiter.getThrottledRequests());
+        assertEquals(20, limiter.getRetries());
+    }
+
+    @Test
+    void aDownloaderWaitingForTheParsersHoldsNoSlot() throws Exception {
+        CountDownLatch secondGet = new CountDownLatch(2);
+        s3Client = new InMemoryS3Client() {
+            @Override
+            public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest) {
+                secondGet.countDown();
+                return super.getObject(getObjectRequest);
+            }
+        };
+        // More lines in each object than the queues between the downloaders and the consumer hold
+        generator.withLinesPerObject(20).writeAccessLogs(s3Client, ACCESS_LOG_BUCKET, 600);
+        // One slot, and queues of one chunk of one line that fill while the first record is held
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("access-log", 1, 1, 3, 1, 5);
+        AtomicBoolean otherObjectRead = new AtomicBoolean();
+        AtomicInteger records = new AtomicInteger();
+
+        new AccessLogPipeline(s3Client, ACCESS_LOG_BUCKET, "cidev/", Map.of(), null, 2, 1, 1, 1, limiter).run((logObject, assetAccessLog) -> {
+            if (records.incrementAndGet() == 1) {
+                try {
+                    otherObjectRead.set(secondGet.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        assertTrue(otherObjectRead.get());
+        assertEquals(600, records.get());
+    }
+}
@@ -0,0 +1,186 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static S3Exception slowDown() {
+        return S3Exception.builder().statusCode(503).awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                          .message("Please reduce your request rate.").build();
+    }
+
+    // Runs the requests from more threads than the limiter allows, returning the most seen in flight at once
+    private static int runConcurrently(AdaptiveConcurrencyLimiter limiter, int threads, int requests) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger mostInFlight = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Object>> futures = executor.invokeAll(Collections.nCopies(requests, () -> limiter.call(() -> {
+                mostInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                TimeUnit.MILLISECONDS.sleep(1);
+                inFlight.decrementAndGet();
+                return null;
+            })));
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return mostInFlight.get();
+    }
+
+    @Test
+    void theLimitGrowsWhileRequestsAreHealthy() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 8, 3, 1, 5);
+
+        int mostInFlight = runConcurrently(limiter, 16, 400);
+
+        assertEquals(8, limiter.getLimit());
+        assertTrue(mostInFlight <= 8, "at most the maximum in flight, not " + mostInFlight);
+        assertTrue(mostInFlight > 2, "more than the initial limit in flight, not " + mostInFlight);
+    }
+
+    @Test
+    void throttledRequestsAreRetriedAndTheLimitHalved() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 8, 5, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = limiter.call(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw slowDown();
+            }
+            return "read";
+        });
+
+        assertEquals("read", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, limiter.getThrottledRequests());
+        assertEquals(2, limiter.getRetries());
+        // Each retry started after the decrease before it, so both halved the limit
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void oneBurstOfThrottlingIsOneDecrease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 8, 8, 1, 1, 5);
+        AtomicInteger started = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            // Eight requests in flight together, all throttled
+            List<Future<Object>> futures = executor.invokeAll(Collections.nCopies(8, () -> limiter.call(() -> {
+                started.incrementAndGet();
+                while (started.get() < 8) {
+                    Thread.onSpinWait();
+                }
+                throw slowDown();
+            })));
+            for (Future<Object> future : futures) {
+                assertThrows(Exception.class, future::get);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(8, limiter.getThrottledRequests());
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void throttlingIsPassedOnOnceTheAttemptsRunOut() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 4, 3, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+        S3Exception slowDown = slowDown();
+
+        assertSame(slowDown, assertThrows(S3Exception.class, () -> limiter.call(() -> {
+            attempts.incrementAndGet();
+            throw slowDown;
+        })));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 4, 3, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(SdkClientException.class, () -> limiter.call(() -> {
+            attempts.incrementAndGet();
+            throw SdkClientException.create("Connection reset");
+        }));
+        assertThrows(S3Exception.class, () -> limiter.call(() -> {
+            attempts.incrementAndGet();
+            throw S3Exception.builder().statusCode(403).message("Access Denied").build();
+        }));
+        assertEquals(2, attempts.get());
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void theSdkLeavesThrottledRequestsToTheLimiter() {
+        assertFalse(AdaptiveConcurrencyLimiter.isRetriedBySdk(slowDown()));
+        assertFalse(AdaptiveConcurrencyLimiter.isRetriedBySdk(S3Exception.builder().statusCode(403).message("Access Denied").build()));
+        assertFalse(AdaptiveConcurrencyLimiter.isRetriedBySdk(SdkClientException.create("Unable to marshall request")));
+        assertTrue(AdaptiveConcurrencyLimiter.isRetriedBySdk(S3Exception.builder().statusCode(500).message("We encountered an internal error.").build()));
+        assertTrue(AdaptiveConcurrencyLimiter.isRetriedBySdk(SdkClientException.create("Unable to execute HTTP request", new IOException("Connection reset"))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void theLimitIsAnEmbeddedMetric() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("access-log", 6, 32, 3, 1, 5);
+
+        Map<String, Object> metrics = limiter.metrics();
+
+        assertEquals("access-log", metrics.get("Limiter"));
+        assertEquals(6, metrics.get("ConcurrencyLimit"));
+        Map<String, Object> aws = (Map<String, Object>) metrics.get("_aws");
+        Map<String, Object> directive = ((List<Map<String, Object>>) aws.get("CloudWatchMetrics")).get(0);
+        assertEquals("cdn-analyser", directive.get("Namespace"));
+        assertEquals(List.of(List.of("Limiter")), directive.get("Dimensions"));
+        assertTrue(((List<Map<String, Object>>) directive.get("Metrics")).stream().anyMatch(metric -> "ConcurrencyLimit".equals(metric.get("Name"))));
+    }
+
+    @Test
+    void eachRunPublishesOnlyItsOwnThrottledRequests() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("access-log", 8, 8, 5, 1, 5);
+        AtomicInteger attempts = new AtomicInteger();
+        limiter.call(() -> attempts.incrementAndGet() < 3 ? throwSlowDown() : "read");
+
+        Map<String, Object> firstRun = limiter.metrics();
+        assertEquals(2L, firstRun.get("ThrottledRequests"));
+        assertEquals(2L, firstRun.get("RetriedRequests"));
+
+        // The same limiter in the next run of a warm Lambda
+        attempts.set(0);
+        limiter.call(() -> attempts.incrementAndGet() < 2 ? throwSlowDown() : "read");
+        Map<String, Object> secondRun = limiter.metrics();
+        assertEquals(1L, secondRun.get("ThrottledRequests"));
+        assertEquals(1L, secondRun.get("RetriedRequests"));
+        assertEquals(3, limiter.getThrottledRequests());
+    }
+
+    private static String throwSlowDown() {
+        throw slowDown();
+    }
+}
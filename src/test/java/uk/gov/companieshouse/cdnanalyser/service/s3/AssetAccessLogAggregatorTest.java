@@ -0,0 +1,149 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.models.S3File;
+
+class AssetAccessLogAggregatorTest {
+
+    private final S3File logObject = new S3File("logfile1.txt", Instant.now(), "\"etag-1\"");
+
+    private static AssetAccessLog assetAccessLog(String asset, int statusCode, Instant timestamp) {
+        AssetAccessLog assetAccessLog = new AssetAccessLog();
+        assetAccessLog.setRequestType("GET");
+        assetAccessLog.setAsset(asset);
+        assetAccessLog.setStatusCode(statusCode);
+        assetAccessLog.setTimestamp(timestamp);
+        return assetAccessLog;
+    }
+
+    @Test
+    void testFailedRequestsAreNotCountedAsUsage() {
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(Arrays.asList("file1", "file2"), "/cidev/", new HashMap<>());
+
+        aggregator.add(logObject, assetAccessLog("file1", 200, Instant.now()));
+        aggregator.add(logObject, assetAccessLog("file2", 404, Instant.now()));
+        aggregator.completed(List.of(logObject));
+
+        List<AssetUsageReport> reports = aggregator.getSuccessfulAssetUsageReports();
+        assertEquals(1, reports.size());
+        assertEquals(1, reports.get(0).getAssetAccessCount().get("file1"));
+        assertEquals(0, reports.get(0).getAssetAccessCount().get("file2"));
+    }
+
+    @Test
+    void testCollectSuccessfulAssetUsageReports() {
+        Instant now = Instant.now();
+        Instant yesterday = now.minus(1, ChronoUnit.DAYS);
+        List<String> assets = Arrays.asList("file1", "file2");
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(assets, "/cidev/", new HashMap<>());
+
+        aggregator.add(logObject, assetAccessLog("/cidev/file1", 200, now));
+        aggregator.add(logObject, assetAccessLog("/cidev/file2", 200, now));
+        aggregator.add(logObject, assetAccessLog("/cidev/file2", 200, yesterday));
+        aggregator.completed(List.of(logObject));
+
+        List<AssetUsageReport> reports = aggregator.getSuccessfulAssetUsageReports();
+
+        assertFalse(reports.isEmpty());
+
+        reports.forEach(report -> {
+            assertEquals(assets.size(), report.getAssetAccessCount().size());
+            if (report.getId().equals(LocalDate.ofInstant(now, Constants.LONDON_ZONE_ID).toString())) {
+                Map<String, Integer> counts = report.getAssetAccessCount();
+                assertEquals(1, counts.get("file1"));
+                assertEquals(1, counts.get("file2"));
+            } else if (report.getId().equals(LocalDate.ofInstant(yesterday, Constants.LONDON_ZONE_ID).toString())) {
+                Map<String, Integer> counts = report.getAssetAccessCount();
+                assertEquals(0, counts.get("file1"));
+                assertEquals(1, counts.get("file2"));
+            } else {
+                throw new IllegalStateException("Unexpected report date: " + report.getId());
+            }
+        });
+    }
+
+    @Test
+    void cachedAggregatesAreMergedWithNewlyReadLogObjects() {
+        Instant now = Instant.parse("2025-03-01T12:00:00Z");
+        LogObjectAggregate cached = new LogObjectAggregate("\"etag-0\"");
+        cached.getSuccessCounts().put("2025-03-01", new HashMap<>(Map.of("file1", 5)));
+        Map<String, LogObjectAggregate> cachedAggregates = new HashMap<>(Map.of("logfile0.txt", cached));
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(List.of("file1"), "/cidev/", cachedAggregates);
+
+        aggregator.add(logObject, assetAccessLog("/cidev/file1", 200, now));
+        aggregator.completed(List.of(logObject));
+
+        assertTrue(aggregator.isChanged());
+        assertEquals(2, aggregator.getLogObjectAggregates().size());
+        assertEquals(6, aggregator.getSuccessfulAssetUsageReports().get(0).getAssetAccessCount().get("file1"));
+    }
+
+    @Test
+    void incompletelyReadLogObjectsAreNotCached() {
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(List.of("file1"), "/cidev/", new HashMap<>());
+
+        aggregator.add(logObject, assetAccessLog("/cidev/file1", 200, Instant.now()));
+        aggregator.completed(List.of());
+
+        assertFalse(aggregator.isChanged());
+        assertTrue(aggregator.isEmpty());
+    }
+
+    @Test
+    void rawRecordsWithoutALogObjectAreKeptOnFirstRun() {
+        Instant now = Instant.parse("2025-03-01T12:00:00Z");
+        AssetAccessLog expired = assetAccessLog("/cidev/file1", 200, now.minus(40, ChronoUnit.DAYS));
+        AssetAccessLog current = assetAccessLog("/cidev/file1", 200, now);
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(List.of("file1"), "/cidev/", new HashMap<>());
+
+        aggregator.add(expired);
+        aggregator.add(current);
+        aggregator.add(logObject, current);
+        aggregator.completed(List.of(logObject));
+
+        assertEquals(2, aggregator.getLogObjectAggregates().size());
+        assertTrue(aggregator.getLogObjectAggregates().containsKey(AssetAccessLogAggregator.RAW_DATA_AGGREGATE_KEY));
+        int total = aggregator.getSuccessfulAssetUsageReports().stream().mapToInt(report -> report.getAssetAccessCount().get("file1")).sum();
+        assertEquals(2, total);
+    }
+
+    @Test
+    void changedDaysAreRebuiltFromEveryLogObject() {
+        Instant now = Instant.parse("2025-03-01T12:00:00Z");
+        LogObjectAggregate cached = new LogObjectAggregate("\"etag-0\"");
+        cached.getSuccessCounts().put("2025-02-01", new HashMap<>(Map.of("file1", 5)));
+        LogObjectAggregate changed = new LogObjectAggregate("\"etag-old\"");
+        changed.getSuccessCounts().put("2025-03-01", new HashMap<>(Map.of("file1", 2)));
+        Map<String, LogObjectAggregate> cachedAggregates = new HashMap<>(Map.of("logfile0.txt", cached, "logfile1.txt", changed));
+        AssetAccessLogAggregator aggregator = new AssetAccessLogAggregator(List.of("file1"), "/cidev/", cachedAggregates);
+
+        // logfile1.txt has changed since it was cached and now holds a single request
+        aggregator.add(logObject, assetAccessLog("/cidev/file1", 200, now));
+        aggregator.completed(List.of(logObject));
+
+        assertEquals(Set.of("2025-03-01"), aggregator.getChangedDays());
+        List<AssetUsageReport> rebuilt = aggregator.getSuccessfulAssetUsageReports(aggregator.getChangedDays());
+        assertEquals(1, rebuilt.size());
+        assertEquals(Map.of("file1", 1), rebuilt.get(0).getAssetAccessCount());
+        // Rebuilding again gives the same report rather than applying the change twice
+        assertEquals(Map.of("file1", 1), aggregator.getSuccessfulAssetUsageReports(aggregator.getChangedDays()).get(0).getAssetAccessCount());
+    }
+}
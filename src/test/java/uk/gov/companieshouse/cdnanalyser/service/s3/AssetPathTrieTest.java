@@ -0,0 +1,73 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FolderUsage;
+
+class AssetPathTrieTest {
+
+    private static Map<String, Long> assetSizes() {
+        Map<String, Long> assetSizes = new LinkedHashMap<>();
+        assetSizes.put("assets/fonts/bold.woff2", 100L);
+        assetSizes.put("assets/fonts/light.woff2", 200L);
+        assetSizes.put("assets/fonts/legacy/old.woff", 50L);
+        assetSizes.put("javascripts/app/main.js", 1_000L);
+        assetSizes.put("javascripts/app.js", 10L);
+        assetSizes.put("stylesheets/", 0L);
+        assetSizes.put("favicon.ico", 5L);
+        return assetSizes;
+    }
+
+    @Test
+    void findsIdentifiedAssetsFromAnOffset() {
+        Map<String, Long> assetSizes = assetSizes();
+        AssetPathTrie trie = new AssetPathTrie(assetSizes);
+        String asset = assetSizes.keySet().iterator().next();
+
+        assertEquals(6, trie.size());
+        assertSame(asset, trie.find("cidev/assets/fonts/bold.woff2", "cidev/".length()));
+        assertEquals("javascripts/app.js", trie.find("javascripts/app.js", 0));
+        assertEquals("javascripts/app/main.js", trie.find("/javascripts/app/main.js", 1));
+        assertEquals("favicon.ico", trie.find("favicon.ico", 0));
+        assertNull(trie.find("assets/fonts/", 0));
+        assertNull(trie.find("assets/fonts/bold.woff", 0));
+        assertNull(trie.find("assets/fonts/bold.woff2/x", 0));
+        assertNull(trie.find("javascripts/app", 0));
+        assertNull(trie.find("stylesheets/", 0));
+        assertNull(trie.find("", 0));
+    }
+
+    @Test
+    void foldersTotalTheirAssetsAndSubfolders() {
+        AssetPathTrie trie = new AssetPathTrie(assetSizes());
+
+        AssetFolderUsageReport report = trie.folderUsage("2025-03-01", Map.of("assets/fonts/bold.woff2", 4, "assets/fonts/legacy/old.woff", 1,
+                                                                              "javascripts/app.js", 7, "unknown.js", 9));
+
+        assertEquals("2025-03-01", report.getId());
+        assertEquals(List.of("assets/", "assets/fonts/", "assets/fonts/legacy/", "javascripts/", "javascripts/app/"),
+                     report.getFolders().stream().map(FolderUsage::getFolder).toList());
+        FolderUsage fonts = report.getFolders().get(1);
+        assertEquals(5, fonts.getRequests());
+        assertEquals(3, fonts.getFiles());
+        assertEquals(1, fonts.getUnusedFiles());
+        assertEquals(350, fonts.getBytes());
+        // assets/ only holds fonts/, so shares its edge and its totals
+        assertEquals(5, report.getFolders().get(0).getRequests());
+        assertEquals(350, report.getFolders().get(0).getBytes());
+        FolderUsage javascripts = report.getFolders().get(3);
+        assertEquals(7, javascripts.getRequests());
+        assertEquals(2, javascripts.getFiles());
+        assertEquals(1, javascripts.getUnusedFiles());
+        assertEquals(1_010, javascripts.getBytes());
+    }
+}
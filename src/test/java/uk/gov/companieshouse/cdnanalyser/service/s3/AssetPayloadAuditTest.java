@@ -0,0 +1,76 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ASSET_BUCKET;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayload;
+import uk.gov.companieshouse.cdnanalyser.models.AssetPayloadReport;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+import uk.gov.companieshouse.cdnanalyser.support.InMemoryS3Client;
+
+class AssetPayloadAuditTest {
+
+    private static final Map<String, Integer> REQUESTS = Map.of("app.js", 2_000, "app-3f9a1c2b7d.js", 5_000, "logo.png", 10);
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private AssetPayloadAudit assetPayloadAudit;
+
+    @BeforeEach
+    void setUp() {
+        InMemoryS3Client s3Client = fixture.getS3Client();
+        s3Client.createBucket(ASSET_BUCKET);
+        s3Client.putObject(ASSET_BUCKET, "app.js", new byte[200_000], null, "max-age=300");
+        s3Client.putObject(ASSET_BUCKET, "app-3f9a1c2b7d.js", new byte[200_000], "gzip", "public, max-age=31536000, immutable");
+        s3Client.putObject(ASSET_BUCKET, "logo.png", new byte[50_000], null, null);
+        s3Client.putObject(ASSET_BUCKET, "unused.css", new byte[1_000], null, null);
+        assetPayloadAudit = new AssetPayloadAudit(fixture.getReaderService(), fixture.getWriterService(), 102_400, 1_000, 3_600, 86_400);
+    }
+
+    @Test
+    void requestedAssetsAreRankedByTheBytesTheyCouldBeServing() {
+        AssetPayloadReport report = assetPayloadAudit.audit("2025-03-01", fixture.getReaderService().readAssetInventory(), REQUESTS);
+
+        assertEquals(List.of("app-3f9a1c2b7d.js", "app.js", "logo.png"), report.getAssets().stream().map(AssetPayload::getAsset).toList());
+        assertEquals(200_000L * 5_000 + 200_000L * 2_000 + 50_000L * 10, report.getTotalBytesServedPotential());
+
+        AssetPayload fingerprinted = report.getAssets().get(0);
+        assertEquals("gzip", fingerprinted.getContentEncoding());
+        assertEquals(31_536_000, fingerprinted.getCacheLifetimeSeconds());
+        assertTrue(fingerprinted.getCandidates().isEmpty());
+        // Large uncompressed text, kept for five minutes
+        assertEquals(List.of(AssetPayloadAudit.COMPRESSION, AssetPayloadAudit.LONGER_CACHE), report.getAssets().get(1).getCandidates());
+        // Not requested often enough to matter
+        assertTrue(report.getAssets().get(2).getCandidates().isEmpty());
+        assertTrue(fixture.getS3Client().keys(ANALYSIS_BUCKET).contains("asset-payload-report.json"));
+    }
+
+    @Test
+    void onlyNewAndChangedAssetsAreRequestedAgain() {
+        assetPayloadAudit.audit("2025-03-01", fixture.getReaderService().readAssetInventory(), REQUESTS);
+        assertEquals(4, fixture.getS3Client().getHeadRequests());
+        assertEquals(4, fixture.getReaderService().readAssetMetadata().size());
+
+        long putRequests = fixture.getS3Client().getPutRequests();
+        assetPayloadAudit.audit("2025-03-02", fixture.getReaderService().readAssetInventory(), REQUESTS);
+        assertEquals(4, fixture.getS3Client().getHeadRequests());
+        // Only the report, the metadata is unchanged
+        assertEquals(1, fixture.getS3Client().getPutRequests() - putRequests);
+
+        fixture.getS3Client().putObject(ASSET_BUCKET, "app.js", new byte[20_000], "br", "max-age=86400");
+        AssetPayloadReport report = assetPayloadAudit.audit("2025-03-03", fixture.getReaderService().readAssetInventory(), REQUESTS);
+        assertEquals(5, fixture.getS3Client().getHeadRequests());
+        AssetPayload app = report.getAssets().stream().filter(payload -> payload.getAsset().equals("app.js")).findFirst().orElseThrow();
+        assertEquals("br", app.getContentEncoding());
+        assertTrue(app.getCandidates().isEmpty());
+        assertEquals("br", fixture.getReaderService().readAssetMetadata().get("app.js").getContentEncoding());
+    }
+}
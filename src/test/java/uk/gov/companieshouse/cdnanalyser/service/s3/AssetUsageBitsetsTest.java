@@ -0,0 +1,79 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.UnusedAssetsReport;
+
+class AssetUsageBitsetsTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2025-12-31");
+
+    private static AssetUsageReport dailyReport(String day, String... requestedAssets) {
+        Map<String, Integer> counts = new HashMap<>();
+        counts.put("never.js", 0);
+        for (String asset : requestedAssets) {
+            counts.put(asset, 1);
+        }
+        return new AssetUsageReport(day, counts);
+    }
+
+    @Test
+    void unusedAssetsAreWorkedOutPerWindow() {
+        List<String> assets = List.of("recent.js", "last-quarter.js", "last-year.js", "never.js");
+        AssetDictionary dictionary = new AssetDictionary(List.of());
+        dictionary.addAssets(assets);
+        AssetUsageBitsets bitsets = new AssetUsageBitsets(dictionary, Map.of());
+        bitsets.add(dailyReport("2025-12-20", "recent.js"));
+        bitsets.add(dailyReport("2025-10-15", "last-quarter.js"));
+        bitsets.add(dailyReport("2025-03-01", "last-year.js"));
+
+        UnusedAssetsReport report = bitsets.unusedAssets(assets, TODAY, List.of(30, 90, 365));
+
+        assertEquals("2025-12-31", report.getId());
+        assertEquals(List.of("last-quarter.js", "last-year.js", "never.js"), report.getUnusedAssets().get(30));
+        assertEquals(List.of("last-year.js", "never.js"), report.getUnusedAssets().get(90));
+        assertEquals(List.of("never.js"), report.getUnusedAssets().get(365));
+    }
+
+    @Test
+    void savedBitsetsKeepTheirMeaningAsAssetsChange() {
+        AssetDictionary firstDictionary = new AssetDictionary(List.of());
+        firstDictionary.addAssets(List.of("a.js", "b.js"));
+        AssetUsageBitsets firstRun = new AssetUsageBitsets(firstDictionary, Map.of());
+        firstRun.add(dailyReport("2025-12-30", "b.js"));
+        assertTrue(firstDictionary.isChanged());
+
+        // a.js has been removed from the bucket and c.js added
+        AssetDictionary secondDictionary = new AssetDictionary(firstDictionary.getAssets());
+        secondDictionary.addAssets(List.of("b.js", "c.js"));
+        AssetUsageBitsets secondRun = new AssetUsageBitsets(secondDictionary, firstRun.toBytes(TODAY, 365));
+        UnusedAssetsReport report = secondRun.unusedAssets(List.of("b.js", "c.js"), TODAY, List.of(30));
+
+        assertEquals(List.of("a.js", "b.js", "c.js"), secondDictionary.getAssets());
+        assertEquals(List.of("c.js"), report.getUnusedAssets().get(30));
+    }
+
+    @Test
+    void onlyDaysWithinTheRetentionAreSaved() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js"));
+        AssetUsageBitsets bitsets = new AssetUsageBitsets(dictionary, Map.of());
+        bitsets.add(dailyReport("2025-12-31", "a.js"));
+        bitsets.add(dailyReport("2024-12-31", "a.js"));
+
+        Map<String, byte[]> saved = bitsets.toBytes(TODAY, 365);
+
+        assertEquals(1, saved.size());
+        assertTrue(saved.containsKey("2025-12-31"));
+        assertFalse(dictionary.isChanged());
+    }
+}
@@ -0,0 +1,128 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AssetUsageIndexTest {
+
+    private static LocalDate day(String day) {
+        return LocalDate.parse(day);
+    }
+
+    @Test
+    void rangeCountsAreTheDifferenceOfTwoCumulativeCounts() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js", "b.css"));
+        AssetUsageIndex index = new AssetUsageIndex();
+
+        index.set("2025-03-01", Map.of("a.js", 2, "b.css", 1), dictionary);
+        index.set("2025-03-03", Map.of("a.js", 5), dictionary);
+        index.set("2025-03-10", Map.of("a.js", 1, "b.css", 4), dictionary);
+
+        assertEquals(10, index.getDayCount());
+        assertEquals(8, index.count(0, day("2025-03-01"), day("2025-03-10")));
+        assertEquals(5, index.count(0, day("2025-03-02"), day("2025-03-09")));
+        assertEquals(0, index.count(0, day("2025-03-04"), day("2025-03-09")));
+        assertEquals(4, index.count(1, day("2025-03-02"), day("2025-03-10")));
+        // Days outside the index have no requests
+        assertEquals(8, index.count(0, day("2025-01-01"), day("2025-12-31")));
+        assertEquals(0, index.count(0, day("2025-04-01"), day("2025-04-30")));
+    }
+
+    @Test
+    void settingADayReplacesItsCountsAndCoversEarlierDaysAndNewAssets() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js"));
+        AssetUsageIndex index = new AssetUsageIndex();
+        index.set("2025-03-05", Map.of("a.js", 3), dictionary);
+
+        dictionary.addAssets(List.of("c.png"));
+        index.set("2025-03-01", Map.of("a.js", 2, "c.png", 7, "unknown.js", 9), dictionary);
+        index.set("2025-03-05", Map.of("a.js", 2), dictionary);
+
+        assertEquals(5, index.getDayCount());
+        assertEquals(day("2025-03-01"), index.getFirstDay());
+        assertEquals(2, index.count(0, day("2025-03-01"), day("2025-03-04")));
+        assertEquals(4, index.count(0, day("2025-03-01"), day("2025-03-05")));
+        assertEquals(4, index.total(0));
+        assertEquals(7, index.count(1, day("2025-03-01"), day("2025-03-05")));
+        assertEquals(0, index.count(-1, day("2025-03-01"), day("2025-03-05")));
+    }
+
+    @Test
+    void settingTheSameCountsAgainChangesNothing() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js", "b.css"));
+        AssetUsageIndex index = AssetUsageIndex.fromBytes(indexOf(dictionary, "2025-03-01", Map.of("a.js", 2, "b.css", 1)).toBytes());
+
+        index.set("2025-03-01", Map.of("a.js", 2, "b.css", 1), dictionary);
+        assertFalse(index.isChanged());
+
+        // An asset left out of the day's report has no requests that day
+        index.set("2025-03-01", Map.of("a.js", 2), dictionary);
+        assertTrue(index.isChanged());
+        assertEquals(0, index.total(1));
+        assertEquals(2, index.total(0));
+    }
+
+    private static AssetUsageIndex indexOf(AssetDictionary dictionary, String day, Map<String, Integer> counts) {
+        AssetUsageIndex index = new AssetUsageIndex();
+        index.set(day, counts, dictionary);
+        return index;
+    }
+
+    @Test
+    void savedIndexIsReadBackColumnByColumn() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js", "b.css"));
+        AssetUsageIndex index = new AssetUsageIndex();
+        index.set("2025-03-01", Map.of("a.js", 2, "b.css", 1), dictionary);
+        index.set("2025-03-02", Map.of("b.css", 6), dictionary);
+        assertTrue(index.isChanged());
+
+        AssetUsageIndex read = AssetUsageIndex.fromBytes(index.toBytes());
+
+        assertFalse(read.isChanged());
+        assertEquals(2, read.getDayCount());
+        assertEquals(2, read.count(0, day("2025-03-01"), day("2025-03-02")));
+        assertEquals(6, read.count(1, day("2025-03-02"), day("2025-03-02")));
+        assertThrows(IllegalArgumentException.class, () -> AssetUsageIndex.fromBytes(new byte[] {0, 0, 0, 9}));
+    }
+
+    @Test
+    void runningTotalsPastTheLargestIntAreKept() {
+        AssetDictionary dictionary = new AssetDictionary(List.of("a.js"));
+        AssetUsageIndex index = new AssetUsageIndex();
+        index.set("2025-03-01", Map.of("a.js", Integer.MAX_VALUE - 1), dictionary);
+        index.set("2025-03-02", Map.of("a.js", 5), dictionary);
+        index.set("2025-03-03", Map.of("a.js", Integer.MAX_VALUE), dictionary);
+        // Lowering an earlier day moves every later running total down with it
+        index.set("2025-03-01", Map.of("a.js", Integer.MAX_VALUE - 3), dictionary);
+
+        AssetUsageIndex read = AssetUsageIndex.fromBytes(index.toBytes());
+
+        assertEquals(2L * Integer.MAX_VALUE + 2, read.total(0));
+        assertEquals(Integer.MAX_VALUE + 5L, read.count(0, day("2025-03-02"), day("2025-03-03")));
+        assertEquals(Integer.MAX_VALUE - 3L, read.count(0, day("2025-03-01"), day("2025-03-01")));
+    }
+
+    @Test
+    void anIndexSavedWithIntColumnsIsReadAsLongs() {
+        ByteBuffer saved = ByteBuffer.allocate(Integer.BYTES * 3 + Long.BYTES + Integer.BYTES * 2 * 2);
+        saved.putInt(1).putLong(LocalDate.parse("2025-03-01").toEpochDay()).putInt(2).putInt(2);
+        saved.putInt(2).putInt(2);
+        saved.putInt(1).putInt(7);
+
+        AssetUsageIndex read = AssetUsageIndex.fromBytes(saved.array());
+
+        assertEquals(2, read.getDayCount());
+        assertEquals(2, read.total(0));
+        assertEquals(6, read.count(1, day("2025-03-02"), day("2025-03-02")));
+        assertEquals(2, AssetUsageIndex.fromBytes(read.toBytes()).total(0));
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageRangeQuery.RangePart;
+import uk.gov.companieshouse.cdnanalyser.service.s3.AssetUsageRollups.Period;
+
+class AssetUsageRangeQueryTest {
+
+    private static List<RangePart> plan(String from, String to) {
+        return AssetUsageRangeQuery.plan(LocalDate.parse(from), LocalDate.parse(to));
+    }
+
+    @Test
+    void aYearIsAnsweredFromMonthlyRollups() {
+        List<RangePart> parts = plan("2025-01-01", "2025-12-31");
+
+        assertEquals(12, parts.size());
+        parts.forEach(part -> assertEquals(Period.MONTH, part.period()));
+    }
+
+    @Test
+    void wholeWeeksAreUsedWithinAMonth() {
+        assertEquals(List.of(new RangePart(null, LocalDate.parse("2025-01-05")),
+                             new RangePart(Period.WEEK, LocalDate.parse("2025-01-06")),
+                             new RangePart(Period.WEEK, LocalDate.parse("2025-01-13")),
+                             new RangePart(null, LocalDate.parse("2025-01-20"))),
+                     plan("2025-01-05", "2025-01-20"));
+    }
+
+    @Test
+    void aWeekRunningIntoAWholeMonthIsSplitIntoDays() {
+        // 2025-01-27 is a Monday, and its week runs into February
+        List<RangePart> parts = plan("2025-01-27", "2025-03-31");
+
+        assertEquals(7, parts.size());
+        assertEquals(new RangePart(null, LocalDate.parse("2025-01-31")), parts.get(4));
+        assertEquals(new RangePart(Period.MONTH, LocalDate.parse("2025-02-01")), parts.get(5));
+        assertEquals(new RangePart(Period.MONTH, LocalDate.parse("2025-03-01")), parts.get(6));
+    }
+
+    @Test
+    void aWeekRunningIntoAPartMonthIsKept() {
+        assertEquals(List.of(new RangePart(Period.WEEK, LocalDate.parse("2025-01-27")),
+                             new RangePart(null, LocalDate.parse("2025-02-03"))),
+                     plan("2025-01-27", "2025-02-03"));
+    }
+}
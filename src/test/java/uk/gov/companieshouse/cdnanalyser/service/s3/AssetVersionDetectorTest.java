@@ -0,0 +1,70 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersion;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionGroup;
+import uk.gov.companieshouse.cdnanalyser.models.AssetVersionReport;
+import uk.gov.companieshouse.cdnanalyser.models.DuplicateContent;
+
+class AssetVersionDetectorTest {
+
+    @Test
+    void versionsAreGroupedByLogicalNameAndUnrequestedOnesAreDeadWeight() {
+        Map<String, AssetMetadata> assetInventory = new LinkedHashMap<>();
+        assetInventory.put("fonts/bold.woff2", new AssetMetadata(30_000, "\"a\"", "STANDARD"));
+        assetInventory.put("fonts/bold-b542beb274-v2.woff2", new AssetMetadata(31_000, "\"b\"", "STANDARD"));
+        assetInventory.put("fonts/bold-0123abcd89.woff2", new AssetMetadata(29_000, "\"c\"", "STANDARD"));
+        assetInventory.put("javascripts/app.js", new AssetMetadata(5_000, "\"d\"", "STANDARD"));
+        assetInventory.put("javascripts/copy-of-app.js", new AssetMetadata(5_000, "\"d\"", "STANDARD"));
+        assetInventory.put("images/blank.gif", new AssetMetadata(0, "\"empty\"", "STANDARD"));
+        assetInventory.put("images/spacer.gif", new AssetMetadata(0, "\"empty\"", "STANDARD"));
+
+        AssetVersionReport report = AssetVersionDetector.detect("2025-03-01", assetInventory,
+                                                                Map.of("fonts/bold.woff2", 40, "fonts/bold-b542beb274-v2.woff2", 900, "fonts/bold-0123abcd89.woff2", 3),
+                                                                Set.of("fonts/bold.woff2", "fonts/bold-0123abcd89.woff2", "javascripts/copy-of-app.js", "images/spacer.gif"), 30);
+
+        assertEquals(1, report.getGroups().size());
+        AssetVersionGroup bold = report.getGroups().get(0);
+        assertEquals("fonts/bold.woff2", bold.getLogicalName());
+        assertEquals(943, bold.getRequests());
+        assertEquals(List.of("fonts/bold-b542beb274-v2.woff2", "fonts/bold.woff2", "fonts/bold-0123abcd89.woff2"),
+                     bold.getVersions().stream().map(AssetVersion::getAsset).toList());
+        assertTrue(bold.getVersions().get(0).isRequestedRecently());
+        assertFalse(bold.getVersions().get(1).isRequestedRecently());
+        assertEquals(2, bold.getDeadVersions());
+        assertEquals(59_000, bold.getDeadBytes());
+        assertEquals(59_000, report.getDeadBytes());
+
+        // Empty objects share an ETag without being copies of anything
+        assertEquals(1, report.getDuplicateContent().size());
+        DuplicateContent copies = report.getDuplicateContent().get(0);
+        assertEquals(List.of("javascripts/app.js", "javascripts/copy-of-app.js"), copies.getAssets());
+        assertEquals(5_000, copies.getRedundantBytes());
+        assertEquals(5_000, report.getRedundantBytes());
+    }
+
+    @Test
+    void hundredsOfThousandsOfKeysAreGroupedInOnePass() {
+        Map<String, AssetMetadata> assetInventory = new LinkedHashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            assetInventory.put("javascripts/module" + i + ".js", new AssetMetadata(100, "\"" + i + "\"", "STANDARD"));
+            assetInventory.put("javascripts/module" + i + "-" + String.format("%08x", i) + ".js", new AssetMetadata(101, "\"v" + i + "\"", "STANDARD"));
+        }
+
+        AssetVersionReport report = AssetVersionDetector.detect("2025-03-01", assetInventory, Map.of(), Set.of(), 30);
+
+        assertEquals(100_000, report.getGroups().size());
+        assertTrue(report.getDuplicateContent().isEmpty());
+    }
+}
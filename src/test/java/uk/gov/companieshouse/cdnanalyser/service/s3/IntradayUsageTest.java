@@ -0,0 +1,116 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.assetAccessLog;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetPeakUsage;
+import uk.gov.companieshouse.cdnanalyser.models.IntradayUsageReport;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class IntradayUsageTest {
+
+    private static final List<String> ASSETS = List.of("app.js", "logo.png", "unused.css");
+
+    private static final Instant YESTERDAY = LocalDate.now(ZoneOffset.UTC).minusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private final AssetPathTrie assetPathTrie = new AssetPathTrie(Map.of("app.js", 100L, "logo.png", 100L, "unused.css", 100L));
+
+    private IntradayUsage intradayUsage(int slotMinutes) {
+        return new IntradayUsage(fixture.getReaderService(), fixture.getWriterService(), ASSETS, assetPathTrie, "cidev/", slotMinutes, 7, 10);
+    }
+
+    @Test
+    void requestsAreCountedInTheSlotsOfTheDay() {
+        IntradayUsage intradayUsage = intradayUsage(60);
+        assertFalse(intradayUsage.isChanged());
+        for (int i = 0; i < 5; i++) {
+            intradayUsage.add(assetAccessLog("app.js", YESTERDAY.plus(9, ChronoUnit.HOURS).plusSeconds(i), 200));
+        }
+        intradayUsage.add(assetAccessLog("app.js", YESTERDAY.plus(17, ChronoUnit.HOURS), 200));
+        intradayUsage.add(assetAccessLog("logo.png", YESTERDAY.plus(17, ChronoUnit.HOURS).plusSeconds(59 * 60), 304));
+        intradayUsage.add(assetAccessLog("logo.png", YESTERDAY.plus(17, ChronoUnit.HOURS), 404));
+        intradayUsage.add(assetAccessLog("missing.js", YESTERDAY.plus(17, ChronoUnit.HOURS), 200));
+        // Before the days reported on
+        intradayUsage.add(assetAccessLog("logo.png", YESTERDAY.minus(30, ChronoUnit.DAYS), 200));
+        assertTrue(intradayUsage.isChanged());
+
+        IntradayUsageReport report = intradayUsage.save(new AssetDictionary(ASSETS));
+
+        assertEquals(24, report.getRequestsBySlot().length);
+        assertEquals(5, report.getRequestsBySlot()[9]);
+        assertEquals(2, report.getRequestsBySlot()[17]);
+        assertEquals("09:00", report.getPeakSlot());
+        assertEquals(List.of("app.js", "logo.png"), report.getAssets().stream().map(AssetPeakUsage::getAsset).toList());
+        AssetPeakUsage app = report.getAssets().get(0);
+        assertEquals(6, app.getRequests());
+        assertEquals(5, app.getPeakRequests());
+        assertEquals(5.0 / 6, app.getPeakShare());
+        assertTrue(fixture.getS3Client().keys(ANALYSIS_BUCKET).contains("intraday-usage/" + LocalDate.now(ZoneOffset.UTC).minusDays(1) + ".bin"));
+        assertTrue(fixture.getS3Client().keys(ANALYSIS_BUCKET).contains("intraday-usage-report.json"));
+    }
+
+    @Test
+    void savedDaysAreAddedToAndFollowTheDictionary() {
+        IntradayUsage first = intradayUsage(15);
+        first.add(assetAccessLog("logo.png", YESTERDAY.plus(61, ChronoUnit.MINUTES), 200));
+        first.save(new AssetDictionary(List.of("logo.png", "app.js", "unused.css")));
+
+        // The next run lists the inventory in another order, the dictionary keeps its indexes
+        IntradayUsage second = intradayUsage(15);
+        second.add(assetAccessLog("logo.png", YESTERDAY.plus(62, ChronoUnit.MINUTES), 200));
+        second.add(assetAccessLog("app.js", YESTERDAY.plus(23 * 60 + 59, ChronoUnit.MINUTES), 200));
+        IntradayUsageReport report = second.save(new AssetDictionary(List.of("logo.png", "app.js", "unused.css")));
+
+        assertEquals(96, report.getRequestsBySlot().length);
+        assertEquals(2, report.getRequestsBySlot()[4]);
+        assertEquals(1, report.getRequestsBySlot()[95]);
+        assertEquals("01:00", report.getPeakSlot());
+        assertEquals("23:45", report.getAssets().get(1).getPeakSlot());
+    }
+
+    @Test
+    void daysSavedWithAnotherSlotLengthAreReplaced() {
+        IntradayUsage hourly = intradayUsage(60);
+        hourly.add(assetAccessLog("app.js", YESTERDAY, 200));
+        hourly.save(new AssetDictionary(ASSETS));
+
+        IntradayUsage minutes = intradayUsage(1);
+        minutes.add(assetAccessLog("app.js", YESTERDAY.plus(90, ChronoUnit.SECONDS), 200));
+        IntradayUsageReport report = minutes.save(new AssetDictionary(ASSETS));
+
+        assertEquals(1_440, report.getRequestsBySlot().length);
+        assertEquals(1, report.getRequestsBySlot()[1]);
+        assertEquals(1, report.getAssets().get(0).getRequests());
+    }
+
+    @Test
+    void countsAreWrittenSparsely() {
+        IntradayUsage intradayUsage = intradayUsage(60);
+        int[] counts = new int[ASSETS.size() * 24];
+        counts[24 + 3] = 300;
+
+        // Version, slot minutes, one entry, index delta 1, one slot, slot 3 and a two byte count
+        assertArrayEquals(new byte[] {1, 60, 1, 1, 1, 3, (byte) 0xAC, 0x02}, intradayUsage.toBytes(counts));
+    }
+
+    @Test
+    void slotsMustDivideTheDay() {
+        assertThrows(IllegalArgumentException.class, () -> intradayUsage(7));
+    }
+}
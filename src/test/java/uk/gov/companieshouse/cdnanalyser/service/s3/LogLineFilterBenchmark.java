@@ -0,0 +1,131 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.service.Util;
+import uk.gov.companieshouse.cdnanalyser.support.AccessLogGenerator;
+
+/**
+ * Compares decoding and parsing every line of a log object with dropping the lines {@link LogLineFilter} rejects
+ * before they are decoded, over a mix of other operations and other environments' GETs. The filter alone is also
+ * compared with decoding each line and testing it with String.contains.
+ *
+ * Not picked up by the default surefire includes, run it with {@code make benchmark-filter} or
+ * {@code mvn test -Dtest=LogLineFilterBenchmark -Dbenchmark.other.environments=0.0,0.5,0.9}.
+ */
+@Tag("benchmark")
+class LogLineFilterBenchmark {
+
+    private static final int LINES = 200_000;
+
+    private static final double OTHER_OPERATIONS = 0.2;
+
+    private static final int RUNS = 7;
+
+    @Test
+    void filterAgainstDecodingEveryLine() {
+        List<String> results = new ArrayList<>();
+        for (double otherEnvironments : otherEnvironmentRatios()) {
+            results.add(run(otherEnvironments));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%10s %10s %14s %14s %14s %14s %10s", "rejected", "MB", "decode ms", "filter ms", "parse all ms",
+                                         "filter+parse ms", "speedup"));
+        results.forEach(System.out::println);
+    }
+
+    private String run(double otherEnvironments) {
+        byte[] content = new AccessLogGenerator().withRejectMix(OTHER_OPERATIONS, otherEnvironments)
+                                                 .generateObject(0, LINES, Instant.parse("2024-10-01T00:00:00Z"), 86_400);
+        LogLineFilter logLineFilter = new LogLineFilter("cidev/");
+
+        long parsedAll = parseAll(content);
+        long parsedFiltered = filterAndParse(content, logLineFilter, true);
+        assertEquals(parsedAll, parsedFiltered);
+        long kept = filterAndParse(content, logLineFilter, false);
+
+        double decodeMillis = medianMillis(() -> decodeAndContains(content));
+        double filterMillis = medianMillis(() -> filterAndParse(content, logLineFilter, false));
+        double parseAllMillis = medianMillis(() -> parseAll(content));
+        double filterAndParseMillis = medianMillis(() -> filterAndParse(content, logLineFilter, true));
+
+        return String.format("%9.1f%% %10.1f %14.1f %14.1f %14.1f %14.1f %10.1f", 100.0 * (LINES - kept) / LINES, content.length / 1_048_576d,
+                             decodeMillis, filterMillis, parseAllMillis, filterAndParseMillis, parseAllMillis / filterAndParseMillis);
+    }
+
+    // As the pipeline read lines before the filter
+    private static long parseAll(byte[] content) {
+        long parsed = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                parsed += Util.parseLogEntry(line, "cidev/") == null ? 0 : 1;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parsed;
+    }
+
+    private static long decodeAndContains(byte[] content) {
+        long kept = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                kept += line.contains(" REST.GET.OBJECT ") && line.contains("cidev/") ? 1 : 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return kept;
+    }
+
+    // The lines kept, or parsed if asked
+    private static long filterAndParse(byte[] content, LogLineFilter logLineFilter, boolean parse) {
+        long count = 0;
+        int start = 0;
+        for (int end = LogLineFilter.nextLine(content, start, content.length); end >= 0; end = LogLineFilter.nextLine(content, start, content.length)) {
+            if (logLineFilter.accepts(content, start, end)) {
+                count += !parse || Util.parseLogEntry(new String(content, start, end - start, StandardCharsets.UTF_8), "cidev/") != null ? 1 : 0;
+            }
+            start = end + 1;
+        }
+        return count;
+    }
+
+    private static double medianMillis(LongSupplier task) {
+        // The first runs warm up the JIT
+        for (int i = 0; i < 2; i++) {
+            task.getAsLong();
+        }
+        double[] millis = new double[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            task.getAsLong();
+            millis[i] = (System.nanoTime() - start) / 1_000_000d;
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static List<Double> otherEnvironmentRatios() {
+        return Arrays.stream(System.getProperty("benchmark.other.environments", "0.0,0.5,0.9").split(","))
+                     .map(String::trim)
+                     .map(Double::valueOf)
+                     .toList();
+    }
+}
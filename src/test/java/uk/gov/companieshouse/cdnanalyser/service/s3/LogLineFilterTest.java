@@ -0,0 +1,68 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class LogLineFilterTest {
+
+    private static final String LINE = "57f2f030 chs-cdn.development.ch.gov.uk [28/Nov/2024:07:30:46 +0000] - svc:cloudfront.amazonaws.com 4A0VA8BRDAQXTMR5 %s %s \"GET /%s HTTP/1.1\" 200 - 6138 6138 33 32 \"-\" \"-\" -";
+
+    private final LogLineFilter logLineFilter = new LogLineFilter("cidev/");
+
+    private boolean accepts(LogLineFilter filter, String line) {
+        byte[] bytes = ("padding" + line + "padding").getBytes(StandardCharsets.UTF_8);
+        return filter.accepts(bytes, 7, bytes.length - 7);
+    }
+
+    @Test
+    void getRequestsForTheEnvironmentAreKept() {
+        assertTrue(accepts(logLineFilter, String.format(LINE, "REST.GET.OBJECT", "cidev/app.js", "cidev/app.js")));
+        assertFalse(accepts(logLineFilter, String.format(LINE, "REST.HEAD.OBJECT", "cidev/app.js", "cidev/app.js")));
+        assertFalse(accepts(logLineFilter, String.format(LINE, "REST.GET.OBJECT", "staging/app.js", "staging/app.js")));
+        // Only within the line
+        assertFalse(logLineFilter.accepts(" REST.GET.OBJECT cidev/".getBytes(StandardCharsets.US_ASCII), 1, 20));
+        assertTrue(accepts(new LogLineFilter(""), String.format(LINE, "REST.GET.OBJECT", "staging/app.js", "staging/app.js")));
+        assertTrue(accepts(new LogLineFilter("fonts/\u00e9"), String.format(LINE, "REST.GET.OBJECT", "fonts/\u00e9.woff2", "fonts/\u00e9.woff2")));
+    }
+
+    @Test
+    void severalEnvironmentsAreMatchedOnThePathTheParserTakes() {
+        LogLineFilter environments = new LogLineFilter(List.of("cidev/", "staging/", "staging/v2/"));
+
+        assertTrue(accepts(environments, String.format(LINE, "REST.GET.OBJECT", "cidev/app.js", "cidev/app.js")));
+        assertTrue(accepts(environments, String.format(LINE, "REST.GET.OBJECT", "staging/app.js", "staging/app.js")));
+        assertFalse(accepts(environments, String.format(LINE, "REST.HEAD.OBJECT", "staging/app.js", "staging/app.js")));
+        assertFalse(accepts(environments, String.format(LINE, "REST.GET.OBJECT", "live/app.js", "live/app.js")));
+        // The prefix must start the requested path, not just appear in the line
+        assertFalse(accepts(environments, String.format(LINE, "REST.GET.OBJECT", "cidev/app.js", "live/cidev/app.js")));
+        assertFalse(accepts(environments, "57f2f030 REST.GET.OBJECT cidev/app.js"));
+    }
+
+    @Test
+    void bytesAreFoundWhereverTheyFallInAWord() {
+        SplittableRandom random = new SplittableRandom(42);
+        byte[] bytes = new byte[1_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) ('a' + random.nextInt(20));
+        }
+        bytes[500] = '\n';
+        // Bytes either side of the newline whose subtraction borrows into it
+        bytes[499] = 0x0B;
+        bytes[501] = (byte) 0x8A;
+        for (int from = 0; from < bytes.length; from++) {
+            for (int to = from; to <= Math.min(bytes.length, from + 24); to++) {
+                int expected = from <= 500 && 500 < to ? 500 : -1;
+                assertEquals(expected, LogLineFilter.nextLine(bytes, from, to), "from " + from + " to " + to);
+            }
+        }
+        assertEquals(500, LogLineFilter.nextLine(bytes, 0, bytes.length));
+        assertEquals(-1, LogLineFilter.nextLine(bytes, 501, bytes.length));
+    }
+}
@@ -0,0 +1,111 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FoldedAssetUsage;
+import uk.gov.companieshouse.cdnanalyser.models.LogObjectAggregate;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class LogObjectAggregateStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.parse("2025-03-31");
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private static LogObjectAggregate aggregate(String day, int count) {
+        LogObjectAggregate aggregate = new LogObjectAggregate("\"" + day + "\"");
+        aggregate.getSuccessCounts().put(day, new HashMap<>(Map.of("file1.js", count, "unidentified.js", 1)));
+        return aggregate;
+    }
+
+    private static Map<String, Integer> counts(int count) {
+        return new HashMap<>(Map.of("file1.js", count, "file2.js", 0));
+    }
+
+    @Test
+    void partitionIsTheDateInTheLastSegmentOfTheKey() {
+        assertEquals("2025-03-01", LogObjectAggregateStore.partitionOf("cdn-logs/2024-01-01/2025-03-01-10-15-30-5A3C8D2E1F4B6A79"));
+        assertEquals(LogObjectAggregateStore.UNDATED_PARTITION, LogObjectAggregateStore.partitionOf(AssetAccessLogAggregator.RAW_DATA_AGGREGATE_KEY));
+        assertTrue(LogObjectAggregateStore.isBefore("2025-02-28-23-59-59-ABC", "2025-03-01"));
+        assertFalse(LogObjectAggregateStore.isBefore("2025-03-01-00-00-00-ABC", "2025-03-01"));
+        assertFalse(LogObjectAggregateStore.isBefore(AssetAccessLogAggregator.RAW_DATA_AGGREGATE_KEY, "2025-03-01"));
+    }
+
+    @Test
+    void onlyThePartitionsOfChangedLogObjectsAreSaved() {
+        LogObjectAggregateStore firstRun = new LogObjectAggregateStore(fixture.getReaderService(), fixture.getWriterService(), TODAY, 30);
+        assertTrue(firstRun.load().isEmpty());
+        Map<String, LogObjectAggregate> aggregates = new HashMap<>(Map.of("2025-03-20-10-00-00-A", aggregate("2025-03-20", 2),
+                                                                          "2025-03-21-10-00-00-B", aggregate("2025-03-21", 3)));
+        firstRun.save(aggregates, aggregates.keySet());
+        assertEquals(List.of("2025-03-20", "2025-03-21"), fixture.getReaderService().readLogObjectAggregatePartitions());
+
+        LogObjectAggregateStore secondRun = new LogObjectAggregateStore(fixture.getReaderService(), fixture.getWriterService(), TODAY, 30);
+        Map<String, LogObjectAggregate> loaded = secondRun.load();
+        assertEquals(aggregates.keySet(), loaded.keySet());
+        assertFalse(secondRun.isChanged());
+        loaded.put("2025-03-21-11-00-00-C", aggregate("2025-03-21", 4));
+        long puts = fixture.getS3Client().getPutRequests();
+        secondRun.save(loaded, Set.of("2025-03-21-11-00-00-C"));
+
+        assertEquals(puts + 1, fixture.getS3Client().getPutRequests());
+        assertEquals(2, fixture.getReaderService().readLogObjectAggregates("2025-03-21").size());
+    }
+
+    @Test
+    void unpartitionedAggregatesAreMovedIntoPartitions() throws Exception {
+        Map<String, LogObjectAggregate> unpartitioned = Map.of("2025-03-20-10-00-00-A", aggregate("2025-03-20", 2),
+                                                               AssetAccessLogAggregator.RAW_DATA_AGGREGATE_KEY, aggregate("2025-01-01", 5));
+        fixture.getS3Client().putObject(ANALYSIS_BUCKET, "log-object-aggregates.json", new ObjectMapper().writeValueAsBytes(unpartitioned));
+
+        LogObjectAggregateStore store = new LogObjectAggregateStore(fixture.getReaderService(), fixture.getWriterService(), TODAY, 30);
+        Map<String, LogObjectAggregate> loaded = store.load();
+        assertEquals(2, loaded.size());
+        assertTrue(store.isChanged());
+        store.save(loaded, Set.of());
+
+        assertEquals(List.of("2025-03-20", LogObjectAggregateStore.UNDATED_PARTITION), fixture.getReaderService().readLogObjectAggregatePartitions());
+        assertTrue(fixture.getReaderService().readLogObjectAggregates().isEmpty());
+    }
+
+    @Test
+    void expiredPartitionsAreFoldedOnceAndAddedToTheirDays() {
+        fixture.getWriterService().saveLogObjectAggregates("2025-02-27", Map.of("2025-02-27-10-00-00-A", aggregate("2025-02-27", 2),
+                                                                   "2025-02-27-11-00-00-B", aggregate("2025-02-27", 3)));
+        fixture.getWriterService().saveLogObjectAggregates("2025-03-01", Map.of("2025-03-01-00-10-00-C", aggregate("2025-02-28", 4)));
+        // A run that stopped after folding but before deleting the partition
+        FoldedAssetUsage alreadyFolded = new FoldedAssetUsage("2025-02-28");
+        alreadyFolded.getPartitions().add("2025-02-28");
+        alreadyFolded.getAssetAccessCount().put("file1.js", 7);
+        fixture.getWriterService().saveFoldedAssetUsage(alreadyFolded);
+        fixture.getWriterService().saveLogObjectAggregates("2025-02-28", Map.of("2025-02-28-10-00-00-D", aggregate("2025-02-28", 7)));
+
+        LogObjectAggregateStore store = new LogObjectAggregateStore(fixture.getReaderService(), fixture.getWriterService(), TODAY, 30);
+        Map<String, LogObjectAggregate> live = store.load();
+
+        assertEquals(Set.of("2025-03-01-00-10-00-C"), live.keySet());
+        assertEquals(List.of("2025-03-01"), fixture.getReaderService().readLogObjectAggregatePartitions());
+        assertEquals(Set.of("2025-02-27", "2025-02-28"), store.getFoldedDays());
+        assertEquals(Map.of("file1.js", 5, "unidentified.js", 2), fixture.getReaderService().readFoldedAssetUsage("2025-02-27").get().getAssetAccessCount());
+        assertEquals(7, fixture.getReaderService().readFoldedAssetUsage("2025-02-28").get().getAssetAccessCount().get("file1.js"));
+
+        List<AssetUsageReport> reports = List.of(new AssetUsageReport("2025-02-28", counts(4)), new AssetUsageReport("2025-03-30", counts(1)));
+        store.addFoldedUsage(reports);
+        assertEquals(counts(11), reports.get(0).getAssetAccessCount());
+        assertEquals(counts(1), reports.get(1).getAssetAccessCount());
+    }
+}
@@ -0,0 +1,171 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidth;
+import uk.gov.companieshouse.cdnanalyser.models.AssetBandwidthReport;
+import uk.gov.companieshouse.cdnanalyser.models.AssetUsageQuery;
+import uk.gov.companieshouse.cdnanalyser.models.LatencyPercentiles;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchReport;
+import uk.gov.companieshouse.cdnanalyser.models.OriginFetchSummary;
+import uk.gov.companieshouse.cdnanalyser.models.OriginLatencyReport;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class OriginFetchAnalyticsTest {
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private final AssetPathTrie assetPathTrie = new AssetPathTrie(Map.of("app.js", 100L, "app-3f9a1c2b7d.js", 100L, "javascripts/app.js", 100L, "images/logo.png", 100L,
+                                                                         "fonts/bold.woff2", 100L, "fonts/bold-3f9a1c2b7d.woff2", 100L, "fonts/light.woff2", 100L));
+
+    private static AssetAccessLog assetAccessLog(String asset, int statusCode, LocalDate day, int hour) {
+        return assetAccessLog(asset, statusCode, day, hour, 0);
+    }
+
+    private static AssetAccessLog assetAccessLog(String asset, int statusCode, LocalDate day, int hour, long objectSize) {
+        AssetAccessLog assetAccessLog = AnalysisFixture.assetAccessLog(asset, day.atTime(hour, 30).atZone(Constants.LONDON_ZONE_ID).toInstant(), statusCode);
+        assetAccessLog.setObjectSize(objectSize);
+        assetAccessLog.setBytesSent(statusCode == 304 ? 0 : objectSize);
+        return assetAccessLog;
+    }
+
+    private OriginFetchAnalytics originFetchAnalytics() {
+        return new OriginFetchAnalytics(fixture.getReaderService(), fixture.getWriterService(), assetPathTrie, "cidev/", 7, 3_600, 86_400, 1_000, 2);
+    }
+
+    @Test
+    void fetchesAreAddedToTheSavedDaysAndReportedAgainstTheirTtlClass() throws IOException {
+        LocalDate today = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        OriginFetchAnalytics firstRun = originFetchAnalytics();
+        assertFalse(firstRun.isChanged());
+        for (int i = 0; i < 6; i++) {
+            firstRun.add(assetAccessLog("app.js", i < 3 ? 304 : 200, today, 9));
+        }
+        firstRun.add(assetAccessLog("app-3f9a1c2b7d.js", 200, today.minusDays(1), 9));
+        assertTrue(firstRun.isChanged());
+        firstRun.save();
+
+        OriginFetchAnalytics secondRun = originFetchAnalytics();
+        for (int hour = 10; hour < 16; hour++) {
+            secondRun.add(assetAccessLog("app.js", 200, today, hour));
+        }
+        secondRun.save();
+
+        OriginFetchReport report = new ObjectMapper().readValue(fixture.getS3Client().getObjectContent(ANALYSIS_BUCKET, "origin-fetch-report.json"), OriginFetchReport.class);
+        assertEquals(today.minusDays(6).toString(), report.getFrom());
+        assertEquals(2, report.getDays());
+        // A fetch every other day is twice what a day's TTL allows, a quarter of the hourly TTL's fetches is not
+        assertEquals(List.of("app-3f9a1c2b7d.js", "app.js"), report.getAssets().stream().map(OriginFetchSummary::getAsset).toList());
+
+        OriginFetchSummary unfingerprinted = report.getAssets().get(1);
+        assertEquals(OriginFetchAnalytics.DEFAULT, unfingerprinted.getTtlClass());
+        assertEquals(12, unfingerprinted.getFetches());
+        assertEquals(6, unfingerprinted.getPeakHourlyFetches());
+        assertEquals(0.25, unfingerprinted.getNotModifiedShare(), 1e-9);
+        assertEquals(6, unfingerprinted.getFetchesPerDay(), 1e-9);
+        assertEquals(24, unfingerprinted.getExpectedFetchesPerDay(), 1e-9);
+        assertEquals(0.25, unfingerprinted.getTtlRatio(), 1e-9);
+
+        OriginFetchSummary fingerprinted = report.getAssets().get(0);
+        assertEquals(OriginFetchAnalytics.FINGERPRINTED, fingerprinted.getTtlClass());
+        assertEquals(0.5, fingerprinted.getFetchesPerDay(), 1e-9);
+        assertEquals(0.5, fingerprinted.getTtlRatio(), 1e-9);
+    }
+
+    @Test
+    void fetchesOfUnidentifiedPathsAreNotKept() {
+        LocalDate today = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        OriginFetchAnalytics originFetchAnalytics = originFetchAnalytics();
+        originFetchAnalytics.add(assetAccessLog("wp-login.php", 404, today, 9));
+        originFetchAnalytics.add(assetAccessLog("app.js.map", 403, today, 9));
+        assertFalse(originFetchAnalytics.isChanged());
+
+        originFetchAnalytics.add(assetAccessLog("app.js", 200, today, 9));
+        originFetchAnalytics.save();
+
+        assertEquals(List.of("app.js"), List.copyOf(fixture.getReaderService().readAssetOriginFetches(today.toString()).orElseThrow().getHourlyFetches().keySet()));
+    }
+
+    @Test
+    void assetsAreRankedByBytesSentAndLargeFrequentOnesFlagged() throws IOException {
+        LocalDate today = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        OriginFetchAnalytics originFetchAnalytics = originFetchAnalytics();
+        for (int hour = 0; hour < 24; hour++) {
+            // Fingerprinted, so fetched every hour though its TTL is a day
+            originFetchAnalytics.add(assetAccessLog("fonts/bold-3f9a1c2b7d.woff2", 200, today, hour, 5_000));
+            originFetchAnalytics.add(assetAccessLog("javascripts/app.js", hour % 2 == 0 ? 200 : 304, today, hour, 2_000));
+        }
+        originFetchAnalytics.add(assetAccessLog("javascripts/app.js", 200, today, 1, 2_000));
+        originFetchAnalytics.add(assetAccessLog("images/logo.png", 200, today, 12, 100_000));
+        originFetchAnalytics.save();
+
+        AssetBandwidthReport report = new ObjectMapper().readValue(fixture.getS3Client().getObjectContent(ANALYSIS_BUCKET, "asset-bandwidth-report.json"), AssetBandwidthReport.class);
+        assertEquals(120_000 + 26_000 + 100_000, report.getTotalBytesSent());
+        assertEquals(List.of("fonts/bold-3f9a1c2b7d.woff2", "images/logo.png", "javascripts/app.js"), report.getAssets().stream().map(AssetBandwidth::getAsset).toList());
+
+        AssetBandwidth font = report.getAssets().get(0);
+        assertEquals(24, font.getFetches());
+        assertEquals(5_000, font.getObjectSize());
+        assertEquals(120_000.0 / 246_000, font.getShare(), 1e-9);
+        assertEquals(List.of(OriginFetchAnalytics.LONGER_TTL), font.getCandidates());
+        // Large enough, but fetched once
+        assertEquals(List.of(), report.getAssets().get(1).getCandidates());
+        assertEquals(List.of(OriginFetchAnalytics.PRE_COMPRESSION, OriginFetchAnalytics.LONGER_TTL), report.getAssets().get(2).getCandidates());
+    }
+
+    @Test
+    void latencyHistogramsMergeOverAnyRangeOfDays() throws IOException {
+        LocalDate today = LocalDate.ofInstant(Instant.now(), Constants.LONDON_ZONE_ID);
+        for (int run = 0; run < 2; run++) {
+            OriginFetchAnalytics originFetchAnalytics = originFetchAnalytics();
+            for (int i = 1; i <= 100; i++) {
+                AssetAccessLog slow = assetAccessLog("fonts/bold.woff2", 200, today.minusDays(run), 9);
+                slow.setTotalTime(i * 10L);
+                slow.setTurnAroundTime(i);
+                originFetchAnalytics.add(slow);
+                AssetAccessLog fast = assetAccessLog("fonts/light.woff2", 200, today.minusDays(run), 9);
+                fast.setTotalTime(run == 0 ? 5 : 7);
+                originFetchAnalytics.add(fast);
+            }
+            originFetchAnalytics.save();
+        }
+
+        OriginLatencyReport report = new ObjectMapper().readValue(fixture.getS3Client().getObjectContent(ANALYSIS_BUCKET, "origin-latency-report.json"), OriginLatencyReport.class);
+        assertEquals(List.of("fonts/bold.woff2", "fonts/light.woff2"), report.getAssets().stream().map(LatencyPercentiles::getName).toList());
+        LatencyPercentiles slow = report.getAssets().get(0);
+        assertEquals(200, slow.getRequests());
+        assertTrue(Math.abs(slow.getTotalTimeP50() - 500) <= 32);
+        assertTrue(Math.abs(slow.getTotalTimeP99() - 990) <= 64);
+        assertTrue(Math.abs(slow.getTurnAroundTimeP95() - 95) <= 4);
+        assertEquals(List.of("fonts/"), report.getFolders().stream().map(LatencyPercentiles::getName).toList());
+        assertEquals(400, report.getFolders().get(0).getRequests());
+
+        // Only the earlier day, where the light font took 7 ms
+        OriginLatencyReport yesterday = new OriginLatencyQuery(fixture.getReaderService()).query(today.minusDays(1), today.minusDays(1));
+        assertEquals(7, yesterday.getAssets().get(1).getTotalTimeP99());
+        // No turn-around times were logged for it
+        assertEquals(0, yesterday.getAssets().get(1).getTurnAroundTimeP99());
+
+        // Through the query function, for the one asset and the folder holding it
+        String day = today.minusDays(1).toString();
+        OriginLatencyReport light = new AssetUsageQueryService(fixture.getReaderService(), "cidev/").queryOriginLatency(new AssetUsageQuery(day, day, "fonts/light.woff2", null));
+        assertEquals(List.of("fonts/light.woff2"), light.getAssets().stream().map(LatencyPercentiles::getName).toList());
+        assertEquals(List.of("fonts/"), light.getFolders().stream().map(LatencyPercentiles::getName).toList());
+        assertEquals(7, light.getAssets().get(0).getTotalTimeP99());
+    }
+}
@@ -0,0 +1,45 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PrefixMatcherTest {
+
+    private final PrefixMatcher<String> prefixMatcher = new PrefixMatcher<>(Map.of("cidev/", "cidev", "staging/", "staging",
+                                                                                    "staging/v2/", "staging v2", "fonts/\u00e9/", "fonts"));
+
+    @Test
+    void theLongestPrefixThePathStartsWithIsFound() {
+        assertEquals("cidev", prefixMatcher.find("cidev/app.js"));
+        assertEquals("staging", prefixMatcher.find("staging/app.js"));
+        assertEquals("staging v2", prefixMatcher.find("staging/v2/app.js"));
+        assertEquals("staging", prefixMatcher.find("staging/v3/app.js"));
+        assertEquals("fonts", prefixMatcher.find("fonts/\u00e9/a.woff2"));
+        assertNull(prefixMatcher.find("cidev"));
+        assertNull(prefixMatcher.find("live/cidev/app.js"));
+        assertNull(prefixMatcher.find(""));
+    }
+
+    @Test
+    void pathsAreMatchedInPlaceInTheirBytes() {
+        byte[] bytes = "GET /staging/v2/app.js HTTP/1.1".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("staging v2", prefixMatcher.find(bytes, 5, bytes.length));
+        // Only up to the end given
+        assertEquals("staging", prefixMatcher.find(bytes, 5, 15));
+        assertNull(prefixMatcher.find(bytes, 4, bytes.length));
+    }
+
+    @Test
+    void anEmptyPrefixMatchesEveryPath() {
+        PrefixMatcher<String> everything = new PrefixMatcher<>(Map.of("", "all", "cidev/", "cidev"));
+
+        assertEquals("all", everything.find("live/app.js"));
+        assertEquals("cidev", everything.find("cidev/app.js"));
+    }
+}
@@ -0,0 +1,109 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class RawAccessLogStoreTest {
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private static List<AssetAccessLog> assetAccessLogs(int count, Instant start) {
+        List<AssetAccessLog> assetAccessLogs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            AssetAccessLog assetAccessLog = new AssetAccessLog();
+            assetAccessLog.setRequestType("GET");
+            assetAccessLog.setAsset("cidev/file" + (i % 7) + ".js");
+            assetAccessLog.setStatusCode(i % 10 == 0 ? 404 : 200);
+            assetAccessLog.setTimestamp(start.plusSeconds(i * 60L));
+            assetAccessLog.setRequestId(start.getEpochSecond() + "-" + i);
+            assetAccessLogs.add(assetAccessLog);
+        }
+        return assetAccessLogs;
+    }
+
+    @Test
+    void recordsSavedByAnEarlierRunAreDuplicates() {
+        List<AssetAccessLog> assetAccessLogs = assetAccessLogs(3_000, Instant.parse("2025-03-01T00:00:00Z"));
+        RawAccessLogStore firstRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        assetAccessLogs.forEach(assetAccessLog -> assertTrue(firstRun.add(assetAccessLog)));
+        firstRun.save();
+
+        RawAccessLogStore secondRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        assetAccessLogs.forEach(assetAccessLog -> assertFalse(secondRun.add(assetAccessLog)));
+        assertTrue(secondRun.add(assetAccessLogs(1, Instant.parse("2025-03-02T23:59:59Z")).get(0)));
+        assertFalse(secondRun.add(assetAccessLogs.get(0)));
+
+        assertEquals(3_000, fixture.getReaderService().readRawAssetAccessLogs("2025-03-01").size()
+                            + fixture.getReaderService().readRawAssetAccessLogs("2025-03-02").size()
+                            + fixture.getReaderService().readRawAssetAccessLogs("2025-03-03").size());
+    }
+
+    @Test
+    void requestsInTheSameSecondAreToldApartByTheirRequestId() {
+        List<AssetAccessLog> sameSecond = assetAccessLogs(1, Instant.parse("2025-03-01T10:00:00Z"));
+        sameSecond.addAll(assetAccessLogs(1, Instant.parse("2025-03-01T10:00:00Z")));
+        sameSecond.get(0).setRequestId("4A0VA8BRDAQXTMR5");
+        sameSecond.get(1).setRequestId("9C2XH7QW1MZK3B6D");
+        RawAccessLogStore firstRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        sameSecond.forEach(assetAccessLog -> assertTrue(firstRun.add(assetAccessLog)));
+        firstRun.save();
+
+        RawAccessLogStore secondRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        sameSecond.forEach(assetAccessLog -> assertFalse(secondRun.add(assetAccessLog)));
+        assertEquals(2, fixture.getReaderService().readRawAssetAccessLogs("2025-03-01").size());
+    }
+
+    @Test
+    void recordsSavedWithoutARequestIdAreDuplicatesOfTheSameRequestsReadAgain() {
+        List<AssetAccessLog> legacy = assetAccessLogs(500, Instant.parse("2025-03-01T00:00:00Z"));
+        legacy.forEach(assetAccessLog -> assetAccessLog.setRequestId(null));
+        RawAccessLogStore firstRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        legacy.forEach(assetAccessLog -> assertTrue(firstRun.add(assetAccessLog)));
+        firstRun.save();
+
+        RawAccessLogStore secondRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1_000, 0.001);
+        assetAccessLogs(500, Instant.parse("2025-03-01T00:00:00Z")).forEach(assetAccessLog -> assertFalse(secondRun.add(assetAccessLog)));
+        assertFalse(secondRun.add(legacy.get(0)));
+        secondRun.save();
+
+        assertEquals(500, fixture.getReaderService().readRawAssetAccessLogs("2025-03-01").size());
+    }
+
+    @Test
+    void newRecordsAreOnlyCheckedAgainstPartitionsOnAProbableHit() {
+        RawAccessLogStore firstRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 10_000, 0.001);
+        assetAccessLogs(1_000, Instant.parse("2025-03-01T00:00:00Z")).forEach(firstRun::add);
+        firstRun.save();
+        long listRequests = fixture.getS3Client().getListRequests();
+
+        RawAccessLogStore secondRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 10_000, 0.001);
+        assetAccessLogs(1_000, Instant.parse("2025-03-01T00:00:30Z")).forEach(assetAccessLog -> assertTrue(secondRun.add(assetAccessLog)));
+
+        assertEquals(listRequests, fixture.getS3Client().getListRequests());
+    }
+
+    @Test
+    void falsePositivesAreResolvedAgainstThePartition() {
+        // A filter this loose reports most records as probable duplicates
+        RawAccessLogStore firstRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1, 0.9);
+        assetAccessLogs(500, Instant.parse("2025-03-01T00:00:00Z")).forEach(firstRun::add);
+        firstRun.save();
+
+        RawAccessLogStore secondRun = new RawAccessLogStore(fixture.getReaderService(), fixture.getWriterService(), 1, 0.9);
+        List<AssetAccessLog> later = assetAccessLogs(500, Instant.parse("2025-03-01T00:00:30Z"));
+        later.forEach(assetAccessLog -> assertTrue(secondRun.add(assetAccessLog)));
+        secondRun.save();
+
+        assertEquals(1_000, fixture.getReaderService().readRawAssetAccessLogs("2025-03-01").size());
+    }
+}
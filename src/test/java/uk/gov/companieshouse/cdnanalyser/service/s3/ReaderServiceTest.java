@@ -1,6 +1,7 @@
 package uk.gov.companieshouse.cdnanalyser.service.s3;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -18,14 +19,17 @@ import java.util.Arrays;
 import java.util.Set;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.boot.test.system.CapturedOutput;
 import org.springframework.boot.test.system.OutputCaptureExtension;
 import org.springframework.test.context.TestPropertySource;
 
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
 import software.amazon.awssdk.core.ResponseBytes;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.exception.SdkClientException;
@@ -33,13 +37,21 @@ import software.amazon.awssdk.core.sync.ResponseTransformer;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
 import uk.gov.companieshouse.cdnanalyser.configuration.Constants;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetMetadata;
+import uk.gov.companieshouse.cdnanalyser.support.TestProperties;
 
+// Mockito cannot generate mocks inside a native image.
+@DisabledInNativeImage
 @ExtendWith(OutputCaptureExtension.class)
 @TestPropertySource(properties = "logging.level.root=DEBUG")
 public class ReaderServiceTest {
@@ -71,7 +83,7 @@ public class ReaderServiceTest {
     @BeforeAll
     public static void setUp() {
             s3ClientMock = mock(S3Client.class);
-            readerService = new ReaderService(s3ClientMock, accessLogFileBucket, cdnAssetS3Bucket, accessLogFilterInPath, cdnAssetFilterInPath, cdnAnalysisBucket);
+            readerService = new ReaderService(s3ClientMock, accessLogFileBucket, cdnAssetS3Bucket, accessLogFilterInPath, cdnAssetFilterInPath, cdnAnalysisBucket, TestProperties.reader());
     }
 
     @Test
@@ -86,6 +98,60 @@ public class ReaderServiceTest {
         assertEquals("folder/asset2.txt", result.get(1), "The second asset is incorrect");
     }
 
+    @Test
+    public void testReadAssetSizesReadsEveryPage() {
+        ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+                                                               .contents(S3Object.builder().key("fonts/bold.woff2").size(123L).build())
+                                                               .nextContinuationToken("fonts/bold.woff2")
+                                                               .build();
+        ListObjectsV2Response secondPage = ListObjectsV2Response.builder()
+                                                                .contents(S3Object.builder().key("stylesheets/app.css").size(963L).build())
+                                                                .build();
+
+        when(s3ClientMock.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstPage, secondPage);
+        Map<String, Long> result = readerService.readAssetSizes();
+
+        assertEquals(List.of("fonts/bold.woff2", "stylesheets/app.css"), List.copyOf(result.keySet()), "The assets found are incorrect");
+        assertEquals(963L, result.get("stylesheets/app.css"), "The size of the asset is incorrect");
+    }
+
+    @Test
+    public void testReadAssetSizesRetriesAThrottledPage() {
+        ListObjectsV2Response firstPage = ListObjectsV2Response.builder()
+                                                               .contents(S3Object.builder().key("fonts/bold.woff2").size(123L).build())
+                                                               .nextContinuationToken("fonts/bold.woff2")
+                                                               .build();
+        ListObjectsV2Response secondPage = ListObjectsV2Response.builder()
+                                                                .contents(S3Object.builder().key("stylesheets/app.css").size(963L).build())
+                                                                .build();
+        S3Exception slowDown = S3Exception.builder().statusCode(503).awsErrorDetails(AwsErrorDetails.builder().errorCode("SlowDown").build())
+                                          .message("Please reduce your request rate.").build();
+
+        when(s3ClientMock.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(firstPage).thenThrow(slowDown).thenReturn(secondPage);
+        Map<String, Long> result = readerService.readAssetSizes();
+
+        assertEquals(List.of("fonts/bold.woff2", "stylesheets/app.css"), List.copyOf(result.keySet()), "The listing should carry on after the throttled page");
+    }
+
+    @Test
+    public void testReadAssetHeadersLeavesOutFailedRequests() {
+        when(s3ClientMock.headObject(any(HeadObjectRequest.class))).thenAnswer(invocation -> {
+            HeadObjectRequest request = invocation.getArgument(0);
+            if (request.key().equals("removed.js")) {
+                throw NoSuchKeyException.builder().message("removed").build();
+            }
+            return HeadObjectResponse.builder().contentEncoding("gzip").cacheControl("max-age=60").build();
+        });
+
+        Map<String, AssetMetadata> result = readerService.readAssetHeaders(Map.of("app.js", new AssetMetadata(123L, "\"etag\"", "STANDARD"),
+                                                                                  "removed.js", new AssetMetadata(456L, "\"etag\"", "STANDARD")));
+
+        assertEquals(Set.of("app.js"), result.keySet(), "Only the assets whose headers were read should be returned");
+        assertEquals("gzip", result.get("app.js").getContentEncoding());
+        assertEquals("max-age=60", result.get("app.js").getCacheControl());
+        assertEquals(123L, result.get("app.js").getSize());
+    }
+
     @Test
     public void testReadAssetsSdkClientException() {
         when(s3ClientMock.listObjectsV2(any(ListObjectsV2Request.class))).thenThrow(SdkClientException.create("test exception"));
@@ -150,7 +216,7 @@ public class ReaderServiceTest {
             .thenReturn(new ResponseInputStream<>(getObjectResponse, inputStream))
             .thenReturn(new ResponseInputStream<>(getObjectResponse2, inputStream2));
 
-        ReaderService readerService = new ReaderService(s3ClientMock, accessLogFileBucket, cdnAssetS3Bucket, accessLogFilterInPath, cdnAssetFilterInPath, "");
+        ReaderService readerService = new ReaderService(s3ClientMock, accessLogFileBucket, cdnAssetS3Bucket, accessLogFilterInPath, cdnAssetFilterInPath, "", TestProperties.reader());
         Set<AssetAccessLog> result = readerService.readAccessLogs();
 
         assertEquals(2, result.size(), "The number of logs found is incorrect");
@@ -272,11 +338,11 @@ public class ReaderServiceTest {
         when(s3ClientMock.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
                 .thenThrow( SdkClientException.builder().message("test exception").build());
 
-        List<AssetAccessLog> result = readerService.readRawAssetAccessLogs();
+        // Not read as missing, or the run would overwrite the saved state
+        assertThrows(SdkClientException.class, () -> readerService.readRawAssetAccessLogs());
 
         String errorMessage ="Error obtaining data from the bucket " + cdnAnalysisBucket;
 
-        assertEquals(0, result.size(), "The number of assets found is incorrect");
         assertTrue(output.getAll().contains(errorMessage));
     }
 
@@ -286,11 +352,26 @@ public class ReaderServiceTest {
 
         when(s3ClientMock.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class))).thenThrow( NoSuchBucketException.builder().message("test exception").build());
 
-        List<AssetAccessLog> result = readerService.readRawAssetAccessLogs();
+        assertThrows(NoSuchBucketException.class, () -> readerService.readRawAssetAccessLogs());
 
         String errorMessage ="Bucket " + cdnAnalysisBucket + " does not exist";
 
-        assertEquals(0, result.size(), "The number of assets found is incorrect");
         assertTrue(output.getAll().contains(errorMessage));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testUnparseableAnalysisStateIsNotReadAsMissing() {
+        when(s3ClientMock.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenReturn(createResponseInputStreamWithRequiredContent("{\"logfile1.txt\": "));
+
+        assertThrows(UncheckedIOException.class, () -> readerService.readLogObjectAggregates());
+    }
+
+    @Test
+    public void testMissingAnalysisStateIsReadAsEmpty() {
+        when(s3ClientMock.getObject(any(GetObjectRequest.class), any(ResponseTransformer.class)))
+                .thenThrow(NoSuchKeyException.builder().message("test exception").build());
+
+        assertTrue(readerService.readLogObjectAggregates().isEmpty());
+    }
+}
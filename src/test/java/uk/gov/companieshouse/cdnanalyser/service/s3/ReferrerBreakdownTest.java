@@ -0,0 +1,109 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsage;
+import uk.gov.companieshouse.cdnanalyser.models.ReferrerUsageReport;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class ReferrerBreakdownTest {
+
+    private static final String FIND_AND_UPDATE = "find-and-update.company-information.service.gov.uk";
+
+    private static final String FILING = "ewf.companieshouse.gov.uk";
+
+    private static final String FIREFOX = "Mozilla/5.0 Firefox/133.0";
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private final AssetPathTrie assetPathTrie = new AssetPathTrie(Map.of("app.js", 100L, "filing.js", 100L, "logo.png", 100L));
+
+    private static AssetAccessLog assetAccessLog(String asset, String referrerHost, String userAgent, int statusCode) {
+        AssetAccessLog assetAccessLog = AnalysisFixture.assetAccessLog(asset, Instant.parse("2025-03-01T12:00:00Z"), statusCode);
+        assetAccessLog.setBytesSent(100);
+        assetAccessLog.setReferrerHost(referrerHost);
+        assetAccessLog.setUserAgent(userAgent);
+        return assetAccessLog;
+    }
+
+    private ReferrerBreakdown referrerBreakdown(int maxReferrerHosts) {
+        return new ReferrerBreakdown(fixture.getReaderService(), fixture.getWriterService(), assetPathTrie, "cidev/", maxReferrerHosts, 10, 10);
+    }
+
+    @Test
+    void requestsAreAttributedToTheReferringHost() {
+        ReferrerBreakdown referrerBreakdown = referrerBreakdown(10);
+        assertFalse(referrerBreakdown.isChanged());
+        for (int i = 0; i < 3; i++) {
+            referrerBreakdown.add(assetAccessLog("app.js", FIND_AND_UPDATE, FIREFOX, 200));
+        }
+        referrerBreakdown.add(assetAccessLog("logo.png", FIND_AND_UPDATE, null, 304));
+        referrerBreakdown.add(assetAccessLog("filing.js", FILING, FIREFOX, 200));
+        referrerBreakdown.add(assetAccessLog("app.js", null, null, 200));
+        referrerBreakdown.add(assetAccessLog("app.js", FILING, FIREFOX, 404));
+        referrerBreakdown.add(assetAccessLog("missing.js", FILING, FIREFOX, 200));
+        assertTrue(referrerBreakdown.isChanged());
+
+        ReferrerUsageReport report = referrerBreakdown.save();
+
+        assertEquals(6, report.getRequests());
+        assertEquals(List.of(FIND_AND_UPDATE, ReferrerBreakdown.NONE, FILING),
+                     report.getReferrers().stream().map(ReferrerUsage::getReferrerHost).toList());
+        ReferrerUsage findAndUpdate = report.getReferrers().get(0);
+        assertEquals(4, findAndUpdate.getRequests());
+        assertEquals(400, findAndUpdate.getBytesSent());
+        assertEquals(List.of("app.js", "logo.png"), List.copyOf(findAndUpdate.getAssets().keySet()));
+        assertEquals(Map.of(FIREFOX, 3L, ReferrerBreakdown.NONE, 1L), findAndUpdate.getUserAgents());
+        assertTrue(fixture.getS3Client().keys(ANALYSIS_BUCKET).containsAll(List.of("referrer-usage.bin", "referrer-usage-report.json")));
+    }
+
+    @Test
+    void countsAreAddedToThoseOfEarlierRuns() {
+        ReferrerBreakdown first = referrerBreakdown(10);
+        first.add(assetAccessLog("app.js", FIND_AND_UPDATE, FIREFOX, 200));
+        first.add(assetAccessLog("filing.js", FILING, FIREFOX, 200));
+        first.save();
+
+        ReferrerBreakdown second = referrerBreakdown(10);
+        second.add(assetAccessLog("app.js", FIND_AND_UPDATE, "curl/8.5.0", 200));
+        ReferrerUsageReport report = second.save();
+
+        assertEquals(3, report.getRequests());
+        ReferrerUsage findAndUpdate = report.getReferrers().get(0);
+        assertEquals(FIND_AND_UPDATE, findAndUpdate.getReferrerHost());
+        assertEquals(Map.of("app.js", 2L), findAndUpdate.getAssets());
+        assertEquals(Map.of(FIREFOX, 1L, "curl/8.5.0", 1L), findAndUpdate.getUserAgents());
+    }
+
+    @Test
+    void hostsBeyondTheCapAreCountedAsOther() {
+        ReferrerBreakdown referrerBreakdown = referrerBreakdown(2);
+        for (int i = 0; i < 1_000; i++) {
+            referrerBreakdown.add(assetAccessLog("app.js", "junk-" + i + ".example", FIREFOX, 200));
+        }
+
+        ReferrerUsageReport report = referrerBreakdown.save();
+
+        assertEquals(3, report.getReferrers().size());
+        assertEquals(ReferrerBreakdown.OTHER, report.getReferrers().get(0).getReferrerHost());
+        assertEquals(998, report.getReferrers().get(0).getRequests());
+
+        // A lower cap on the next run folds the saved hosts beyond it into the other count
+        ReferrerBreakdown capped = referrerBreakdown(1);
+        capped.add(assetAccessLog("app.js", "junk-0.example", FIREFOX, 200));
+        report = capped.save();
+        assertEquals(List.of(ReferrerBreakdown.OTHER, "junk-0.example"), report.getReferrers().stream().map(ReferrerUsage::getReferrerHost).toList());
+        assertEquals(999, report.getReferrers().get(0).getRequests());
+        assertEquals(1_001, report.getRequests());
+    }
+}
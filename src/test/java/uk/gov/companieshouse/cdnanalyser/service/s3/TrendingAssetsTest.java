@@ -0,0 +1,106 @@
+package uk.gov.companieshouse.cdnanalyser.service.s3;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.ANALYSIS_BUCKET;
+import static uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture.assetAccessLog;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAsset;
+import uk.gov.companieshouse.cdnanalyser.models.TrendingAssetsReport;
+import uk.gov.companieshouse.cdnanalyser.support.AnalysisFixture;
+
+class TrendingAssetsTest {
+
+    private static final Instant END = Instant.parse("2025-03-01T12:00:00Z");
+
+    private final AnalysisFixture fixture = new AnalysisFixture();
+
+    private final AssetPathTrie assetPathTrie = new AssetPathTrie(Map.of("app.js", 100L, "app-3f9a1c2b7d.js", 100L, "logo.png", 100L));
+
+    private TrendingAssets trendingAssets() {
+        return new TrendingAssets(fixture.getReaderService(), fixture.getWriterService(), assetPathTrie, "cidev/", 5, 24, 60, 10);
+    }
+
+    @Test
+    void assetsWhoseFetchRateRisesTheMostAreListedFirst() {
+        TrendingAssets trendingAssets = trendingAssets();
+        assertFalse(trendingAssets.isChanged());
+        // A steady 12 fetches an hour all day
+        for (int minute = 5; minute <= 24 * 60; minute += 5) {
+            trendingAssets.add(assetAccessLog("logo.png", END.minus(minute, ChronoUnit.MINUTES)));
+        }
+        // Fetched 4 times an hour until the last hour, then 60 times
+        for (int minute = 61; minute <= 24 * 60; minute += 15) {
+            trendingAssets.add(assetAccessLog("app.js", END.minus(minute, ChronoUnit.MINUTES)));
+        }
+        // A new version, first fetched in the last hour
+        for (int i = 1; i <= 60; i++) {
+            trendingAssets.add(assetAccessLog("app.js", END.minus(i, ChronoUnit.MINUTES)));
+            trendingAssets.add(assetAccessLog("app-3f9a1c2b7d.js", END.minus(i, ChronoUnit.MINUTES)));
+            trendingAssets.add(assetAccessLog("app-3f9a1c2b7d.js", END.minus(i, ChronoUnit.MINUTES)));
+        }
+        // Neither an identified asset nor a successful request
+        trendingAssets.add(assetAccessLog("missing.js", END.minusSeconds(1)));
+        AssetAccessLog failed = assetAccessLog("logo.png", END.minusSeconds(1));
+        failed.setStatusCode(404);
+        trendingAssets.add(failed);
+        assertTrue(trendingAssets.isChanged());
+
+        TrendingAssetsReport report = trendingAssets.report();
+
+        assertEquals(List.of("app-3f9a1c2b7d.js", "app.js"), report.getAssets().stream().map(TrendingAsset::getAsset).toList());
+        TrendingAsset fingerprinted = report.getAssets().get(0);
+        assertEquals(120, fingerprinted.getRecentFetchesPerHour(), 0.001);
+        assertEquals(0, fingerprinted.getEarlierFetchesPerHour(), 0.001);
+        assertTrue(fingerprinted.isFingerprinted());
+        assertEquals(60, report.getAssets().get(1).getRecentFetchesPerHour(), 0.001);
+        assertEquals(4, report.getAssets().get(1).getEarlierFetchesPerHour(), 0.001);
+        assertEquals(60, report.getRecentMinutes());
+        assertEquals("2025-03-01T12:00:00Z", report.getTo());
+        assertEquals("2025-02-28T12:00:00Z", report.getFrom());
+    }
+
+    @Test
+    void countsCarryOverBetweenRunsAndTheWindowSlides() throws IOException {
+        TrendingAssets firstRun = trendingAssets();
+        for (int i = 1; i <= 30; i++) {
+            firstRun.add(assetAccessLog("app.js", END.minus(i, ChronoUnit.MINUTES)));
+        }
+        firstRun.save();
+        assertTrue(fixture.getS3Client().keys(ANALYSIS_BUCKET).contains("trending-assets.bin"));
+
+        // The next run's records are an hour later, so the first run's fall out of the recent hour
+        TrendingAssets secondRun = trendingAssets();
+        for (int i = 1; i <= 10; i++) {
+            secondRun.add(assetAccessLog("logo.png", END.plus(60, ChronoUnit.MINUTES).minus(i, ChronoUnit.MINUTES)));
+        }
+        // Older than the window by now
+        secondRun.add(assetAccessLog("app.js", END.minus(2, ChronoUnit.DAYS)));
+        secondRun.save();
+
+        TrendingAssetsReport report = new ObjectMapper().readValue(fixture.getS3Client().getObjectContent(ANALYSIS_BUCKET, "asset-prewarm-list.json"), TrendingAssetsReport.class);
+        assertEquals(List.of("logo.png"), report.getAssets().stream().map(TrendingAsset::getAsset).toList());
+
+        // A record from the first run's hour still counts towards the earlier rate
+        TrendingAssets thirdRun = trendingAssets();
+        for (int i = 1; i <= 5; i++) {
+            thirdRun.add(assetAccessLog("app.js", END.plus(60, ChronoUnit.MINUTES).minus(i, ChronoUnit.MINUTES)));
+        }
+        TrendingAssetsReport thirdReport = thirdRun.report();
+        TrendingAsset app = thirdReport.getAssets().stream().filter(asset -> asset.getAsset().equals("app.js")).findFirst().orElseThrow();
+        assertEquals(5, app.getRecentFetchesPerHour(), 0.001);
+        assertEquals(30 / 23.0, app.getEarlierFetchesPerHour(), 0.001);
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.companieshouse.cdnanalyser.service.s3;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -14,17 +15,23 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledInNativeImage;
 import org.mockito.ArgumentCaptor;
 
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.models.AssetFolderUsageReport;
 import uk.gov.companieshouse.cdnanalyser.models.AssetUsageReport;
+import uk.gov.companieshouse.cdnanalyser.models.FolderUsage;
 
+// Mockito cannot generate mocks inside a native image.
+@DisabledInNativeImage
 class WriterServiceTest {
 
     private S3Client s3Client;
@@ -43,7 +50,7 @@ class WriterServiceTest {
         HashSet<AssetAccessLog> logs = new HashSet<>();
         logs.add(log);
 
-        writerService.saveRawData(logs);
+        writerService.saveRawData("2025-03-01", logs);
 
         ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
         ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
@@ -52,12 +59,57 @@ class WriterServiceTest {
 
         PutObjectRequest req = requestCaptor.getValue();
         assertEquals(bucketName, req.bucket());
-        assertEquals("raw-asset-access-data.json", req.key());
+        assertTrue(req.key().startsWith("raw-asset-access-data/2025-03-01/"));
 
         String bodyString = new String(bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes(), StandardCharsets.UTF_8);
         assertTrue(bodyString.contains("[") || bodyString.contains("{"));
     }
 
+    @Test
+    void saveDeduplicationFilter_shouldPutObject_withFilterBytes() throws Exception {
+        byte[] filter = {1, 2, 3};
+
+        writerService.saveDeduplicationFilter("2025-03-01", filter);
+
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        verify(s3Client, times(1)).putObject(requestCaptor.capture(), bodyCaptor.capture());
+
+        assertEquals(bucketName, requestCaptor.getValue().bucket());
+        assertEquals("dedup-filters/2025-03-01.bin", requestCaptor.getValue().key());
+        assertArrayEquals(filter, bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes());
+    }
+
+    @Test
+    void saveAssetUsageReport_shouldPutObject_inDailyReports() throws Exception {
+        writerService.saveAssetUsageReport(new AssetUsageReport("2025-03-01", Map.of("file1", 3)));
+
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        verify(s3Client, times(1)).putObject(requestCaptor.capture(), bodyCaptor.capture());
+
+        assertEquals("asset-usage-reports/2025-03-01.json", requestCaptor.getValue().key());
+        String bodyString = new String(bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals("{\"id\":\"2025-03-01\",\"assetAccessCount\":{\"file1\":3}}", bodyString);
+    }
+
+    @Test
+    void saveAssetFolderUsage_shouldPutObject_withFolders() throws Exception {
+        writerService.saveAssetFolderUsage(new AssetFolderUsageReport("2025-03-01", List.of(new FolderUsage("fonts/", 3, 2, 1, 500))));
+
+        ArgumentCaptor<PutObjectRequest> requestCaptor = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<RequestBody> bodyCaptor = ArgumentCaptor.forClass(RequestBody.class);
+
+        verify(s3Client, times(1)).putObject(requestCaptor.capture(), bodyCaptor.capture());
+
+        assertEquals("asset-folder-usage.json", requestCaptor.getValue().key());
+        String bodyString = new String(bodyCaptor.getValue().contentStreamProvider().newStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(bodyString.contains("\"folder\" : \"fonts/\""));
+        assertTrue(bodyString.contains("\"unusedFiles\" : 1"));
+    }
+
     @Test
     void saveSuccessfulAssetRequests_shouldPutObject_withSerializedReport() throws Exception {
         AssetUsageReport report = mock(AssetUsageReport.class);
@@ -0,0 +1,236 @@
+package uk.gov.companieshouse.cdnanalyser.support;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates S3 server access log objects in the format CloudFront origin requests produce, for volume testing.
+ * Everything is derived from the seed, so a generated object always has the same content and the same ETag.
+ */
+public class AccessLogGenerator {
+
+    private static final DateTimeFormatter LOG_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private static final DateTimeFormatter LOG_KEY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH-mm-ss", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    private static final String[] FOLDERS = {"assets/fonts/", "javascripts/app/", "javascripts/lib/", "stylesheets/", "images/"};
+
+    private static final String[] EXTENSIONS = {".woff2", ".js", ".js", ".css", ".png"};
+
+    private static final String[] OTHER_OPERATIONS = {"REST.HEAD.OBJECT", "REST.PUT.OBJECT", "REST.GET.BUCKET", "BATCH.DELETE.OBJECT"};
+
+    private static final String BUCKET_OWNER = "57f2f030b6e5545bca67c0389164fd7e495aef43831451cc8275ca1bcc012683";
+
+    private static final String BUCKET = "chs-cdn.development.ch.gov.uk";
+
+    private static final String LINE_SUFFIX = " - YhkhaTdI2pOv2YNnWZiJ4bUCoQ5G0KveIQ2dqMRAtGAhB01cntX9mrp6vSMamiLw1IrKoEhG3xg= SigV4 ECDHE-RSA-AES128-GCM-SHA256 AuthHeader chs-cdn.development.ch.gov.uk.s3.eu-west-2.amazonaws.com TLSv1.2 - -";
+
+    private int assetCount = 500;
+
+    private int days = 30;
+
+    private Instant startDate = Instant.parse("2024-10-01T00:00:00Z");
+
+    private String environmentPrefix = "cidev/";
+
+    private double notModifiedRatio = 0.25;
+
+    private double failureRatio = 0.05;
+
+    private double malformedRatio = 0.001;
+
+    private double otherOperationRatio = 0.05;
+
+    private double otherEnvironmentRatio = 0.0;
+
+    private int linesPerObject = 10_000;
+
+    private long seed = 42L;
+
+    public AccessLogGenerator withAssets(int assetCount) {
+        this.assetCount = assetCount;
+        return this;
+    }
+
+    public AccessLogGenerator withDays(int days) {
+        this.days = days;
+        return this;
+    }
+
+    public AccessLogGenerator withStartDate(Instant startDate) {
+        this.startDate = startDate;
+        return this;
+    }
+
+    public AccessLogGenerator withEnvironmentPrefix(String environmentPrefix) {
+        this.environmentPrefix = environmentPrefix;
+        return this;
+    }
+
+    /**
+     * Share of GET requests answered with 304 and with a 4xx failure, the remainder are 200s.
+     */
+    public AccessLogGenerator withStatusMix(double notModifiedRatio, double failureRatio) {
+        this.notModifiedRatio = notModifiedRatio;
+        this.failureRatio = failureRatio;
+        return this;
+    }
+
+    public AccessLogGenerator withMalformedRatio(double malformedRatio) {
+        this.malformedRatio = malformedRatio;
+        return this;
+    }
+
+    /**
+     * Share of lines for operations other than REST.GET.OBJECT, and share of GETs for another environment's prefix.
+     */
+    public AccessLogGenerator withRejectMix(double otherOperationRatio, double otherEnvironmentRatio) {
+        this.otherOperationRatio = otherOperationRatio;
+        this.otherEnvironmentRatio = otherEnvironmentRatio;
+        return this;
+    }
+
+    public AccessLogGenerator withLinesPerObject(int linesPerObject) {
+        this.linesPerObject = linesPerObject;
+        return this;
+    }
+
+    public AccessLogGenerator withSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * The asset inventory keys, as they appear in the asset bucket (without the environment prefix).
+     */
+    public List<String> assetKeys() {
+        List<String> assetKeys = new ArrayList<>(assetCount);
+        for (int assetIndex = 0; assetIndex < assetCount; assetIndex++) {
+            assetKeys.add(assetKey(assetIndex));
+        }
+        return assetKeys;
+    }
+
+    public void writeAssets(InMemoryS3Client s3Client, String assetBucket) {
+        s3Client.createBucket(assetBucket);
+        for (String assetKey : assetKeys()) {
+            s3Client.putObject(assetBucket, assetKey, assetKey.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Registers enough generated log objects to hold {@code totalLines} lines, spread evenly over the configured days.
+     *
+     * @return the number of log objects registered
+     */
+    public int writeAccessLogs(InMemoryS3Client s3Client, String accessLogBucket, long totalLines) {
+        s3Client.createBucket(accessLogBucket);
+        int objectCount = (int) Math.max(1, (totalLines + linesPerObject - 1) / linesPerObject);
+        long secondsPerObject = Math.max(1, (long) days * 86_400 / objectCount);
+
+        for (int objectIndex = 0; objectIndex < objectCount; objectIndex++) {
+            int lines = (int) Math.min(linesPerObject, totalLines - (long) objectIndex * linesPerObject);
+            Instant objectStart = startDate.plusSeconds(objectIndex * secondsPerObject);
+            String key = environmentPrefix + LOG_KEY_FORMAT.format(objectStart) + "-" + String.format("%016X", seed * 31 + objectIndex);
+            int index = objectIndex;
+            s3Client.putGeneratedObject(accessLogBucket, key, (long) lines * 400, objectStart.plusSeconds(secondsPerObject),
+                                        "\"" + Long.toHexString(seed) + "-" + objectIndex + "\"",
+                                        () -> generateObject(index, lines, objectStart, secondsPerObject));
+        }
+        return objectCount;
+    }
+
+    public byte[] generateObject(int objectIndex, int lines, Instant objectStart, long secondsPerObject) {
+        Random random = new Random(seed * 1_000_003L + objectIndex);
+        StringBuilder content = new StringBuilder(lines * 420);
+        for (int line = 0; line < lines; line++) {
+            Instant timestamp = objectStart.plusSeconds((secondsPerObject * line) / Math.max(1, lines));
+            appendLine(content, random, timestamp);
+            content.append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void appendLine(StringBuilder content, Random random, Instant timestamp) {
+        if (random.nextDouble() < malformedRatio) {
+            appendMalformedLine(content, random, timestamp);
+            return;
+        }
+
+        int assetIndex = popularAsset(random);
+        String operation = random.nextDouble() < otherOperationRatio ? OTHER_OPERATIONS[random.nextInt(OTHER_OPERATIONS.length)] : "REST.GET.OBJECT";
+        String prefix = random.nextDouble() < otherEnvironmentRatio ? "staging/" : environmentPrefix;
+        String path = prefix + assetKey(assetIndex);
+        long objectSize = 2_000L + (assetIndex * 7919L) % 250_000L;
+
+        double statusRoll = random.nextDouble();
+        String status;
+        String errorCode = "-";
+        String bytesSent;
+        if (statusRoll < failureRatio) {
+            status = random.nextBoolean() ? "403" : "404";
+            errorCode = "403".equals(status) ? "AccessDenied" : "NoSuchKey";
+            bytesSent = "243";
+        } else if (statusRoll < failureRatio + notModifiedRatio) {
+            status = "304";
+            bytesSent = "-";
+        } else {
+            status = "200";
+            bytesSent = Long.toString(objectSize);
+        }
+        int totalTime = 5 + random.nextInt(60);
+
+        content.append(BUCKET_OWNER).append(' ').append(BUCKET)
+               .append(" [").append(LOG_TIMESTAMP_FORMAT.format(timestamp)).append("] ")
+               .append("10.0.").append(random.nextInt(256)).append('.').append(random.nextInt(256))
+               .append(" svc:cloudfront.amazonaws.com ")
+               .append(String.format("%016X", random.nextLong())).append(' ')
+               .append(operation).append(' ').append(path)
+               .append(" \"GET /").append(path).append(" HTTP/1.1\" ")
+               .append(status).append(' ').append(errorCode).append(' ')
+               .append(bytesSent).append(' ').append(objectSize).append(' ')
+               .append(totalTime).append(' ').append(Math.max(1, totalTime - random.nextInt(5)))
+               .append(" \"https://find-and-update.company-information.service.gov.uk/\" \"Amazon CloudFront\"")
+               .append(LINE_SUFFIX);
+    }
+
+    private void appendMalformedLine(StringBuilder content, Random random, Instant timestamp) {
+        switch (random.nextInt(3)) {
+            case 0:
+                content.append(BUCKET_OWNER).append(' ').append(BUCKET).append(" [").append(LOG_TIMESTAMP_FORMAT.format(timestamp));
+                break;
+            case 1:
+                content.append(BUCKET_OWNER).append(' ').append(BUCKET).append(" [31/Foo/2024:99:99:99 +0000] - svc:cloudfront.amazonaws.com X REST.GET.OBJECT ")
+                       .append(environmentPrefix).append("a.js \"GET /").append(environmentPrefix).append("a.js HTTP/1.1\" 200 - 1 1 1 1 \"-\" \"-\"");
+                break;
+            default:
+                content.append(BUCKET_OWNER).append(' ').append(BUCKET).append(" [").append(LOG_TIMESTAMP_FORMAT.format(timestamp))
+                       .append("] - svc:cloudfront.amazonaws.com X REST.GET.OBJECT ").append(environmentPrefix)
+                       .append("a.js \"GET /").append(environmentPrefix).append("a.js HTTP/1.1\" AccessDenied");
+                break;
+        }
+    }
+
+    /**
+     * Skews requests towards low asset indexes, so a small number of assets receive most of the traffic.
+     */
+    private int popularAsset(Random random) {
+        double roll = random.nextDouble();
+        return (int) (assetCount * roll * roll * roll);
+    }
+
+    private String assetKey(int assetIndex) {
+        int folder = assetIndex % FOLDERS.length;
+        String name = "asset-" + assetIndex;
+        if (assetIndex % 3 == 0) {
+            name += "-" + String.format("%010x", (assetIndex * 2_654_435_761L) & 0xFFFFFFFFFFL);
+        }
+        return FOLDERS[folder] + name + EXTENSIONS[folder];
+    }
+}
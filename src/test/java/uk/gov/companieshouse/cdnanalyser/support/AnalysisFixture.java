@@ -0,0 +1,64 @@
+package uk.gov.companieshouse.cdnanalyser.support;
+
+import java.time.Instant;
+
+import uk.gov.companieshouse.cdnanalyser.models.AssetAccessLog;
+import uk.gov.companieshouse.cdnanalyser.service.s3.ReaderService;
+import uk.gov.companieshouse.cdnanalyser.service.s3.WriterService;
+
+/**
+ * An empty in-memory analysis bucket with the reader and writer services over it for the cidev/ environment, as the
+ * analytics tests set them up, and the access log records they feed the analytics. A new fixture per test keeps the
+ * tests apart.
+ */
+public final class AnalysisFixture {
+
+    public static final String ANALYSIS_BUCKET = "cdn-analysis-logs";
+
+    public static final String ASSET_BUCKET = "cdn-assets";
+
+    public static final String FILTER_IN_PATH = "cidev/";
+
+    private final InMemoryS3Client s3Client = new InMemoryS3Client();
+
+    private final ReaderService readerService;
+
+    private final WriterService writerService;
+
+    public AnalysisFixture() {
+        s3Client.createBucket(ANALYSIS_BUCKET);
+        readerService = new ReaderService(s3Client, "cdn-access-logs", ASSET_BUCKET, FILTER_IN_PATH, "", ANALYSIS_BUCKET, TestProperties.reader());
+        writerService = new WriterService(s3Client, ANALYSIS_BUCKET);
+    }
+
+    public InMemoryS3Client getS3Client() {
+        return s3Client;
+    }
+
+    public ReaderService getReaderService() {
+        return readerService;
+    }
+
+    public WriterService getWriterService() {
+        return writerService;
+    }
+
+    /**
+     * A successful GET of the asset, a path relative to the environment, at the given time.
+     */
+    public static AssetAccessLog assetAccessLog(String asset, Instant timestamp) {
+        return assetAccessLog(asset, timestamp, 200);
+    }
+
+    /**
+     * A GET of the asset, a path relative to the environment, at the given time and with the given status code.
+     */
+    public static AssetAccessLog assetAccessLog(String asset, Instant timestamp, int statusCode) {
+        AssetAccessLog assetAccessLog = new AssetAccessLog();
+        assetAccessLog.setRequestType("GET");
+        assetAccessLog.setAsset(FILTER_IN_PATH + asset);
+        assetAccessLog.setStatusCode(statusCode);
+        assetAccessLog.setTimestamp(timestamp);
+        return assetAccessLog;
+    }
+}
@@ -0,0 +1,261 @@
+package uk.gov.companieshouse.cdnanalyser.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchBucketException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * An {@link S3Client} stand-in that keeps buckets in memory, so the reader and writer services can be driven
+ * end to end without LocalStack. Objects can either be stored as bytes or registered as generated objects whose
+ * content is produced on every GET, which keeps large synthetic log buckets from occupying the heap being measured.
+ */
+public class InMemoryS3Client implements S3Client {
+
+    private static final int DEFAULT_MAX_KEYS = 1000;
+
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong listRequests = new AtomicLong();
+
+    private final AtomicLong getRequests = new AtomicLong();
+
+    private final AtomicLong putRequests = new AtomicLong();
+
+    private final AtomicLong headRequests = new AtomicLong();
+
+    public void createBucket(String bucket) {
+        buckets.computeIfAbsent(bucket, name -> new ConcurrentSkipListMap<>());
+    }
+
+    public void putObject(String bucket, String key, byte[] content) {
+        bucket(bucket).put(key, new StoredObject(() -> content, content.length, Instant.now(), eTagOf(content)));
+    }
+
+    /**
+     * Stores an object served with the given Content-Encoding and Cache-Control headers, either of which may be null.
+     */
+    public void putObject(String bucket, String key, byte[] content, String contentEncoding, String cacheControl) {
+        StoredObject storedObject = new StoredObject(() -> content, content.length, Instant.now(), eTagOf(content));
+        storedObject.contentEncoding = contentEncoding;
+        storedObject.cacheControl = cacheControl;
+        bucket(bucket).put(key, storedObject);
+    }
+
+    /**
+     * Registers an object whose content is generated on each GET. The supplier must be deterministic so that the
+     * supplied ETag keeps describing the content.
+     */
+    public void putGeneratedObject(String bucket, String key, long size, Instant lastModified, String eTag, Supplier<byte[]> content) {
+        bucket(bucket).put(key, new StoredObject(content, size, lastModified, eTag));
+    }
+
+    public byte[] getObjectContent(String bucket, String key) {
+        return storedObject(bucket, key).content.get();
+    }
+
+    public List<String> keys(String bucket) {
+        return new ArrayList<>(bucket(bucket).keySet());
+    }
+
+    public long getListRequests() {
+        return listRequests.get();
+    }
+
+    public long getGetRequests() {
+        return getRequests.get();
+    }
+
+    public long getPutRequests() {
+        return putRequests.get();
+    }
+
+    public long getHeadRequests() {
+        return headRequests.get();
+    }
+
+    @Override
+    public ListObjectsV2Response listObjectsV2(ListObjectsV2Request listObjectsV2Request) {
+        listRequests.incrementAndGet();
+        NavigableMap<String, StoredObject> objects = bucket(listObjectsV2Request.bucket());
+        String prefix = listObjectsV2Request.prefix() == null ? "" : listObjectsV2Request.prefix();
+        String after = listObjectsV2Request.continuationToken() != null ? listObjectsV2Request.continuationToken() : listObjectsV2Request.startAfter();
+        int maxKeys = listObjectsV2Request.maxKeys() == null ? DEFAULT_MAX_KEYS : listObjectsV2Request.maxKeys();
+
+        NavigableMap<String, StoredObject> candidates = after == null ? objects.tailMap(prefix, true) : objects.tailMap(after, false);
+        List<S3Object> contents = new ArrayList<>();
+        String lastKey = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                if (entry.getKey().compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (contents.size() == maxKeys) {
+                truncated = true;
+                break;
+            }
+            StoredObject storedObject = entry.getValue();
+            contents.add(S3Object.builder()
+                            .key(entry.getKey())
+                            .size(storedObject.size)
+                            .lastModified(storedObject.lastModified)
+                            .eTag(storedObject.eTag)
+                            .build());
+            lastKey = entry.getKey();
+        }
+
+        return ListObjectsV2Response.builder()
+                    .contents(contents)
+                    .keyCount(contents.size())
+                    .isTruncated(truncated)
+                    .nextContinuationToken(truncated ? lastKey : null)
+                    .build();
+    }
+
+    @Override
+    public ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest getObjectRequest) {
+        getRequests.incrementAndGet();
+        StoredObject storedObject = storedObject(getObjectRequest.bucket(), getObjectRequest.key());
+        byte[] content = storedObject.content.get();
+        return new ResponseInputStream<>(getObjectResponse(storedObject, content.length), new ByteArrayInputStream(content));
+    }
+
+    @Override
+    public <ReturnT> ReturnT getObject(GetObjectRequest getObjectRequest, ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+        getRequests.incrementAndGet();
+        StoredObject storedObject = storedObject(getObjectRequest.bucket(), getObjectRequest.key());
+        byte[] content = storedObject.content.get();
+        try {
+            return responseTransformer.transform(getObjectResponse(storedObject, content.length), AbortableInputStream.create(new ByteArrayInputStream(content)));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw SdkClientException.create("Unable to transform response for " + getObjectRequest.key(), e);
+        }
+    }
+
+    @Override
+    public PutObjectResponse putObject(PutObjectRequest putObjectRequest, RequestBody requestBody) {
+        putRequests.incrementAndGet();
+        byte[] content;
+        try (InputStream inputStream = requestBody.contentStreamProvider().newStream()) {
+            content = inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        putObject(putObjectRequest.bucket(), putObjectRequest.key(), content);
+        return PutObjectResponse.builder().eTag(eTagOf(content)).build();
+    }
+
+    @Override
+    public HeadObjectResponse headObject(HeadObjectRequest headObjectRequest) {
+        headRequests.incrementAndGet();
+        StoredObject storedObject = storedObject(headObjectRequest.bucket(), headObjectRequest.key());
+        return HeadObjectResponse.builder()
+                    .eTag(storedObject.eTag)
+                    .contentLength(storedObject.size)
+                    .lastModified(storedObject.lastModified)
+                    .contentEncoding(storedObject.contentEncoding)
+                    .cacheControl(storedObject.cacheControl)
+                    .build();
+    }
+
+    @Override
+    public DeleteObjectResponse deleteObject(DeleteObjectRequest deleteObjectRequest) {
+        bucket(deleteObjectRequest.bucket()).remove(deleteObjectRequest.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        buckets.clear();
+    }
+
+    private NavigableMap<String, StoredObject> bucket(String bucket) {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+        if (objects == null) {
+            throw NoSuchBucketException.builder().message("The specified bucket does not exist: " + bucket).build();
+        }
+        return objects;
+    }
+
+    private StoredObject storedObject(String bucket, String key) {
+        StoredObject storedObject = bucket(bucket).get(key);
+        if (storedObject == null) {
+            throw NoSuchKeyException.builder().message("The specified key does not exist: " + key).build();
+        }
+        return storedObject;
+    }
+
+    private static GetObjectResponse getObjectResponse(StoredObject storedObject, long contentLength) {
+        return GetObjectResponse.builder()
+                    .eTag(storedObject.eTag)
+                    .contentLength(contentLength)
+                    .lastModified(storedObject.lastModified)
+                    .build();
+    }
+
+    private static String eTagOf(byte[] content) {
+        return "\"" + Integer.toHexString(Arrays.hashCode(content)) + "-" + content.length + "\"";
+    }
+
+    private static class StoredObject {
+
+        private final Supplier<byte[]> content;
+
+        private final long size;
+
+        private final Instant lastModified;
+
+        private final String eTag;
+
+        private String contentEncoding;
+
+        private String cacheControl;
+
+        StoredObject(Supplier<byte[]> content, long size, Instant lastModified, String eTag) {
+            this.content = content;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.eTag = eTag;
+        }
+    }
+}
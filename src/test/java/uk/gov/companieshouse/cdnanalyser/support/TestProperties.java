@@ -0,0 +1,41 @@
+package uk.gov.companieshouse.cdnanalyser.support;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import uk.gov.companieshouse.cdnanalyser.configuration.AnalysisProperties;
+import uk.gov.companieshouse.cdnanalyser.configuration.ReaderProperties;
+
+/**
+ * Binds the configuration properties records the way the application does, so tests get the same defaults as a
+ * deployment and only override the properties they exercise.
+ */
+public final class TestProperties {
+
+    private TestProperties() {
+    }
+
+    public static AnalysisProperties analysis() {
+        return analysis(Map.of());
+    }
+
+    /**
+     * @param overrides properties relative to cdn.analysis, e.g. "intraday.enabled" to "true"
+     */
+    public static AnalysisProperties analysis(Map<String, String> overrides) {
+        return bind("cdn.analysis", overrides, AnalysisProperties.class);
+    }
+
+    public static ReaderProperties reader() {
+        return bind("cdn", Map.of(), ReaderProperties.class);
+    }
+
+    private static <T> T bind(String prefix, Map<String, String> overrides, Class<T> type) {
+        Map<String, String> properties = new HashMap<>();
+        overrides.forEach((name, value) -> properties.put(prefix + "." + name, value));
+        return new Binder(new MapConfigurationPropertySource(properties)).bindOrCreate(prefix, type);
+    }
+}
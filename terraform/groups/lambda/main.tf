@@ -51,11 +51,12 @@ module "lambda-roles" {
 }
 
 module "cloud-watch" {
-  source        = "./module-cloud-watch"
-  service       = var.service
-  lambda_arn    = module.lambda.lambda_arn
-  environment   = var.environment
-  cron_schedule = var.cron_schedule
+  source         = "./module-cloud-watch"
+  service        = var.service
+  lambda_arn     = module.lambda.lambda_qualified_arn
+  lambda_version = module.lambda.lambda_version
+  environment    = var.environment
+  cron_schedule  = var.cron_schedule
 }provider "aws" {
   region = var.aws_region
 }
@@ -109,9 +110,10 @@ module "lambda-roles" {
 }
 
 module "cloud-watch" {
-  source        = "./module-cloud-watch"
-  service       = var.service
-  lambda_arn    = module.lambda.lambda_arn
-  environment   = var.environment
-  cron_schedule = var.cron_schedule
+  source         = "./module-cloud-watch"
+  service        = var.service
+  lambda_arn     = module.lambda.lambda_qualified_arn
+  lambda_version = module.lambda.lambda_version
+  environment    = var.environment
+  cron_schedule  = var.cron_schedule
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ resource "aws_lambda_permission" "allow_cloudwatch_to_call_cdn_analyser" {
   statement_id  = "AllowLambdaExecutionFromCloudWatch"
   action        = "lambda:InvokeFunction"
   function_name = "${var.service}-${var.environment}"
+  qualifier     = var.lambda_version
   principal     = "events.amazonaws.com"
   source_arn    = aws_cloudwatch_event_rule.cdn_analyser.arn
 }
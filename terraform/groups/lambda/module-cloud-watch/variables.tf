@@ -7,6 +7,11 @@ variable lambda_arn {
   description = "The Lambda ARN to configure as the target of the CloudWatch event"
 }
 
+variable lambda_version {
+  type        = string
+  description = "The published Lambda version the CloudWatch event invokes"
+}
+
 variable environment {
   type        = string
 }
@@ -14,6 +14,11 @@ resource "aws_lambda_function" "cdn_analyser" {
   memory_size   = var.memory_megabytes
   timeout       = var.timeout_seconds
   runtime       = var.runtime
+  publish       = true
+
+  snap_start {
+    apply_on = "PublishedVersions"
+  }
 
   environment {
     variables = merge(
@@ -25,4 +30,13 @@ resource "aws_lambda_function" "cdn_analyser" {
 
 output "lambda_arn" {
   value = aws_lambda_function.cdn_analyser.arn
+}
+
+# SnapStart only applies to published versions, so invocations must use the qualified ARN
+output "lambda_qualified_arn" {
+  value = aws_lambda_function.cdn_analyser.qualified_arn
+}
+
+output "lambda_version" {
+  value = aws_lambda_function.cdn_analyser.version
 }
\ No newline at end of file